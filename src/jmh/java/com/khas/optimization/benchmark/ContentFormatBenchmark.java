@@ -0,0 +1,127 @@
+package com.khas.optimization.benchmark;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.khas.optimization.dto.PaginatedResponse;
+import com.khas.optimization.dto.UserResponse;
+import com.khas.optimization.util.BinaryFormats;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.BenchmarkParams;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Encode/decode cost and payload size of a 100-user page in each negotiable format
+ *
+ * format = json  - application/json (default)
+ * format = cbor  - application/cbor
+ * format = smile - application/x-jackson-smile
+ *
+ * encode - PaginatedResponse<UserResponse> to bytes, as the codecs write it
+ * decode - bytes back to PaginatedResponse<UserResponse>, as an internal consumer reads it
+ *
+ * encode also reports the encoded size as the secondary result "encode:payloadBytes".
+ * Run with: ./gradlew jmh -PjmhIncludes=ContentFormatBenchmark -PjmhProfilers=gc
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ContentFormatBenchmark {
+
+    private static final int PAGE_SIZE = 100;
+
+    @Param({"json", "cbor", "smile"})
+    public String format;
+
+    private PaginatedResponse<UserResponse> page;
+    private ObjectWriter writer;
+    private ObjectReader reader;
+    private byte[] payload;
+
+    @Setup
+    public void setUp() throws Exception {
+        // Same settings as spring.jackson.* in application.yml
+        ObjectMapper json = new ObjectMapper()
+                .registerModule(new JavaTimeModule())
+                .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+                .setSerializationInclusion(JsonInclude.Include.NON_NULL);
+        ObjectMapper mapper = switch (format) {
+            case "cbor" -> BinaryFormats.cbor(json);
+            case "smile" -> BinaryFormats.smile(json);
+            default -> json;
+        };
+
+        LocalDateTime createdAt = LocalDateTime.of(2026, 1, 1, 8, 30, 15, 123_000_000);
+        List<UserResponse> users = new ArrayList<>(PAGE_SIZE);
+        for (int i = 0; i < PAGE_SIZE; i++) {
+            users.add(new UserResponse((long) i, "user" + i, "user" + i + "@example.com", true,
+                    i % 10 == 0 ? List.of("ROLE_USER", "ROLE_ADMIN") : List.of("ROLE_USER"),
+                    createdAt.plusMinutes(i), createdAt.plusHours(i), 1L));
+        }
+        page = PaginatedResponse.of(users, 0, PAGE_SIZE, 10_000L, "Users retrieved successfully");
+
+        writer = mapper.writerFor(new TypeReference<PaginatedResponse<UserResponse>>() { });
+        reader = mapper.readerFor(new TypeReference<PaginatedResponse<UserResponse>>() { });
+        payload = writer.writeValueAsBytes(page);
+    }
+
+    @Benchmark
+    public byte[] encode(Size size) throws Exception {
+        byte[] encoded = writer.writeValueAsBytes(page);
+        size.record(encoded.length);
+        return encoded;
+    }
+
+    @Benchmark
+    public PaginatedResponse<UserResponse> decode() throws Exception {
+        return reader.readValue(payload);
+    }
+
+    /**
+     * Encoded page size, reported next to the timing
+     * JMH sums event counters over the measurement iterations, so only the last one records it.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Size {
+
+        public long payloadBytes;
+
+        private int iteration;
+        private int lastIteration;
+
+        @Setup(Level.Trial)
+        public void setUp(BenchmarkParams params) {
+            lastIteration = params.getWarmup().getCount() + params.getMeasurement().getCount();
+        }
+
+        @Setup(Level.Iteration)
+        public void nextIteration() {
+            iteration++;
+            payloadBytes = 0;
+        }
+
+        void record(int bytes) {
+            if (iteration == lastIteration) {
+                payloadBytes = bytes;
+            }
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package com.khas.optimization.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.khas.optimization.dto.ErrorResponse;
+import com.khas.optimization.exception.ErrorResponseTemplates;
+import com.khas.optimization.exception.UnauthorizedException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.http.HttpStatus;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of one rejected request (401) before and after pre-encoded error bodies
+ *
+ * legacyReject - RuntimeException with a stack trace + new ErrorResponse + writeValueAsString + getBytes (before)
+ * reject       - stackless DomainException + ErrorResponseTemplates.encode (after)
+ * legacyBody / body - the response body alone, without the exception
+ *
+ * Run with: ./gradlew jmh -PjmhIncludes=ErrorResponseBenchmark -PjmhProfilers=gc
+ * (gc.alloc.rate.norm is the bytes allocated per rejection)
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class ErrorResponseBenchmark {
+
+    private static final String MESSAGE = "Invalid or expired token";
+    private static final String PATH = "/api/users/42";
+
+    private ObjectMapper objectMapper;
+    private ErrorResponseTemplates templates;
+
+    @Setup
+    public void setUp() {
+        objectMapper = new ObjectMapper()
+                .registerModule(new JavaTimeModule())
+                .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+        templates = new ErrorResponseTemplates(objectMapper);
+    }
+
+    @Benchmark
+    public void legacyReject(Blackhole blackhole) throws Exception {
+        // Exceptions thrown from a few frames down, as from a service or filter
+        blackhole.consume(legacyThrow());
+        blackhole.consume(legacyBody());
+    }
+
+    @Benchmark
+    public void reject(Blackhole blackhole) {
+        blackhole.consume(domainThrow());
+        blackhole.consume(body());
+    }
+
+    @Benchmark
+    public byte[] legacyBody() throws Exception {
+        ErrorResponse error = new ErrorResponse(
+            HttpStatus.UNAUTHORIZED.value(),
+            HttpStatus.UNAUTHORIZED.getReasonPhrase(),
+            MESSAGE,
+            PATH
+        );
+        return objectMapper.writeValueAsString(error).getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public byte[] body() {
+        return templates.encode(HttpStatus.UNAUTHORIZED, HttpStatus.UNAUTHORIZED.getReasonPhrase(), MESSAGE, PATH);
+    }
+
+    private static RuntimeException legacyThrow() {
+        try {
+            throw new RuntimeException(MESSAGE);
+        } catch (RuntimeException e) {
+            return e;
+        }
+    }
+
+    private static RuntimeException domainThrow() {
+        try {
+            throw new UnauthorizedException(MESSAGE);
+        } catch (RuntimeException e) {
+            return e;
+        }
+    }
+}
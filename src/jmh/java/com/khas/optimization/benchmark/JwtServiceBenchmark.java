@@ -0,0 +1,92 @@
+package com.khas.optimization.benchmark;
+
+import com.khas.optimization.config.JwtProperties;
+import com.khas.optimization.service.JwtPrincipal;
+import com.khas.optimization.service.JwtService;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.Keys;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import javax.crypto.SecretKey;
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Token throughput of JwtService before and after the prebuilt parser and minter
+ *
+ * legacyMint  - claims HashMap + Jwts.builder() + two Dates per token (before)
+ * mint        - JwtService.generateToken with precomputed header/claims and a per-thread Mac (after)
+ * legacyParse - new JwtParser per call (before; the old filter did this three times per request)
+ * parse       - one parse with the shared JwtParser (after)
+ *
+ * Run with: ./gradlew jmh -PjmhIncludes=JwtServiceBenchmark -PjmhProfilers=gc
+ * (gc.alloc.rate.norm is the bytes allocated per token)
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class JwtServiceBenchmark {
+
+    private static final String USERNAME = "benchmark-user";
+    private static final String[] ROLES = {"ROLE_USER", "ROLE_ADMIN"};
+
+    private JwtProperties jwtProperties;
+    private SecretKey secretKey;
+    private JwtService jwtService;
+    private String token;
+
+    @Setup
+    public void setUp() {
+        jwtProperties = new JwtProperties();
+        jwtProperties.setSecret("benchmark-secret-key-minimum-256-bits-for-hmac-sha-256-algorithm");
+        secretKey = Keys.hmacShaKeyFor(jwtProperties.getSecret().getBytes(StandardCharsets.UTF_8));
+        jwtService = new JwtService(jwtProperties);
+        token = jwtService.generateToken(USERNAME, ROLES);
+    }
+
+    @Benchmark
+    public String legacyMint() {
+        Map<String, Object> extraClaims = new HashMap<>();
+        extraClaims.put("roles", ROLES);
+        Map<String, Object> claims = new HashMap<>(extraClaims);
+        claims.put("sub", USERNAME);
+        return Jwts.builder()
+                .claims(claims)
+                .subject(USERNAME)
+                .issuer(jwtProperties.getIssuer())
+                .audience().add(jwtProperties.getAudience()).and()
+                .issuedAt(new Date())
+                .expiration(new Date(System.currentTimeMillis() + jwtProperties.getExpiration()))
+                .signWith(secretKey)
+                .compact();
+    }
+
+    @Benchmark
+    public String mint() {
+        return jwtService.generateToken(USERNAME, ROLES);
+    }
+
+    @Benchmark
+    public Claims legacyParse() {
+        return Jwts.parser()
+                .verifyWith(secretKey)
+                .build()
+                .parseSignedClaims(token)
+                .getPayload();
+    }
+
+    @Benchmark
+    public JwtPrincipal parse() {
+        return jwtService.parsePrincipal(token);
+    }
+}
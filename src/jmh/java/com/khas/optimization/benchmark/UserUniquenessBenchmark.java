@@ -0,0 +1,119 @@
+package com.khas.optimization.benchmark;
+
+import io.r2dbc.spi.ConnectionFactories;
+import io.r2dbc.spi.ConnectionFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.r2dbc.core.DatabaseClient;
+import reactor.core.publisher.Mono;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Create-user latency: the SQL issued by UserService.createUser before and after
+ * the single round-trip uniqueness check, against an in-memory H2 database.
+ *
+ * sequentialChecks - COUNT by username, then COUNT by email, then INSERT (before)
+ * combinedCheck    - one query with both COUNT subqueries, then INSERT (after)
+ * noPrecheck       - INSERT only (user.uniqueness-precheck=false)
+ *
+ * Run with: ./gradlew jmh -PjmhIncludes=UserUniquenessBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class UserUniquenessBenchmark {
+
+    private static final String COUNT_BY_USERNAME =
+            "SELECT COUNT(*) FROM users WHERE username = :username AND deleted_at IS NULL";
+    private static final String COUNT_BY_EMAIL =
+            "SELECT COUNT(*) FROM users WHERE email = :email AND deleted_at IS NULL";
+    private static final String UNIQUENESS_CONFLICT =
+            "SELECT (SELECT COUNT(*) FROM users WHERE username = :username AND id <> :excludeId AND deleted_at IS NULL) AS username_count, " +
+            "(SELECT COUNT(*) FROM users WHERE email = :email AND id <> :excludeId AND deleted_at IS NULL) AS email_count";
+    private static final String INSERT_USER =
+            "INSERT INTO users (username, email, password_hash, enabled) VALUES (:username, :email, 'hash', TRUE)";
+
+    /**
+     * Rows already in the table when the benchmark starts
+     */
+    @Param({"1000"})
+    private int existingUsers;
+
+    private DatabaseClient client;
+    private long sequence;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        ConnectionFactory connectionFactory = ConnectionFactories.get(
+                "r2dbc:h2:mem:///uniqueness-bench;DB_CLOSE_DELAY=-1;MODE=MySQL");
+        client = DatabaseClient.create(connectionFactory);
+
+        client.sql("DROP TABLE IF EXISTS users").then().block();
+        client.sql("CREATE TABLE users (" +
+                        "id BIGINT AUTO_INCREMENT PRIMARY KEY, " +
+                        "username VARCHAR(100) NOT NULL UNIQUE, " +
+                        "email VARCHAR(255) NOT NULL UNIQUE, " +
+                        "password_hash VARCHAR(255) NOT NULL, " +
+                        "enabled BOOLEAN DEFAULT TRUE, " +
+                        "created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP, " +
+                        "updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP, " +
+                        "deleted_at TIMESTAMP NULL)")
+                .then().block();
+        for (int i = 0; i < existingUsers; i++) {
+            insert("seed" + i).block();
+        }
+    }
+
+    @Benchmark
+    public Long sequentialChecks() {
+        String username = nextUsername();
+        return client.sql(COUNT_BY_USERNAME)
+                .bind("username", username)
+                .map(row -> row.get(0, Long.class))
+                .one()
+                .then(client.sql(COUNT_BY_EMAIL)
+                        .bind("email", username + "@example.com")
+                        .map(row -> row.get(0, Long.class))
+                        .one())
+                .then(insert(username))
+                .block();
+    }
+
+    @Benchmark
+    public Long combinedCheck() {
+        String username = nextUsername();
+        return client.sql(UNIQUENESS_CONFLICT)
+                .bind("username", username)
+                .bind("email", username + "@example.com")
+                .bind("excludeId", -1L)
+                .map(row -> row.get("username_count", Long.class))
+                .one()
+                .then(insert(username))
+                .block();
+    }
+
+    @Benchmark
+    public Long noPrecheck() {
+        return insert(nextUsername()).block();
+    }
+
+    private Mono<Long> insert(String username) {
+        return client.sql(INSERT_USER)
+                .bind("username", username)
+                .bind("email", username + "@example.com")
+                .fetch()
+                .rowsUpdated();
+    }
+
+    private String nextUsername() {
+        return "bench" + sequence++;
+    }
+}
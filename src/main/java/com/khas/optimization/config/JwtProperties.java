@@ -4,6 +4,9 @@ import jakarta.annotation.PostConstruct;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.stereotype.Component;
 
+import java.time.Duration;
+import java.util.Set;
+
 /**
  * JWT Configuration Properties
  */
@@ -15,6 +18,13 @@ public class JwtProperties {
     private long expiration = 86400000; // 24 hours in milliseconds
     private String issuer = "spring-boot-optimization";
     private String audience = "spring-boot-optimization-users";
+    private boolean compactRoles = false; // roles as a bitmask claim (see CompactRoleClaim)
+    private String algorithm = "HS256"; // HS256 (secret), EdDSA or ES256 (key ring)
+    private String keyDirectory; // PEM key ring, one <kid>.pem per key (see JwtKeyRing)
+    private String activeKeyId; // kid to sign with; default: highest kid with a private key
+    private Duration keyReloadInterval = Duration.ofMinutes(1);
+    private boolean acceptHmac = true; // keep verifying secret-signed tokens after switching algorithm
+    private Duration jwksMaxAge = Duration.ofMinutes(5);
     
     /**
      * Validate JWT secret key after properties are set
@@ -36,6 +46,18 @@ public class JwtProperties {
                 "Current value: " + expiration
             );
         }
+        
+        if (!Set.of("HS256", "EdDSA", "ES256").contains(algorithm)) {
+            throw new IllegalStateException(
+                "JWT algorithm must be HS256, EdDSA or ES256. Current value: " + algorithm
+            );
+        }
+        
+        if (!"HS256".equals(algorithm) && (keyDirectory == null || keyDirectory.isBlank())) {
+            throw new IllegalStateException(
+                "JWT algorithm " + algorithm + " signs with a key ring: set jwt.key-directory (JWT_KEY_DIRECTORY)"
+            );
+        }
     }
     
     public String getSecret() {
@@ -69,5 +91,60 @@ public class JwtProperties {
     public void setAudience(String audience) {
         this.audience = audience;
     }
+    
+    public boolean isCompactRoles() {
+        return compactRoles;
+    }
+    
+    public void setCompactRoles(boolean compactRoles) {
+        this.compactRoles = compactRoles;
+    }
+    
+    public String getAlgorithm() {
+        return algorithm;
+    }
+    
+    public void setAlgorithm(String algorithm) {
+        this.algorithm = algorithm;
+    }
+    
+    public String getKeyDirectory() {
+        return keyDirectory;
+    }
+    
+    public void setKeyDirectory(String keyDirectory) {
+        this.keyDirectory = keyDirectory;
+    }
+    
+    public String getActiveKeyId() {
+        return activeKeyId;
+    }
+    
+    public void setActiveKeyId(String activeKeyId) {
+        this.activeKeyId = activeKeyId;
+    }
+    
+    public Duration getKeyReloadInterval() {
+        return keyReloadInterval;
+    }
+    
+    public void setKeyReloadInterval(Duration keyReloadInterval) {
+        this.keyReloadInterval = keyReloadInterval;
+    }
+    
+    public boolean isAcceptHmac() {
+        return acceptHmac;
+    }
+    
+    public void setAcceptHmac(boolean acceptHmac) {
+        this.acceptHmac = acceptHmac;
+    }
+    
+    public Duration getJwksMaxAge() {
+        return jwksMaxAge;
+    }
+    
+    public void setJwksMaxAge(Duration jwksMaxAge) {
+        this.jwksMaxAge = jwksMaxAge;
+    }
 }
-
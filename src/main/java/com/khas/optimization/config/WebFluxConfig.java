@@ -0,0 +1,53 @@
+package com.khas.optimization.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.khas.optimization.filter.RoleAuthorizationHandlerMapping;
+import com.khas.optimization.util.BinaryFormats;
+import org.springframework.boot.autoconfigure.web.reactive.WebFluxRegistrations;
+import org.springframework.boot.web.codec.CodecCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.codec.cbor.Jackson2CborDecoder;
+import org.springframework.http.codec.cbor.Jackson2CborEncoder;
+import org.springframework.http.codec.json.Jackson2SmileDecoder;
+import org.springframework.http.codec.json.Jackson2SmileEncoder;
+import org.springframework.web.reactive.result.method.annotation.RequestMappingHandlerMapping;
+
+/**
+ * WebFlux infrastructure customizations
+ */
+@Configuration
+public class WebFluxConfig {
+    
+    /**
+     * Use RoleAuthorizationHandlerMapping as the requestMappingHandlerMapping bean
+     * so @RequiresRole is checked on the handler the dispatcher resolves.
+     */
+    @Bean
+    public WebFluxRegistrations webFluxRegistrations() {
+        return new WebFluxRegistrations() {
+            @Override
+            public RequestMappingHandlerMapping getRequestMappingHandlerMapping() {
+                return new RoleAuthorizationHandlerMapping();
+            }
+        };
+    }
+    
+    /**
+     * CBOR and Smile codecs sharing the JSON ObjectMapper's configuration
+     * Smile replaces the default codec (which would use an unconfigured mapper); CBOR has
+     * no default codec and is registered as a custom one. The CBOR codec only handles
+     * single values (Mono bodies), which is all the user and auth endpoints produce.
+     */
+    @Bean
+    public CodecCustomizer binaryCodecCustomizer(ObjectMapper objectMapper) {
+        ObjectMapper cborMapper = BinaryFormats.cbor(objectMapper);
+        ObjectMapper smileMapper = BinaryFormats.smile(objectMapper);
+        return configurer -> {
+            configurer.defaultCodecs().jackson2SmileEncoder(new Jackson2SmileEncoder(smileMapper));
+            configurer.defaultCodecs().jackson2SmileDecoder(new Jackson2SmileDecoder(smileMapper));
+            configurer.customCodecs().register(new Jackson2CborEncoder(cborMapper));
+            configurer.customCodecs().register(new Jackson2CborDecoder(cborMapper));
+        };
+    }
+}
@@ -1,5 +1,7 @@
 package com.khas.optimization.constants;
 
+import java.util.Collection;
+
 /**
  * Role Constants
  * Centralized role names to avoid hardcoded strings
@@ -25,6 +27,41 @@ public final class RoleConstants {
      */
     public static final String ROLE_MODERATOR = "ROLE_MODERATOR";
     
+    /**
+     * Role bits for authorization checks (one bit per role above)
+     * A caller's roles and an endpoint's @RequiresRole are both reduced to masks of these bits.
+     */
+    public static final long ROLE_USER_BIT = 1L;
+    public static final long ROLE_ADMIN_BIT = 1L << 1;
+    public static final long ROLE_MODERATOR_BIT = 1L << 2;
+    
+    /**
+     * Bit of a role name
+     * @return The role bit, or 0 for a role not defined here
+     */
+    public static long bitOf(String role) {
+        if (role == null) {
+            return 0L;
+        }
+        return switch (role) {
+            case ROLE_USER -> ROLE_USER_BIT;
+            case ROLE_ADMIN -> ROLE_ADMIN_BIT;
+            case ROLE_MODERATOR -> ROLE_MODERATOR_BIT;
+            default -> 0L;
+        };
+    }
+    
+    /**
+     * Combined bits of role names; unknown roles contribute nothing
+     */
+    public static long maskOf(Collection<String> roles) {
+        long mask = 0L;
+        for (String role : roles) {
+            mask |= bitOf(role);
+        }
+        return mask;
+    }
+    
     /**
      * Get all available roles
      * @return Array of all role constants
@@ -2,24 +2,40 @@ package com.khas.optimization.controller;
 
 import com.khas.optimization.dto.LoginRequest;
 import com.khas.optimization.dto.LoginResponse;
+import com.khas.optimization.dto.RefreshRequest;
+import com.khas.optimization.dto.TokenBatchRequest;
+import com.khas.optimization.dto.TokenValidation;
+import com.khas.optimization.exception.ServiceUnavailableException;
+import com.khas.optimization.service.JwtPrincipal;
 import com.khas.optimization.service.JwtService;
+import com.khas.optimization.service.LoginThrottle;
 import com.khas.optimization.service.PasswordService;
+import com.khas.optimization.service.RefreshTokenService;
+import com.khas.optimization.service.TokenRevocationService;
 import com.khas.optimization.service.UserService;
+import com.khas.optimization.service.VerifiedTokenCache;
+import com.khas.optimization.util.BinaryFormats;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.security.SecurityRequirement;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.server.reactive.ServerHttpRequest;
 import org.springframework.web.bind.annotation.*;
 import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
 
+import java.net.InetSocketAddress;
+import java.util.List;
 import java.util.Map;
 
 /**
@@ -35,11 +51,21 @@ public class AuthController {
     private final JwtService jwtService;
     private final UserService userService;
     private final PasswordService passwordService;
+    private final VerifiedTokenCache verifiedTokenCache;
+    private final LoginThrottle loginThrottle;
+    private final RefreshTokenService refreshTokenService;
+    private final TokenRevocationService tokenRevocationService;
     
-    public AuthController(JwtService jwtService, UserService userService, PasswordService passwordService) {
+    public AuthController(JwtService jwtService, UserService userService, PasswordService passwordService,
+                          VerifiedTokenCache verifiedTokenCache, LoginThrottle loginThrottle,
+                          RefreshTokenService refreshTokenService, TokenRevocationService tokenRevocationService) {
         this.jwtService = jwtService;
         this.userService = userService;
         this.passwordService = passwordService;
+        this.verifiedTokenCache = verifiedTokenCache;
+        this.loginThrottle = loginThrottle;
+        this.refreshTokenService = refreshTokenService;
+        this.tokenRevocationService = tokenRevocationService;
     }
     
     /**
@@ -59,60 +85,77 @@ public class AuthController {
             responseCode = "401",
             description = "Invalid credentials",
             content = @Content(schema = @Schema(implementation = LoginResponse.class))
+        ),
+        @ApiResponse(
+            responseCode = "429",
+            description = "Too many attempts for this username or client IP, retry after the Retry-After delay",
+            content = @Content(schema = @Schema(implementation = LoginResponse.class))
+        ),
+        @ApiResponse(
+            responseCode = "503",
+            description = "Password hashing at capacity, retry after the Retry-After delay",
+            content = @Content(schema = @Schema(implementation = LoginResponse.class))
         )
     })
-    @PostMapping(value = "/login", produces = MediaType.APPLICATION_JSON_VALUE)
-    public Mono<ResponseEntity<LoginResponse>> login(@Valid @RequestBody LoginRequest request) {
+    @PostMapping(value = "/login", produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_CBOR_VALUE, BinaryFormats.APPLICATION_SMILE_VALUE})
+    public Mono<ResponseEntity<LoginResponse>> login(@Valid @RequestBody LoginRequest request,
+                                                     ServerHttpRequest httpRequest) {
         logger.info("Login attempt for username: {}", request.getUsername());
         
-        return userService.getUserByUsername(request.getUsername())
-                .flatMap(user -> {
-                    // Verify password
-                    if (passwordService.verifyPassword(request.getPassword(), user.getPasswordHash())) {
-                        logger.info("Successful login for username: {}", request.getUsername());
-                        
-                        // Get user roles from database
-                        return userService.getUserRoles(user.getId())
-                                .map(role -> role.getName())
-                                .collectList()
-                                .flatMap(roleNames -> {
-                                    // Convert to role names array
-                                    String[] roleNamesArray = roleNames.isEmpty() 
-                                            ? new String[0] 
-                                            : roleNames.toArray(new String[0]);
-                                    
-                                    // Generate token with roles from database
-                                    String token;
-                                    if (roleNamesArray.length > 0) {
-                                        token = jwtService.generateToken(user.getUsername(), roleNamesArray);
-                                    } else {
-                                        // If no roles found, generate token without roles
-                                        token = jwtService.generateToken(user.getUsername());
-                                    }
-                                    
-                                    LoginResponse response = new LoginResponse(
-                                            true,
-                                            token,
-                                            "Bearer",
-                                            user.getUsername()
-                                    );
-                                    
-                                    return Mono.just(ResponseEntity.ok(response));
-                                });
-                    } else {
-                        logger.warn("Failed login attempt for username: {} - Invalid password", request.getUsername());
-                        LoginResponse response = new LoginResponse(
-                                false,
-                                "Invalid username or password"
-                        );
-                        return Mono.just(ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(response));
-                    }
-                })
+        // Throttle before the user lookup and BCrypt so bursts cannot saturate the CPU
+        long retryAfterMillis = loginThrottle.tryAcquire(request.getUsername(), clientAddress(httpRequest));
+        if (retryAfterMillis > 0) {
+            logger.warn("Login throttled for username: {}", request.getUsername());
+            return Mono.just(ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                    .header(HttpHeaders.RETRY_AFTER, String.valueOf((retryAfterMillis + 999) / 1000))
+                    .body(new LoginResponse(false, "Too many login attempts, please retry later")));
+        }
+        
+        // Credentials and role names in one query (or from the credential cache)
+        return userService.getCredentials(request.getUsername())
+                // Verify password on the password hashing pool (BCrypt must not block the event loop)
+                .flatMap(credentials -> passwordService.verify(request.getPassword(), credentials.passwordHash())
+                        .flatMap(matches -> {
+                            if (matches) {
+                                logger.info("Successful login for username: {}", request.getUsername());
+                                
+                                // Rehash in the background if the stored hash predates the current cost policy
+                                userService.upgradePasswordHash(credentials, request.getPassword())
+                                        .subscribe(null, error -> logger.warn("Password rehash failed for username: {} - {}",
+                                                request.getUsername(), error.getMessage()));
+                                
+                                // Generate token with the roles loaded alongside the credentials
+                                String token = accessToken(credentials.username(), credentials.roles());
+                                
+                                // Start a refresh token family for this login
+                                return refreshTokenService.issue(credentials.userId())
+                                        .map(refreshToken -> ResponseEntity.ok(new LoginResponse(
+                                                true,
+                                                token,
+                                                "Bearer",
+                                                credentials.username(),
+                                                refreshToken
+                                        )));
+                            } else {
+                                logger.warn("Failed login attempt for username: {} - Invalid password", request.getUsername());
+                                LoginResponse response = new LoginResponse(
+                                        false,
+                                        "Invalid username or password"
+                                );
+                                return Mono.just(ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(response));
+                            }
+                        }))
                 .switchIfEmpty(Mono.defer(() -> {
                     logger.warn("Login attempt for non-existent username: {}", request.getUsername());
                     return Mono.just(ResponseEntity.status(HttpStatus.UNAUTHORIZED)
                             .body(new LoginResponse(false, "Invalid username or password")));
                 }))
+                .onErrorResume(ServiceUnavailableException.class, error -> {
+                    logger.warn("Login shed for username: {} - {}", request.getUsername(), error.getMessage());
+                    return Mono.just(ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                            .header(HttpHeaders.RETRY_AFTER, "1")
+                            .body(new LoginResponse(false, error.getMessage())));
+                })
                 .onErrorResume(error -> {
                     logger.error("Login failed for username: {} - Error: {}", request.getUsername(), error.getMessage(), error);
                     return Mono.just(ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
@@ -120,6 +163,90 @@ public class AuthController {
                 });
     }
     
+    /**
+     * Refresh endpoint - exchanges a refresh token for a new access/refresh token pair
+     * No password check: the refresh token is looked up by its SHA-256 and rotated.
+     */
+    @Operation(
+        summary = "Refresh access token",
+        description = "Exchanges a refresh token for a new access token and a new refresh token (the old one is revoked)"
+    )
+    @ApiResponses(value = {
+        @ApiResponse(
+            responseCode = "200",
+            description = "New token pair issued",
+            content = @Content(schema = @Schema(implementation = LoginResponse.class))
+        ),
+        @ApiResponse(
+            responseCode = "401",
+            description = "Refresh token unknown, expired, already used or revoked"
+        )
+    })
+    @PostMapping(value = "/refresh", produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_CBOR_VALUE, BinaryFormats.APPLICATION_SMILE_VALUE})
+    public Mono<ResponseEntity<LoginResponse>> refresh(@Valid @RequestBody RefreshRequest request) {
+        // Error handling is done by GlobalExceptionHandler
+        return refreshTokenService.refresh(request.getRefreshToken())
+                .map(session -> ResponseEntity.ok(new LoginResponse(
+                        true,
+                        accessToken(session.username(), session.roles()),
+                        "Bearer",
+                        session.username(),
+                        session.refreshToken()
+                )));
+    }
+    
+    /**
+     * Logout endpoint - revokes the bearer access token (by jti) and the refresh token with
+     * every token rotated from the same login; both are optional
+     */
+    @Operation(
+        summary = "Logout",
+        description = "Revokes the access token from the Authorization header and the refresh token family from the body"
+    )
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "204", description = "Tokens revoked (unknown or invalid tokens are ignored)")
+    })
+    @PostMapping("/logout")
+    public Mono<ResponseEntity<Void>> logout(
+            @RequestHeader(value = HttpHeaders.AUTHORIZATION, required = false) String authHeader,
+            @RequestBody(required = false) RefreshRequest request) {
+        Mono<Void> revokeAccessToken = Mono.empty();
+        if (authHeader != null && authHeader.startsWith("Bearer ")) {
+            JwtPrincipal principal = verifiedTokenCache.authenticate(authHeader.substring(7));
+            if (principal != null) {
+                revokeAccessToken = tokenRevocationService.revoke(principal.tokenId(), principal.expiresAt());
+            }
+        }
+        Mono<Void> revokeRefreshToken = request != null
+                ? refreshTokenService.revoke(request.getRefreshToken())
+                : Mono.empty();
+        return revokeAccessToken
+                .then(revokeRefreshToken)
+                .then(Mono.just(ResponseEntity.noContent().<Void>build()));
+    }
+    
+    /**
+     * Access token for a user, with the roles claim only when the user has roles
+     */
+    private String accessToken(String username, List<String> roleNames) {
+        return roleNames.isEmpty()
+                ? jwtService.generateToken(username)
+                : jwtService.generateToken(username, roleNames.toArray(new String[0]));
+    }
+    
+    /**
+     * Client IP of the request (honours X-Forwarded-For only when server.forward-headers-strategy is set)
+     */
+    private static String clientAddress(ServerHttpRequest request) {
+        InetSocketAddress remoteAddress = request.getRemoteAddress();
+        if (remoteAddress == null) {
+            return null;
+        }
+        return remoteAddress.getAddress() != null
+                ? remoteAddress.getAddress().getHostAddress()
+                : remoteAddress.getHostString();
+    }
+    
     /**
      * Validate token endpoint
      */
@@ -134,7 +261,7 @@ public class AuthController {
             content = @Content(mediaType = "application/json")
         )
     })
-    @GetMapping(value = "/validate", produces = MediaType.APPLICATION_JSON_VALUE)
+    @GetMapping(value = "/validate", produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_CBOR_VALUE, BinaryFormats.APPLICATION_SMILE_VALUE})
     public Mono<Map<String, Object>> validateToken(@RequestHeader("Authorization") String authHeader) {
         if (authHeader == null || !authHeader.startsWith("Bearer ")) {
             return Mono.just(Map.of(
@@ -144,16 +271,13 @@ public class AuthController {
         }
         
         String token = authHeader.substring(7);
-        boolean isValid = jwtService.validateToken(token);
+        JwtPrincipal principal = verifiedTokenCache.authenticate(token);
         
-        if (isValid) {
-            String username = jwtService.extractUsername(token);
-            String[] roles = jwtService.extractRoles(token);
-            
+        if (principal != null) {
             return Mono.just(Map.of(
                 "valid", true,
-                "username", username,
-                "roles", roles
+                "username", principal.username(),
+                "roles", principal.roles()
             ));
         }
         
@@ -162,5 +286,40 @@ public class AuthController {
             "message", "Token is invalid or expired"
         ));
     }
+    
+    /**
+     * Batch validate endpoint - one round trip for many tokens (e.g. a gateway's concurrent requests)
+     * Each distinct token is parsed at most once and served from the verified-token cache when possible.
+     * Unlike /validate this requires a valid bearer token of its own (the calling gateway's).
+     */
+    @Operation(
+        summary = "Validate JWT tokens in a batch",
+        description = "Validates up to 256 tokens and returns, in request order, validity, username, roles and expiry of each"
+    )
+    @ApiResponses(value = {
+        @ApiResponse(
+            responseCode = "200",
+            description = "Token validation results, one per token",
+            content = @Content(mediaType = "application/json")
+        ),
+        @ApiResponse(
+            responseCode = "400",
+            description = "Missing tokens or more than 256 tokens"
+        ),
+        @ApiResponse(
+            responseCode = "401",
+            description = "Missing or invalid Authorization header (the caller's own token)"
+        )
+    })
+    @SecurityRequirement(name = "bearer-jwt")
+    @PostMapping(value = "/validate:batch", produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_CBOR_VALUE, BinaryFormats.APPLICATION_SMILE_VALUE},
+            consumes = MediaType.APPLICATION_JSON_VALUE)
+    public Mono<Map<String, List<TokenValidation>>> validateTokens(@Valid @RequestBody TokenBatchRequest request) {
+        // Up to 256 signature checks: run them off the event loop
+        return Mono.fromCallable(() -> verifiedTokenCache.authenticateAll(request.getTokens()).stream()
+                        .map(TokenValidation::of)
+                        .toList())
+                .subscribeOn(Schedulers.boundedElastic())
+                .map(results -> Map.of("results", results));
+    }
 }
-
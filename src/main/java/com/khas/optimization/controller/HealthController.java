@@ -1,5 +1,6 @@
 package com.khas.optimization.controller;
 
+import com.khas.optimization.service.JwtPrincipal;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
@@ -16,6 +17,7 @@ import java.lang.management.ManagementFactory;
 import java.lang.management.MemoryMXBean;
 import java.lang.management.OperatingSystemMXBean;
 import java.time.Instant;
+import java.util.List;
 import java.util.Map;
 
 /**
@@ -83,13 +85,12 @@ public class HealthController {
     @SecurityRequirement(name = "bearer-jwt")
     @GetMapping(value = "/protected", produces = MediaType.APPLICATION_JSON_VALUE)
     public Mono<Map<String, Object>> protectedEndpoint(org.springframework.web.server.ServerWebExchange exchange) {
-        String username = (String) exchange.getAttributes().get("username");
-        String[] roles = (String[]) exchange.getAttributes().get("roles");
+        JwtPrincipal principal = JwtPrincipal.from(exchange);
         
         return Mono.just(Map.of(
             "message", "This is a protected endpoint",
-            "username", username != null ? username : "unknown",
-            "roles", roles != null ? roles : new String[0],
+            "username", principal != null ? principal.username() : "unknown",
+            "roles", principal != null ? principal.roles() : List.of(),
             "timestamp", Instant.now().toString()
         ));
     }
@@ -0,0 +1,69 @@
+package com.khas.optimization.controller;
+
+import com.khas.optimization.config.JwtProperties;
+import com.khas.optimization.service.JwtKeyRing;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RestController;
+
+/**
+ * JWK Set endpoint
+ * Publishes the key ring's public keys so other services verify tokens locally
+ * instead of calling /api/auth/validate. The body is pre-serialized per key load and
+ * served with a strong ETag and Cache-Control, so clients revalidate with a 304.
+ */
+@Tag(name = "Authentication", description = "Authentication endpoints for JWT token generation and validation")
+@RestController
+public class JwksController {
+
+    public static final String JWK_SET_JSON_VALUE = "application/jwk-set+json";
+
+    private final JwtKeyRing keyRing;
+    private final CacheControl cacheControl;
+
+    public JwksController(JwtKeyRing keyRing, JwtProperties jwtProperties) {
+        this.keyRing = keyRing;
+        this.cacheControl = CacheControl.maxAge(jwtProperties.getJwksMaxAge()).cachePublic();
+    }
+
+    @Operation(
+        summary = "JSON Web Key Set",
+        description = "Public keys (by kid) that verify tokens signed with EdDSA or ES256. Never contains the HMAC secret."
+    )
+    @ApiResponses(value = {
+        @ApiResponse(
+            responseCode = "200",
+            description = "JWK Set",
+            content = @Content(mediaType = JWK_SET_JSON_VALUE)
+        ),
+        @ApiResponse(
+            responseCode = "304",
+            description = "Not modified (If-None-Match matches the current ETag)"
+        )
+    })
+    @GetMapping(value = "/.well-known/jwks.json", produces = {MediaType.APPLICATION_JSON_VALUE, JWK_SET_JSON_VALUE})
+    public ResponseEntity<byte[]> jwks(
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        JwtKeyRing.Snapshot snapshot = keyRing.current();
+        if (ifNoneMatch != null && (ifNoneMatch.contains(snapshot.etag()) || ifNoneMatch.trim().equals("*"))) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                    .eTag(snapshot.etag())
+                    .cacheControl(cacheControl)
+                    .build();
+        }
+        return ResponseEntity.ok()
+                .eTag(snapshot.etag())
+                .cacheControl(cacheControl)
+                .body(snapshot.jwks());
+    }
+}
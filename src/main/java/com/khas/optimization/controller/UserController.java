@@ -2,11 +2,18 @@ package com.khas.optimization.controller;
 
 import com.khas.optimization.annotation.RequiresRole;
 import com.khas.optimization.dto.ApiResponse;
+import com.khas.optimization.dto.BulkImportResult;
+import com.khas.optimization.dto.BulkUpdateResult;
+import com.khas.optimization.dto.ExportFormat;
 import com.khas.optimization.dto.PageRequest;
-import com.khas.optimization.dto.PaginatedResponse;
+import com.khas.optimization.dto.UserIdsRequest;
 import com.khas.optimization.dto.UserRequest;
 import com.khas.optimization.dto.UserResponse;
+import com.khas.optimization.service.UserExportService;
+import com.khas.optimization.service.UserImportService;
 import com.khas.optimization.service.UserService;
+import com.khas.optimization.util.BinaryFormats;
+import com.khas.optimization.util.PageStreamEncoder;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.Schema;
@@ -14,12 +21,20 @@ import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.security.SecurityRequirement;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.server.reactive.ServerHttpResponse;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import java.util.List;
+import java.util.Optional;
+
 /**
  * User Controller
  * Provides CRUD endpoints for user management
@@ -31,9 +46,18 @@ import reactor.core.publisher.Mono;
 public class UserController {
     
     private final UserService userService;
+    private final UserExportService userExportService;
+    private final UserImportService userImportService;
+    private final PageStreamEncoder pageStreamEncoder;
     
-    public UserController(UserService userService) {
+    public UserController(UserService userService,
+                          UserExportService userExportService,
+                          UserImportService userImportService,
+                          PageStreamEncoder pageStreamEncoder) {
         this.userService = userService;
+        this.userExportService = userExportService;
+        this.userImportService = userImportService;
+        this.pageStreamEncoder = pageStreamEncoder;
     }
     
     /**
@@ -63,7 +87,8 @@ public class UserController {
             description = "Username or email already exists"
         )
     })
-    @PostMapping(produces = MediaType.APPLICATION_JSON_VALUE, consumes = MediaType.APPLICATION_JSON_VALUE)
+    @PostMapping(produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_CBOR_VALUE, BinaryFormats.APPLICATION_SMILE_VALUE},
+            consumes = MediaType.APPLICATION_JSON_VALUE)
     public Mono<ResponseEntity<ApiResponse<UserResponse>>> createUser(@Valid @RequestBody UserRequest request) {
         return userService.createUser(request)
                 .map(user -> ApiResponse.success(user, "User created successfully"))
@@ -71,6 +96,40 @@ public class UserController {
         // Error handling is done by GlobalExceptionHandler
     }
     
+    /**
+     * Bulk import users
+     * POST /api/users/bulk
+     * Requires: RoleConstants.ROLE_ADMIN
+     * 
+     * Body is NDJSON: one UserRequest JSON object per line. The body is consumed as a
+     * stream with backpressure and one result per line is streamed back as NDJSON.
+     * Invalid or duplicate rows are reported individually and never abort the import.
+     * 
+     * Note: Annotation value must be string literal (compile-time constant)
+     */
+    @RequiresRole("ROLE_ADMIN") // See RoleConstants.ROLE_ADMIN
+    @Operation(
+        summary = "Bulk import users",
+        description = "Creates users from an NDJSON stream and streams back a result per line (Admin only)"
+    )
+    @ApiResponses(value = {
+        @io.swagger.v3.oas.annotations.responses.ApiResponse(
+            responseCode = "200",
+            description = "Per-line import results",
+            content = @Content(mediaType = MediaType.APPLICATION_NDJSON_VALUE,
+                schema = @Schema(implementation = BulkImportResult.class))
+        ),
+        @io.swagger.v3.oas.annotations.responses.ApiResponse(
+            responseCode = "403",
+            description = "Forbidden - Admin role required"
+        )
+    })
+    @PostMapping(value = "/bulk", produces = MediaType.APPLICATION_NDJSON_VALUE, consumes = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<BulkImportResult> bulkImportUsers(@RequestBody Flux<String> lines) {
+        // Flux<String> is decoded line by line, so a malformed line fails only that row
+        return userImportService.importUsers(lines);
+    }
+    
     /**
      * Get user by ID
      * GET /api/users/{id}
@@ -98,11 +157,10 @@ public class UserController {
             description = "User not found"
         )
     })
-    @GetMapping(value = "/{id}", produces = MediaType.APPLICATION_JSON_VALUE)
+    @GetMapping(value = "/{id}", produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_CBOR_VALUE, BinaryFormats.APPLICATION_SMILE_VALUE})
     public Mono<ResponseEntity<ApiResponse<UserResponse>>> getUserById(@PathVariable Long id) {
         return userService.getUserById(id)
-                .map(user -> ApiResponse.success(user, "User retrieved successfully"))
-                .map(ResponseEntity::ok);
+                .map(user -> withETag(user, ApiResponse.success(user, "User retrieved successfully")));
         // Error handling is done by GlobalExceptionHandler
     }
     
@@ -114,52 +172,121 @@ public class UserController {
      * Query Parameters:
      * - page: Page number (0-indexed, default: 0)
      * - size: Page size (default: 10, max: 100)
-     * - sort: Sort field and direction (format: "field,direction", default: "id,asc")
+     * - sort: Up to 3 keys from id, username, email, createdAt (format: "field,direction;field,direction", default: "id,asc")
+     * - cursor: Opaque cursor from pagination.nextCursor; switches to keyset pagination
+     * - count: Total count strategy - exact (default), cached or none (no totals, hasNext only)
+     * - enabled, createdFrom, createdTo, role: Optional filters (createdTo is exclusive)
      * 
      * Note: Annotation values must be string literals (compile-time constants)
      */
     @RequiresRole({"ROLE_ADMIN", "ROLE_MODERATOR"}) // See RoleConstants
     @Operation(
         summary = "Get all users with pagination",
-        description = "Retrieves paginated list of users (excludes soft-deleted) (Admin or Moderator)"
+        description = "Retrieves paginated list of users (excludes soft-deleted), optionally filtered by enabled, creation time and role (Admin or Moderator)"
     )
     @ApiResponses(value = {
         @io.swagger.v3.oas.annotations.responses.ApiResponse(
             responseCode = "200",
             description = "Paginated list of users",
-            content = @Content(mediaType = "application/json")
+            content = {
+                @Content(mediaType = MediaType.APPLICATION_JSON_VALUE),
+                @Content(mediaType = MediaType.APPLICATION_CBOR_VALUE),
+                @Content(mediaType = BinaryFormats.APPLICATION_SMILE_VALUE)
+            }
+        ),
+        @io.swagger.v3.oas.annotations.responses.ApiResponse(
+            responseCode = "400",
+            description = "Unsupported sort field, unknown role or invalid cursor"
         ),
         @io.swagger.v3.oas.annotations.responses.ApiResponse(
             responseCode = "403",
             description = "Forbidden - Admin or Moderator role required"
         )
     })
-    @GetMapping(produces = MediaType.APPLICATION_JSON_VALUE)
-    public Mono<ResponseEntity<PaginatedResponse<UserResponse>>> getAllUsers(
-            @Valid PageRequest pageRequest) {
-        return userService.getAllUsers(pageRequest)
-                .map(page -> PaginatedResponse.of(
-                    page.getContent(),
-                    page.getNumber(),
-                    page.getSize(),
-                    page.getTotalElements(),
-                    "Users retrieved successfully"
-                ))
-                .map(ResponseEntity::ok);
-        // Error handling is done by GlobalExceptionHandler
+    @GetMapping(produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_CBOR_VALUE, BinaryFormats.APPLICATION_SMILE_VALUE})
+    public Mono<Void> getAllUsers(
+            @Valid PageRequest pageRequest,
+            ServerWebExchange exchange) {
+        // Request errors fail before the response is committed (GlobalExceptionHandler);
+        // rows are then encoded one by one as they arrive instead of collecting the page
+        MediaType mediaType = pageStreamEncoder.negotiate(exchange.getRequest().getHeaders().getAccept());
+        return userService.streamAllUsers(pageRequest)
+                .flatMap(page -> {
+                    ServerHttpResponse response = exchange.getResponse();
+                    response.getHeaders().setContentType(mediaType);
+                    return response.writeWith(pageStreamEncoder.paginated(
+                            "Users retrieved successfully",
+                            page.content(),
+                            page.pagination(),
+                            mediaType,
+                            response.bufferFactory()));
+                });
+    }
+    
+    /**
+     * Export all users as a stream
+     * GET /api/users/export?format=ndjson|csv
+     * Requires: RoleConstants.ROLE_ADMIN
+     * 
+     * Rows are streamed from a database cursor and flushed chunk by chunk, so memory
+     * stays flat regardless of table size. Format comes from the "format" parameter or
+     * the Accept header (application/x-ndjson or text/csv). Send Accept-Encoding: gzip
+     * for a compressed stream.
+     * 
+     * Note: Annotation value must be string literal (compile-time constant)
+     */
+    @RequiresRole("ROLE_ADMIN") // See RoleConstants.ROLE_ADMIN
+    @Operation(
+        summary = "Export users",
+        description = "Streams all users (excludes soft-deleted) as NDJSON or CSV (Admin only)"
+    )
+    @ApiResponses(value = {
+        @io.swagger.v3.oas.annotations.responses.ApiResponse(
+            responseCode = "200",
+            description = "User export stream",
+            content = {
+                @Content(mediaType = MediaType.APPLICATION_NDJSON_VALUE),
+                @Content(mediaType = ExportFormat.TEXT_CSV_VALUE)
+            }
+        ),
+        @io.swagger.v3.oas.annotations.responses.ApiResponse(
+            responseCode = "400",
+            description = "Unsupported export format"
+        ),
+        @io.swagger.v3.oas.annotations.responses.ApiResponse(
+            responseCode = "403",
+            description = "Forbidden - Admin role required"
+        )
+    })
+    @GetMapping(value = "/export", produces = {MediaType.APPLICATION_NDJSON_VALUE, ExportFormat.TEXT_CSV_VALUE})
+    public Mono<Void> exportUsers(
+            @RequestParam(required = false) String format,
+            ServerWebExchange exchange) {
+        ExportFormat exportFormat = ExportFormat.resolve(format, exchange.getRequest().getHeaders().getAccept());
+        
+        ServerHttpResponse response = exchange.getResponse();
+        response.getHeaders().setContentType(exportFormat.getMediaType());
+        response.getHeaders().setContentDisposition(ContentDisposition.attachment()
+                .filename("users." + exportFormat.getExtension())
+                .build());
+        
+        // Flush after every chunk so clients start receiving rows immediately
+        return response.writeAndFlushWith(userExportService.export(exportFormat, response.bufferFactory())
+                .map(Mono::just));
     }
     
     /**
      * Update user
      * PUT /api/users/{id}
      * Requires: RoleConstants.ROLE_ADMIN or RoleConstants.ROLE_MODERATOR
+     * Optional If-Match: "<version>" makes the update conditional (412 when stale)
      * 
      * Note: Annotation values must be string literals (compile-time constants)
      */
     @RequiresRole({"ROLE_ADMIN", "ROLE_MODERATOR"}) // See RoleConstants
     @Operation(
         summary = "Update user",
-        description = "Updates an existing user. Password is optional. (Admin or Moderator)"
+        description = "Updates an existing user. Password is optional. Send the ETag from GET as If-Match to reject concurrent modifications. (Admin or Moderator)"
     )
     @ApiResponses(value = {
         @io.swagger.v3.oas.annotations.responses.ApiResponse(
@@ -178,15 +305,21 @@ public class UserController {
         @io.swagger.v3.oas.annotations.responses.ApiResponse(
             responseCode = "409",
             description = "Username or email already exists"
+        ),
+        @io.swagger.v3.oas.annotations.responses.ApiResponse(
+            responseCode = "412",
+            description = "If-Match version is stale - user was modified concurrently"
         )
     })
-    @PutMapping(value = "/{id}", produces = MediaType.APPLICATION_JSON_VALUE, consumes = MediaType.APPLICATION_JSON_VALUE)
+    @PutMapping(value = "/{id}", produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_CBOR_VALUE, BinaryFormats.APPLICATION_SMILE_VALUE},
+            consumes = MediaType.APPLICATION_JSON_VALUE)
     public Mono<ResponseEntity<ApiResponse<UserResponse>>> updateUser(
             @PathVariable Long id,
-            @Valid @RequestBody UserRequest request) {
-        return userService.updateUser(id, request)
-                .map(user -> ApiResponse.success(user, "User updated successfully"))
-                .map(ResponseEntity::ok);
+            @Valid @RequestBody UserRequest request,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        return Mono.fromCallable(() -> Optional.ofNullable(parseIfMatch(ifMatch)))
+                .flatMap(expectedVersion -> userService.updateUser(id, request, expectedVersion.orElse(null)))
+                .map(user -> withETag(user, ApiResponse.success(user, "User updated successfully")));
         // Error handling is done by GlobalExceptionHandler
     }
     
@@ -194,6 +327,7 @@ public class UserController {
      * Delete user
      * DELETE /api/users/{id}
      * Requires: RoleConstants.ROLE_ADMIN
+     * Optional If-Match: "<version>" makes the delete conditional (412 when stale)
      * 
      * Note: Annotation value must be string literal (compile-time constant)
      */
@@ -214,13 +348,165 @@ public class UserController {
         @io.swagger.v3.oas.annotations.responses.ApiResponse(
             responseCode = "404",
             description = "User not found"
+        ),
+        @io.swagger.v3.oas.annotations.responses.ApiResponse(
+            responseCode = "412",
+            description = "If-Match version is stale - user was modified concurrently"
         )
     })
     @DeleteMapping(value = "/{id}")
-    public Mono<ResponseEntity<Void>> deleteUser(@PathVariable Long id) {
-        return userService.deleteUser(id)
+    public Mono<ResponseEntity<Void>> deleteUser(
+            @PathVariable Long id,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        return Mono.fromCallable(() -> Optional.ofNullable(parseIfMatch(ifMatch)))
+                .flatMap(expectedVersion -> userService.deleteUser(id, expectedVersion.orElse(null)))
                 .then(Mono.just(ResponseEntity.noContent().<Void>build()));
         // Error handling is done by GlobalExceptionHandler
     }
+    
+    /**
+     * Soft delete many users
+     * DELETE /api/users?ids=1,2,3
+     * Requires: RoleConstants.ROLE_ADMIN
+     * 
+     * One UPDATE ... WHERE id IN (...) statement; unknown or already deleted IDs are skipped.
+     * 
+     * Note: Annotation value must be string literal (compile-time constant)
+     */
+    @RequiresRole("ROLE_ADMIN") // See RoleConstants.ROLE_ADMIN
+    @Operation(
+        summary = "Delete users (bulk soft delete)",
+        description = "Soft deletes the given users in one statement and returns the affected count (Admin only)"
+    )
+    @ApiResponses(value = {
+        @io.swagger.v3.oas.annotations.responses.ApiResponse(
+            responseCode = "200",
+            description = "Users deleted",
+            content = @Content(schema = @Schema(implementation = ApiResponse.class))
+        ),
+        @io.swagger.v3.oas.annotations.responses.ApiResponse(
+            responseCode = "400",
+            description = "ids missing or more than 1000"
+        ),
+        @io.swagger.v3.oas.annotations.responses.ApiResponse(
+            responseCode = "403",
+            description = "Forbidden - Admin role required"
+        )
+    })
+    @DeleteMapping(produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_CBOR_VALUE, BinaryFormats.APPLICATION_SMILE_VALUE})
+    public Mono<ResponseEntity<ApiResponse<BulkUpdateResult>>> deleteUsers(@RequestParam List<Long> ids) {
+        return userService.deleteUsers(ids)
+                .map(result -> ApiResponse.success(result, result.getAffected() + " users deleted"))
+                .map(ResponseEntity::ok);
+        // Error handling is done by GlobalExceptionHandler
+    }
+    
+    /**
+     * Restore many soft-deleted users
+     * POST /api/users/restore
+     * Requires: RoleConstants.ROLE_ADMIN
+     * 
+     * Note: Annotation value must be string literal (compile-time constant)
+     */
+    @RequiresRole("ROLE_ADMIN") // See RoleConstants.ROLE_ADMIN
+    @Operation(
+        summary = "Restore users (bulk)",
+        description = "Restores the given soft-deleted users in one statement and returns the affected count (Admin only)"
+    )
+    @ApiResponses(value = {
+        @io.swagger.v3.oas.annotations.responses.ApiResponse(
+            responseCode = "200",
+            description = "Users restored",
+            content = @Content(schema = @Schema(implementation = ApiResponse.class))
+        ),
+        @io.swagger.v3.oas.annotations.responses.ApiResponse(
+            responseCode = "400",
+            description = "ids missing or more than 1000"
+        ),
+        @io.swagger.v3.oas.annotations.responses.ApiResponse(
+            responseCode = "403",
+            description = "Forbidden - Admin role required"
+        )
+    })
+    @PostMapping(value = "/restore", produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_CBOR_VALUE, BinaryFormats.APPLICATION_SMILE_VALUE},
+            consumes = MediaType.APPLICATION_JSON_VALUE)
+    public Mono<ResponseEntity<ApiResponse<BulkUpdateResult>>> restoreUsers(@Valid @RequestBody UserIdsRequest request) {
+        return userService.restoreUsers(request.getIds())
+                .map(result -> ApiResponse.success(result, result.getAffected() + " users restored"))
+                .map(ResponseEntity::ok);
+        // Error handling is done by GlobalExceptionHandler
+    }
+    
+    /**
+     * Permanently remove many soft-deleted users
+     * POST /api/users/purge
+     * Requires: RoleConstants.ROLE_ADMIN
+     * 
+     * Only users that are already soft deleted are removed.
+     * 
+     * Note: Annotation value must be string literal (compile-time constant)
+     */
+    @RequiresRole("ROLE_ADMIN") // See RoleConstants.ROLE_ADMIN
+    @Operation(
+        summary = "Purge users (bulk hard delete)",
+        description = "Permanently removes the given soft-deleted users in one statement and returns the affected count (Admin only)"
+    )
+    @ApiResponses(value = {
+        @io.swagger.v3.oas.annotations.responses.ApiResponse(
+            responseCode = "200",
+            description = "Users purged",
+            content = @Content(schema = @Schema(implementation = ApiResponse.class))
+        ),
+        @io.swagger.v3.oas.annotations.responses.ApiResponse(
+            responseCode = "400",
+            description = "ids missing or more than 1000"
+        ),
+        @io.swagger.v3.oas.annotations.responses.ApiResponse(
+            responseCode = "403",
+            description = "Forbidden - Admin role required"
+        )
+    })
+    @PostMapping(value = "/purge", produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_CBOR_VALUE, BinaryFormats.APPLICATION_SMILE_VALUE},
+            consumes = MediaType.APPLICATION_JSON_VALUE)
+    public Mono<ResponseEntity<ApiResponse<BulkUpdateResult>>> purgeUsers(@Valid @RequestBody UserIdsRequest request) {
+        return userService.purgeUsers(request.getIds())
+                .map(result -> ApiResponse.success(result, result.getAffected() + " users purged"))
+                .map(ResponseEntity::ok);
+        // Error handling is done by GlobalExceptionHandler
+    }
+    
+    /**
+     * 200 OK with the user's version as ETag (clients echo it back in If-Match)
+     */
+    private static <T> ResponseEntity<T> withETag(UserResponse user, T body) {
+        ResponseEntity.BodyBuilder builder = ResponseEntity.ok();
+        if (user.getVersion() != null) {
+            builder.eTag(String.valueOf(user.getVersion()));
+        }
+        return builder.body(body);
+    }
+    
+    /**
+     * Parse an If-Match header ("3", "\"3\"" or W/"3") into the expected version
+     * 
+     * @return Expected version, or null when absent or "*" (no version check)
+     */
+    private static Long parseIfMatch(String ifMatch) {
+        if (ifMatch == null || ifMatch.isBlank() || ifMatch.trim().equals("*")) {
+            return null;
+        }
+        String tag = ifMatch.trim();
+        if (tag.startsWith("W/")) {
+            tag = tag.substring(2);
+        }
+        if (tag.length() >= 2 && tag.startsWith("\"") && tag.endsWith("\"")) {
+            tag = tag.substring(1, tag.length() - 1);
+        }
+        try {
+            return Long.parseLong(tag);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid If-Match header: expected a user version ETag");
+        }
+    }
 }
 
@@ -0,0 +1,31 @@
+package com.khas.optimization.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Per-row result of a bulk user import
+ * One result is streamed back for every non-blank input line.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class BulkImportResult {
+    
+    private Long line; // 1-based line number in the request body
+    private Boolean success;
+    private Long id; // ID of the created user
+    private String username;
+    private String error;
+    
+    public static BulkImportResult created(long line, Long id, String username) {
+        return new BulkImportResult(line, true, id, username, null);
+    }
+    
+    public static BulkImportResult failed(long line, String username, String error) {
+        return new BulkImportResult(line, false, null, username, error);
+    }
+}
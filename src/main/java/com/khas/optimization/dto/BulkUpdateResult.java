@@ -0,0 +1,18 @@
+package com.khas.optimization.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Result of a set-based user operation
+ * IDs that did not match (unknown, or already in the target state) are not counted.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BulkUpdateResult {
+    
+    private Integer requested; // Distinct IDs in the request
+    private Long affected; // Rows changed by the statement
+}
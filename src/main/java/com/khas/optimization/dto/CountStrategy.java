@@ -0,0 +1,39 @@
+package com.khas.optimization.dto;
+
+/**
+ * How a paginated listing computes its total (PageRequest.count)
+ */
+public enum CountStrategy {
+
+    /**
+     * Run COUNT(*) on every request (default)
+     */
+    EXACT,
+
+    /**
+     * Reuse a recent total; invalidated by writes and expired after a TTL
+     */
+    CACHED,
+
+    /**
+     * Skip the count; hasNext is derived by fetching one extra row
+     */
+    NONE;
+
+    /**
+     * Parse a case-insensitive strategy name; null or empty means EXACT
+     *
+     * @throws IllegalArgumentException for unknown names
+     */
+    public static CountStrategy parse(String value) {
+        if (value == null || value.isBlank()) {
+            return EXACT;
+        }
+        for (CountStrategy strategy : values()) {
+            if (strategy.name().equalsIgnoreCase(value.trim())) {
+                return strategy;
+            }
+        }
+        throw new IllegalArgumentException("Invalid count strategy: " + value + " (expected exact, cached or none)");
+    }
+}
@@ -0,0 +1,55 @@
+package com.khas.optimization.dto;
+
+import org.springframework.http.MediaType;
+
+import java.util.List;
+
+/**
+ * Supported formats for streaming exports
+ */
+public enum ExportFormat {
+
+    NDJSON(MediaType.APPLICATION_NDJSON, "ndjson"),
+    CSV(new MediaType("text", "csv"), "csv");
+
+    public static final String TEXT_CSV_VALUE = "text/csv";
+
+    private final MediaType mediaType;
+    private final String extension;
+
+    ExportFormat(MediaType mediaType, String extension) {
+        this.mediaType = mediaType;
+        this.extension = extension;
+    }
+
+    public MediaType getMediaType() {
+        return mediaType;
+    }
+
+    public String getExtension() {
+        return extension;
+    }
+
+    /**
+     * Resolve format from an explicit "format" parameter, falling back to the Accept header
+     * Default: NDJSON
+     *
+     * @throws IllegalArgumentException if the format parameter is not supported
+     */
+    public static ExportFormat resolve(String format, List<MediaType> accept) {
+        if (format != null && !format.isEmpty()) {
+            for (ExportFormat candidate : values()) {
+                if (candidate.extension.equalsIgnoreCase(format)) {
+                    return candidate;
+                }
+            }
+            throw new IllegalArgumentException("Unsupported export format: " + format);
+        }
+        for (MediaType mediaType : accept) {
+            if (CSV.mediaType.equalsTypeAndSubtype(mediaType)) {
+                return CSV;
+            }
+        }
+        return NDJSON;
+    }
+}
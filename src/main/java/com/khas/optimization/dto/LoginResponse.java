@@ -15,6 +15,7 @@ public class LoginResponse {
     private String type;
     private String username;
     private String message;
+    private String refreshToken; // Single-use, exchange at POST /api/auth/refresh
     
     /**
      * Constructor for successful login
@@ -26,6 +27,14 @@ public class LoginResponse {
         this.username = username;
     }
     
+    /**
+     * Constructor for successful login with a refresh token
+     */
+    public LoginResponse(Boolean success, String token, String type, String username, String refreshToken) {
+        this(success, token, type, username);
+        this.refreshToken = refreshToken;
+    }
+    
     /**
      * Constructor for failed login
      */
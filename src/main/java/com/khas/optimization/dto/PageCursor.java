@@ -0,0 +1,67 @@
+package com.khas.optimization.dto;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+
+/**
+ * Opaque keyset pagination cursor
+ * Encodes the sort it was issued for (e.g. "createdAt,desc;username,asc") and the
+ * sort key values and id of the last row of a page as URL-safe Base64 so clients
+ * can pass it back verbatim.
+ *
+ * @param sort Canonical sort description the cursor belongs to
+ * @param id ID of the last row (tie-breaker)
+ * @param values Sort key values of the last row, in sort order
+ */
+public record PageCursor(String sort, long id, List<String> values) {
+
+    private static final String SEPARATOR = "|";
+
+    public PageCursor {
+        values = List.copyOf(values);
+    }
+
+    /**
+     * Encode cursor to an opaque URL-safe string
+     * Values are Base64-encoded individually so they may contain the separator.
+     */
+    public String encode() {
+        StringBuilder raw = new StringBuilder(sort).append(SEPARATOR).append(id);
+        for (String value : values) {
+            raw.append(SEPARATOR).append(encodePart(value));
+        }
+        return encodePart(raw.toString());
+    }
+
+    /**
+     * Decode a cursor previously produced by {@link #encode()}
+     *
+     * @throws IllegalArgumentException if the cursor is malformed
+     */
+    public static PageCursor decode(String cursor) {
+        try {
+            String[] parts = decodePart(cursor).split("\\|", -1);
+            if (parts.length < 2) {
+                throw new IllegalArgumentException("Invalid pagination cursor");
+            }
+            List<String> values = new ArrayList<>(parts.length - 2);
+            for (int i = 2; i < parts.length; i++) {
+                values.add(decodePart(parts[i]));
+            }
+            return new PageCursor(parts[0], Long.parseLong(parts[1]), values);
+        } catch (IllegalArgumentException e) {
+            // Covers malformed Base64 and NumberFormatException
+            throw new IllegalArgumentException("Invalid pagination cursor", e);
+        }
+    }
+
+    private static String encodePart(String value) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String decodePart(String value) {
+        return new String(Base64.getUrlDecoder().decode(value), StandardCharsets.UTF_8);
+    }
+}
@@ -6,6 +6,11 @@ import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import org.springframework.data.domain.Sort;
+import org.springframework.format.annotation.DateTimeFormat;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * Page request DTO for pagination parameters
@@ -23,33 +28,95 @@ public class PageRequest {
     private Integer size = 10;
     
     /**
-     * Sort parameter in format: "field,direction"
-     * Examples: "id,asc", "username,desc", "createdAt,asc"
+     * Sort parameter in format: "field,direction" - several keys separated by ';'
+     * (repeated sort parameters also work)
+     * Examples: "id,asc", "username,desc", "createdAt,desc;username,asc"
      * Default: "id,asc"
      */
     private String sort = "id,asc";
     
+    /**
+     * Opaque keyset cursor returned as pagination.nextCursor by the previous page.
+     * When present, the page is fetched with a seek query instead of OFFSET,
+     * which keeps deep pages as cheap as the first one.
+     */
+    private String cursor;
+    
+    /**
+     * Total count strategy: "exact" (default), "cached" or "none"
+     * "none" omits totalElements/totalPages and derives hasNext from one extra row,
+     * which suits infinite-scroll clients that never show a total.
+     */
+    private String count = "exact";
+    
+    /**
+     * Filter: only enabled (true) or disabled (false) users
+     */
+    private Boolean enabled;
+    
+    /**
+     * Filter: users created at or after this time (ISO-8601, e.g. 2024-01-01T00:00:00)
+     */
+    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+    private LocalDateTime createdFrom;
+    
+    /**
+     * Filter: users created before this time (exclusive)
+     */
+    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+    private LocalDateTime createdTo;
+    
+    /**
+     * Filter: users holding this role (e.g. ROLE_ADMIN)
+     */
+    private String role;
+    
+    // Constructor without count strategy (for backward compatibility)
+    public PageRequest(Integer page, Integer size, String sort, String cursor) {
+        this(page, size, sort, cursor, "exact");
+    }
+    
+    // Constructor without filters
+    public PageRequest(Integer page, Integer size, String sort, String cursor, String count) {
+        this(page, size, sort, cursor, count, null, null, null, null);
+    }
+    
+    /**
+     * Convert count string to CountStrategy
+     * 
+     * @return CountStrategy (EXACT when not specified)
+     */
+    public CountStrategy getCountStrategy() {
+        return CountStrategy.parse(count);
+    }
+    
     /**
      * Convert sort string to Spring Sort object
+     * Tokens are read left to right: a field name optionally followed by "asc"/"desc".
      * 
      * @return Sort object for Spring Data
      */
     public Sort getSort() {
-        if (sort == null || sort.isEmpty()) {
+        if (sort == null || sort.isBlank()) {
             return Sort.by("id").ascending();
         }
         
-        String[] parts = sort.split(",");
-        if (parts.length < 1) {
-            return Sort.by("id").ascending();
+        List<Sort.Order> orders = new ArrayList<>();
+        String[] tokens = sort.split("[,;]");
+        for (int i = 0; i < tokens.length; i++) {
+            String field = tokens[i].trim();
+            if (field.isEmpty()) {
+                continue;
+            }
+            String direction = i + 1 < tokens.length ? tokens[i + 1].trim() : "";
+            boolean hasDirection = direction.equalsIgnoreCase("asc") || direction.equalsIgnoreCase("desc");
+            if (hasDirection) {
+                i++;
+            }
+            orders.add(direction.equalsIgnoreCase("desc") ? Sort.Order.desc(field) : Sort.Order.asc(field));
         }
         
-        String field = parts[0].trim();
-        String direction = parts.length > 1 ? parts[1].trim() : "asc";
-        
-        return direction.equalsIgnoreCase("desc") 
-            ? Sort.by(field).descending() 
-            : Sort.by(field).ascending();
+        return orders.isEmpty() ? Sort.by("id").ascending() : Sort.by(orders);
     }
 }
 
@@ -0,0 +1,15 @@
+package com.khas.optimization.dto;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Page whose rows are streamed instead of collected
+ * The pagination metadata depends on the rows seen (next cursor, look-ahead row), so
+ * pagination must be subscribed after content completes; it reflects the latest
+ * subscription of content.
+ *
+ * @param <T> Type of the page content
+ */
+public record PageStream<T>(Flux<T> content, Mono<PaginatedResponse.PaginationMeta> pagination) {
+}
@@ -38,6 +38,58 @@ public class PaginatedResponse<T> {
         private Integer totalPages;
         private Boolean hasNext;
         private Boolean hasPrevious;
+        private String nextCursor; // Keyset cursor for the next page, null on the last page
+        
+        /**
+         * Metadata of a counted page
+         */
+        public static PaginationMeta of(int page, int size, long totalElements, String nextCursor) {
+            int totalPages = totalElements > 0 ? (int) Math.ceil((double) totalElements / size) : 0;
+            return new PaginationMeta(
+                page,
+                size,
+                totalElements,
+                totalPages,
+                page < totalPages - 1,
+                page > 0,
+                nextCursor
+            );
+        }
+        
+        /**
+         * Metadata of a page reached through a cursor: page numbers don't apply, so hasNext comes
+         * from the extra row fetched and hasPrevious is always true
+         *
+         * @param totalElements Total, or null when uncounted
+         */
+        public static PaginationMeta keyset(int page, int size, Long totalElements, boolean hasNext, String nextCursor) {
+            Integer totalPages = totalElements == null ? null
+                    : totalElements > 0 ? (int) Math.ceil((double) totalElements / size) : 0;
+            return new PaginationMeta(
+                page,
+                size,
+                totalElements,
+                totalPages,
+                hasNext,
+                true,
+                nextCursor
+            );
+        }
+        
+        /**
+         * Metadata of an uncounted page (CountStrategy.NONE): no totals, hasNext from the extra row fetched
+         */
+        public static PaginationMeta uncounted(int page, int size, boolean hasNext, String nextCursor) {
+            return new PaginationMeta(
+                page,
+                size,
+                null,
+                null,
+                hasNext,
+                page > 0,
+                nextCursor
+            );
+        }
     }
     
     /**
@@ -62,7 +114,8 @@ public class PaginatedResponse<T> {
             totalElements,
             totalPages,
             page < totalPages - 1,
-            page > 0
+            page > 0,
+            null
         );
         
         return new PaginatedResponse<>(
@@ -90,25 +143,35 @@ public class PaginatedResponse<T> {
             int size, 
             long totalElements,
             String message) {
-        int totalPages = totalElements > 0 ? (int) Math.ceil((double) totalElements / size) : 0;
-        
-        PaginationMeta meta = new PaginationMeta(
-            page,
-            size,
-            totalElements,
-            totalPages,
-            page < totalPages - 1,
-            page > 0
-        );
-        
         return new PaginatedResponse<>(
             true,
             message,
             data,
-            meta,
+            PaginationMeta.of(page, size, totalElements, null),
             LocalDateTime.now()
         );
     }
+    
+    /**
+     * Create a paginated response with message and keyset cursor
+     * 
+     * @param data List of items for current page
+     * @param page Current page number (0-indexed)
+     * @param size Page size
+     * @param totalElements Total number of elements
+     * @param nextCursor Cursor for the next page (null if there is none)
+     * @param message Success message
+     * @return PaginatedResponse with pagination metadata and message
+     */
+    public static <T> PaginatedResponse<T> of(
+            List<T> data, 
+            int page, 
+            int size, 
+            long totalElements,
+            String nextCursor,
+            String message) {
+        PaginatedResponse<T> response = of(data, page, size, totalElements, message);
+        response.getPagination().setNextCursor(nextCursor);
+        return response;
+    }
 }
-
-
@@ -0,0 +1,18 @@
+package com.khas.optimization.dto;
+
+import jakarta.validation.constraints.NotBlank;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Refresh / Logout Request DTO
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class RefreshRequest {
+    
+    @NotBlank(message = "Refresh token is required")
+    private String refreshToken;
+}
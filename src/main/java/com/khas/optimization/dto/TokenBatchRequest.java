@@ -0,0 +1,22 @@
+package com.khas.optimization.dto;
+
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Request body for batch token validation (POST /api/auth/validate:batch)
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class TokenBatchRequest {
+    
+    @NotEmpty(message = "tokens is required")
+    @Size(max = 256, message = "At most 256 tokens per request")
+    private List<String> tokens; // Raw tokens, without the "Bearer " prefix
+}
@@ -0,0 +1,36 @@
+package com.khas.optimization.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.khas.optimization.service.JwtPrincipal;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Validation result of one token in a batch; only valid is set for invalid tokens
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class TokenValidation {
+    
+    private Boolean valid;
+    private String username;
+    private List<String> roles;
+    private Long expiresAt; // Token exp in seconds since the epoch (absent if the token has none)
+    
+    public static TokenValidation of(JwtPrincipal principal) {
+        if (principal == null) {
+            return new TokenValidation(false, null, null, null);
+        }
+        return new TokenValidation(
+                true,
+                principal.username(),
+                principal.roles(),
+                principal.expiresAt() != null ? principal.expiresAt().getEpochSecond() : null
+        );
+    }
+}
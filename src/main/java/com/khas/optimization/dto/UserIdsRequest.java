@@ -0,0 +1,22 @@
+package com.khas.optimization.dto;
+
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Request body for set-based user operations (restore, purge)
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class UserIdsRequest {
+    
+    @NotEmpty(message = "ids is required")
+    @Size(max = 1000, message = "At most 1000 ids per request")
+    private List<Long> ids;
+}
@@ -22,6 +22,13 @@ public class UserResponse {
     private List<String> roles; // List of role names
     private LocalDateTime createdAt;
     private LocalDateTime updatedAt;
+    private Long version; // Row version, sent back as ETag / If-Match
+    
+    // Constructor without version (for backward compatibility)
+    public UserResponse(Long id, String username, String email, Boolean enabled, List<String> roles,
+                       LocalDateTime createdAt, LocalDateTime updatedAt) {
+        this(id, username, email, enabled, roles, createdAt, updatedAt, null);
+    }
     
     // Constructor without roles (for backward compatibility)
     public UserResponse(Long id, String username, String email, Boolean enabled, 
@@ -3,13 +3,14 @@ package com.khas.optimization.entity;
 import lombok.Getter;
 import lombok.Setter;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.annotation.Version;
 import org.springframework.data.relational.core.mapping.Column;
 
 import java.time.LocalDateTime;
 
 /**
  * Base Entity for entities with auto-increment ID (Long)
- * Provides common fields: id, createdAt, updatedAt, deletedAt (soft delete)
+ * Provides common fields: id, createdAt, updatedAt, deletedAt (soft delete), version (optimistic locking)
  */
 @Getter
 @Setter
@@ -27,6 +28,13 @@ public abstract class BaseEntity {
     @Column("deleted_at")
     private LocalDateTime deletedAt;
     
+    /**
+     * Row version, incremented by every UPDATE (null until first insert)
+     */
+    @Version
+    @Column("version")
+    private Long version;
+    
     /**
      * Initialize timestamps before save
      */
@@ -0,0 +1,54 @@
+package com.khas.optimization.entity;
+
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.relational.core.mapping.Column;
+import org.springframework.data.relational.core.mapping.Table;
+
+import java.time.LocalDateTime;
+
+/**
+ * Refresh Token Entity for R2DBC
+ * Holds the SHA-256 of the token, never the token itself.
+ * Not a BaseEntity: rows are only inserted and revoked, never edited or soft-deleted.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@Table("refresh_tokens")
+public class RefreshToken {
+    
+    @Id
+    private Long id;
+    
+    @Column("token_hash")
+    private String tokenHash;
+    
+    @Column("user_id")
+    private Long userId;
+    
+    /**
+     * Shared by every token rotated from the same login
+     */
+    @Column("family_id")
+    private String familyId;
+    
+    @Column("expires_at")
+    private LocalDateTime expiresAt;
+    
+    @Column("created_at")
+    private LocalDateTime createdAt;
+    
+    @Column("revoked_at")
+    private LocalDateTime revokedAt;
+    
+    public RefreshToken(String tokenHash, Long userId, String familyId, LocalDateTime expiresAt) {
+        this.tokenHash = tokenHash;
+        this.userId = userId;
+        this.familyId = familyId;
+        this.expiresAt = expiresAt;
+        this.createdAt = LocalDateTime.now();
+    }
+}
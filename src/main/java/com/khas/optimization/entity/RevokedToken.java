@@ -0,0 +1,35 @@
+package com.khas.optimization.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.relational.core.mapping.Column;
+import org.springframework.data.relational.core.mapping.Table;
+
+import java.time.LocalDateTime;
+
+/**
+ * Revoked Token Entity for R2DBC
+ * An access token (by jti) rejected until expiresAt, when it would have expired anyway.
+ * Inserted with RevokedTokenRepository.insert: the id is assigned by the caller, so save()
+ * would issue an UPDATE.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Table("revoked_tokens")
+public class RevokedToken {
+    
+    @Id
+    @Column("jti")
+    private String jti;
+    
+    @Column("expires_at")
+    private LocalDateTime expiresAt;
+    
+    @Column("revoked_at")
+    private LocalDateTime revokedAt;
+}
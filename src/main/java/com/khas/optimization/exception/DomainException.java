@@ -0,0 +1,18 @@
+package com.khas.optimization.exception;
+
+/**
+ * Base class of expected, client-facing failures (not found, conflict, 401/403, shed load)
+ * These are thrown on hot rejection paths and always mapped to a response by
+ * GlobalExceptionHandler, so they skip stack-trace capture (the dominant cost of
+ * creating an exception) and suppression. A wrapped cause keeps its own stack trace.
+ */
+public abstract class DomainException extends RuntimeException {
+    
+    protected DomainException(String message) {
+        super(message, null, false, false);
+    }
+    
+    protected DomainException(String message, Throwable cause) {
+        super(message, cause, false, false);
+    }
+}
@@ -3,7 +3,7 @@ package com.khas.optimization.exception;
 /**
  * Exception thrown when trying to create an entity that already exists
  */
-public class DuplicateEntityException extends RuntimeException {
+public class DuplicateEntityException extends DomainException {
     
     public DuplicateEntityException(String message) {
         super(message);
@@ -3,7 +3,7 @@ package com.khas.optimization.exception;
 /**
  * Exception thrown when an entity is not found
  */
-public class EntityNotFoundException extends RuntimeException {
+public class EntityNotFoundException extends DomainException {
     
     public EntityNotFoundException(String message) {
         super(message);
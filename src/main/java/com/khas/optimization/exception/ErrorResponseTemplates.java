@@ -0,0 +1,210 @@
+package com.khas.optimization.exception;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Pre-encoded ErrorResponse bodies
+ * The part of an error body that is fixed for a (status, error, message) triple is
+ * serialized once; each response only splices in the path and timestamp, writing one
+ * byte array with no intermediate ErrorResponse, Jackson generator or String.
+ *
+ * Output matches Jackson's encoding of ErrorResponse without field errors:
+ * {"success":false,"status":401,"error":"...","message":"...","path":"...","timestamp":"2026-10-16T12:00:00.123"}
+ *
+ * Templates are cached for fixed messages ({@link #encode}); messages that embed request
+ * data go through {@link #encodeOnce}, so clients cannot fill the cache. The cache is
+ * bounded by MAX_TEMPLATES either way.
+ */
+@Component
+public class ErrorResponseTemplates {
+
+    private static final int MAX_TEMPLATES = 256;
+    private static final byte[] PATH_START = ",\"path\":\"".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] TIMESTAMP_START = "\",\"timestamp\":\"".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] END = "\"}".getBytes(StandardCharsets.US_ASCII);
+
+    private final ObjectMapper objectMapper;
+    private final Map<Key, byte[]> templates = new ConcurrentHashMap<>();
+
+    public ErrorResponseTemplates(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * Error body for a fixed message, from a cached template
+     *
+     * @param path Request path
+     */
+    public byte[] encode(HttpStatus status, String error, String message, String path) {
+        Key key = new Key(status.value(), error, message);
+        byte[] template = templates.get(key);
+        if (template == null) {
+            template = template(key);
+            if (templates.size() < MAX_TEMPLATES) {
+                templates.putIfAbsent(key, template);
+            }
+        }
+        return splice(template, path, LocalDateTime.now());
+    }
+
+    /**
+     * Error body for a message that varies per request (not cached)
+     */
+    public byte[] encodeOnce(HttpStatus status, String error, String message, String path) {
+        return encodeOnce(status, error, message, path, LocalDateTime.now());
+    }
+
+    byte[] encodeOnce(HttpStatus status, String error, String message, String path, LocalDateTime timestamp) {
+        return splice(template(new Key(status.value(), error, message)), path, timestamp);
+    }
+
+    int size() {
+        return templates.size();
+    }
+
+    /**
+     * {"success":false,"status":...,"error":...,"message":... followed by ,"path":"
+     */
+    private byte[] template(Key key) {
+        Map<String, Object> fields = new LinkedHashMap<>();
+        fields.put("success", false);
+        fields.put("status", key.status());
+        if (key.error() != null) {
+            fields.put("error", key.error());
+        }
+        if (key.message() != null) {
+            fields.put("message", key.message());
+        }
+        byte[] json;
+        try {
+            json = objectMapper.writeValueAsBytes(fields);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Cannot encode error response", e);
+        }
+        // Drop the closing brace and open the path string
+        byte[] template = new byte[json.length - 1 + PATH_START.length];
+        System.arraycopy(json, 0, template, 0, json.length - 1);
+        System.arraycopy(PATH_START, 0, template, json.length - 1, PATH_START.length);
+        return template;
+    }
+
+    private byte[] splice(byte[] template, String path, LocalDateTime timestamp) {
+        byte[] escapedPath = null;
+        int pathLength = path != null ? path.length() : 0;
+        if (path != null && !isPlainAscii(path)) {
+            escapedPath = escape(path);
+            pathLength = escapedPath.length;
+        }
+        int nanos = timestamp.getNano();
+        int fractionDigits = fractionDigits(nanos);
+
+        byte[] body = new byte[template.length + pathLength + TIMESTAMP_START.length
+                + 19 + (fractionDigits > 0 ? 1 + fractionDigits : 0) + END.length];
+        int position = 0;
+        System.arraycopy(template, 0, body, position, template.length);
+        position += template.length;
+        if (escapedPath != null) {
+            System.arraycopy(escapedPath, 0, body, position, escapedPath.length);
+            position += escapedPath.length;
+        } else {
+            for (int i = 0; i < pathLength; i++) {
+                body[position++] = (byte) path.charAt(i);
+            }
+        }
+        System.arraycopy(TIMESTAMP_START, 0, body, position, TIMESTAMP_START.length);
+        position += TIMESTAMP_START.length;
+
+        // ISO_LOCAL_DATE_TIME, as Jackson writes LocalDateTime: yyyy-MM-ddTHH:mm:ss[.fraction without trailing zeros]
+        position = digits(body, position, timestamp.getYear(), 4);
+        body[position++] = '-';
+        position = digits(body, position, timestamp.getMonthValue(), 2);
+        body[position++] = '-';
+        position = digits(body, position, timestamp.getDayOfMonth(), 2);
+        body[position++] = 'T';
+        position = digits(body, position, timestamp.getHour(), 2);
+        body[position++] = ':';
+        position = digits(body, position, timestamp.getMinute(), 2);
+        body[position++] = ':';
+        position = digits(body, position, timestamp.getSecond(), 2);
+        if (fractionDigits > 0) {
+            body[position++] = '.';
+            position = digits(body, position, nanos / pow10(9 - fractionDigits), fractionDigits);
+        }
+
+        System.arraycopy(END, 0, body, position, END.length);
+        return body;
+    }
+
+    /**
+     * Printable ASCII without characters JSON needs to escape
+     */
+    private static boolean isPlainAscii(String value) {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c < 0x20 || c >= 0x7f || c == '"' || c == '\\') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * JSON string contents (without quotes) of a value that needs escaping
+     */
+    private byte[] escape(String value) {
+        try {
+            byte[] quoted = objectMapper.writeValueAsBytes(value);
+            byte[] escaped = new byte[quoted.length - 2];
+            System.arraycopy(quoted, 1, escaped, 0, escaped.length);
+            return escaped;
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Cannot encode error response path", e);
+        }
+    }
+
+    /**
+     * Digits of a nanosecond fraction once trailing zeros are dropped (0 for a whole second)
+     */
+    private static int fractionDigits(int nanos) {
+        if (nanos == 0) {
+            return 0;
+        }
+        int digits = 9;
+        while (nanos % 10 == 0) {
+            nanos /= 10;
+            digits--;
+        }
+        return digits;
+    }
+
+    private static int pow10(int exponent) {
+        int value = 1;
+        for (int i = 0; i < exponent; i++) {
+            value *= 10;
+        }
+        return value;
+    }
+
+    /**
+     * Write value as exactly width zero-padded decimal digits
+     */
+    private static int digits(byte[] buffer, int position, int value, int width) {
+        for (int i = position + width - 1; i >= position; i--) {
+            buffer[i] = (byte) ('0' + value % 10);
+            value /= 10;
+        }
+        return position + width;
+    }
+
+    private record Key(int status, String error, String message) {
+    }
+}
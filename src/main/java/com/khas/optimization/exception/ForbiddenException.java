@@ -0,0 +1,11 @@
+package com.khas.optimization.exception;
+
+/**
+ * Exception thrown when an authenticated user lacks the roles an endpoint requires
+ */
+public class ForbiddenException extends DomainException {
+    
+    public ForbiddenException(String message) {
+        super(message);
+    }
+}
@@ -3,11 +3,14 @@ package com.khas.optimization.exception;
 import com.khas.optimization.dto.ErrorResponse;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
 import org.springframework.web.bind.support.WebExchangeBindException;
+import org.springframework.web.server.ResponseStatusException;
 import org.springframework.web.server.ServerWebExchange;
 import reactor.core.publisher.Mono;
 
@@ -16,62 +19,139 @@ import java.util.stream.Collectors;
 
 /**
  * Global exception handler for centralized error handling
+ * Bodies without field errors come pre-encoded from ErrorResponseTemplates; messages that
+ * embed request data (stale versions, illegal arguments) are encoded once, not cached.
  */
 @RestControllerAdvice
 public class GlobalExceptionHandler {
     
     private static final Logger logger = LoggerFactory.getLogger(GlobalExceptionHandler.class);
     
+    private final ErrorResponseTemplates errorResponseTemplates;
+    
+    public GlobalExceptionHandler(ErrorResponseTemplates errorResponseTemplates) {
+        this.errorResponseTemplates = errorResponseTemplates;
+    }
+    
     @ExceptionHandler(EntityNotFoundException.class)
-    public Mono<ResponseEntity<ErrorResponse>> handleEntityNotFound(
+    public Mono<ResponseEntity<byte[]>> handleEntityNotFound(
             EntityNotFoundException ex, ServerWebExchange exchange) {
         logger.warn("Entity not found: {}", ex.getMessage());
-        ErrorResponse error = new ErrorResponse(
-            HttpStatus.NOT_FOUND.value(),
+        byte[] body = errorResponseTemplates.encode(
+            HttpStatus.NOT_FOUND,
             "Resource not found",
             ex.getMessage(),
             exchange.getRequest().getPath().value()
         );
-        return Mono.just(ResponseEntity.status(HttpStatus.NOT_FOUND).body(error));
+        return Mono.just(ResponseEntity.status(HttpStatus.NOT_FOUND).contentType(MediaType.APPLICATION_JSON).body(body));
     }
     
     @ExceptionHandler(DuplicateEntityException.class)
-    public Mono<ResponseEntity<ErrorResponse>> handleDuplicateEntity(
+    public Mono<ResponseEntity<byte[]>> handleDuplicateEntity(
             DuplicateEntityException ex, ServerWebExchange exchange) {
         logger.warn("Duplicate entity: {}", ex.getMessage());
-        ErrorResponse error = new ErrorResponse(
-            HttpStatus.CONFLICT.value(),
+        byte[] body = errorResponseTemplates.encode(
+            HttpStatus.CONFLICT,
             "Conflict",
             ex.getMessage(),
             exchange.getRequest().getPath().value()
         );
-        return Mono.just(ResponseEntity.status(HttpStatus.CONFLICT).body(error));
+        return Mono.just(ResponseEntity.status(HttpStatus.CONFLICT).contentType(MediaType.APPLICATION_JSON).body(body));
+    }
+    
+    @ExceptionHandler(StaleEntityException.class)
+    public Mono<ResponseEntity<byte[]>> handleStaleEntity(
+            StaleEntityException ex, ServerWebExchange exchange) {
+        logger.warn("Stale entity version: {}", ex.getMessage());
+        // Message carries the expected/current versions
+        byte[] body = errorResponseTemplates.encodeOnce(
+            HttpStatus.PRECONDITION_FAILED,
+            "Precondition failed",
+            ex.getMessage(),
+            exchange.getRequest().getPath().value()
+        );
+        return Mono.just(ResponseEntity.status(HttpStatus.PRECONDITION_FAILED).contentType(MediaType.APPLICATION_JSON).body(body));
     }
     
     @ExceptionHandler(UnauthorizedException.class)
-    public Mono<ResponseEntity<ErrorResponse>> handleUnauthorized(
+    public Mono<ResponseEntity<byte[]>> handleUnauthorized(
             UnauthorizedException ex, ServerWebExchange exchange) {
         logger.warn("Unauthorized access: {}", ex.getMessage());
-        ErrorResponse error = new ErrorResponse(
-            HttpStatus.UNAUTHORIZED.value(),
+        byte[] body = errorResponseTemplates.encode(
+            HttpStatus.UNAUTHORIZED,
             "Unauthorized",
             ex.getMessage(),
             exchange.getRequest().getPath().value()
         );
-        return Mono.just(ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(error));
+        return Mono.just(ResponseEntity.status(HttpStatus.UNAUTHORIZED).contentType(MediaType.APPLICATION_JSON).body(body));
+    }
+    
+    @ExceptionHandler(ForbiddenException.class)
+    public Mono<ResponseEntity<byte[]>> handleForbidden(
+            ForbiddenException ex, ServerWebExchange exchange) {
+        logger.warn("Forbidden access to {}: {}", exchange.getRequest().getPath().value(), ex.getMessage());
+        byte[] body = errorResponseTemplates.encode(
+            HttpStatus.FORBIDDEN,
+            "Forbidden",
+            ex.getMessage(),
+            exchange.getRequest().getPath().value()
+        );
+        return Mono.just(ResponseEntity.status(HttpStatus.FORBIDDEN).contentType(MediaType.APPLICATION_JSON).body(body));
+    }
+    
+    @ExceptionHandler(ServiceUnavailableException.class)
+    public Mono<ResponseEntity<byte[]>> handleServiceUnavailable(
+            ServiceUnavailableException ex, ServerWebExchange exchange) {
+        logger.warn("Request shed: {}", ex.getMessage());
+        byte[] body = errorResponseTemplates.encode(
+            HttpStatus.SERVICE_UNAVAILABLE,
+            "Service unavailable",
+            ex.getMessage(),
+            exchange.getRequest().getPath().value()
+        );
+        return Mono.just(ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, "1")
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(body));
     }
     
     @ExceptionHandler(IllegalArgumentException.class)
-    public Mono<ResponseEntity<ErrorResponse>> handleIllegalArgument(
+    public Mono<ResponseEntity<byte[]>> handleIllegalArgument(
             IllegalArgumentException ex, ServerWebExchange exchange) {
         logger.warn("Invalid argument: {}", ex.getMessage());
-        ErrorResponse error = new ErrorResponse(
-            HttpStatus.BAD_REQUEST.value(),
+        // Message may echo request input
+        byte[] body = errorResponseTemplates.encodeOnce(
+            HttpStatus.BAD_REQUEST,
             "Bad request",
             ex.getMessage(),
             exchange.getRequest().getPath().value()
         );
-        return Mono.just(ResponseEntity.badRequest().body(error));
+        return Mono.just(ResponseEntity.badRequest().contentType(MediaType.APPLICATION_JSON).body(body));
+    }
+    
+    /**
+     * Framework rejections that already carry a status: missing or malformed parameters
+     * (ServerWebInputException, 400), unsupported media types, unknown routes
+     */
+    @ExceptionHandler(ResponseStatusException.class)
+    public Mono<ResponseEntity<byte[]>> handleResponseStatus(
+            ResponseStatusException ex, ServerWebExchange exchange) {
+        HttpStatus status = HttpStatus.resolve(ex.getStatusCode().value());
+        if (status == null) {
+            status = HttpStatus.BAD_REQUEST;
+        }
+        logger.warn("Request rejected with {}: {}", status.value(), ex.getReason());
+        // Reason may echo request input
+        byte[] body = errorResponseTemplates.encodeOnce(
+            status,
+            status.getReasonPhrase(),
+            ex.getReason() != null ? ex.getReason() : status.getReasonPhrase(),
+            exchange.getRequest().getPath().value()
+        );
+        return Mono.just(ResponseEntity.status(status)
+                .headers(ex.getHeaders())
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(body));
     }
     
     @ExceptionHandler(WebExchangeBindException.class)
@@ -100,16 +180,16 @@ public class GlobalExceptionHandler {
     }
     
     @ExceptionHandler(Exception.class)
-    public Mono<ResponseEntity<ErrorResponse>> handleGenericException(
+    public Mono<ResponseEntity<byte[]>> handleGenericException(
             Exception ex, ServerWebExchange exchange) {
         logger.error("Unexpected error occurred", ex);
-        ErrorResponse error = new ErrorResponse(
-            HttpStatus.INTERNAL_SERVER_ERROR.value(),
+        byte[] body = errorResponseTemplates.encode(
+            HttpStatus.INTERNAL_SERVER_ERROR,
             "Internal server error",
             "An unexpected error occurred. Please try again later.",
             exchange.getRequest().getPath().value()
         );
-        return Mono.just(ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(error));
+        return Mono.just(ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).contentType(MediaType.APPLICATION_JSON).body(body));
     }
 }
 
@@ -0,0 +1,12 @@
+package com.khas.optimization.exception;
+
+/**
+ * Exception thrown when a bounded resource is saturated and the request is shed
+ * Reported as 503 Service Unavailable with a Retry-After header.
+ */
+public class ServiceUnavailableException extends DomainException {
+    
+    public ServiceUnavailableException(String message) {
+        super(message);
+    }
+}
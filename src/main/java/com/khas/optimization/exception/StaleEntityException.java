@@ -0,0 +1,16 @@
+package com.khas.optimization.exception;
+
+/**
+ * Exception thrown when a conditional write targets an outdated entity version
+ * (the entity was modified concurrently since the client read it)
+ */
+public class StaleEntityException extends DomainException {
+    
+    public StaleEntityException(String message) {
+        super(message);
+    }
+    
+    public StaleEntityException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
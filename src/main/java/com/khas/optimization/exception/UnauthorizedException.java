@@ -3,7 +3,7 @@ package com.khas.optimization.exception;
 /**
  * Exception thrown when user is not authorized
  */
-public class UnauthorizedException extends RuntimeException {
+public class UnauthorizedException extends DomainException {
     
     public UnauthorizedException(String message) {
         super(message);
@@ -1,11 +1,12 @@
 package com.khas.optimization.filter;
 
-import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.khas.optimization.dto.ErrorResponse;
-import com.khas.optimization.service.JwtService;
+import com.khas.optimization.exception.ErrorResponseTemplates;
+import com.khas.optimization.service.JwtPrincipal;
+import com.khas.optimization.service.VerifiedTokenCache;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
 import org.springframework.core.io.buffer.DataBuffer;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
@@ -16,33 +17,41 @@ import org.springframework.web.server.WebFilter;
 import org.springframework.web.server.WebFilterChain;
 import reactor.core.publisher.Mono;
 
-import java.nio.charset.StandardCharsets;
 import java.util.List;
 
 /**
  * JWT Authentication Filter for WebFlux
  * Validates JWT tokens from Authorization header
+ * Runs first (order = HIGHEST_PRECEDENCE) so later filters and RoleAuthorizationHandlerMapping see the principal
  */
 @Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
 public class JwtAuthenticationFilter implements WebFilter {
     
     private static final Logger logger = LoggerFactory.getLogger(JwtAuthenticationFilter.class);
-    private final JwtService jwtService;
-    private final ObjectMapper objectMapper;
+    private final VerifiedTokenCache verifiedTokenCache;
+    private final ErrorResponseTemplates errorResponseTemplates;
+    // Matched whole path or whole leading segments, never as a raw prefix:
+    // "/api/auth/validate" must not make "/api/auth/validate:batch" public
     private final List<String> publicPaths = List.of(
         "/api/auth/login",
+        "/api/auth/refresh",
+        "/api/auth/logout",
         "/api/auth/validate",
+        "/.well-known/jwks.json",
         "/actuator/health",
         "/actuator/info",
         "/swagger-ui",
         "/swagger-ui.html",
         "/v3/api-docs",
+        "/v3/api-docs.yaml",
         "/webjars"
     );
     
-    public JwtAuthenticationFilter(JwtService jwtService, ObjectMapper objectMapper) {
-        this.jwtService = jwtService;
-        this.objectMapper = objectMapper;
+    public JwtAuthenticationFilter(VerifiedTokenCache verifiedTokenCache,
+                                   ErrorResponseTemplates errorResponseTemplates) {
+        this.verifiedTokenCache = verifiedTokenCache;
+        this.errorResponseTemplates = errorResponseTemplates;
     }
     
     @Override
@@ -63,46 +72,47 @@ public class JwtAuthenticationFilter implements WebFilter {
         
         String token = authHeader.substring(7);
         
-        if (!jwtService.validateToken(token)) {
+        // One parse per distinct token; repeat requests are served from the cache
+        JwtPrincipal principal = verifiedTokenCache.authenticate(token);
+        if (principal == null) {
             logger.warn("Unauthorized access attempt to {} - Invalid or expired token", path);
             return writeErrorResponse(exchange, HttpStatus.UNAUTHORIZED, "Invalid or expired token");
         }
         
-        // Add username to request attributes for use in controllers
-        String username = jwtService.extractUsername(token);
-        exchange.getAttributes().put("username", username);
-        exchange.getAttributes().put("roles", jwtService.extractRoles(token));
+        // Expose the principal to filters/controllers (exchange) and reactive code (Context)
+        exchange.getAttributes().put(JwtPrincipal.ATTRIBUTE, principal);
         
-        return chain.filter(exchange);
+        return chain.filter(exchange)
+                .contextWrite(context -> context.put(JwtPrincipal.class, principal));
     }
     
     /**
      * Write error response with JSON body
+     * Rejections are the hot path under credential-stuffing or expired-token storms, so the
+     * body comes from a pre-encoded template rather than a fresh ErrorResponse per request.
      */
     private Mono<Void> writeErrorResponse(ServerWebExchange exchange, HttpStatus status, String message) {
         exchange.getResponse().setStatusCode(status);
         exchange.getResponse().getHeaders().add(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE);
         
-        ErrorResponse error = new ErrorResponse(
-            status.value(),
+        byte[] body = errorResponseTemplates.encode(
+            status,
             status.getReasonPhrase(),
             message,
             exchange.getRequest().getPath().value()
         );
-        
-        try {
-            String json = objectMapper.writeValueAsString(error);
-            DataBuffer buffer = exchange.getResponse().bufferFactory()
-                .wrap(json.getBytes(StandardCharsets.UTF_8));
-            return exchange.getResponse().writeWith(Mono.just(buffer));
-        } catch (JsonProcessingException e) {
-            logger.error("Error serializing error response", e);
-            return exchange.getResponse().setComplete();
-        }
+        DataBuffer buffer = exchange.getResponse().bufferFactory().wrap(body);
+        return exchange.getResponse().writeWith(Mono.just(buffer));
     }
     
-    private boolean isPublicPath(String path) {
-        return publicPaths.stream().anyMatch(path::startsWith);
+    boolean isPublicPath(String path) {
+        for (String publicPath : publicPaths) {
+            if (path.startsWith(publicPath)
+                    && (path.length() == publicPath.length() || path.charAt(publicPath.length()) == '/')) {
+                return true;
+            }
+        }
+        return false;
     }
 }
 
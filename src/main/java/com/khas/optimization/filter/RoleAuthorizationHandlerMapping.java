@@ -0,0 +1,82 @@
+package com.khas.optimization.filter;
+
+import com.khas.optimization.annotation.RequiresRole;
+import com.khas.optimization.exception.ForbiddenException;
+import com.khas.optimization.service.JwtPrincipal;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.web.cors.reactive.CorsUtils;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.reactive.result.method.annotation.RequestMappingHandlerMapping;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+
+import java.lang.reflect.Method;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Request mapping that enforces @RequiresRole on the handler it resolves
+ * Replaces a separate authorization WebFilter, which had to look the handler up a second time
+ * and reflect the annotation on every request.
+ *
+ * At startup every mapped handler method is scanned once (method annotation first, then class,
+ * including meta-annotations such as @RequiresAdmin) into an immutable table of RoleRequirement.
+ * Per request, the check is a table lookup and a bitmask comparison against
+ * JwtPrincipal.roleMask(). Denied requests fail with ForbiddenException (403).
+ *
+ * Registered in place of the default mapping by WebFluxConfig.
+ */
+public class RoleAuthorizationHandlerMapping extends RequestMappingHandlerMapping {
+    
+    private Map<Method, RoleRequirement> requirements = Map.of();
+    
+    @Override
+    public void afterPropertiesSet() {
+        super.afterPropertiesSet();
+        
+        Map<Method, RoleRequirement> table = new HashMap<>();
+        for (HandlerMethod handlerMethod : getHandlerMethods().values()) {
+            RequiresRole annotation = findRequiresRole(handlerMethod);
+            if (annotation != null) {
+                table.put(handlerMethod.getMethod(), RoleRequirement.of(annotation));
+            }
+        }
+        requirements = Map.copyOf(table);
+        logger.debug("Role requirements precomputed for " + requirements.size() + " handler methods");
+    }
+    
+    @Override
+    public Mono<HandlerMethod> getHandlerInternal(ServerWebExchange exchange) {
+        return super.getHandlerInternal(exchange).map(handlerMethod -> authorize(handlerMethod, exchange));
+    }
+    
+    /**
+     * Requirement of a handler method, or null if it is open to any authenticated caller
+     */
+    public RoleRequirement getRequirement(Method method) {
+        return requirements.get(method);
+    }
+    
+    private HandlerMethod authorize(HandlerMethod handlerMethod, ServerWebExchange exchange) {
+        RoleRequirement requirement = requirements.get(handlerMethod.getMethod());
+        // CORS preflight requests carry no credentials; the mapping answers them without invoking the handler
+        if (requirement == null || CorsUtils.isPreFlightRequest(exchange.getRequest())) {
+            return handlerMethod;
+        }
+        
+        JwtPrincipal principal = JwtPrincipal.from(exchange);
+        if (principal == null || !requirement.isSatisfiedBy(principal.roleMask())) {
+            throw new ForbiddenException("Insufficient role for this operation");
+        }
+        return handlerMethod;
+    }
+    
+    private static RequiresRole findRequiresRole(HandlerMethod handlerMethod) {
+        // Method annotation takes precedence over class annotation
+        RequiresRole annotation = AnnotatedElementUtils.findMergedAnnotation(handlerMethod.getMethod(), RequiresRole.class);
+        if (annotation == null) {
+            annotation = AnnotatedElementUtils.findMergedAnnotation(handlerMethod.getBeanType(), RequiresRole.class);
+        }
+        return annotation;
+    }
+}
@@ -0,0 +1,43 @@
+package com.khas.optimization.filter;
+
+import com.khas.optimization.annotation.RequiresRole;
+import com.khas.optimization.constants.RoleConstants;
+
+/**
+ * Precomputed form of a @RequiresRole annotation
+ * The required role names are reduced to RoleConstants bits once at startup, so a check
+ * is a single AND against the caller's role mask.
+ *
+ * @param mask RoleConstants bits of the required roles
+ * @param requireAll true if every required role is needed (AND), false if any one is enough (OR)
+ */
+public record RoleRequirement(long mask, boolean requireAll) {
+
+    /**
+     * Build the requirement of an annotation
+     *
+     * @throws IllegalStateException if the annotation names no role or a role not defined in RoleConstants
+     */
+    public static RoleRequirement of(RequiresRole annotation) {
+        if (annotation.value().length == 0) {
+            throw new IllegalStateException("@RequiresRole must name at least one role");
+        }
+        long mask = 0L;
+        for (String role : annotation.value()) {
+            long bit = RoleConstants.bitOf(role);
+            if (bit == 0L) {
+                throw new IllegalStateException("@RequiresRole names unknown role: " + role + " (see RoleConstants)");
+            }
+            mask |= bit;
+        }
+        return new RoleRequirement(mask, annotation.requireAll());
+    }
+
+    /**
+     * Whether a caller with these role bits may access the endpoint
+     */
+    public boolean isSatisfiedBy(long roleMask) {
+        long granted = roleMask & mask;
+        return requireAll ? granted == mask : granted != 0L;
+    }
+}
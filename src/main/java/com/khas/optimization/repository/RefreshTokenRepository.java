@@ -0,0 +1,41 @@
+package com.khas.optimization.repository;
+
+import com.khas.optimization.entity.RefreshToken;
+import org.springframework.data.r2dbc.repository.Modifying;
+import org.springframework.data.r2dbc.repository.Query;
+import org.springframework.data.repository.reactive.ReactiveCrudRepository;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDateTime;
+
+/**
+ * Refresh Token Repository (R2DBC Reactive)
+ * Revocations are conditional on revoked_at IS NULL and return the number of affected rows,
+ * so exactly one caller can consume a token.
+ */
+public interface RefreshTokenRepository extends ReactiveCrudRepository<RefreshToken, Long> {
+    
+    @Query("SELECT * FROM refresh_tokens WHERE token_hash = :tokenHash")
+    Mono<RefreshToken> findByTokenHash(String tokenHash);
+    
+    /**
+     * Revoke one token (0 = already revoked, i.e. rotated or logged out)
+     */
+    @Modifying
+    @Query("UPDATE refresh_tokens SET revoked_at = :revokedAt WHERE id = :id AND revoked_at IS NULL")
+    Mono<Integer> revokeById(Long id, LocalDateTime revokedAt);
+    
+    /**
+     * Revoke every live token rotated from the same login
+     */
+    @Modifying
+    @Query("UPDATE refresh_tokens SET revoked_at = :revokedAt WHERE family_id = :familyId AND revoked_at IS NULL")
+    Mono<Integer> revokeFamily(String familyId, LocalDateTime revokedAt);
+    
+    /**
+     * Delete tokens that expired before the given time (revoked or not)
+     */
+    @Modifying
+    @Query("DELETE FROM refresh_tokens WHERE expires_at < :before")
+    Mono<Integer> deleteExpiredBefore(LocalDateTime before);
+}
@@ -0,0 +1,42 @@
+package com.khas.optimization.repository;
+
+import com.khas.optimization.entity.RevokedToken;
+import org.springframework.data.r2dbc.repository.Modifying;
+import org.springframework.data.r2dbc.repository.Query;
+import org.springframework.data.repository.reactive.ReactiveCrudRepository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDateTime;
+
+/**
+ * Revoked Token Repository (R2DBC Reactive)
+ */
+public interface RevokedTokenRepository extends ReactiveCrudRepository<RevokedToken, String> {
+    
+    /**
+     * Record a revocation (fails with a duplicate key if the jti is already revoked)
+     */
+    @Modifying
+    @Query("INSERT INTO revoked_tokens (jti, expires_at, revoked_at) VALUES (:jti, :expiresAt, :revokedAt)")
+    Mono<Integer> insert(String jti, LocalDateTime expiresAt, LocalDateTime revokedAt);
+    
+    /**
+     * Revocations still in force
+     */
+    @Query("SELECT * FROM revoked_tokens WHERE expires_at > :now")
+    Flux<RevokedToken> findActive(LocalDateTime now);
+    
+    /**
+     * Revocations still in force that were made at or after a given time
+     */
+    @Query("SELECT * FROM revoked_tokens WHERE revoked_at >= :since AND expires_at > :now")
+    Flux<RevokedToken> findActiveRevokedSince(LocalDateTime since, LocalDateTime now);
+    
+    /**
+     * Delete revocations of tokens that expired before the given time
+     */
+    @Modifying
+    @Query("DELETE FROM revoked_tokens WHERE expires_at < :before")
+    Mono<Integer> deleteExpiredBefore(LocalDateTime before);
+}
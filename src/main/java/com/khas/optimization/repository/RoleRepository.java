@@ -1,14 +1,23 @@
 package com.khas.optimization.repository;
 
 import com.khas.optimization.entity.Role;
+import org.springframework.data.r2dbc.repository.Query;
 import org.springframework.data.repository.reactive.ReactiveCrudRepository;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
 /**
  * Role Repository (R2DBC Reactive)
+ * Note: roles has no updated_at column, so reads list their columns explicitly
  */
 public interface RoleRepository extends ReactiveCrudRepository<Role, Long> {
     
+    @Query("SELECT id, name, description, created_at, deleted_at, version FROM roles WHERE name = :name AND deleted_at IS NULL")
     Mono<Role> findByName(String name);
+    
+    /**
+     * Find all non-deleted roles (used to load the RoleCatalog)
+     */
+    @Query("SELECT id, name, description, created_at, deleted_at, version FROM roles WHERE deleted_at IS NULL")
+    Flux<Role> findAllActive();
 }
-
@@ -0,0 +1,32 @@
+package com.khas.optimization.repository;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import org.springframework.data.relational.core.mapping.Column;
+
+/**
+ * Projection of the combined username/email existence check
+ * Each count is the number of other active users already using the value.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class UniquenessConflict {
+
+    @Column("username_count")
+    private Long usernameCount;
+
+    @Column("email_count")
+    private Long emailCount;
+
+    public boolean isUsernameTaken() {
+        return usernameCount != null && usernameCount > 0;
+    }
+
+    public boolean isEmailTaken() {
+        return emailCount != null && emailCount > 0;
+    }
+}
@@ -0,0 +1,36 @@
+package com.khas.optimization.repository;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import org.springframework.data.relational.core.mapping.Column;
+
+/**
+ * Projection of a user's login credentials with its role ids aggregated into one column
+ * Loaded with a single users LEFT JOIN user_roles ... GROUP BY query.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class UserCredentialRow {
+
+    @Column("id")
+    private Long id;
+
+    @Column("username")
+    private String username;
+
+    @Column("password_hash")
+    private String passwordHash;
+
+    @Column("enabled")
+    private Boolean enabled;
+
+    /**
+     * Comma-separated role ids in ascending order, or null if the user has no roles
+     */
+    @Column("role_ids")
+    private String roleIds;
+}
@@ -0,0 +1,141 @@
+package com.khas.optimization.repository;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Sort and filter specification for user listings
+ * Built from request parameters with {@link #builder()} and rendered into SQL by
+ * UserRepositoryCustomImpl. Only whitelisted, indexed columns can appear:
+ * sort keys come from UserSortField and every filter maps to a fixed predicate.
+ * Soft-deleted users are always excluded.
+ *
+ * @param orders Sort keys in priority order; id is appended as tie-breaker unless already present
+ * @param enabled Only users with this enabled flag (null = any)
+ * @param createdFrom Only users created at or after this time (inclusive, null = unbounded)
+ * @param createdTo Only users created before this time (exclusive, null = unbounded)
+ * @param roleId Only users holding this role (null = any)
+ */
+public record UserQuery(List<Order> orders,
+                        Boolean enabled,
+                        LocalDateTime createdFrom,
+                        LocalDateTime createdTo,
+                        Long roleId) {
+
+    /**
+     * Maximum sort keys per query (excluding the id tie-breaker)
+     */
+    public static final int MAX_SORT_FIELDS = 3;
+
+    public UserQuery {
+        orders = List.copyOf(orders);
+    }
+
+    /**
+     * One sort key
+     */
+    public record Order(UserSortField field, boolean ascending) {
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Whether any filter besides deleted_at IS NULL applies
+     */
+    public boolean hasFilters() {
+        return enabled != null || createdFrom != null || createdTo != null || roleId != null;
+    }
+
+    /**
+     * Sort keys including the id tie-breaker (same direction as the first key)
+     * This is the order rendered into ORDER BY and compared by seek predicates.
+     */
+    public List<Order> effectiveOrders() {
+        for (Order order : orders) {
+            if (order.field() == UserSortField.ID) {
+                return orders;
+            }
+        }
+        boolean ascending = orders.isEmpty() || orders.get(0).ascending();
+        List<Order> effective = new ArrayList<>(orders.size() + 1);
+        effective.addAll(orders);
+        effective.add(new Order(UserSortField.ID, ascending));
+        return effective;
+    }
+
+    /**
+     * Canonical sort description, e.g. "createdAt,desc;username,asc"
+     * Stored in cursors so a cursor is only reused with the sort it came from.
+     */
+    public String sortKey() {
+        StringBuilder key = new StringBuilder();
+        for (Order order : orders) {
+            if (!key.isEmpty()) {
+                key.append(';');
+            }
+            key.append(order.field().getProperty()).append(',').append(order.ascending() ? "asc" : "desc");
+        }
+        return key.toString();
+    }
+
+    public static class Builder {
+
+        private final List<Order> orders = new ArrayList<>();
+        private Boolean enabled;
+        private LocalDateTime createdFrom;
+        private LocalDateTime createdTo;
+        private Long roleId;
+
+        /**
+         * Add a sort key; keys after id are ignored since id is unique
+         *
+         * @throws IllegalArgumentException if more than MAX_SORT_FIELDS keys or a duplicate key is given
+         */
+        public Builder orderBy(UserSortField field, boolean ascending) {
+            for (Order order : orders) {
+                if (order.field() == UserSortField.ID) {
+                    return this;
+                }
+                if (order.field() == field) {
+                    throw new IllegalArgumentException("Duplicate sort field: " + field.getProperty());
+                }
+            }
+            if (orders.size() == MAX_SORT_FIELDS) {
+                throw new IllegalArgumentException("At most " + MAX_SORT_FIELDS + " sort fields are supported");
+            }
+            orders.add(new Order(field, ascending));
+            return this;
+        }
+
+        public Builder enabled(Boolean enabled) {
+            this.enabled = enabled;
+            return this;
+        }
+
+        /**
+         * Restrict to users created in [from, to); either bound may be null
+         *
+         * @throws IllegalArgumentException if from is not before to
+         */
+        public Builder createdBetween(LocalDateTime from, LocalDateTime to) {
+            if (from != null && to != null && !from.isBefore(to)) {
+                throw new IllegalArgumentException("createdFrom must be before createdTo");
+            }
+            this.createdFrom = from;
+            this.createdTo = to;
+            return this;
+        }
+
+        public Builder roleId(Long roleId) {
+            this.roleId = roleId;
+            return this;
+        }
+
+        public UserQuery build() {
+            return new UserQuery(orders, enabled, createdFrom, createdTo, roleId);
+        }
+    }
+}
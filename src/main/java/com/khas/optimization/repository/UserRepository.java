@@ -1,16 +1,28 @@
 package com.khas.optimization.repository;
 
 import com.khas.optimization.entity.User;
+import org.springframework.data.r2dbc.repository.Modifying;
 import org.springframework.data.r2dbc.repository.Query;
 import org.springframework.data.repository.reactive.ReactiveCrudRepository;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
+
 /**
  * User Repository (R2DBC Reactive)
  * All queries exclude soft-deleted records (deleted_at IS NULL)
+ * 
+ * Conditional writes take an expected version (ANY_VERSION to skip the check),
+ * increment the version column and return the number of affected rows (0 = not found or stale)
  */
-public interface UserRepository extends ReactiveCrudRepository<User, Long> {
+public interface UserRepository extends ReactiveCrudRepository<User, Long>, UserRepositoryCustom {
+    
+    /**
+     * Expected version that matches any row version (unconditional write)
+     */
+    long ANY_VERSION = -1L;
     
     @Query("SELECT * FROM users WHERE username = :username AND deleted_at IS NULL")
     Mono<User> findByUsername(String username);
@@ -18,8 +30,15 @@ public interface UserRepository extends ReactiveCrudRepository<User, Long> {
     @Query("SELECT * FROM users WHERE email = :email AND deleted_at IS NULL")
     Mono<User> findByEmail(String email);
     
-    @Query("SELECT * FROM users WHERE username = :username AND enabled = true AND deleted_at IS NULL")
-    Mono<User> findEnabledUserByUsername(String username);
+    /**
+     * Load login credentials and role ids in one round trip (disabled users included, see enabled)
+     */
+    @Query("SELECT u.id, u.username, u.password_hash, u.enabled, " +
+           "GROUP_CONCAT(ur.role_id ORDER BY ur.role_id) AS role_ids " +
+           "FROM users u LEFT JOIN user_roles ur ON ur.user_id = u.id " +
+           "WHERE u.username = :username AND u.deleted_at IS NULL " +
+           "GROUP BY u.id, u.username, u.password_hash, u.enabled")
+    Mono<UserCredentialRow> findCredentialsByUsername(String username);
     
     @Query("SELECT COUNT(*) FROM users WHERE username = :username AND deleted_at IS NULL")
     Mono<Long> countByUsername(String username);
@@ -35,6 +54,14 @@ public interface UserRepository extends ReactiveCrudRepository<User, Long> {
         return countByEmail(email).map(count -> count > 0);
     }
     
+    /**
+     * Check username and email uniqueness in one round trip
+     * Rows with id = :excludeId are ignored (pass the user's own ID on update, -1 on create)
+     */
+    @Query("SELECT (SELECT COUNT(*) FROM users WHERE username = :username AND id <> :excludeId AND deleted_at IS NULL) AS username_count, " +
+           "(SELECT COUNT(*) FROM users WHERE email = :email AND id <> :excludeId AND deleted_at IS NULL) AS email_count")
+    Mono<UniquenessConflict> findUniquenessConflict(String username, String email, Long excludeId);
+    
     @Query("SELECT * FROM users WHERE deleted_at IS NULL")
     Flux<User> findAll();
     
@@ -43,5 +70,76 @@ public interface UserRepository extends ReactiveCrudRepository<User, Long> {
     
     @Query("SELECT COUNT(*) FROM users WHERE deleted_at IS NULL")
     Mono<Long> countAll();
+    
+    /**
+     * Find IDs of users by username (including soft-deleted)
+     * Soft-deleted rows are included because the unique constraints still cover them.
+     */
+    @Query("SELECT id, username FROM users WHERE username IN (:usernames)")
+    Flux<User> findIdsByUsernameIn(Collection<String> usernames);
+    
+    /**
+     * Find IDs of users by email (including soft-deleted)
+     * Kept separate from the username lookup: "username IN (...) OR email IN (...)"
+     * is a full table scan, while each IN alone uses its unique index.
+     */
+    @Query("SELECT id, email FROM users WHERE email IN (:emails)")
+    Flux<User> findIdsByEmailIn(Collection<String> emails);
+    
+    /**
+     * Read id, version and deleted_at of a user, including soft-deleted ones
+     * (explains why a conditional write affected no rows)
+     */
+    @Query("SELECT id, version, deleted_at FROM users WHERE id = :id")
+    Mono<User> findVersionById(Long id);
+    
+    /**
+     * Update profile fields in one statement; passwordHash null keeps the current hash
+     */
+    @Modifying
+    @Query("UPDATE users SET username = :username, email = :email, " +
+           "password_hash = COALESCE(:passwordHash, password_hash), updated_at = :updatedAt, version = version + 1 " +
+           "WHERE id = :id AND deleted_at IS NULL AND (:expectedVersion < 0 OR version = :expectedVersion)")
+    Mono<Integer> updateProfile(Long id, String username, String email, String passwordHash,
+                                LocalDateTime updatedAt, long expectedVersion);
+    
+    /**
+     * Swap a password hash for an equivalent one under the current hashing policy
+     * Only applies if the stored hash is still currentHash (a concurrent password change wins).
+     * Leaves version and updated_at alone: the password itself did not change.
+     */
+    @Modifying
+    @Query("UPDATE users SET password_hash = :newHash WHERE id = :id AND password_hash = :currentHash AND deleted_at IS NULL")
+    Mono<Integer> replacePasswordHash(Long id, String currentHash, String newHash);
+    
+    @Modifying
+    @Query("UPDATE users SET deleted_at = :deletedAt, updated_at = :deletedAt, version = version + 1 " +
+           "WHERE id = :id AND deleted_at IS NULL AND (:expectedVersion < 0 OR version = :expectedVersion)")
+    Mono<Integer> softDeleteById(Long id, LocalDateTime deletedAt, long expectedVersion);
+    
+    @Modifying
+    @Query("UPDATE users SET deleted_at = NULL, updated_at = :updatedAt, version = version + 1 " +
+           "WHERE id = :id AND deleted_at IS NOT NULL AND (:expectedVersion < 0 OR version = :expectedVersion)")
+    Mono<Integer> restoreById(Long id, LocalDateTime updatedAt, long expectedVersion);
+    
+    @Modifying
+    @Query("DELETE FROM users WHERE id = :id AND deleted_at IS NULL AND (:expectedVersion < 0 OR version = :expectedVersion)")
+    Mono<Integer> deleteActiveById(Long id, long expectedVersion);
+    
+    @Modifying
+    @Query("UPDATE users SET deleted_at = :deletedAt, updated_at = :deletedAt, version = version + 1 " +
+           "WHERE id IN (:ids) AND deleted_at IS NULL")
+    Mono<Long> softDeleteAllById(Collection<Long> ids, LocalDateTime deletedAt);
+    
+    @Modifying
+    @Query("UPDATE users SET deleted_at = NULL, updated_at = :updatedAt, version = version + 1 " +
+           "WHERE id IN (:ids) AND deleted_at IS NOT NULL")
+    Mono<Long> restoreAllById(Collection<Long> ids, LocalDateTime updatedAt);
+    
+    /**
+     * Permanently remove soft-deleted users (active users are never purged)
+     */
+    @Modifying
+    @Query("DELETE FROM users WHERE id IN (:ids) AND deleted_at IS NOT NULL")
+    Mono<Long> purgeAllById(Collection<Long> ids);
 }
-
@@ -0,0 +1,56 @@
+package com.khas.optimization.repository;
+
+import com.khas.optimization.entity.User;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+
+/**
+ * Custom UserRepository fragment for queries that need a dynamic ORDER BY
+ * or WHERE clause, which cannot be expressed with a static @Query.
+ * All queries exclude soft-deleted records (deleted_at IS NULL)
+ */
+public interface UserRepositoryCustom {
+
+    /**
+     * Fetch one page using LIMIT/OFFSET (cheap for shallow pages)
+     *
+     * @param query Whitelisted sort keys and filters
+     * @param offset Number of rows to skip
+     * @param limit Maximum number of rows to return
+     */
+    Flux<User> findPage(UserQuery query, long offset, int limit);
+
+    /**
+     * Fetch the rows that follow the given row in sort order - keyset/seek pagination.
+     * Equivalent to WHERE (k1, ..., id) > (?, ..., ?) and stays O(limit) at any depth.
+     *
+     * @param query Whitelisted sort keys and filters
+     * @param sortValues Values of the query's sort keys on the last row of the previous page
+     * @param id ID of the last row on the previous page (tie-breaker)
+     * @param limit Maximum number of rows to return
+     */
+    Flux<User> findPageAfter(UserQuery query, List<Object> sortValues, long id, int limit);
+
+    /**
+     * Count users matching the query's filters
+     */
+    Mono<Long> countMatching(UserQuery query);
+
+    /**
+     * Stream every non-deleted user ordered by id from a single database cursor.
+     * Rows are pulled with backpressure, at most fetchSize at a time from the driver.
+     *
+     * @param fetchSize Rows the driver fetches per round trip
+     */
+    Flux<User> streamAll(int fetchSize);
+
+    /**
+     * Insert many users with one multi-row INSERT statement
+     * Generated IDs are not populated; read them back with findIdsByUsernameIn.
+     *
+     * @return Number of inserted rows
+     */
+    Mono<Long> insertAll(List<User> users);
+}
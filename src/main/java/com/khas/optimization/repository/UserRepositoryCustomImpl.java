@@ -0,0 +1,203 @@
+package com.khas.optimization.repository;
+
+import com.khas.optimization.entity.User;
+import org.springframework.data.r2dbc.core.R2dbcEntityTemplate;
+import org.springframework.r2dbc.core.DatabaseClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * R2dbcEntityTemplate-backed implementation of UserRepositoryCustom.
+ * Listing queries are rendered from a UserQuery: sorting, filters, LIMIT/OFFSET and
+ * seek predicates are all pushed into SQL. Column names only ever come from the
+ * UserSortField whitelist; every value is a bind parameter.
+ */
+public class UserRepositoryCustomImpl implements UserRepositoryCustom {
+
+    private final R2dbcEntityTemplate template;
+
+    public UserRepositoryCustomImpl(R2dbcEntityTemplate template) {
+        this.template = template;
+    }
+
+    @Override
+    public Flux<User> findPage(UserQuery query, long offset, int limit) {
+        SqlBuilder sql = new SqlBuilder("SELECT * FROM users");
+        where(sql, query);
+        orderBy(sql, query);
+        sql.append(" LIMIT ").bind(limit).append(" OFFSET ").bind(offset);
+        return selectUsers(sql);
+    }
+
+    @Override
+    public Flux<User> findPageAfter(UserQuery query, List<Object> sortValues, long id, int limit) {
+        List<UserQuery.Order> orders = query.effectiveOrders();
+        List<Object> values = new ArrayList<>(sortValues);
+        if (values.size() < orders.size()) {
+            values.add(id); // Value of the id tie-breaker
+        }
+        if (values.size() != orders.size()) {
+            return Flux.error(new IllegalArgumentException("Cursor does not match the requested sort"));
+        }
+
+        SqlBuilder sql = new SqlBuilder("SELECT * FROM users");
+        where(sql, query);
+        sql.append(" AND ");
+        seek(sql, orders, values);
+        orderBy(sql, query);
+        sql.append(" LIMIT ").bind(limit);
+        return selectUsers(sql);
+    }
+
+    @Override
+    public Mono<Long> countMatching(UserQuery query) {
+        SqlBuilder sql = new SqlBuilder("SELECT COUNT(*) FROM users");
+        where(sql, query);
+        return sql.spec(template.getDatabaseClient())
+                .map(row -> row.get(0, Long.class))
+                .one();
+    }
+
+    @Override
+    public Flux<User> streamAll(int fetchSize) {
+        return template.getDatabaseClient()
+                .sql("SELECT * FROM users WHERE deleted_at IS NULL ORDER BY id")
+                .filter(statement -> statement.fetchSize(fetchSize))
+                .map((row, metadata) -> template.getConverter().read(User.class, row, metadata))
+                .all();
+    }
+
+    @Override
+    public Mono<Long> insertAll(List<User> users) {
+        if (users.isEmpty()) {
+            return Mono.just(0L);
+        }
+
+        StringBuilder sql = new StringBuilder(
+                "INSERT INTO users (username, email, password_hash, enabled, created_at, updated_at) VALUES ");
+        for (int i = 0; i < users.size(); i++) {
+            if (i > 0) {
+                sql.append(", ");
+            }
+            sql.append("(:username").append(i)
+                    .append(", :email").append(i)
+                    .append(", :passwordHash").append(i)
+                    .append(", :enabled").append(i)
+                    .append(", :createdAt").append(i)
+                    .append(", :updatedAt").append(i)
+                    .append(')');
+        }
+
+        DatabaseClient.GenericExecuteSpec spec = template.getDatabaseClient().sql(sql.toString());
+        for (int i = 0; i < users.size(); i++) {
+            User user = users.get(i);
+            spec = spec.bind("username" + i, user.getUsername())
+                    .bind("email" + i, user.getEmail())
+                    .bind("passwordHash" + i, user.getPasswordHash())
+                    .bind("enabled" + i, user.getEnabled())
+                    .bind("createdAt" + i, user.getCreatedAt())
+                    .bind("updatedAt" + i, user.getUpdatedAt());
+        }
+        return spec.fetch().rowsUpdated();
+    }
+
+    /**
+     * WHERE deleted_at IS NULL plus the query's filters
+     * Each filter is backed by an index: (enabled, deleted_at), (deleted_at, created_at)
+     * and user_roles (role_id, user_id) for the role semi-join.
+     */
+    private void where(SqlBuilder sql, UserQuery query) {
+        sql.append(" WHERE deleted_at IS NULL");
+        if (query.enabled() != null) {
+            sql.append(" AND enabled = ").bind(query.enabled());
+        }
+        if (query.createdFrom() != null) {
+            sql.append(" AND created_at >= ").bind(query.createdFrom());
+        }
+        if (query.createdTo() != null) {
+            sql.append(" AND created_at < ").bind(query.createdTo());
+        }
+        if (query.roleId() != null) {
+            sql.append(" AND id IN (SELECT user_id FROM user_roles WHERE role_id = ").bind(query.roleId()).append(")");
+        }
+    }
+
+    /**
+     * Expand (k1, k2, ..., id) > (?, ?, ..., ?) per key direction into
+     * k1 > ? OR (k1 = ? AND k2 > ?) OR ... so both H2 and MySQL can drive it from an index
+     */
+    private void seek(SqlBuilder sql, List<UserQuery.Order> orders, List<Object> values) {
+        sql.append("(");
+        for (int i = 0; i < orders.size(); i++) {
+            if (i > 0) {
+                sql.append(" OR ");
+            }
+            sql.append("(");
+            for (int j = 0; j < i; j++) {
+                sql.append(orders.get(j).field().getColumn()).append(" = ").bind(values.get(j)).append(" AND ");
+            }
+            UserQuery.Order order = orders.get(i);
+            sql.append(order.field().getColumn())
+                    .append(order.ascending() ? " > " : " < ")
+                    .bind(values.get(i))
+                    .append(")");
+        }
+        sql.append(")");
+    }
+
+    /**
+     * ORDER BY the query's keys with id as a unique tie-breaker so pages are stable
+     */
+    private void orderBy(SqlBuilder sql, UserQuery query) {
+        sql.append(" ORDER BY ");
+        List<UserQuery.Order> orders = query.effectiveOrders();
+        for (int i = 0; i < orders.size(); i++) {
+            if (i > 0) {
+                sql.append(", ");
+            }
+            UserQuery.Order order = orders.get(i);
+            sql.append(order.field().getColumn()).append(order.ascending() ? " ASC" : " DESC");
+        }
+    }
+
+    private Flux<User> selectUsers(SqlBuilder sql) {
+        return sql.spec(template.getDatabaseClient())
+                .map((row, metadata) -> template.getConverter().read(User.class, row, metadata))
+                .all();
+    }
+
+    /**
+     * SQL text plus positional-by-name bind values (:p0, :p1, ...)
+     */
+    private static final class SqlBuilder {
+
+        private final StringBuilder sql;
+        private final List<Object> values = new ArrayList<>();
+
+        SqlBuilder(String select) {
+            this.sql = new StringBuilder(select);
+        }
+
+        SqlBuilder append(String text) {
+            sql.append(text);
+            return this;
+        }
+
+        SqlBuilder bind(Object value) {
+            sql.append(":p").append(values.size());
+            values.add(value);
+            return this;
+        }
+
+        DatabaseClient.GenericExecuteSpec spec(DatabaseClient client) {
+            DatabaseClient.GenericExecuteSpec spec = client.sql(sql.toString());
+            for (int i = 0; i < values.size(); i++) {
+                spec = spec.bind("p" + i, values.get(i));
+            }
+            return spec;
+        }
+    }
+}
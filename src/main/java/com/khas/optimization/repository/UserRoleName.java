@@ -0,0 +1,24 @@
+package com.khas.optimization.repository;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import org.springframework.data.relational.core.mapping.Column;
+
+/**
+ * Projection row of user_roles joined with roles: (user_id, role name)
+ * Used to hydrate roles for many users with a single query.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class UserRoleName {
+
+    @Column("user_id")
+    private Long userId;
+
+    @Column("role_name")
+    private String roleName;
+}
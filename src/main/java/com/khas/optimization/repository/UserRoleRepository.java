@@ -6,11 +6,13 @@ import org.springframework.data.repository.reactive.ReactiveCrudRepository;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import java.util.Collection;
+
 /**
  * UserRole Repository (R2DBC Reactive)
  * Note: R2DBC doesn't support composite keys directly, so we use queries for insert/delete
  */
-public interface UserRoleRepository extends ReactiveCrudRepository<UserRole, Long> {
+public interface UserRoleRepository extends ReactiveCrudRepository<UserRole, Long>, UserRoleRepositoryCustom {
     
     /**
      * Find all roles for a user
@@ -18,6 +20,13 @@ public interface UserRoleRepository extends ReactiveCrudRepository<UserRole, Lon
     @Query("SELECT * FROM user_roles WHERE user_id = :userId")
     Flux<UserRole> findByUserId(Long userId);
     
+    /**
+     * Find role names for many users in one round trip (batched role hydration)
+     */
+    @Query("SELECT ur.user_id AS user_id, r.name AS role_name FROM user_roles ur " +
+           "JOIN roles r ON r.id = ur.role_id WHERE ur.user_id IN (:userIds)")
+    Flux<UserRoleName> findRoleNamesByUserIds(Collection<Long> userIds);
+    
     /**
      * Find all users for a role
      */
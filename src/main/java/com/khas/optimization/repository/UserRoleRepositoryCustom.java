@@ -0,0 +1,19 @@
+package com.khas.optimization.repository;
+
+import com.khas.optimization.entity.UserRole;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+
+/**
+ * Custom UserRoleRepository fragment for batched writes
+ */
+public interface UserRoleRepositoryCustom {
+
+    /**
+     * Insert many user-role relationships with one multi-row INSERT statement
+     *
+     * @return Number of inserted rows
+     */
+    Mono<Long> insertAll(List<UserRole> userRoles);
+}
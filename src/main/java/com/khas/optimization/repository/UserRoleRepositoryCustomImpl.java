@@ -0,0 +1,46 @@
+package com.khas.optimization.repository;
+
+import com.khas.optimization.entity.UserRole;
+import org.springframework.r2dbc.core.DatabaseClient;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+
+/**
+ * DatabaseClient-backed implementation of UserRoleRepositoryCustom
+ */
+public class UserRoleRepositoryCustomImpl implements UserRoleRepositoryCustom {
+
+    private final DatabaseClient databaseClient;
+
+    public UserRoleRepositoryCustomImpl(DatabaseClient databaseClient) {
+        this.databaseClient = databaseClient;
+    }
+
+    @Override
+    public Mono<Long> insertAll(List<UserRole> userRoles) {
+        if (userRoles.isEmpty()) {
+            return Mono.just(0L);
+        }
+
+        StringBuilder sql = new StringBuilder("INSERT INTO user_roles (user_id, role_id, created_at) VALUES ");
+        for (int i = 0; i < userRoles.size(); i++) {
+            if (i > 0) {
+                sql.append(", ");
+            }
+            sql.append("(:userId").append(i)
+                    .append(", :roleId").append(i)
+                    .append(", :createdAt").append(i)
+                    .append(')');
+        }
+
+        DatabaseClient.GenericExecuteSpec spec = databaseClient.sql(sql.toString());
+        for (int i = 0; i < userRoles.size(); i++) {
+            UserRole userRole = userRoles.get(i);
+            spec = spec.bind("userId" + i, userRole.getUserId())
+                    .bind("roleId" + i, userRole.getRoleId())
+                    .bind("createdAt" + i, userRole.getCreatedAt());
+        }
+        return spec.fetch().rowsUpdated();
+    }
+}
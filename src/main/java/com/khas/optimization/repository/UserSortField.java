@@ -0,0 +1,74 @@
+package com.khas.optimization.repository;
+
+import com.khas.optimization.entity.User;
+
+import java.time.LocalDateTime;
+import java.util.function.Function;
+
+/**
+ * Whitelist of user columns that listings may be sorted by.
+ * Only columns backed by an index are listed (see V6__add_user_listing_indexes.sql).
+ * Each field knows how to read its value from a User and how to parse it back
+ * from a pagination cursor, so seek queries can be built without reflection.
+ */
+public enum UserSortField {
+
+    ID("id", "id", User::getId, Long::valueOf),
+    USERNAME("username", "username", User::getUsername, value -> value),
+    EMAIL("email", "email", User::getEmail, value -> value),
+    CREATED_AT("createdAt", "created_at", User::getCreatedAt, LocalDateTime::parse);
+
+    private final String property;
+    private final String column;
+    private final Function<User, Object> extractor;
+    private final Function<String, Object> parser;
+
+    UserSortField(String property, String column, Function<User, Object> extractor, Function<String, Object> parser) {
+        this.property = property;
+        this.column = column;
+        this.extractor = extractor;
+        this.parser = parser;
+    }
+
+    /**
+     * Property name accepted in the sort parameter and stored in cursors
+     */
+    public String getProperty() {
+        return property;
+    }
+
+    /**
+     * Column name rendered into SQL (never taken from user input)
+     */
+    public String getColumn() {
+        return column;
+    }
+
+    /**
+     * Read this field's value from a user (used to build the next cursor)
+     */
+    public Object valueOf(User user) {
+        return extractor.apply(user);
+    }
+
+    /**
+     * Parse a cursor value back into the column's Java type
+     */
+    public Object parse(String value) {
+        return parser.apply(value);
+    }
+
+    /**
+     * Resolve a sort parameter name against the whitelist
+     *
+     * @return The field, or null if the property is not sortable
+     */
+    public static UserSortField find(String property) {
+        for (UserSortField field : values()) {
+            if (field.property.equalsIgnoreCase(property)) {
+                return field;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,123 @@
+package com.khas.optimization.service;
+
+import com.khas.optimization.constants.RoleConstants;
+import io.jsonwebtoken.MalformedJwtException;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Compact encoding of the roles claim as an integer bitmask
+ * Instead of "roles":["ROLE_USER","ROLE_ADMIN"] a token carries "rm":3,"rv":1.
+ *
+ * rv names the mapping from bits to roles. Mapping version 1 uses the stable ids of the
+ * roles table seeded by V2__insert_default_roles.sql: bit (id - 1) is set for role id.
+ * A new role or a changed id requires a new version appended here; old versions must stay
+ * decodable until every token minted with them has expired.
+ *
+ * Tokens holding a role outside the current mapping fall back to the array claim, and
+ * array-style tokens are still accepted, so the encoding can be switched on and off
+ * (jwt.compact-roles) without invalidating issued tokens.
+ */
+public final class CompactRoleClaim {
+
+    /**
+     * Claim holding the role bitmask
+     */
+    public static final String MASK_CLAIM = "rm";
+
+    /**
+     * Claim holding the mapping version of MASK_CLAIM
+     */
+    public static final String VERSION_CLAIM = "rv";
+
+    /**
+     * Mapping version written into new tokens
+     */
+    public static final int CURRENT_VERSION = 1;
+
+    /**
+     * Role name of each bit, per mapping version (index = version - 1)
+     */
+    private static final List<List<String>> MAPPINGS = List.of(
+            // Version 1: roles.id 1, 2, 3
+            List.of(RoleConstants.ROLE_USER, RoleConstants.ROLE_ADMIN, RoleConstants.ROLE_MODERATOR)
+    );
+
+    /**
+     * Decoded role lists for every mask, per version, so decoding does not allocate
+     */
+    private static final List<List<List<String>>> DECODED = MAPPINGS.stream()
+            .map(CompactRoleClaim::decodeAll)
+            .toList();
+
+    private CompactRoleClaim() {
+        // Utility class - prevent instantiation
+    }
+
+    /**
+     * Role id that bit i stands for in the current mapping
+     */
+    public static long roleIdOf(int bit) {
+        return bit + 1L;
+    }
+
+    /**
+     * Names of the roles in the current mapping, in bit order
+     */
+    public static List<String> currentMapping() {
+        return MAPPINGS.get(CURRENT_VERSION - 1);
+    }
+
+    /**
+     * Encode role names with the current mapping
+     *
+     * @return The bitmask, or -1 if a role is not part of the mapping (use the array claim instead)
+     */
+    public static long encode(String[] roles) {
+        List<String> mapping = MAPPINGS.get(CURRENT_VERSION - 1);
+        long mask = 0L;
+        for (String role : roles) {
+            int bit = mapping.indexOf(role);
+            if (bit < 0) {
+                return -1L;
+            }
+            mask |= 1L << bit;
+        }
+        return mask;
+    }
+
+    /**
+     * Decode a bitmask minted with the given mapping version
+     *
+     * @return Immutable role names in bit order
+     * @throws MalformedJwtException if the version is unknown or the mask has bits outside the mapping
+     */
+    public static List<String> decode(int version, long mask) {
+        if (version < 1 || version > DECODED.size()) {
+            throw new MalformedJwtException("Unsupported role mapping version: " + version);
+        }
+        List<List<String>> decoded = DECODED.get(version - 1);
+        if (mask < 0 || mask >= decoded.size()) {
+            throw new MalformedJwtException("Invalid role mask for mapping version " + version + ": " + mask);
+        }
+        return decoded.get((int) mask);
+    }
+
+    /**
+     * Role names for masks 0 .. 2^n - 1
+     */
+    private static List<List<String>> decodeAll(List<String> mapping) {
+        List<List<String>> decoded = new ArrayList<>(1 << mapping.size());
+        for (int mask = 0; mask < 1 << mapping.size(); mask++) {
+            List<String> roles = new ArrayList<>();
+            for (int bit = 0; bit < mapping.size(); bit++) {
+                if ((mask & 1 << bit) != 0) {
+                    roles.add(mapping.get(bit));
+                }
+            }
+            decoded.add(List.copyOf(roles));
+        }
+        return List.copyOf(decoded);
+    }
+}
@@ -0,0 +1,200 @@
+package com.khas.optimization.service;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Cache of login credentials by username
+ * Repeat logins skip the credential query; the BCrypt check still runs on every login.
+ *
+ * An entry is served until credential-cache.ttl elapses or a local write to the user
+ * calls {@link #invalidate(long)}. Writes made by other instances (password change,
+ * delete) are only picked up after the TTL, so keep it short in a multi-instance
+ * deployment. Unknown usernames are never cached. The cache holds at most
+ * credential-cache.max-size entries (0 disables it): when full, expired entries are
+ * dropped first, then arbitrary ones.
+ */
+@Service
+public class CredentialCache implements MeterBinder {
+
+    private final int maxSize;
+    private final long ttlNanos;
+
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+
+    /**
+     * Usernames each cached user ID is stored under, so invalidation is one lookup, not a scan
+     * Entries are keyed by the submitted username, and a case-insensitive collation lets one
+     * user log in as "Alice" and "alice", so an ID can own several keys.
+     */
+    private final Map<Long, Set<String>> usernamesById = new ConcurrentHashMap<>();
+
+    /**
+     * Bumped by every invalidation; credentials loaded under an older generation are not stored
+     */
+    private final AtomicLong generation = new AtomicLong();
+    private final AtomicBoolean evicting = new AtomicBoolean();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    public CredentialCache(@Value("${credential-cache.max-size:10000}") int maxSize,
+                           @Value("${credential-cache.ttl:30s}") Duration ttl) {
+        this.maxSize = maxSize;
+        this.ttlNanos = ttl.toNanos();
+    }
+
+    /**
+     * Return the cached credentials, or subscribe to the loader and cache its result
+     *
+     * @param loader Query producing the credentials, empty for an unknown user
+     */
+    public Mono<UserCredentials> get(String username, Mono<UserCredentials> loader) {
+        if (maxSize <= 0) {
+            return loader;
+        }
+
+        Entry entry = entries.get(username);
+        if (entry != null) {
+            if (System.nanoTime() - entry.expiresAt < 0) {
+                hits.increment();
+                return Mono.just(entry.credentials);
+            }
+            remove(username, entry);
+        }
+
+        misses.increment();
+        return Mono.defer(() -> {
+            long loadGeneration = generation.get();
+            return loader.doOnNext(credentials -> store(username, credentials, loadGeneration));
+        });
+    }
+
+    /**
+     * Drop the credentials of a user; called after every write that changes its login data
+     */
+    public void invalidate(long userId) {
+        generation.incrementAndGet();
+        Set<String> usernames = usernamesById.remove(userId);
+        if (usernames != null) {
+            usernames.forEach(entries::remove);
+        }
+    }
+
+    /**
+     * Drop the credentials of many users
+     */
+    public void invalidate(Collection<Long> userIds) {
+        for (Long userId : userIds) {
+            invalidate(userId);
+        }
+    }
+
+    public void clear() {
+        generation.incrementAndGet();
+        entries.clear();
+        usernamesById.clear();
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    private void store(String username, UserCredentials credentials, long loadGeneration) {
+        // Skip storing if a write happened while the credentials were loading
+        if (generation.get() != loadGeneration) {
+            return;
+        }
+        long now = System.nanoTime();
+        if (entries.size() >= maxSize) {
+            evict(now);
+        }
+        if (entries.size() < maxSize) {
+            Entry entry = new Entry(credentials, now + ttlNanos);
+            entries.put(username, entry);
+            usernamesById.compute(credentials.userId(), (userId, usernames) -> {
+                Set<String> keys = usernames != null ? usernames : ConcurrentHashMap.newKeySet();
+                keys.add(username);
+                return keys;
+            });
+            // An invalidation that ran between the check and the put must still win
+            if (generation.get() != loadGeneration) {
+                remove(username, entry);
+            }
+        }
+    }
+
+    private void remove(String username, Entry entry) {
+        if (entries.remove(username, entry)) {
+            usernamesById.computeIfPresent(entry.credentials.userId(), (userId, usernames) -> {
+                usernames.remove(username);
+                return usernames.isEmpty() ? null : usernames;
+            });
+        }
+    }
+
+    /**
+     * Free room for new entries: expired ones first, then arbitrary ones down to 90% of capacity
+     * Only one thread evicts at a time; others skip caching meanwhile.
+     */
+    private void evict(long now) {
+        if (!evicting.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            entries.forEach((username, entry) -> {
+                if (now - entry.expiresAt >= 0) {
+                    remove(username, entry);
+                }
+            });
+            int target = maxSize - Math.max(1, maxSize / 10);
+            Iterator<Map.Entry<String, Entry>> iterator = entries.entrySet().iterator();
+            while (entries.size() > target && iterator.hasNext()) {
+                Map.Entry<String, Entry> next = iterator.next();
+                remove(next.getKey(), next.getValue());
+            }
+        } finally {
+            evicting.set(false);
+        }
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("credential.cache", this, CredentialCache::getHits)
+                .tag("result", "hit")
+                .description("Logins served from cached credentials")
+                .register(registry);
+        FunctionCounter.builder("credential.cache", this, CredentialCache::getMisses)
+                .tag("result", "miss")
+                .description("Logins that queried the user's credentials")
+                .register(registry);
+        Gauge.builder("credential.cache.size", this, CredentialCache::size)
+                .description("Usernames whose credentials are cached")
+                .register(registry);
+    }
+
+    private record Entry(UserCredentials credentials, long expiresAt) {
+    }
+}
@@ -0,0 +1,375 @@
+package com.khas.optimization.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.khas.optimization.config.JwtProperties;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.GeneralSecurityException;
+import java.security.KeyFactory;
+import java.security.MessageDigest;
+import java.security.PrivateKey;
+import java.security.PublicKey;
+import java.security.Signature;
+import java.security.interfaces.ECPublicKey;
+import java.security.interfaces.EdECKey;
+import java.security.spec.InvalidKeySpecException;
+import java.security.spec.PKCS8EncodedKeySpec;
+import java.security.spec.X509EncodedKeySpec;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Asymmetric JWT keys, selected by kid, and their public JWK Set
+ *
+ * Keys are read from jwt.key-directory: one {@code <kid>.pem} file per key, holding a
+ * "PUBLIC KEY" block (X.509) and optionally the matching "PRIVATE KEY" block (PKCS#8).
+ * Ed25519 (EdDSA) and P-256 (ES256) keys are supported. Every public key is published at
+ * /.well-known/jwks.json and accepted for verification; tokens are signed with the key named by
+ * jwt.active-key-id, or else the highest kid that has a private key for jwt.algorithm.
+ *
+ * The directory is re-read every jwt.key-reload-interval, so keys rotate without a restart:
+ * add the public key first (published, verify-only), add its private key once downstream
+ * caches have it (jwt.jwks-max-age), and delete the old file once its tokens have expired.
+ * A directory that fails to load keeps the previous keys.
+ *
+ * Each load produces an immutable {@link Snapshot}; readers never lock.
+ */
+@Service
+public class JwtKeyRing {
+
+    private static final Logger logger = LoggerFactory.getLogger(JwtKeyRing.class);
+
+    public static final String HS256 = "HS256";
+    public static final String EDDSA = "EdDSA";
+    public static final String ES256 = "ES256";
+
+    private static final String PEM_SUFFIX = ".pem";
+    private static final Pattern KEY_ID = Pattern.compile("[A-Za-z0-9._-]{1,64}");
+    private static final Pattern PEM_BLOCK = Pattern.compile(
+            "-----BEGIN (PUBLIC KEY|PRIVATE KEY)-----([A-Za-z0-9+/=\\s]+)-----END \\1-----");
+    private static final ObjectMapper JSON = new ObjectMapper();
+    private static final Base64.Encoder BASE64URL = Base64.getUrlEncoder().withoutPadding();
+
+    /**
+     * Length of an Ed25519 public key and of a P-256 coordinate
+     */
+    private static final int KEY_BYTES = 32;
+
+    private final String algorithm;
+    private final Path directory;
+    private final String activeKeyId;
+    private final Duration reloadInterval;
+
+    private volatile Snapshot current;
+    private volatile Disposable periodicReload;
+
+    /**
+     * Load the key ring; a configured directory that cannot be loaded fails startup
+     */
+    public JwtKeyRing(JwtProperties jwtProperties) {
+        this.algorithm = jwtProperties.getAlgorithm();
+        String keyDirectory = jwtProperties.getKeyDirectory();
+        this.directory = keyDirectory == null || keyDirectory.isBlank() ? null : Path.of(keyDirectory);
+        String activeKeyId = jwtProperties.getActiveKeyId();
+        this.activeKeyId = activeKeyId == null || activeKeyId.isBlank() ? null : activeKeyId;
+        this.reloadInterval = jwtProperties.getKeyReloadInterval();
+        try {
+            this.current = directory == null ? empty() : load(null);
+        } catch (IOException | GeneralSecurityException | IllegalStateException e) {
+            throw new IllegalStateException("Cannot load JWT keys from " + directory + ": " + e.getMessage(), e);
+        }
+        if (!HS256.equals(algorithm) && current.signingKey() == null) {
+            throw new IllegalStateException("jwt.algorithm=" + algorithm + " needs a private " + algorithm
+                    + " key in " + directory);
+        }
+    }
+
+    /**
+     * Schedule periodic re-reads of the key directory
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (directory != null && reloadInterval != null && !reloadInterval.isZero() && !reloadInterval.isNegative()) {
+            periodicReload = Flux.interval(reloadInterval, reloadInterval)
+                    .onBackpressureDrop()
+                    .concatMap(tick -> Mono.fromRunnable(this::reload).subscribeOn(Schedulers.boundedElastic()))
+                    .subscribe();
+        }
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (periodicReload != null) {
+            periodicReload.dispose();
+        }
+    }
+
+    public Snapshot current() {
+        return current;
+    }
+
+    /**
+     * Public key for a kid, or null if the ring has none
+     */
+    public VerificationKey verificationKey(String keyId) {
+        return current.keys().get(keyId);
+    }
+
+    /**
+     * Re-read the key directory and swap in the new keys if any file changed
+     *
+     * @return Whether the keys changed
+     */
+    public boolean reload() {
+        if (directory == null) {
+            return false;
+        }
+        Snapshot previous = current;
+        try {
+            Snapshot loaded = load(previous.fingerprint());
+            if (loaded == null) {
+                return false;
+            }
+            if (!HS256.equals(algorithm) && loaded.signingKey() == null) {
+                throw new IllegalStateException("no private " + algorithm + " key");
+            }
+            current = loaded;
+            logger.info("Reloaded {} JWT keys from {}, signing key: {}", loaded.keys().size(), directory,
+                    loaded.signingKey() != null ? loaded.signingKey().keyId() : "none (" + algorithm + ")");
+            return true;
+        } catch (IOException | GeneralSecurityException | IllegalStateException e) {
+            logger.warn("JWT key reload from {} failed, keeping the previous keys: {}", directory, e.getMessage());
+            return false;
+        }
+    }
+
+    private Snapshot empty() {
+        byte[] jwks = jwks(Map.of());
+        return new Snapshot(null, Map.of(), jwks, etag(jwks), null);
+    }
+
+    /**
+     * @param previousFingerprint Fingerprint of the loaded files; if unchanged, returns null without parsing
+     */
+    private Snapshot load(String previousFingerprint) throws IOException, GeneralSecurityException {
+        Map<String, String> files = new TreeMap<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, "*" + PEM_SUFFIX)) {
+            for (Path file : stream) {
+                String name = file.getFileName().toString();
+                String keyId = name.substring(0, name.length() - PEM_SUFFIX.length());
+                if (!KEY_ID.matcher(keyId).matches()) {
+                    throw new IllegalStateException("invalid kid in file name: " + name);
+                }
+                files.put(keyId, Files.readString(file, StandardCharsets.US_ASCII));
+            }
+        }
+
+        MessageDigest digest = MessageDigest.getInstance("SHA-256");
+        files.forEach((keyId, pem) -> {
+            digest.update(keyId.getBytes(StandardCharsets.US_ASCII));
+            digest.update((byte) 0);
+            digest.update(pem.getBytes(StandardCharsets.US_ASCII));
+            digest.update((byte) 0);
+        });
+        String fingerprint = HexFormat.of().formatHex(digest.digest());
+        if (fingerprint.equals(previousFingerprint)) {
+            return null;
+        }
+
+        Map<String, VerificationKey> keys = new LinkedHashMap<>();
+        TreeMap<String, SigningKey> signingKeys = new TreeMap<>();
+        for (Map.Entry<String, String> file : files.entrySet()) {
+            String keyId = file.getKey();
+            PublicKey publicKey = null;
+            PrivateKey privateKey = null;
+            Matcher block = PEM_BLOCK.matcher(file.getValue());
+            while (block.find()) {
+                byte[] der = Base64.getMimeDecoder().decode(block.group(2));
+                if (block.group(1).equals("PUBLIC KEY")) {
+                    publicKey = publicKey(der);
+                } else {
+                    privateKey = privateKey(der);
+                }
+            }
+            if (publicKey == null) {
+                throw new IllegalStateException(keyId + PEM_SUFFIX + " has no PUBLIC KEY block");
+            }
+            String keyAlgorithm = algorithmOf(publicKey);
+            keys.put(keyId, new VerificationKey(keyId, keyAlgorithm, publicKey));
+            if (privateKey != null) {
+                checkPair(keyId, keyAlgorithm, privateKey, publicKey);
+                if (keyAlgorithm.equals(algorithm)) {
+                    signingKeys.put(keyId, new SigningKey(keyId, keyAlgorithm, privateKey));
+                }
+            }
+        }
+
+        SigningKey signingKey = null;
+        if (!HS256.equals(algorithm)) {
+            if (activeKeyId != null) {
+                signingKey = signingKeys.get(activeKeyId);
+                if (signingKey == null) {
+                    throw new IllegalStateException("jwt.active-key-id " + activeKeyId
+                            + " has no private " + algorithm + " key");
+                }
+            } else if (!signingKeys.isEmpty()) {
+                signingKey = signingKeys.lastEntry().getValue();
+            }
+        }
+        byte[] jwks = jwks(keys);
+        return new Snapshot(signingKey, Map.copyOf(keys), jwks, etag(jwks), fingerprint);
+    }
+
+    private static PublicKey publicKey(byte[] der) throws GeneralSecurityException {
+        X509EncodedKeySpec spec = new X509EncodedKeySpec(der);
+        try {
+            return KeyFactory.getInstance("Ed25519").generatePublic(spec);
+        } catch (InvalidKeySpecException notEd25519) {
+            return KeyFactory.getInstance("EC").generatePublic(spec);
+        }
+    }
+
+    private static PrivateKey privateKey(byte[] der) throws GeneralSecurityException {
+        PKCS8EncodedKeySpec spec = new PKCS8EncodedKeySpec(der);
+        try {
+            return KeyFactory.getInstance("Ed25519").generatePrivate(spec);
+        } catch (InvalidKeySpecException notEd25519) {
+            return KeyFactory.getInstance("EC").generatePrivate(spec);
+        }
+    }
+
+    private static String algorithmOf(PublicKey key) {
+        if (key instanceof EdECKey edKey && "Ed25519".equals(edKey.getParams().getName())) {
+            return EDDSA;
+        }
+        if (key instanceof ECPublicKey ecKey && ecKey.getParams().getCurve().getField().getFieldSize() == 256) {
+            return ES256;
+        }
+        throw new IllegalStateException("unsupported key type " + key.getAlgorithm() + " (expected Ed25519 or P-256)");
+    }
+
+    /**
+     * Sign and verify a probe so a private key that does not match its public key fails the load
+     */
+    private static void checkPair(String keyId, String keyAlgorithm, PrivateKey privateKey, PublicKey publicKey)
+            throws GeneralSecurityException {
+        String jcaAlgorithm = EDDSA.equals(keyAlgorithm) ? "Ed25519" : "SHA256withECDSA";
+        byte[] probe = keyId.getBytes(StandardCharsets.US_ASCII);
+        Signature signer = Signature.getInstance(jcaAlgorithm);
+        signer.initSign(privateKey);
+        signer.update(probe);
+        byte[] signature = signer.sign();
+        Signature verifier = Signature.getInstance(jcaAlgorithm);
+        verifier.initVerify(publicKey);
+        verifier.update(probe);
+        if (!verifier.verify(signature)) {
+            throw new IllegalStateException(keyId + PEM_SUFFIX + ": private key does not match the public key");
+        }
+    }
+
+    /**
+     * RFC 7517 JWK Set of the public keys, serialized once per load
+     */
+    private static byte[] jwks(Map<String, VerificationKey> keys) {
+        List<Map<String, String>> jwks = new ArrayList<>();
+        for (VerificationKey key : keys.values()) {
+            Map<String, String> jwk = new LinkedHashMap<>();
+            if (EDDSA.equals(key.algorithm())) {
+                byte[] encoded = key.publicKey().getEncoded();
+                jwk.put("kty", "OKP");
+                jwk.put("crv", "Ed25519");
+                jwk.put("x", BASE64URL.encodeToString(Arrays.copyOfRange(encoded, encoded.length - KEY_BYTES, encoded.length)));
+            } else {
+                ECPublicKey ecKey = (ECPublicKey) key.publicKey();
+                jwk.put("kty", "EC");
+                jwk.put("crv", "P-256");
+                jwk.put("x", BASE64URL.encodeToString(unsigned(ecKey.getW().getAffineX())));
+                jwk.put("y", BASE64URL.encodeToString(unsigned(ecKey.getW().getAffineY())));
+            }
+            jwk.put("kid", key.keyId());
+            jwk.put("use", "sig");
+            jwk.put("alg", key.algorithm());
+            jwks.add(jwk);
+        }
+        try {
+            return JSON.writeValueAsBytes(Map.of("keys", jwks));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Cannot serialize JWK Set", e);
+        }
+    }
+
+    /**
+     * Strong ETag of the JWK Set (derived from the public keys only)
+     */
+    private static String etag(byte[] jwks) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(jwks);
+            return "\"" + HexFormat.of().formatHex(hash, 0, 16) + "\"";
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("SHA-256 unavailable", e);
+        }
+    }
+
+    /**
+     * Big-endian coordinate left-padded to 32 bytes, without the sign byte
+     */
+    private static byte[] unsigned(BigInteger value) {
+        byte[] bytes = value.toByteArray();
+        byte[] padded = new byte[KEY_BYTES];
+        int length = Math.min(bytes.length, KEY_BYTES);
+        System.arraycopy(bytes, bytes.length - length, padded, KEY_BYTES - length, length);
+        return padded;
+    }
+
+    /**
+     * Public key accepted for tokens whose header names this kid
+     *
+     * @param algorithm JWS alg the key verifies (EdDSA or ES256)
+     */
+    public record VerificationKey(String keyId, String algorithm, PublicKey publicKey) {
+    }
+
+    /**
+     * Key new tokens are signed with
+     */
+    public record SigningKey(String keyId, String algorithm, PrivateKey privateKey) {
+    }
+
+    /**
+     * One consistent view of the ring
+     *
+     * @param signingKey Key for new tokens, or null when signing with the HMAC secret (jwt.algorithm=HS256)
+     * @param keys Public keys by kid
+     * @param jwks Serialized JWK Set of keys
+     * @param etag Strong ETag of jwks
+     * @param fingerprint Digest of the loaded files, or null if no directory is configured
+     */
+    public record Snapshot(SigningKey signingKey, Map<String, VerificationKey> keys, byte[] jwks, String etag,
+                           String fingerprint) {
+    }
+}
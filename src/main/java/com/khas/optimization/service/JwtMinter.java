@@ -0,0 +1,479 @@
+package com.khas.optimization.service;
+
+import javax.crypto.Mac;
+import javax.crypto.SecretKey;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.PrivateKey;
+import java.security.Signature;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Allocation-light JWS writer for the token shape issued at login
+ * Produces the same compact tokens as Jwts.builder().signWith(key) for
+ * {sub, roles (or rm/rv), iss, aud, iat, exp, jti}, but:
+ * - the encoded header and the constant iss/aud claims are serialized once
+ * - the payload is written straight into a per-thread byte buffer (no claims map, no Date)
+ * - the signature comes from a per-thread Mac or Signature initialised once with the key
+ * - the jti (128 random bits, see {@link #newTokenId()}) is encoded straight into the payload
+ *
+ * Signs with an HMAC secret (HS256/384/512, no kid) or a key-ring private key
+ * (EdDSA/ES256, header carries the kid).
+ *
+ * Thread-safe: all mutable state is thread-local.
+ */
+final class JwtMinter {
+
+    private static final byte[] BASE64URL = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789-_"
+            .getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] HEX = "0123456789abcdef".getBytes(StandardCharsets.US_ASCII);
+
+    /**
+     * base64url(header) followed by '.'
+     */
+    private final byte[] encodedHeader;
+
+    /**
+     * ,"iss":"...","aud":["..."] - identical in every token
+     */
+    private final byte[] staticClaims;
+
+    private final Signer signer;
+    private final ThreadLocal<Buffers> buffers = ThreadLocal.withInitial(Buffers::new);
+
+    JwtMinter(SecretKey secretKey, String issuer, String audience) {
+        this(new HmacSigner(secretKey), null, issuer, audience);
+    }
+
+    /**
+     * @param algorithm JWS alg of the key (JwtKeyRing.EDDSA or JwtKeyRing.ES256)
+     * @param keyId kid written into the header
+     */
+    JwtMinter(String algorithm, PrivateKey privateKey, String keyId, String issuer, String audience) {
+        this(new SignatureSigner(algorithm, privateKey), keyId, issuer, audience);
+    }
+
+    private JwtMinter(Signer signer, String keyId, String issuer, String audience) {
+        this.signer = signer;
+
+        Json header = new Json();
+        header.raw("{\"alg\":").string(signer.algorithm());
+        if (keyId != null) {
+            header.raw(",\"kid\":").string(keyId);
+        }
+        header.raw("}");
+        String header64 = Base64.getUrlEncoder().withoutPadding().encodeToString(header.toByteArray());
+        this.encodedHeader = (header64 + ".").getBytes(StandardCharsets.US_ASCII);
+
+        Json json = new Json();
+        json.raw(",\"iss\":").string(issuer).raw(",\"aud\":[").string(audience).raw("]");
+        this.staticClaims = json.toByteArray();
+    }
+
+    /**
+     * Length of a token id: 16 bytes in base64url without padding
+     */
+    static final int TOKEN_ID_LENGTH = 22;
+
+    /**
+     * Fresh token id (jti) in the format mint() writes, for tokens built elsewhere
+     */
+    static String newTokenId() {
+        Json json = new Json();
+        json.tokenId(ThreadLocalRandom.current().nextLong(), ThreadLocalRandom.current().nextLong());
+        return new String(json.buffer, 0, json.length, StandardCharsets.US_ASCII);
+    }
+
+    /**
+     * Mint a signed token
+     *
+     * @param roles Role names, or null to omit the roles claim
+     * @param roleMask CompactRoleClaim bitmask written instead of the roles array, or -1 to write the array
+     * @param issuedAt iat in seconds since the epoch
+     * @param expiresAt exp in seconds since the epoch
+     */
+    String mint(String subject, String[] roles, long roleMask, long issuedAt, long expiresAt) {
+        Buffers buffers = this.buffers.get();
+
+        Json payload = buffers.payload.reset();
+        payload.raw("{\"sub\":").string(subject);
+        if (roleMask >= 0) {
+            payload.raw(",\"" + CompactRoleClaim.MASK_CLAIM + "\":").number(roleMask)
+                    .raw(",\"" + CompactRoleClaim.VERSION_CLAIM + "\":").number(CompactRoleClaim.CURRENT_VERSION);
+        } else if (roles != null) {
+            payload.raw(",\"roles\":[");
+            for (int i = 0; i < roles.length; i++) {
+                if (i > 0) {
+                    payload.raw(",");
+                }
+                payload.string(roles[i]);
+            }
+            payload.raw("]");
+        }
+        payload.bytes(staticClaims)
+                .raw(",\"iat\":").number(issuedAt)
+                .raw(",\"exp\":").number(expiresAt)
+                .raw(",\"jti\":\"")
+                .tokenId(ThreadLocalRandom.current().nextLong(), ThreadLocalRandom.current().nextLong())
+                .raw("\"}");
+
+        int maxSignatureLength = signer.maxLength();
+        int length = encodedHeader.length + encodedLength(payload.length) + 1 + encodedLength(maxSignatureLength);
+        byte[] token = buffers.token(length);
+
+        System.arraycopy(encodedHeader, 0, token, 0, encodedHeader.length);
+        int position = encode(payload.buffer, payload.length, token, encodedHeader.length);
+        int signingInputLength = position;
+        token[position++] = '.';
+
+        byte[] signature = buffers.signature(maxSignatureLength);
+        int signatureLength;
+        try {
+            signatureLength = signer.sign(token, signingInputLength, signature);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Cannot sign token", e);
+        }
+        position = encode(signature, signatureLength, token, position);
+
+        return new String(token, 0, position, StandardCharsets.US_ASCII);
+    }
+
+    private static int encodedLength(int length) {
+        return (length / 3) * 4 + switch (length % 3) {
+            case 1 -> 2;
+            case 2 -> 3;
+            default -> 0;
+        };
+    }
+
+    /**
+     * base64url without padding of src[0, length) into dst at offset; returns the end offset
+     */
+    private static int encode(byte[] src, int length, byte[] dst, int offset) {
+        int i = 0;
+        int full = length - length % 3;
+        while (i < full) {
+            int bits = (src[i++] & 0xff) << 16 | (src[i++] & 0xff) << 8 | (src[i++] & 0xff);
+            dst[offset++] = BASE64URL[bits >>> 18 & 0x3f];
+            dst[offset++] = BASE64URL[bits >>> 12 & 0x3f];
+            dst[offset++] = BASE64URL[bits >>> 6 & 0x3f];
+            dst[offset++] = BASE64URL[bits & 0x3f];
+        }
+        if (length - full == 1) {
+            int bits = (src[i] & 0xff) << 16;
+            dst[offset++] = BASE64URL[bits >>> 18 & 0x3f];
+            dst[offset++] = BASE64URL[bits >>> 12 & 0x3f];
+        } else if (length - full == 2) {
+            int bits = (src[i] & 0xff) << 16 | (src[i + 1] & 0xff) << 8;
+            dst[offset++] = BASE64URL[bits >>> 18 & 0x3f];
+            dst[offset++] = BASE64URL[bits >>> 12 & 0x3f];
+            dst[offset++] = BASE64URL[bits >>> 6 & 0x3f];
+        }
+        return offset;
+    }
+
+    /**
+     * JWS signature over the signing input, with per-thread JCA state
+     */
+    private interface Signer {
+
+        /**
+         * JWS alg header value
+         */
+        String algorithm();
+
+        /**
+         * Upper bound on the encoded signature length in bytes
+         */
+        int maxLength();
+
+        /**
+         * Sign input[0, length) into signature; returns the signature length
+         */
+        int sign(byte[] input, int length, byte[] signature) throws GeneralSecurityException;
+    }
+
+    private static final class HmacSigner implements Signer {
+
+        private final String algorithm;
+        private final ThreadLocal<Mac> macs;
+        private final int macLength;
+
+        HmacSigner(SecretKey secretKey) {
+            this.algorithm = switch (secretKey.getAlgorithm()) {
+                case "HmacSHA256" -> "HS256";
+                case "HmacSHA384" -> "HS384";
+                case "HmacSHA512" -> "HS512";
+                default -> throw new IllegalArgumentException("Unsupported HMAC key: " + secretKey.getAlgorithm());
+            };
+            this.macs = ThreadLocal.withInitial(() -> {
+                try {
+                    Mac mac = Mac.getInstance(secretKey.getAlgorithm());
+                    mac.init(secretKey);
+                    return mac;
+                } catch (GeneralSecurityException e) {
+                    throw new IllegalStateException("Cannot initialise " + secretKey.getAlgorithm(), e);
+                }
+            });
+            // Fail fast on a key the JCE provider rejects
+            this.macLength = macs.get().getMacLength();
+        }
+
+        @Override
+        public String algorithm() {
+            return algorithm;
+        }
+
+        @Override
+        public int maxLength() {
+            return macLength;
+        }
+
+        @Override
+        public int sign(byte[] input, int length, byte[] signature) throws GeneralSecurityException {
+            Mac mac = macs.get();
+            mac.update(input, 0, length);
+            mac.doFinal(signature, 0);
+            return macLength;
+        }
+    }
+
+    /**
+     * EdDSA (Ed25519) or ES256 (P-256) with a private key
+     * JCA returns ECDSA signatures DER-encoded; JWS wants the raw 64-byte R || S, so they are transcoded.
+     */
+    private static final class SignatureSigner implements Signer {
+
+        /**
+         * Ed25519 signatures and ES256 R || S are both 64 bytes
+         */
+        private static final int SIGNATURE_LENGTH = 64;
+
+        /**
+         * Largest DER encoding of a P-256 ECDSA signature
+         */
+        private static final int MAX_DER_LENGTH = 72;
+
+        private final String algorithm;
+        private final boolean der;
+        private final ThreadLocal<Signature> signatures;
+        private final ThreadLocal<byte[]> derBuffers = ThreadLocal.withInitial(() -> new byte[MAX_DER_LENGTH]);
+
+        SignatureSigner(String algorithm, PrivateKey privateKey) {
+            this.algorithm = algorithm;
+            String jcaAlgorithm = switch (algorithm) {
+                case JwtKeyRing.EDDSA -> "Ed25519";
+                case JwtKeyRing.ES256 -> "SHA256withECDSA";
+                default -> throw new IllegalArgumentException("Unsupported signing algorithm: " + algorithm);
+            };
+            this.der = JwtKeyRing.ES256.equals(algorithm);
+            this.signatures = ThreadLocal.withInitial(() -> {
+                try {
+                    Signature signature = Signature.getInstance(jcaAlgorithm);
+                    signature.initSign(privateKey);
+                    return signature;
+                } catch (GeneralSecurityException e) {
+                    throw new IllegalStateException("Cannot initialise " + jcaAlgorithm, e);
+                }
+            });
+            // Fail fast on a key that does not match the algorithm
+            signatures.get();
+        }
+
+        @Override
+        public String algorithm() {
+            return algorithm;
+        }
+
+        @Override
+        public int maxLength() {
+            return SIGNATURE_LENGTH;
+        }
+
+        @Override
+        public int sign(byte[] input, int length, byte[] signature) throws GeneralSecurityException {
+            Signature jca = signatures.get();
+            jca.update(input, 0, length);
+            if (!der) {
+                return jca.sign(signature, 0, SIGNATURE_LENGTH);
+            }
+            byte[] derSignature = derBuffers.get();
+            jca.sign(derSignature, 0, MAX_DER_LENGTH);
+            transcodeDer(derSignature, signature);
+            return SIGNATURE_LENGTH;
+        }
+
+        /**
+         * SEQUENCE { INTEGER r, INTEGER s } to r || s, each left-padded to 32 bytes
+         */
+        private static void transcodeDer(byte[] der, byte[] raw) throws GeneralSecurityException {
+            // SEQUENCE header: 0x30 len (a P-256 signature is at most 72 bytes, so one length byte,
+            // or 0x81 len for the longest encodings)
+            int offset = der[1] == (byte) 0x81 ? 3 : 2;
+            offset = integer(der, offset, raw, 0);
+            integer(der, offset, raw, SIGNATURE_LENGTH / 2);
+        }
+
+        private static int integer(byte[] der, int offset, byte[] raw, int rawOffset) throws GeneralSecurityException {
+            if (der[offset] != 0x02) {
+                throw new GeneralSecurityException("Malformed ECDSA signature");
+            }
+            int length = der[offset + 1];
+            int start = offset + 2;
+            int end = start + length;
+            // Drop the sign-padding zero (and any leading zeros), then left-pad to 32 bytes
+            while (length > SIGNATURE_LENGTH / 2 && der[start] == 0) {
+                start++;
+                length--;
+            }
+            if (length > SIGNATURE_LENGTH / 2) {
+                throw new GeneralSecurityException("Malformed ECDSA signature");
+            }
+            int padding = SIGNATURE_LENGTH / 2 - length;
+            Arrays.fill(raw, rawOffset, rawOffset + padding, (byte) 0);
+            System.arraycopy(der, start, raw, rawOffset + padding, length);
+            return end;
+        }
+    }
+
+    /**
+     * Reusable per-thread scratch space
+     */
+    private static final class Buffers {
+        final Json payload = new Json();
+        byte[] token = new byte[512];
+        byte[] signature = new byte[64];
+
+        byte[] token(int length) {
+            if (token.length < length) {
+                token = new byte[Math.max(length, token.length * 2)];
+            }
+            return token;
+        }
+
+        byte[] signature(int length) {
+            if (signature.length < length) {
+                signature = new byte[length];
+            }
+            return signature;
+        }
+    }
+
+    /**
+     * Minimal UTF-8 JSON writer over a growable byte array
+     */
+    private static final class Json {
+        byte[] buffer = new byte[256];
+        int length;
+
+        Json reset() {
+            length = 0;
+            return this;
+        }
+
+        Json raw(String ascii) {
+            ensure(ascii.length());
+            for (int i = 0; i < ascii.length(); i++) {
+                buffer[length++] = (byte) ascii.charAt(i);
+            }
+            return this;
+        }
+
+        Json bytes(byte[] bytes) {
+            ensure(bytes.length);
+            System.arraycopy(bytes, 0, buffer, length, bytes.length);
+            length += bytes.length;
+            return this;
+        }
+
+        /**
+         * Non-negative integer (epoch seconds)
+         */
+        Json number(long value) {
+            ensure(20);
+            int start = length;
+            do {
+                buffer[length++] = (byte) ('0' + value % 10);
+                value /= 10;
+            } while (value > 0);
+            for (int i = start, j = length - 1; i < j; i++, j--) {
+                byte digit = buffer[i];
+                buffer[i] = buffer[j];
+                buffer[j] = digit;
+            }
+            return this;
+        }
+
+        /**
+         * 128-bit id as 22 base64url chars (no quotes)
+         */
+        Json tokenId(long high, long low) {
+            ensure(TOKEN_ID_LENGTH);
+            // Same output as base64url of the 16 big-endian bytes: 6-bit groups across both longs,
+            // the last 2 bits padded with zeros
+            for (int shift = 58; shift >= 4; shift -= 6) {
+                buffer[length++] = BASE64URL[(int) (high >>> shift) & 0x3f];
+            }
+            int carry = (int) (high & 0xf);
+            buffer[length++] = BASE64URL[carry << 2 | (int) (low >>> 62)];
+            for (int shift = 56; shift >= 2; shift -= 6) {
+                buffer[length++] = BASE64URL[(int) (low >>> shift) & 0x3f];
+            }
+            buffer[length++] = BASE64URL[(int) (low & 0x3) << 4];
+            return this;
+        }
+
+        Json string(String value) {
+            // Worst case per char: 6 bytes (\\u00XX)
+            ensure(value.length() * 6 + 2);
+            buffer[length++] = '"';
+            for (int i = 0; i < value.length(); i++) {
+                char c = value.charAt(i);
+                if (c == '"' || c == '\\') {
+                    buffer[length++] = '\\';
+                    buffer[length++] = (byte) c;
+                } else if (c < 0x20) {
+                    buffer[length++] = '\\';
+                    buffer[length++] = 'u';
+                    buffer[length++] = '0';
+                    buffer[length++] = '0';
+                    buffer[length++] = HEX[c >>> 4];
+                    buffer[length++] = HEX[c & 0xf];
+                } else if (c < 0x80) {
+                    buffer[length++] = (byte) c;
+                } else if (c < 0x800) {
+                    buffer[length++] = (byte) (0xc0 | c >>> 6);
+                    buffer[length++] = (byte) (0x80 | c & 0x3f);
+                } else if (Character.isHighSurrogate(c) && i + 1 < value.length()
+                        && Character.isLowSurrogate(value.charAt(i + 1))) {
+                    int codePoint = Character.toCodePoint(c, value.charAt(++i));
+                    buffer[length++] = (byte) (0xf0 | codePoint >>> 18);
+                    buffer[length++] = (byte) (0x80 | codePoint >>> 12 & 0x3f);
+                    buffer[length++] = (byte) (0x80 | codePoint >>> 6 & 0x3f);
+                    buffer[length++] = (byte) (0x80 | codePoint & 0x3f);
+                } else if (Character.isSurrogate(c)) {
+                    // Lone surrogate: replace like String.getBytes(UTF_8) does
+                    buffer[length++] = '?';
+                } else {
+                    buffer[length++] = (byte) (0xe0 | c >>> 12);
+                    buffer[length++] = (byte) (0x80 | c >>> 6 & 0x3f);
+                    buffer[length++] = (byte) (0x80 | c & 0x3f);
+                }
+            }
+            buffer[length++] = '"';
+            return this;
+        }
+
+        byte[] toByteArray() {
+            return Arrays.copyOf(buffer, length);
+        }
+
+        private void ensure(int extra) {
+            if (length + extra > buffer.length) {
+                buffer = Arrays.copyOf(buffer, Math.max(length + extra, buffer.length * 2));
+            }
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package com.khas.optimization.service;
+
+import com.khas.optimization.constants.RoleConstants;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Authenticated caller, produced by a single parse of a verified JWT
+ * JwtAuthenticationFilter stores it as an exchange attribute ({@link #ATTRIBUTE}) and
+ * in the Reactor Context (keyed by this class), so downstream code never re-parses the token.
+ *
+ * @param username Token subject
+ * @param roles Role names from the roles claim (immutable)
+ * @param roleMask RoleConstants bits of the roles, checked by RoleAuthorizationHandlerMapping
+ * @param expiresAt Token exp claim (null if the token has none)
+ * @param tokenId Token jti claim, the key checked by TokenRevocationService (null for tokens minted without one)
+ */
+public record JwtPrincipal(String username, List<String> roles, long roleMask, Instant expiresAt, String tokenId) {
+
+    /**
+     * Exchange attribute holding the principal of the current request
+     */
+    public static final String ATTRIBUTE = JwtPrincipal.class.getName();
+
+    public JwtPrincipal {
+        roles = List.copyOf(roles);
+    }
+
+    public JwtPrincipal(String username, List<String> roles, Instant expiresAt) {
+        this(username, roles, expiresAt, null);
+    }
+    
+    public JwtPrincipal(String username, List<String> roles, Instant expiresAt, String tokenId) {
+        this(username, roles, RoleConstants.maskOf(roles), expiresAt, tokenId);
+    }
+
+    public boolean hasRole(String role) {
+        return roles.contains(role);
+    }
+
+    /**
+     * Principal of the request, or null for public paths
+     */
+    public static JwtPrincipal from(ServerWebExchange exchange) {
+        return exchange.getAttribute(ATTRIBUTE);
+    }
+
+    /**
+     * Principal from the Reactor Context; empty outside an authenticated request
+     */
+    public static Mono<JwtPrincipal> current() {
+        return Mono.deferContextual(context -> Mono.justOrEmpty(context.getOrEmpty(JwtPrincipal.class)));
+    }
+}
@@ -2,46 +2,99 @@ package com.khas.optimization.service;
 
 import com.khas.optimization.config.JwtProperties;
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwsHeader;
+import io.jsonwebtoken.JwtBuilder;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.LocatorAdapter;
+import io.jsonwebtoken.MalformedJwtException;
+import io.jsonwebtoken.UnsupportedJwtException;
 import io.jsonwebtoken.security.Keys;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
 import javax.crypto.SecretKey;
 import java.nio.charset.StandardCharsets;
+import java.security.Key;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.function.Function;
 
 /**
  * JWT Service for generating and validating JSON Web Tokens
+ * The parser and the login-token minter are built once and shared (both are thread-safe).
+ *
+ * Tokens are signed with the HMAC secret (jwt.algorithm=HS256) or with the active key of the
+ * {@link JwtKeyRing} (EdDSA/ES256, kid in the header). Verification picks the key by kid, so
+ * tokens signed by any published key verify; tokens without a kid verify with the HMAC secret
+ * unless jwt.accept-hmac is turned off after moving to asymmetric keys.
  */
 @Service
 public class JwtService {
     
     private final JwtProperties jwtProperties;
     private final SecretKey secretKey;
+    private final JwtKeyRing keyRing;
+    private final JwtParser jwtParser;
+    private final boolean acceptHmac;
+    private final boolean compactRoles;
+    
+    /**
+     * Minter for the ring's current signing key (rebuilt when a reload changes it)
+     */
+    private volatile Signing signing;
     
     public JwtService(JwtProperties jwtProperties) {
+        this(jwtProperties, new JwtKeyRing(jwtProperties));
+    }
+    
+    @Autowired
+    public JwtService(JwtProperties jwtProperties, JwtKeyRing keyRing) {
         this.jwtProperties = jwtProperties;
         this.secretKey = Keys.hmacShaKeyFor(jwtProperties.getSecret().getBytes(StandardCharsets.UTF_8));
+        this.keyRing = keyRing;
+        this.jwtParser = Jwts.parser()
+                .keyLocator(new LocatorAdapter<Key>() {
+                    @Override
+                    protected Key locate(JwsHeader header) {
+                        return verificationKey(header);
+                    }
+                })
+                .build();
+        this.acceptHmac = JwtKeyRing.HS256.equals(jwtProperties.getAlgorithm()) || jwtProperties.isAcceptHmac();
+        this.compactRoles = jwtProperties.isCompactRoles();
+        this.signing = signingFor(keyRing.current().signingKey());
     }
     
     /**
      * Generate JWT token for a user
+     * Tokens without extra claims take the precomputed minting path.
      */
     public String generateToken(String username, Map<String, Object> extraClaims) {
+        if (extraClaims.isEmpty()) {
+            return mint(username, null);
+        }
+        
         Map<String, Object> claims = new HashMap<>(extraClaims);
         claims.put("sub", username);
         
-        return Jwts.builder()
+        JwtBuilder builder = Jwts.builder()
                 .claims(claims)
                 .subject(username)
                 .issuer(jwtProperties.getIssuer())
                 .audience().add(jwtProperties.getAudience()).and()
                 .issuedAt(new Date())
                 .expiration(new Date(System.currentTimeMillis() + jwtProperties.getExpiration()))
-                .signWith(secretKey)
+                .id(JwtMinter.newTokenId());
+        
+        JwtKeyRing.SigningKey signingKey = signing().key();
+        if (signingKey == null) {
+            return builder.signWith(secretKey).compact();
+        }
+        return builder.header().keyId(signingKey.keyId()).and()
+                .signWith(signingKey.privateKey())
                 .compact();
     }
     
@@ -56,9 +109,55 @@ public class JwtService {
      * Generate JWT token with roles
      */
     public String generateToken(String username, String... roles) {
-        Map<String, Object> claims = new HashMap<>();
-        claims.put("roles", roles);
-        return generateToken(username, claims);
+        return mint(username, roles);
+    }
+    
+    /**
+     * Sign {sub, roles, iss, aud, iat, exp, jti} without building a claims map
+     * With jwt.compact-roles the roles are written as a CompactRoleClaim bitmask when they all fit the mapping.
+     */
+    private String mint(String username, String[] roles) {
+        long roleMask = roles != null && compactRoles ? CompactRoleClaim.encode(roles) : -1L;
+        long now = System.currentTimeMillis();
+        return signing().minter().mint(username, roles, roleMask, now / 1000,
+                (now + jwtProperties.getExpiration()) / 1000);
+    }
+    
+    private Signing signing() {
+        Signing current = signing;
+        JwtKeyRing.SigningKey signingKey = keyRing.current().signingKey();
+        if (current.key() != signingKey) {
+            current = signingFor(signingKey);
+            signing = current;
+        }
+        return current;
+    }
+    
+    private Signing signingFor(JwtKeyRing.SigningKey signingKey) {
+        JwtMinter minter = signingKey == null
+                ? new JwtMinter(secretKey, jwtProperties.getIssuer(), jwtProperties.getAudience())
+                : new JwtMinter(signingKey.algorithm(), signingKey.privateKey(), signingKey.keyId(),
+                        jwtProperties.getIssuer(), jwtProperties.getAudience());
+        return new Signing(signingKey, minter);
+    }
+    
+    /**
+     * Key for a token header: the ring's public key for its kid, or the HMAC secret for tokens without one
+     * A kid must name a ring key of the header's alg; jjwt additionally rejects a key of the wrong type.
+     */
+    private Key verificationKey(JwsHeader header) {
+        String keyId = header.getKeyId();
+        if (keyId == null) {
+            if (!acceptHmac) {
+                throw new UnsupportedJwtException("Tokens without a key id are no longer accepted");
+            }
+            return secretKey;
+        }
+        JwtKeyRing.VerificationKey key = keyRing.verificationKey(keyId);
+        if (key == null || !key.algorithm().equals(header.getAlgorithm())) {
+            throw new UnsupportedJwtException("Unknown signing key: " + keyId);
+        }
+        return key.publicKey();
     }
     
     /**
@@ -83,15 +182,28 @@ public class JwtService {
         return claimsResolver.apply(claims);
     }
     
+    /**
+     * Verify the token and read everything a request needs in one parse
+     *
+     * @throws io.jsonwebtoken.JwtException if the token is malformed, expired or has a bad signature
+     * @throws IllegalArgumentException if the token is null or empty
+     */
+    public JwtPrincipal parsePrincipal(String token) {
+        Claims claims = extractAllClaims(token);
+        Date expiration = claims.getExpiration();
+        return new JwtPrincipal(
+                claims.getSubject(),
+                rolesOf(claims),
+                expiration != null ? expiration.toInstant() : null,
+                claims.getId()
+        );
+    }
+    
     /**
      * Extract all claims from token
      */
     private Claims extractAllClaims(String token) {
-        return Jwts.parser()
-                .verifyWith(secretKey)
-                .build()
-                .parseSignedClaims(token)
-                .getPayload();
+        return jwtParser.parseSignedClaims(token).getPayload();
     }
     
     /**
@@ -123,27 +235,46 @@ public class JwtService {
     /**
      * Extract roles from token
      */
-    @SuppressWarnings("unchecked")
     public String[] extractRoles(String token) {
-        Claims claims = extractAllClaims(token);
+        return rolesOf(extractAllClaims(token)).toArray(new String[0]);
+    }
+    
+    /**
+     * Role names from either the compact bitmask claim or the roles array claim
+     */
+    private List<String> rolesOf(Claims claims) {
+        Object mask = claims.get(CompactRoleClaim.MASK_CLAIM);
+        if (mask instanceof Number number) {
+            Object version = claims.get(CompactRoleClaim.VERSION_CLAIM);
+            if (!(version instanceof Number versionNumber)) {
+                throw new MalformedJwtException("Missing role mapping version");
+            }
+            return CompactRoleClaim.decode(versionNumber.intValue(), number.longValue());
+        }
+        
         Object rolesObj = claims.get("roles");
         
         if (rolesObj == null) {
-            return new String[0];
+            return List.of();
         }
         
         if (rolesObj instanceof String) {
-            return new String[]{(String) rolesObj};
+            return List.of((String) rolesObj);
         }
         
-        if (rolesObj instanceof java.util.List) {
-            java.util.List<?> rolesList = (java.util.List<?>) rolesObj;
+        if (rolesObj instanceof List) {
+            List<?> rolesList = (List<?>) rolesObj;
             return rolesList.stream()
                     .map(Object::toString)
-                    .toArray(String[]::new);
+                    .toList();
         }
         
-        return new String[0];
+        return List.of();
+    }
+    
+    /**
+     * Signing key (null for the HMAC secret) and the minter built for it
+     */
+    private record Signing(JwtKeyRing.SigningKey key, JwtMinter minter) {
     }
 }
-
@@ -0,0 +1,197 @@
+package com.khas.optimization.service;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.security.SecureRandom;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Login attempt throttle, applied before the password lookup and BCrypt verification
+ * Each username and each client IP has a token bucket: capacity attempts in a burst,
+ * refilled at refill-per-minute. An attempt must get a token from both buckets.
+ *
+ * Buckets live in two fixed-size count-min sketches (one per key type), so memory does not
+ * grow with the number of distinct usernames or addresses an attacker sends. A key maps to
+ * one cell per row; each cell holds a GCRA "theoretical arrival time" (the bucket is full
+ * once that time is in the past, so buckets decay without any sweeping). Attempts advance
+ * every row with a CAS loop and the bucket level is read from the least-advanced row:
+ * hash collisions can only make a key stricter, never looser. Row hashes use a random
+ * per-process seed, so colliding keys cannot be precomputed.
+ *
+ * A throttled key stays at an empty bucket instead of going into debt, so it gets its next
+ * token one refill interval after attempts stop.
+ */
+@Service
+public class LoginThrottle implements MeterBinder {
+
+    /**
+     * Rows per sketch (independent hash functions)
+     */
+    private static final int DEPTH = 4;
+
+    private final boolean enabled;
+    private final Sketch usernames;
+    private final Sketch addresses;
+    private final LongSupplier clock;
+
+    private final LongAdder throttledByUsername = new LongAdder();
+    private final LongAdder throttledByAddress = new LongAdder();
+
+    @Autowired
+    public LoginThrottle(@Value("${login-throttle.enabled:true}") boolean enabled,
+                         @Value("${login-throttle.width:8192}") int width,
+                         @Value("${login-throttle.username.capacity:10}") int usernameCapacity,
+                         @Value("${login-throttle.username.refill-per-minute:6}") int usernameRefillPerMinute,
+                         @Value("${login-throttle.ip.capacity:50}") int ipCapacity,
+                         @Value("${login-throttle.ip.refill-per-minute:60}") int ipRefillPerMinute) {
+        this(enabled, width, usernameCapacity, usernameRefillPerMinute, ipCapacity, ipRefillPerMinute,
+                System::currentTimeMillis);
+    }
+
+    LoginThrottle(boolean enabled, int width,
+                  int usernameCapacity, int usernameRefillPerMinute,
+                  int ipCapacity, int ipRefillPerMinute,
+                  LongSupplier clock) {
+        SecureRandom random = new SecureRandom();
+        this.enabled = enabled;
+        this.usernames = new Sketch(width, usernameCapacity, usernameRefillPerMinute, random.nextLong());
+        this.addresses = new Sketch(width, ipCapacity, ipRefillPerMinute, random.nextLong());
+        this.clock = clock;
+    }
+
+    /**
+     * Take one login attempt from the username's and the client address's buckets
+     * The address is checked first so an address-level flood does not drain the buckets of
+     * the usernames it targets.
+     *
+     * @param username Submitted username (case-insensitive)
+     * @param clientAddress Client IP, or null if unknown (only the username bucket applies)
+     * @return 0 if the attempt may proceed, otherwise milliseconds until the next attempt is allowed
+     */
+    public long tryAcquire(String username, String clientAddress) {
+        if (!enabled) {
+            return 0L;
+        }
+        long now = clock.getAsLong();
+        if (clientAddress != null) {
+            long wait = addresses.acquire(clientAddress, now);
+            if (wait > 0) {
+                throttledByAddress.increment();
+                return wait;
+            }
+        }
+        long wait = usernames.acquire(username == null ? "" : username.toLowerCase(Locale.ROOT), now);
+        if (wait > 0) {
+            throttledByUsername.increment();
+        }
+        return wait;
+    }
+
+    public long getThrottledByUsername() {
+        return throttledByUsername.sum();
+    }
+
+    public long getThrottledByAddress() {
+        return throttledByAddress.sum();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("login.throttled", this, LoginThrottle::getThrottledByUsername)
+                .tag("key", "username")
+                .description("Login attempts rejected with 429 by the per-username bucket")
+                .register(registry);
+        FunctionCounter.builder("login.throttled", this, LoginThrottle::getThrottledByAddress)
+                .tag("key", "ip")
+                .description("Login attempts rejected with 429 by the per-client-IP bucket")
+                .register(registry);
+    }
+
+    /**
+     * Count-min sketch of GCRA buckets: DEPTH rows of width cells, all in one AtomicLongArray
+     */
+    private static final class Sketch {
+
+        private final AtomicLongArray cells;
+        private final int mask;
+        private final long seed;
+
+        /**
+         * Milliseconds per token
+         */
+        private final long interval;
+
+        /**
+         * How far ahead of now a cell may be while the bucket still has a token (capacity * interval)
+         */
+        private final long burst;
+
+        Sketch(int width, int capacity, int refillPerMinute, long seed) {
+            if (width < 1 || capacity < 1 || refillPerMinute < 1) {
+                throw new IllegalArgumentException("login-throttle width, capacity and refill-per-minute must be positive");
+            }
+            int size = Integer.highestOneBit(Math.max(64, width) - 1) << 1;
+            this.cells = new AtomicLongArray(DEPTH * size);
+            this.mask = size - 1;
+            this.seed = seed;
+            this.interval = Math.max(1L, 60_000L / refillPerMinute);
+            this.burst = interval * capacity;
+        }
+
+        /**
+         * @return 0 if a token was taken, otherwise milliseconds until one is available
+         */
+        long acquire(String key, long now) {
+            long h1 = mix(hash(key) ^ seed);
+            long h2 = mix(h1) | 1L;
+            long empty = now + burst;
+            long level = Long.MAX_VALUE;
+            for (int row = 0; row < DEPTH; row++) {
+                int index = row * (mask + 1) + (int) ((h1 + row * h2) >>> 32 & mask);
+                long current;
+                long next;
+                long stored;
+                do {
+                    current = cells.get(index);
+                    next = Math.max(current, now) + interval;
+                    stored = Math.min(next, empty);
+                } while (stored != current && !cells.compareAndSet(index, current, stored));
+                level = Math.min(level, next);
+            }
+            long ahead = level - now;
+            return ahead <= burst ? 0L : ahead - burst;
+        }
+
+        /**
+         * 64-bit FNV-1a over the UTF-16 chars
+         */
+        private static long hash(String key) {
+            long hash = 0xcbf29ce484222325L;
+            for (int i = 0; i < key.length(); i++) {
+                hash ^= key.charAt(i);
+                hash *= 0x100000001b3L;
+            }
+            return hash;
+        }
+
+        /**
+         * MurmurHash3 fmix64 finalizer
+         */
+        private static long mix(long value) {
+            value ^= value >>> 33;
+            value *= 0xff51afd7ed558ccdL;
+            value ^= value >>> 33;
+            value *= 0xc4ceb9fe1a85ec53L;
+            value ^= value >>> 33;
+            return value;
+        }
+    }
+}
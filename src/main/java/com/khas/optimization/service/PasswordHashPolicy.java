@@ -0,0 +1,131 @@
+package com.khas.optimization.service;
+
+import org.springframework.security.crypto.bcrypt.BCrypt;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+import java.time.Duration;
+
+/**
+ * Work factor policy for password hashes
+ * New hashes use BCrypt $2a$ with {@link #cost()}. Every BCrypt hash carries its own
+ * algorithm and cost prefix ("$2a$10$..."), so the parameters of a stored hash are read back
+ * from the hash itself and {@link #needsRehash(String)} can tell whether it matches the policy.
+ *
+ * The cost is either fixed (password-hashing.cost) or calibrated once at startup: the cost
+ * whose hash time on this machine comes closest to password-hashing.target-latency without
+ * exceeding it, clamped to [min-cost, max-cost]. Each cost step doubles the work.
+ *
+ * @param cost BCrypt log2 rounds for new hashes
+ * @param calibrated Whether the cost was measured at startup rather than configured
+ */
+public record PasswordHashPolicy(int cost, boolean calibrated) {
+
+    /**
+     * BCrypt version written into new hashes
+     */
+    public static final BCryptPasswordEncoder.BCryptVersion VERSION = BCryptPasswordEncoder.BCryptVersion.$2A;
+
+    /**
+     * Cost used when nothing is configured (BCryptPasswordEncoder's default strength)
+     */
+    public static final int DEFAULT_COST = 10;
+
+    /**
+     * Bounds accepted by BCrypt
+     */
+    public static final int MIN_BCRYPT_COST = 4;
+    public static final int MAX_BCRYPT_COST = 31;
+
+    /**
+     * Timed hashes per calibration (the fastest one counts, the first mostly warms up the JIT)
+     */
+    private static final int CALIBRATION_SAMPLES = 3;
+
+    private static final String CALIBRATION_PASSWORD = "calibration-P4ssw0rd!";
+
+    public PasswordHashPolicy {
+        if (cost < MIN_BCRYPT_COST || cost > MAX_BCRYPT_COST) {
+            throw new IllegalArgumentException("BCrypt cost must be between " + MIN_BCRYPT_COST
+                    + " and " + MAX_BCRYPT_COST + ": " + cost);
+        }
+    }
+
+    public static PasswordHashPolicy fixed(int cost) {
+        return new PasswordHashPolicy(cost, false);
+    }
+
+    /**
+     * Measure BCrypt on this machine and pick the highest cost within the target latency
+     * Times the hash at minCost and extrapolates (cost + 1 = twice the time), so calibration
+     * itself costs a few hashes at minCost.
+     */
+    public static PasswordHashPolicy calibrate(Duration targetLatency, int minCost, int maxCost) {
+        if (minCost < MIN_BCRYPT_COST || maxCost > MAX_BCRYPT_COST || minCost > maxCost) {
+            throw new IllegalArgumentException("Invalid BCrypt cost range: " + minCost + ".." + maxCost);
+        }
+        long fastest = Long.MAX_VALUE;
+        for (int i = 0; i < CALIBRATION_SAMPLES; i++) {
+            long start = System.nanoTime();
+            BCrypt.hashpw(CALIBRATION_PASSWORD, BCrypt.gensalt(VERSION.getVersion(), minCost));
+            fastest = Math.min(fastest, System.nanoTime() - start);
+        }
+        return new PasswordHashPolicy(costFor(targetLatency.toNanos(), fastest, minCost, maxCost), true);
+    }
+
+    /**
+     * Highest cost in [minCost, maxCost] whose extrapolated time stays within the target
+     *
+     * @param minCostNanos Measured hash time at minCost
+     */
+    static int costFor(long targetNanos, long minCostNanos, int minCost, int maxCost) {
+        int cost = minCost;
+        long nanos = Math.max(1L, minCostNanos);
+        while (cost < maxCost && nanos <= targetNanos / 2) {
+            nanos *= 2;
+            cost++;
+        }
+        return cost;
+    }
+
+    /**
+     * Cost prefix of a BCrypt hash, e.g. 10 for "$2a$10$..."
+     *
+     * @return The cost, or -1 if the value is not a BCrypt hash
+     */
+    public static int costOf(String hash) {
+        if (hash == null || hash.length() < 7 || hash.charAt(0) != '$' || hash.charAt(1) != '2'
+                || hash.charAt(3) != '$' || hash.charAt(6) != '$') {
+            return -1;
+        }
+        char tens = hash.charAt(4);
+        char units = hash.charAt(5);
+        if (tens < '0' || tens > '9' || units < '0' || units > '9') {
+            return -1;
+        }
+        return (tens - '0') * 10 + (units - '0');
+    }
+
+    /**
+     * Whether a stored hash should be replaced on the next successful login:
+     * a different BCrypt version, a cost weaker than the policy, or (configured cost only)
+     * a costlier one. A calibrated cost only upgrades: instances on different hardware calibrate
+     * different costs, and downgrading would make them rewrite each other's hashes on every login.
+     */
+    public boolean needsRehash(String hash) {
+        int storedCost = costOf(hash);
+        if (storedCost < 0) {
+            return false;
+        }
+        if (!hash.startsWith(VERSION.getVersion()) || storedCost < cost) {
+            return true;
+        }
+        return storedCost > cost && !calibrated;
+    }
+
+    /**
+     * Encoder producing hashes that follow this policy
+     */
+    BCryptPasswordEncoder encoder() {
+        return new BCryptPasswordEncoder(VERSION, cost);
+    }
+}
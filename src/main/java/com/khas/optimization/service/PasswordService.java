@@ -1,26 +1,122 @@
 package com.khas.optimization.service;
 
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import com.khas.optimization.exception.ServiceUnavailableException;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.FunctionTimer;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
 
+import java.time.Duration;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.regex.Pattern;
 
 /**
  * Password Service for hashing and verifying passwords
+ *
+ * BCrypt is deliberately slow (tens of milliseconds per call), so the reactive methods
+ * {@link #hash(String)} and {@link #verify(String, String)} run it on a dedicated, bounded pool
+ * instead of a Netty event loop. The pool has password-hashing.threads workers (platform or
+ * virtual threads) and at most password-hashing.max-queue waiting calls; beyond that new calls
+ * fail fast with ServiceUnavailableException (503) rather than queueing without bound.
+ *
+ * The BCrypt cost follows a PasswordHashPolicy: fixed (password-hashing.cost) or calibrated at
+ * startup against password-hashing.target-latency. Hashes made under another cost or version
+ * are replaced after a successful login via {@link #rehashIfNeeded(String, String)}.
  */
 @Service
-public class PasswordService {
+public class PasswordService implements MeterBinder {
+    
+    private static final Logger logger = LoggerFactory.getLogger(PasswordService.class);
     
     private static final int MIN_LENGTH = 8;
     private static final Pattern STRONG_PASSWORD_PATTERN = Pattern.compile(
         "^(?=.*[a-z])(?=.*[A-Z])(?=.*\\d)(?=.*[@$!%*?&])[A-Za-z\\d@$!%*?&]{8,}$"
     );
     
+    private final PasswordHashPolicy policy;
     private final PasswordEncoder passwordEncoder;
+    private final ThreadPoolExecutor executor;
+    private final int maxQueue;
+    
+    private final LongAdder queueWaitCount = new LongAdder();
+    private final LongAdder queueWaitNanos = new LongAdder();
+    private final LongAdder hashCount = new LongAdder();
+    private final LongAdder hashNanos = new LongAdder();
+    private final LongAdder verifyCount = new LongAdder();
+    private final LongAdder verifyNanos = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder rehashed = new LongAdder();
     
     public PasswordService() {
-        this.passwordEncoder = new BCryptPasswordEncoder();
+        this(0, false, 64);
+    }
+    
+    public PasswordService(int threads, boolean virtualThreads, int maxQueue) {
+        this(threads, virtualThreads, maxQueue, PasswordHashPolicy.fixed(PasswordHashPolicy.DEFAULT_COST));
+    }
+    
+    @Autowired
+    public PasswordService(@Value("${password-hashing.threads:0}") int threads,
+                           @Value("${password-hashing.virtual-threads:false}") boolean virtualThreads,
+                           @Value("${password-hashing.max-queue:64}") int maxQueue,
+                           @Value("${password-hashing.cost:0}") int cost,
+                           @Value("${password-hashing.target-latency:100ms}") Duration targetLatency,
+                           @Value("${password-hashing.min-cost:10}") int minCost,
+                           @Value("${password-hashing.max-cost:14}") int maxCost) {
+        this(threads, virtualThreads, maxQueue, cost > 0
+                ? PasswordHashPolicy.fixed(cost)
+                : PasswordHashPolicy.calibrate(targetLatency, minCost, maxCost));
+        logger.info("Password hashing: BCrypt {} cost {} ({})", PasswordHashPolicy.VERSION.getVersion(),
+                policy.cost(), policy.calibrated() ? "calibrated for " + targetLatency.toMillis() + "ms" : "configured");
+    }
+    
+    public PasswordService(int threads, boolean virtualThreads, int maxQueue, PasswordHashPolicy policy) {
+        this.policy = policy;
+        this.passwordEncoder = policy.encoder();
+        this.maxQueue = Math.max(1, maxQueue);
+        
+        // Default: one hashing thread per CPU core (BCrypt is CPU-bound)
+        int poolSize = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        ThreadFactory threadFactory = virtualThreads
+                ? Thread.ofVirtual().name("password-hash-", 0).factory()
+                : platformThreadFactory();
+        this.executor = new ThreadPoolExecutor(
+                poolSize, poolSize,
+                0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(this.maxQueue),
+                threadFactory,
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+    
+    private static ThreadFactory platformThreadFactory() {
+        AtomicInteger sequence = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, "password-hash-" + sequence.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+    
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
     }
     
     /**
@@ -50,7 +146,46 @@ public class PasswordService {
     }
     
     /**
-     * Hash a plain text password
+     * Hash a plain text password on the hashing pool
+     * Note: Password strength validation should be done before calling this method
+     *
+     * @return The hash; errors with ServiceUnavailableException when the pool is saturated
+     */
+    public Mono<String> hash(String plainPassword) {
+        return submit(() -> hashPassword(plainPassword), hashCount, hashNanos);
+    }
+    
+    /**
+     * Verify a password against a hash on the hashing pool
+     *
+     * @return Whether the password matches; errors with ServiceUnavailableException when the pool is saturated
+     */
+    public Mono<Boolean> verify(String plainPassword, String hashedPassword) {
+        return submit(() -> verifyPassword(plainPassword, hashedPassword), verifyCount, verifyNanos);
+    }
+    
+    /**
+     * Replace a stored hash that no longer matches the hashing policy
+     * Call only after the password was verified against storedHash. This is background work:
+     * it is skipped while the hashing pool is more than half busy so it never sheds a login.
+     *
+     * @return The new hash, or empty if no rehash is needed or the pool is busy
+     */
+    public Mono<String> rehashIfNeeded(String plainPassword, String storedHash) {
+        if (!policy.needsRehash(storedHash) || executor.getQueue().size() > maxQueue / 2) {
+            return Mono.empty();
+        }
+        return hash(plainPassword)
+                .doOnNext(newHash -> rehashed.increment())
+                .onErrorResume(ServiceUnavailableException.class, error -> Mono.empty());
+    }
+    
+    public PasswordHashPolicy getPolicy() {
+        return policy;
+    }
+    
+    /**
+     * Hash a plain text password on the calling thread (blocking, never call on an event loop)
      * Note: Password strength validation should be done before calling this method
      */
     public String hashPassword(String plainPassword) {
@@ -58,10 +193,85 @@ public class PasswordService {
     }
     
     /**
-     * Verify if plain password matches hashed password
+     * Verify if plain password matches hashed password (blocking, never call on an event loop)
      */
     public boolean verifyPassword(String plainPassword, String hashedPassword) {
         return passwordEncoder.matches(plainPassword, hashedPassword);
     }
+    
+    /**
+     * Run BCrypt work on the pool, recording queue wait and run time
+     * A call cancelled while still queued is skipped when it reaches a worker.
+     */
+    private <T> Mono<T> submit(Callable<T> work, LongAdder count, LongAdder nanos) {
+        return Mono.defer(() -> {
+            long enqueuedAt = System.nanoTime();
+            CompletableFuture<T> result = new CompletableFuture<>();
+            try {
+                executor.execute(() -> {
+                    long startedAt = System.nanoTime();
+                    queueWaitCount.increment();
+                    queueWaitNanos.add(startedAt - enqueuedAt);
+                    if (result.isDone()) {
+                        return;
+                    }
+                    try {
+                        result.complete(work.call());
+                    } catch (Throwable e) {
+                        result.completeExceptionally(e);
+                    } finally {
+                        count.increment();
+                        nanos.add(System.nanoTime() - startedAt);
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                rejected.increment();
+                return Mono.error(new ServiceUnavailableException("Password hashing is at capacity, please retry"));
+            }
+            return Mono.fromFuture(result);
+        });
+    }
+    
+    public int getQueueSize() {
+        return executor.getQueue().size();
+    }
+    
+    public long getRejected() {
+        return rejected.sum();
+    }
+    
+    public long getRehashed() {
+        return rehashed.sum();
+    }
+    
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionTimer.builder("password.hash.queue.wait", this,
+                        service -> service.queueWaitCount.sum(), service -> service.queueWaitNanos.sum(), TimeUnit.NANOSECONDS)
+                .description("Time BCrypt calls waited for a hashing thread")
+                .register(registry);
+        FunctionTimer.builder("password.hash.time", this,
+                        service -> service.hashCount.sum(), service -> service.hashNanos.sum(), TimeUnit.NANOSECONDS)
+                .tag("operation", "hash")
+                .description("BCrypt run time on the hashing pool")
+                .register(registry);
+        FunctionTimer.builder("password.hash.time", this,
+                        service -> service.verifyCount.sum(), service -> service.verifyNanos.sum(), TimeUnit.NANOSECONDS)
+                .tag("operation", "verify")
+                .description("BCrypt run time on the hashing pool")
+                .register(registry);
+        Gauge.builder("password.hash.queue.size", this, PasswordService::getQueueSize)
+                .description("BCrypt calls waiting for a hashing thread")
+                .register(registry);
+        FunctionCounter.builder("password.hash.rejected", this, PasswordService::getRejected)
+                .description("BCrypt calls rejected with 503 because the queue was full")
+                .register(registry);
+        FunctionCounter.builder("password.hash.rehashed", this, PasswordService::getRehashed)
+                .description("Stored hashes recomputed at login to match the hashing policy")
+                .register(registry);
+        Gauge.builder("password.hash.cost", this, service -> service.policy.cost())
+                .description("BCrypt cost used for new hashes")
+                .register(registry);
+    }
 }
 
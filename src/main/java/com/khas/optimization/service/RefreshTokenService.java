@@ -0,0 +1,304 @@
+package com.khas.optimization.service;
+
+import com.khas.optimization.dto.UserResponse;
+import com.khas.optimization.entity.RefreshToken;
+import com.khas.optimization.exception.EntityNotFoundException;
+import com.khas.optimization.exception.UnauthorizedException;
+import com.khas.optimization.repository.RefreshTokenRepository;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Base64;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Refresh tokens: opaque, single-use credentials exchanged for a new access token
+ * without re-running BCrypt.
+ *
+ * A refresh token is 256 random bits; only its SHA-256 is stored (refresh_tokens.token_hash),
+ * which is enough for a high-entropy secret. Every use rotates it: the presented token is
+ * revoked and a new one in the same family is returned. Presenting a token that was already
+ * rotated means it leaked, so the whole family is revoked and the client must log in again.
+ *
+ * Freshly issued tokens are also kept in an in-memory index (digest to row), so the usual
+ * refresh skips the SELECT. The database stays authoritative: the conditional revoke of the
+ * presented token decides which caller wins, on this instance or another one.
+ */
+@Service
+public class RefreshTokenService implements MeterBinder {
+
+    private static final Logger logger = LoggerFactory.getLogger(RefreshTokenService.class);
+
+    private static final int TOKEN_BYTES = 32;
+    private static final SecureRandom RANDOM = new SecureRandom();
+    private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+
+    private final RefreshTokenRepository refreshTokenRepository;
+    private final UserService userService;
+    private final Duration expiration;
+    private final int indexSize;
+    private final Duration purgeInterval;
+
+    private final Map<TokenDigest, IndexEntry> index = new ConcurrentHashMap<>();
+    private final AtomicBoolean evicting = new AtomicBoolean();
+    private final LongAdder indexHits = new LongAdder();
+    private final LongAdder indexMisses = new LongAdder();
+    private final LongAdder reused = new LongAdder();
+    private volatile Disposable periodicPurge;
+
+    public RefreshTokenService(RefreshTokenRepository refreshTokenRepository,
+                               UserService userService,
+                               @Value("${refresh-token.expiration:14d}") Duration expiration,
+                               @Value("${refresh-token.index-size:10000}") int indexSize,
+                               @Value("${refresh-token.purge-interval:1h}") Duration purgeInterval) {
+        this.refreshTokenRepository = refreshTokenRepository;
+        this.userService = userService;
+        this.expiration = expiration;
+        this.indexSize = indexSize;
+        this.purgeInterval = purgeInterval;
+    }
+
+    /**
+     * Schedule periodic deletion of expired tokens
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!purgeInterval.isZero() && !purgeInterval.isNegative()) {
+            periodicPurge = Flux.interval(purgeInterval, purgeInterval)
+                    .onBackpressureDrop()
+                    .concatMap(tick -> purgeExpired()
+                            .onErrorResume(error -> {
+                                logger.warn("Refresh token purge failed: {}", error.getMessage());
+                                return Mono.just(0);
+                            }))
+                    .subscribe();
+        }
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (periodicPurge != null) {
+            periodicPurge.dispose();
+        }
+    }
+
+    /**
+     * Start a new token family for a user who just logged in
+     *
+     * @return The refresh token to hand to the client
+     */
+    public Mono<String> issue(Long userId) {
+        return store(userId, UUID.randomUUID().toString());
+    }
+
+    /**
+     * Rotate a refresh token
+     * The new token is stored before the presented one is revoked, so a concurrent replay that
+     * triggers family revocation also revokes the token handed out here.
+     *
+     * @return The user (enabled, with roles) and the replacement refresh token;
+     *         errors with UnauthorizedException if the token is unknown, expired, already used or
+     *         the user is disabled or deleted
+     */
+    public Mono<RefreshedSession> refresh(String refreshToken) {
+        if (refreshToken == null || refreshToken.isEmpty()) {
+            return Mono.error(invalid());
+        }
+        TokenDigest digest = TokenDigest.of(refreshToken);
+        long now = System.currentTimeMillis();
+        return lookup(digest)
+                .switchIfEmpty(Mono.error(invalid()))
+                .flatMap(entry -> {
+                    if (entry.revoked()) {
+                        return reuseDetected(entry);
+                    }
+                    if (entry.expiresAt() <= now) {
+                        return Mono.error(invalid());
+                    }
+                    return store(entry.userId(), entry.familyId())
+                            .flatMap(newToken -> refreshTokenRepository.revokeById(entry.id(), LocalDateTime.now())
+                                    .flatMap(revoked -> revoked == 0
+                                            ? reuseDetected(entry)
+                                            : activeUser(entry).map(user -> new RefreshedSession(
+                                                    user.getUsername(), user.getRoles(), newToken))));
+                });
+    }
+
+    /**
+     * Revoke the family of a refresh token (logout); unknown tokens are ignored
+     */
+    public Mono<Void> revoke(String refreshToken) {
+        if (refreshToken == null || refreshToken.isEmpty()) {
+            return Mono.empty();
+        }
+        return lookup(TokenDigest.of(refreshToken))
+                .flatMap(entry -> revokeFamily(entry.familyId()))
+                .then();
+    }
+
+    /**
+     * Delete tokens that expired more than a minute ago
+     */
+    public Mono<Integer> purgeExpired() {
+        return refreshTokenRepository.deleteExpiredBefore(LocalDateTime.now().minusMinutes(1));
+    }
+
+    public int indexSize() {
+        return index.size();
+    }
+
+    public long getIndexHits() {
+        return indexHits.sum();
+    }
+
+    public long getIndexMisses() {
+        return indexMisses.sum();
+    }
+
+    public long getReused() {
+        return reused.sum();
+    }
+
+    /**
+     * Claim the index entry (only one local caller gets it) or fall back to the database
+     */
+    private Mono<IndexEntry> lookup(TokenDigest digest) {
+        IndexEntry entry = index.remove(digest);
+        if (entry != null) {
+            indexHits.increment();
+            return Mono.just(entry);
+        }
+        indexMisses.increment();
+        return refreshTokenRepository.findByTokenHash(digest.toHex()).map(IndexEntry::of);
+    }
+
+    private Mono<String> store(Long userId, String familyId) {
+        byte[] bytes = new byte[TOKEN_BYTES];
+        RANDOM.nextBytes(bytes);
+        String token = ENCODER.encodeToString(bytes);
+        TokenDigest digest = TokenDigest.of(token);
+        LocalDateTime expiresAt = LocalDateTime.now().plus(expiration);
+        return refreshTokenRepository.save(new RefreshToken(digest.toHex(), userId, familyId, expiresAt))
+                .map(saved -> {
+                    remember(digest, IndexEntry.of(saved));
+                    return token;
+                });
+    }
+
+    private Mono<UserResponse> activeUser(IndexEntry entry) {
+        return userService.getUserById(entry.userId())
+                .filter(user -> Boolean.TRUE.equals(user.getEnabled()))
+                .onErrorResume(EntityNotFoundException.class, error -> Mono.empty())
+                .switchIfEmpty(Mono.defer(() -> revokeFamily(entry.familyId()).then(Mono.error(invalid()))));
+    }
+
+    private <T> Mono<T> reuseDetected(IndexEntry entry) {
+        reused.increment();
+        logger.warn("Refresh token reuse for user id {}, revoking token family", entry.userId());
+        return revokeFamily(entry.familyId()).then(Mono.error(invalid()));
+    }
+
+    private Mono<Integer> revokeFamily(String familyId) {
+        index.values().removeIf(entry -> entry.familyId().equals(familyId));
+        return refreshTokenRepository.revokeFamily(familyId, LocalDateTime.now());
+    }
+
+    private static UnauthorizedException invalid() {
+        return new UnauthorizedException("Invalid or expired refresh token");
+    }
+
+    private void remember(TokenDigest digest, IndexEntry entry) {
+        if (indexSize <= 0) {
+            return;
+        }
+        if (index.size() >= indexSize) {
+            evict(System.currentTimeMillis());
+        }
+        if (index.size() < indexSize) {
+            index.put(digest, entry);
+        }
+    }
+
+    /**
+     * Free room: expired entries first, then arbitrary ones down to 90% of capacity
+     * Evicted tokens still work, they are just looked up in the database.
+     */
+    private void evict(long now) {
+        if (!evicting.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            index.values().removeIf(entry -> entry.expiresAt() <= now);
+            int target = indexSize - Math.max(1, indexSize / 10);
+            Iterator<IndexEntry> iterator = index.values().iterator();
+            while (index.size() > target && iterator.hasNext()) {
+                iterator.next();
+                iterator.remove();
+            }
+        } finally {
+            evicting.set(false);
+        }
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("refresh.token.index", this, RefreshTokenService::getIndexHits)
+                .tag("result", "hit")
+                .description("Refresh tokens resolved from the in-memory index")
+                .register(registry);
+        FunctionCounter.builder("refresh.token.index", this, RefreshTokenService::getIndexMisses)
+                .tag("result", "miss")
+                .description("Refresh tokens looked up in the database")
+                .register(registry);
+        Gauge.builder("refresh.token.index.size", this, RefreshTokenService::indexSize)
+                .description("Refresh tokens currently held in the in-memory index")
+                .register(registry);
+        FunctionCounter.builder("refresh.token.reused", this, RefreshTokenService::getReused)
+                .description("Rotated or revoked refresh tokens presented again (token family revoked)")
+                .register(registry);
+    }
+
+    /**
+     * Result of a successful rotation
+     *
+     * @param username Username for the new access token
+     * @param roles Current role names of the user
+     * @param refreshToken Replacement refresh token
+     */
+    public record RefreshedSession(String username, List<String> roles, String refreshToken) {
+    }
+
+    /**
+     * Row fields needed to rotate a token
+     */
+    private record IndexEntry(long id, long userId, String familyId, long expiresAt, boolean revoked) {
+
+        static IndexEntry of(RefreshToken token) {
+            return new IndexEntry(token.getId(), token.getUserId(), token.getFamilyId(),
+                    token.getExpiresAt().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli(),
+                    token.getRevokedAt() != null);
+        }
+    }
+}
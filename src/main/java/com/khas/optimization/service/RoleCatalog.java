@@ -0,0 +1,211 @@
+package com.khas.optimization.service;
+
+import com.khas.optimization.entity.Role;
+import com.khas.optimization.repository.RoleRepository;
+import com.khas.optimization.util.LongObjectMap;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.annotation.PreDestroy;
+import org.reactivestreams.Publisher;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.r2dbc.mapping.OutboundRow;
+import org.springframework.data.r2dbc.mapping.event.AfterSaveCallback;
+import org.springframework.data.relational.core.sql.SqlIdentifier;
+import org.springframework.stereotype.Service;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * In-process catalog of roles (id ↔ name)
+ * The roles table is tiny and almost static, so it is loaded once at startup and
+ * held as an immutable snapshot that is swapped atomically on refresh.
+ * Lookups are plain, non-reactive and allocation-free.
+ *
+ * Refreshed on startup, on every Role save and every role-catalog.refresh-interval.
+ */
+@Service
+public class RoleCatalog implements AfterSaveCallback<Role>, MeterBinder {
+
+    private static final Logger logger = LoggerFactory.getLogger(RoleCatalog.class);
+
+    /**
+     * Returned by {@link #idOf(String)} when the role name is unknown
+     */
+    public static final long UNKNOWN_ROLE = -1L;
+
+    private final RoleRepository roleRepository;
+    private final Duration refreshInterval;
+    private final AtomicReference<Snapshot> snapshot = new AtomicReference<>(Snapshot.EMPTY);
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private Disposable periodicRefresh;
+
+    /**
+     * RoleRepository is injected lazily: the R2DBC template that backs it looks up
+     * entity callbacks (this bean) while it is being created.
+     */
+    public RoleCatalog(@Lazy RoleRepository roleRepository,
+                       @Value("${role-catalog.refresh-interval:5m}") Duration refreshInterval) {
+        this.roleRepository = roleRepository;
+        this.refreshInterval = refreshInterval;
+    }
+
+    /**
+     * Load the catalog once the database is initialized and schedule periodic refreshes
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        refresh().subscribe();
+        if (!refreshInterval.isZero() && !refreshInterval.isNegative()) {
+            periodicRefresh = Flux.interval(refreshInterval, refreshInterval)
+                    .onBackpressureDrop()
+                    .concatMap(tick -> refresh())
+                    .subscribe();
+        }
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (periodicRefresh != null) {
+            periodicRefresh.dispose();
+        }
+    }
+
+    /**
+     * Reload all active roles and swap in a new snapshot
+     * Errors are logged and the previous snapshot is kept.
+     */
+    public Mono<Void> refresh() {
+        return roleRepository.findAllActive()
+                .collectList()
+                .doOnNext(roles -> {
+                    snapshot.set(Snapshot.of(roles));
+                    logger.debug("Role catalog refreshed with {} roles", roles.size());
+                    checkCompactRoleMapping(roles);
+                })
+                .onErrorResume(error -> {
+                    logger.warn("Role catalog refresh failed, keeping previous snapshot: {}", error.getMessage());
+                    return Mono.empty();
+                })
+                .then();
+    }
+
+    /**
+     * Warn if the roles table no longer matches the ids behind CompactRoleClaim's current mapping
+     * Tokens stay decodable either way (the mapping is by name), but a new mapping version is due.
+     */
+    private void checkCompactRoleMapping(List<Role> roles) {
+        List<String> mapping = CompactRoleClaim.currentMapping();
+        for (Role role : roles) {
+            int bit = mapping.indexOf(role.getName());
+            if (bit >= 0 && role.getId() != CompactRoleClaim.roleIdOf(bit)) {
+                logger.warn("Role {} has id {} but compact role claim version {} maps it to id {}",
+                        role.getName(), role.getId(), CompactRoleClaim.CURRENT_VERSION, CompactRoleClaim.roleIdOf(bit));
+            }
+        }
+    }
+
+    /**
+     * Get role name by ID
+     *
+     * @return Role name, or null if the role is not in the catalog
+     */
+    public String nameOf(long roleId) {
+        String name = snapshot.get().namesById.get(roleId);
+        (name != null ? hits : misses).increment();
+        return name;
+    }
+
+    /**
+     * Get role ID by name
+     *
+     * @return Role ID, or {@link #UNKNOWN_ROLE} if the role is not in the catalog
+     */
+    public long idOf(String roleName) {
+        Long id = snapshot.get().idsByName.get(roleName);
+        if (id == null) {
+            misses.increment();
+            return UNKNOWN_ROLE;
+        }
+        hits.increment();
+        return id;
+    }
+
+    public int size() {
+        return snapshot.get().idsByName.size();
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    /**
+     * Role mutations through R2DBC trigger a catalog refresh
+     */
+    @Override
+    public Publisher<Role> onAfterSave(Role role, OutboundRow outboundRow, SqlIdentifier table) {
+        return refresh().thenReturn(role);
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("role.catalog.lookups", this, RoleCatalog::getHits)
+                .tag("result", "hit")
+                .description("Role catalog lookups served from memory")
+                .register(registry);
+        FunctionCounter.builder("role.catalog.lookups", this, RoleCatalog::getMisses)
+                .tag("result", "miss")
+                .description("Role catalog lookups for unknown roles")
+                .register(registry);
+        Gauge.builder("role.catalog.size", this, RoleCatalog::size)
+                .description("Number of roles in the catalog")
+                .register(registry);
+    }
+
+    /**
+     * Immutable id → name and name → id view of the roles table
+     * Built in full before it is published through the AtomicReference and never written
+     * afterwards, so request threads can read namesById concurrently.
+     */
+    private static final class Snapshot {
+
+        static final Snapshot EMPTY = new Snapshot(new LongObjectMap<>(), Map.of());
+
+        final LongObjectMap<String> namesById;
+        final Map<String, Long> idsByName;
+
+        private Snapshot(LongObjectMap<String> namesById, Map<String, Long> idsByName) {
+            this.namesById = namesById;
+            this.idsByName = idsByName;
+        }
+
+        static Snapshot of(List<Role> roles) {
+            LongObjectMap<String> namesById = new LongObjectMap<>(roles.size());
+            Map<String, Long> idsByName = new HashMap<>(roles.size() * 2);
+            for (Role role : roles) {
+                namesById.put(role.getId(), role.getName());
+                idsByName.put(role.getName(), role.getId());
+            }
+            return new Snapshot(namesById, Map.copyOf(idsByName));
+        }
+    }
+}
@@ -0,0 +1,347 @@
+package com.khas.optimization.service;
+
+import com.khas.optimization.entity.RevokedToken;
+import com.khas.optimization.repository.RevokedTokenRepository;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Revocation list for access tokens, keyed by the jti claim
+ *
+ * {@link #isRevoked(String)} runs on every authenticated request, so the common "not revoked"
+ * answer must be cheap: a Bloom filter answers it from a few bit probes without allocating.
+ * Only when every probed bit is set (a revoked token or a false positive, about
+ * token-revocation.false-positive-rate) is the exact set consulted.
+ *
+ * A revocation only matters until the token's exp. Each entry is also placed on a hashed
+ * timing wheel at its exp; every tick sweeps one slot and drops entries that have expired.
+ * A Bloom filter cannot forget, so it is rebuilt from the exact set once more entries have
+ * expired than are still live. Revocations and rebuilds are serialized; checks never lock.
+ *
+ * Revocations are written to revoked_tokens, loaded at startup and polled every
+ * token-revocation.sync-interval so revocations made on other instances take effect here.
+ */
+@Service
+public class TokenRevocationService implements MeterBinder {
+
+    private static final Logger logger = LoggerFactory.getLogger(TokenRevocationService.class);
+
+    private final RevokedTokenRepository revokedTokenRepository;
+    private final int expectedEntries;
+    private final double falsePositiveRate;
+    private final long tickMillis;
+    private final Duration syncInterval;
+
+    /**
+     * jti to exp (epoch millis)
+     */
+    private final Map<String, Long> revoked = new ConcurrentHashMap<>();
+    private final Set<String>[] wheel;
+    private volatile BloomFilter filter;
+
+    /**
+     * Entries dropped from the exact set whose bits are still in the filter (guarded by this)
+     */
+    private int staleInFilter;
+    private long lastTick;
+    private volatile LocalDateTime lastSync;
+
+    private final LongAdder filtered = new LongAdder();
+    private final LongAdder falsePositives = new LongAdder();
+    private final LongAdder hits = new LongAdder();
+    private volatile Disposable ticker;
+    private volatile Disposable syncer;
+
+    @SuppressWarnings("unchecked")
+    public TokenRevocationService(RevokedTokenRepository revokedTokenRepository,
+                                  @Value("${token-revocation.expected-entries:100000}") int expectedEntries,
+                                  @Value("${token-revocation.false-positive-rate:0.01}") double falsePositiveRate,
+                                  @Value("${token-revocation.tick:1s}") Duration tick,
+                                  @Value("${token-revocation.wheel-size:3600}") int wheelSize,
+                                  @Value("${token-revocation.sync-interval:30s}") Duration syncInterval) {
+        this.revokedTokenRepository = revokedTokenRepository;
+        this.expectedEntries = Math.max(1, expectedEntries);
+        this.falsePositiveRate = falsePositiveRate;
+        this.tickMillis = Math.max(1L, tick.toMillis());
+        this.syncInterval = syncInterval;
+        this.wheel = new Set[Math.max(1, wheelSize)];
+        for (int i = 0; i < wheel.length; i++) {
+            wheel[i] = ConcurrentHashMap.newKeySet();
+        }
+        this.filter = new BloomFilter(this.expectedEntries, falsePositiveRate);
+        this.lastTick = System.currentTimeMillis() / tickMillis;
+    }
+
+    /**
+     * Load revocations still in force, then start the wheel and the cross-instance poll
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        LocalDateTime now = LocalDateTime.now();
+        revokedTokenRepository.findActive(now)
+                .doOnNext(this::add)
+                .count()
+                .subscribe(count -> {
+                    lastSync = now;
+                    logger.info("Token revocation list loaded: {} revoked tokens", count);
+                }, error -> logger.warn("Failed to load token revocation list: {}", error.getMessage()));
+
+        ticker = Flux.interval(Duration.ofMillis(tickMillis))
+                .onBackpressureDrop()
+                .subscribe(tick -> advance(System.currentTimeMillis()));
+        if (!syncInterval.isZero() && !syncInterval.isNegative()) {
+            syncer = Flux.interval(syncInterval, syncInterval)
+                    .onBackpressureDrop()
+                    .concatMap(tick -> sync().onErrorResume(error -> {
+                        logger.warn("Token revocation sync failed: {}", error.getMessage());
+                        return Mono.empty();
+                    }))
+                    .subscribe();
+        }
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (ticker != null) {
+            ticker.dispose();
+        }
+        if (syncer != null) {
+            syncer.dispose();
+        }
+    }
+
+    /**
+     * Whether a token id has been revoked (lock-free; no allocation unless the filter matches)
+     *
+     * @param tokenId jti claim, null for tokens minted without one (never revoked)
+     */
+    public boolean isRevoked(String tokenId) {
+        if (tokenId == null) {
+            return false;
+        }
+        if (!filter.mightContain(hash(tokenId))) {
+            filtered.increment();
+            return false;
+        }
+        if (revoked.containsKey(tokenId)) {
+            hits.increment();
+            return true;
+        }
+        falsePositives.increment();
+        return false;
+    }
+
+    /**
+     * Revoke a token until its exp; takes effect on this instance immediately and on others
+     * within token-revocation.sync-interval. Revoking an expired or already revoked token is a no-op.
+     */
+    public Mono<Void> revoke(String tokenId, Instant expiresAt) {
+        return Mono.defer(() -> {
+            if (tokenId == null || expiresAt == null || !expiresAt.isAfter(Instant.now())) {
+                return Mono.empty();
+            }
+            if (!add(tokenId, expiresAt.toEpochMilli())) {
+                return Mono.empty();
+            }
+            return revokedTokenRepository.insert(tokenId,
+                            LocalDateTime.ofInstant(expiresAt, ZoneId.systemDefault()), LocalDateTime.now())
+                    .onErrorResume(DataIntegrityViolationException.class, duplicate -> Mono.just(0))
+                    .then();
+        });
+    }
+
+    public int size() {
+        return revoked.size();
+    }
+
+    public long getFiltered() {
+        return filtered.sum();
+    }
+
+    public long getFalsePositives() {
+        return falsePositives.sum();
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    /**
+     * Pick up revocations persisted since the last sync (by any instance) and purge expired rows
+     * Polls from one interval before the last sync so rows committed late are not missed.
+     */
+    Mono<Void> sync() {
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime since = lastSync != null ? lastSync.minus(syncInterval) : now.minus(syncInterval);
+        return revokedTokenRepository.findActiveRevokedSince(since, now)
+                .doOnNext(this::add)
+                .then(revokedTokenRepository.deleteExpiredBefore(now.minusMinutes(1)))
+                .doOnSuccess(purged -> lastSync = now)
+                .then();
+    }
+
+    private void add(RevokedToken row) {
+        add(row.getJti(), row.getExpiresAt().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli());
+    }
+
+    /**
+     * @return Whether the token was not revoked yet
+     */
+    private synchronized boolean add(String tokenId, long expiresAt) {
+        if (revoked.putIfAbsent(tokenId, expiresAt) != null) {
+            return false;
+        }
+        filter.put(hash(tokenId));
+        wheel[slotOf(expiresAt)].add(tokenId);
+        return true;
+    }
+
+    /**
+     * Sweep the slots of every tick since the last call, dropping expired entries
+     */
+    synchronized void advance(long now) {
+        long tick = now / tickMillis;
+        // A full turn visits every slot once
+        long from = Math.max(lastTick + 1, tick - wheel.length + 1);
+        for (long t = from; t <= tick; t++) {
+            Set<String> slot = wheel[(int) (t % wheel.length)];
+            slot.removeIf(tokenId -> {
+                Long expiresAt = revoked.get(tokenId);
+                if (expiresAt == null) {
+                    return true;
+                }
+                if (expiresAt <= now) {
+                    revoked.remove(tokenId);
+                    staleInFilter++;
+                    return true;
+                }
+                // Later round of the wheel
+                return false;
+            });
+        }
+        lastTick = Math.max(lastTick, tick);
+        if (staleInFilter > 0 && staleInFilter >= revoked.size()) {
+            rebuildFilter();
+        }
+    }
+
+    /**
+     * Replace the filter with one holding only live entries (caller holds the lock)
+     */
+    private void rebuildFilter() {
+        BloomFilter rebuilt = new BloomFilter(expectedEntries, falsePositiveRate);
+        for (String tokenId : revoked.keySet()) {
+            rebuilt.put(hash(tokenId));
+        }
+        filter = rebuilt;
+        staleInFilter = 0;
+    }
+
+    /**
+     * Slot of the first tick at or after exp, so a sweep never drops an entry early
+     */
+    private int slotOf(long expiresAt) {
+        return (int) (((expiresAt + tickMillis - 1) / tickMillis) % wheel.length);
+    }
+
+    /**
+     * 64-bit FNV-1a over the chars, finished with the MurmurHash3 fmix64 mixer
+     * No seed needed: a jti only reaches the filter from a token whose signature was verified.
+     */
+    private static long hash(String tokenId) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < tokenId.length(); i++) {
+            hash ^= tokenId.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("token.revocation.checks", this, TokenRevocationService::getFiltered)
+                .tag("result", "filtered")
+                .description("Revocation checks answered by the Bloom filter alone")
+                .register(registry);
+        FunctionCounter.builder("token.revocation.checks", this, TokenRevocationService::getFalsePositives)
+                .tag("result", "false-positive")
+                .description("Revocation checks that matched the Bloom filter but not the exact set")
+                .register(registry);
+        FunctionCounter.builder("token.revocation.checks", this, TokenRevocationService::getHits)
+                .tag("result", "revoked")
+                .description("Requests rejected because their token was revoked")
+                .register(registry);
+        Gauge.builder("token.revocation.size", this, TokenRevocationService::size)
+                .description("Revoked tokens that have not expired yet")
+                .register(registry);
+    }
+
+    /**
+     * Bloom filter over 64-bit hashes: a power-of-two bit array probed k times by double hashing
+     * Sized for expectedEntries at the target false positive rate; more entries raise the rate.
+     */
+    private static final class BloomFilter {
+
+        private final AtomicLongArray bits;
+        private final long mask;
+        private final int probes;
+
+        BloomFilter(int expectedEntries, double falsePositiveRate) {
+            double ln2 = Math.log(2);
+            long optimalBits = (long) Math.ceil(-expectedEntries * Math.log(falsePositiveRate) / (ln2 * ln2));
+            long size = Math.max(64L, Long.highestOneBit(Math.max(64L, optimalBits) - 1) << 1);
+            this.bits = new AtomicLongArray((int) (size >>> 6));
+            this.mask = size - 1;
+            this.probes = Math.max(1, (int) Math.round((double) size / expectedEntries * ln2));
+        }
+
+        boolean mightContain(long hash) {
+            int h1 = (int) hash;
+            int h2 = (int) (hash >>> 32) | 1;
+            for (int i = 0; i < probes; i++) {
+                long bit = (h1 + (long) i * h2) & mask;
+                if ((bits.get((int) (bit >>> 6)) & 1L << bit) == 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        void put(long hash) {
+            int h1 = (int) hash;
+            int h2 = (int) (hash >>> 32) | 1;
+            for (int i = 0; i < probes; i++) {
+                long bit = (h1 + (long) i * h2) & mask;
+                bits.accumulateAndGet((int) (bit >>> 6), 1L << bit, (word, flag) -> word | flag);
+            }
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package com.khas.optimization.service;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Cached total of active users for paginated listings (count=cached)
+ * Saves the COUNT(*) ... WHERE deleted_at IS NULL scan on every page request.
+ *
+ * An entry is served until user-pagination.count-cache-ttl elapses or a local write
+ * calls {@link #invalidate()}. Writes made by other instances are only picked up
+ * after the TTL, so the total may be briefly stale in a multi-instance deployment.
+ */
+@Service
+public class UserCountCache implements MeterBinder {
+
+    private final long ttlNanos;
+
+    /**
+     * Bumped by every invalidation; a count loaded under an older generation is discarded
+     */
+    private final AtomicLong generation = new AtomicLong();
+    private volatile Entry entry;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    public UserCountCache(@Value("${user-pagination.count-cache-ttl:30s}") Duration ttl) {
+        this.ttlNanos = ttl.toNanos();
+    }
+
+    /**
+     * Return the cached total, or subscribe to the loader and cache its result
+     *
+     * @param loader Query producing the exact total (e.g. userRepository.countAll())
+     */
+    public Mono<Long> get(Mono<Long> loader) {
+        Entry current = entry;
+        if (current != null && current.generation == generation.get() && System.nanoTime() - current.expiresAt < 0) {
+            hits.increment();
+            return Mono.just(current.count);
+        }
+
+        misses.increment();
+        return Mono.defer(() -> {
+            long loadGeneration = generation.get();
+            return loader.doOnNext(count -> {
+                // Skip storing if a write happened while the count was running
+                if (generation.get() == loadGeneration) {
+                    entry = new Entry(count, loadGeneration, System.nanoTime() + ttlNanos);
+                }
+            });
+        });
+    }
+
+    /**
+     * Drop the cached total; called after every write that changes the set of active users
+     */
+    public void invalidate() {
+        generation.incrementAndGet();
+        entry = null;
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("user.count.cache", this, UserCountCache::getHits)
+                .tag("result", "hit")
+                .description("Paginated user listings served from the cached total")
+                .register(registry);
+        FunctionCounter.builder("user.count.cache", this, UserCountCache::getMisses)
+                .tag("result", "miss")
+                .description("Paginated user listings that ran COUNT(*)")
+                .register(registry);
+    }
+
+    private record Entry(long count, long generation, long expiresAt) {
+    }
+}
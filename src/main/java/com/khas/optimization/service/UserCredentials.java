@@ -0,0 +1,17 @@
+package com.khas.optimization.service;
+
+import java.util.List;
+
+/**
+ * What a login needs to know about a user: password hash, enabled flag and role names
+ * Held by {@link CredentialCache}, so it carries no other profile data.
+ *
+ * @param roles Role names, resolved from the role catalog (immutable)
+ */
+public record UserCredentials(long userId, String username, String passwordHash, boolean enabled,
+                              List<String> roles) {
+
+    public UserCredentials {
+        roles = List.copyOf(roles);
+    }
+}
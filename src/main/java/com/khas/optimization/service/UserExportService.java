@@ -0,0 +1,112 @@
+package com.khas.optimization.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.khas.optimization.dto.ExportFormat;
+import com.khas.optimization.dto.UserResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferFactory;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * Encodes the full user table as a stream of NDJSON or CSV chunks
+ * Each chunk holds at most user-export.chunk-size users, so only one chunk
+ * is in memory at a time and it is flushed to the client as soon as it is ready.
+ */
+@Service
+public class UserExportService {
+
+    private static final String CSV_HEADER = "id,username,email,enabled,roles,createdAt,updatedAt\n";
+
+    /**
+     * Leading characters that make spreadsheets treat a cell as a formula
+     */
+    private static final String FORMULA_PREFIXES = "=+-@\t\r";
+
+    private final UserService userService;
+    private final ObjectMapper objectMapper;
+    private final int fetchSize;
+    private final int chunkSize;
+
+    public UserExportService(UserService userService,
+                             ObjectMapper objectMapper,
+                             @Value("${user-export.fetch-size:500}") int fetchSize,
+                             @Value("${user-export.chunk-size:100}") int chunkSize) {
+        this.userService = userService;
+        this.objectMapper = objectMapper;
+        this.fetchSize = fetchSize;
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * Export all users as a stream of encoded chunks
+     *
+     * @param format Output format
+     * @param bufferFactory Factory of the response the chunks are written to
+     * @return One DataBuffer per chunk of users
+     */
+    public Flux<DataBuffer> export(ExportFormat format, DataBufferFactory bufferFactory) {
+        Flux<DataBuffer> rows = userService.streamAllUsers(fetchSize, chunkSize)
+                .buffer(chunkSize)
+                .concatMap(chunk -> Mono.fromCallable(() -> encode(format, chunk, bufferFactory)), 1);
+
+        if (format == ExportFormat.CSV) {
+            return Flux.concat(
+                    Mono.fromCallable(() -> bufferFactory.wrap(CSV_HEADER.getBytes(StandardCharsets.UTF_8))),
+                    rows);
+        }
+        return rows;
+    }
+
+    private DataBuffer encode(ExportFormat format, List<UserResponse> users, DataBufferFactory bufferFactory)
+            throws JsonProcessingException {
+        StringBuilder out = new StringBuilder(users.size() * 128);
+        for (UserResponse user : users) {
+            if (format == ExportFormat.CSV) {
+                appendCsv(out, user);
+            } else {
+                out.append(objectMapper.writeValueAsString(user)).append('\n');
+            }
+        }
+        return bufferFactory.wrap(out.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static void appendCsv(StringBuilder out, UserResponse user) {
+        out.append(user.getId()).append(',');
+        appendCsvField(out, user.getUsername());
+        out.append(',');
+        appendCsvField(out, user.getEmail());
+        out.append(',').append(user.getEnabled()).append(',');
+        appendCsvField(out, user.getRoles() != null ? String.join(";", user.getRoles()) : "");
+        out.append(',');
+        out.append(user.getCreatedAt() != null ? user.getCreatedAt() : "").append(',');
+        out.append(user.getUpdatedAt() != null ? user.getUpdatedAt() : "").append('\n');
+    }
+
+    /**
+     * Append a CSV field, quoting it when it contains a delimiter, quote or line break (RFC 4180)
+     * Values a spreadsheet would evaluate as a formula (leading =, +, -, @, tab or CR) are
+     * prefixed with ' so they open as text (CSV injection).
+     */
+    private static void appendCsvField(StringBuilder out, String value) {
+        if (value == null) {
+            return;
+        }
+        if (!value.isEmpty() && FORMULA_PREFIXES.indexOf(value.charAt(0)) >= 0) {
+            value = "'" + value;
+        }
+        boolean quote = value.indexOf(',') >= 0 || value.indexOf('"') >= 0
+                || value.indexOf('\n') >= 0 || value.indexOf('\r') >= 0;
+        if (!quote) {
+            out.append(value);
+            return;
+        }
+        out.append('"').append(value.replace("\"", "\"\"")).append('"');
+    }
+}
@@ -0,0 +1,283 @@
+package com.khas.optimization.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.khas.optimization.constants.RoleConstants;
+import com.khas.optimization.dto.BulkImportResult;
+import com.khas.optimization.dto.UserRequest;
+import com.khas.optimization.entity.User;
+import com.khas.optimization.exception.ServiceUnavailableException;
+import com.khas.optimization.entity.UserRole;
+import com.khas.optimization.repository.UserRepository;
+import com.khas.optimization.repository.UserRoleRepository;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Bulk user import (Reactive)
+ * Consumes a stream of NDJSON lines with backpressure, hashes passwords in parallel
+ * on PasswordService's bounded hashing pool and writes users and user_roles with multi-row INSERTs,
+ * one transaction per chunk. Every line gets a result; failures never abort the stream.
+ */
+@Service
+public class UserImportService {
+
+    private static final Logger logger = LoggerFactory.getLogger(UserImportService.class);
+
+    private final UserRepository userRepository;
+    private final UserRoleRepository userRoleRepository;
+    private final PasswordService passwordService;
+    private final RoleCatalog roleCatalog;
+    private final UserCountCache userCountCache;
+    private final ObjectMapper objectMapper;
+    private final Validator validator;
+    private final TransactionalOperator transactionalOperator;
+    private final int chunkSize;
+    private final int hashParallelism;
+
+    public UserImportService(UserRepository userRepository,
+                             UserRoleRepository userRoleRepository,
+                             PasswordService passwordService,
+                             RoleCatalog roleCatalog,
+                             UserCountCache userCountCache,
+                             ObjectMapper objectMapper,
+                             Validator validator,
+                             TransactionalOperator transactionalOperator,
+                             @Value("${user-import.chunk-size:200}") int chunkSize,
+                             @Value("${user-import.hash-parallelism:0}") int hashParallelism) {
+        this.userRepository = userRepository;
+        this.userRoleRepository = userRoleRepository;
+        this.passwordService = passwordService;
+        this.roleCatalog = roleCatalog;
+        this.userCountCache = userCountCache;
+        this.objectMapper = objectMapper;
+        this.validator = validator;
+        this.transactionalOperator = transactionalOperator;
+        this.chunkSize = chunkSize;
+        // Default: one in-flight hash per CPU core (the hashing pool's default size)
+        this.hashParallelism = hashParallelism > 0 ? hashParallelism : Runtime.getRuntime().availableProcessors();
+    }
+
+    /**
+     * Import users from NDJSON lines (one UserRequest per line)
+     *
+     * @param lines Request body split into lines
+     * @return One result per non-blank line, in input order
+     */
+    public Flux<BulkImportResult> importUsers(Flux<String> lines) {
+        return lines
+                .index()
+                .filter(line -> !line.getT2().isBlank())
+                .flatMapSequential(line -> prepare(line.getT1() + 1, line.getT2()), hashParallelism)
+                .buffer(chunkSize)
+                .concatMap(this::writeChunk, 1);
+    }
+
+    /**
+     * Parse and validate one line, then hash its password on the password hashing pool
+     */
+    private Mono<ImportRow> prepare(long line, String json) {
+        UserRequest request;
+        try {
+            request = objectMapper.readValue(json, UserRequest.class);
+        } catch (JsonProcessingException e) {
+            return Mono.just(ImportRow.failed(line, null, "Malformed JSON"));
+        }
+
+        Set<ConstraintViolation<UserRequest>> violations = validator.validate(request);
+        if (!violations.isEmpty()) {
+            String error = violations.stream()
+                    .map(violation -> violation.getPropertyPath() + ": " + violation.getMessage())
+                    .sorted()
+                    .collect(Collectors.joining(", "));
+            return Mono.just(ImportRow.failed(line, request.getUsername(), error));
+        }
+
+        try {
+            passwordService.validatePasswordStrength(request.getPassword());
+        } catch (IllegalArgumentException e) {
+            return Mono.just(ImportRow.failed(line, request.getUsername(), e.getMessage()));
+        }
+
+        List<Long> roleIds = request.getRoleIds();
+        if (roleIds == null || roleIds.isEmpty()) {
+            long defaultRoleId = roleCatalog.idOf(RoleConstants.ROLE_USER);
+            roleIds = defaultRoleId != RoleCatalog.UNKNOWN_ROLE ? List.of(defaultRoleId) : List.of();
+        } else {
+            for (Long roleId : roleIds) {
+                if (roleId == null || roleCatalog.nameOf(roleId) == null) {
+                    return Mono.just(ImportRow.failed(line, request.getUsername(), "Unknown role id: " + roleId));
+                }
+            }
+        }
+
+        // A repeated role id would violate the user_roles primary key and fail the whole chunk
+        List<Long> resolvedRoleIds = List.copyOf(new LinkedHashSet<>(roleIds));
+        return passwordService.hash(request.getPassword())
+                .map(passwordHash -> {
+                    User user = new User(request.getUsername(), request.getEmail(), passwordHash);
+                    user.prePersist();
+                    return ImportRow.ready(line, user, resolvedRoleIds);
+                })
+                // Hashing pool saturated (e.g. by concurrent logins): report the line, keep importing
+                .onErrorResume(ServiceUnavailableException.class,
+                        e -> Mono.just(ImportRow.failed(line, request.getUsername(), e.getMessage())));
+    }
+
+    /**
+     * Write one chunk: reject duplicates with two indexed lookups, then insert the rest in one transaction
+     * Usernames and emails are compared case-insensitively, as MySQL's default collation enforces
+     * the unique constraints: a case-only clash would otherwise fail the chunk's INSERT.
+     */
+    private Flux<BulkImportResult> writeChunk(List<ImportRow> rows) {
+        Set<String> seenUsernames = new HashSet<>();
+        Set<String> seenEmails = new HashSet<>();
+        List<String> usernames = new ArrayList<>(rows.size());
+        List<String> emails = new ArrayList<>(rows.size());
+        for (ImportRow row : rows) {
+            if (row.user == null) {
+                continue;
+            }
+            if (!seenUsernames.add(normalize(row.user.getUsername())) || !seenEmails.add(normalize(row.user.getEmail()))) {
+                row.fail("Duplicate username or email within import");
+            } else {
+                // Looked up as written: the column collation decides what matches
+                usernames.add(row.user.getUsername());
+                emails.add(row.user.getEmail());
+            }
+        }
+
+        if (usernames.isEmpty()) {
+            return Flux.fromIterable(rows).map(ImportRow::toResult);
+        }
+
+        Mono<Set<String>> existingUsernames = userRepository.findIdsByUsernameIn(usernames)
+                .map(user -> normalize(user.getUsername()))
+                .collect(Collectors.toSet());
+        Mono<Set<String>> existingEmails = userRepository.findIdsByEmailIn(emails)
+                .map(user -> normalize(user.getEmail()))
+                .collect(Collectors.toSet());
+
+        return Mono.zip(existingUsernames, existingEmails)
+                .flatMapMany(existing -> {
+                    List<ImportRow> toInsert = new ArrayList<>(rows.size());
+                    for (ImportRow row : rows) {
+                        if (row.isPending()) {
+                            if (existing.getT1().contains(normalize(row.user.getUsername()))) {
+                                row.fail("Username already exists");
+                            } else if (existing.getT2().contains(normalize(row.user.getEmail()))) {
+                                row.fail("Email already exists");
+                            } else {
+                                toInsert.add(row);
+                            }
+                        }
+                    }
+
+                    Mono<Void> insert = toInsert.isEmpty()
+                            ? Mono.empty()
+                            : insertChunk(toInsert)
+                                    .as(transactionalOperator::transactional)
+                                    .onErrorResume(error -> {
+                                        logger.warn("Bulk import chunk of {} users failed: {}", toInsert.size(), error.getMessage());
+                                        toInsert.forEach(row -> row.fail("Chunk insert failed"));
+                                        return Mono.empty();
+                                    });
+
+                    return insert.thenMany(Flux.defer(() -> Flux.fromIterable(rows).map(ImportRow::toResult)));
+                });
+    }
+
+    private static String normalize(String value) {
+        return value.toLowerCase(Locale.ROOT);
+    }
+
+    private Mono<Void> insertChunk(List<ImportRow> rows) {
+        List<User> users = new ArrayList<>(rows.size());
+        List<String> usernames = new ArrayList<>(rows.size());
+        for (ImportRow row : rows) {
+            users.add(row.user);
+            usernames.add(row.user.getUsername());
+        }
+
+        return userRepository.insertAll(users)
+                .doOnNext(inserted -> userCountCache.invalidate())
+                .thenMany(userRepository.findIdsByUsernameIn(usernames))
+                .collectMap(User::getUsername, User::getId)
+                .flatMap(idsByUsername -> userRoleRepository.insertAll(assignIds(rows, idsByUsername)))
+                .then();
+    }
+
+    private static List<UserRole> assignIds(List<ImportRow> rows, Map<String, Long> idsByUsername) {
+        List<UserRole> userRoles = new ArrayList<>();
+        for (ImportRow row : rows) {
+            Long id = idsByUsername.get(row.user.getUsername());
+            row.user.setId(id);
+            for (Long roleId : row.roleIds) {
+                userRoles.add(new UserRole(id, roleId));
+            }
+        }
+        return userRoles;
+    }
+
+    /**
+     * Mutable per-line state while a chunk is processed
+     */
+    private static final class ImportRow {
+
+        private final long line;
+        private final String username;
+        private final User user;
+        private final List<Long> roleIds;
+        private String error;
+
+        private ImportRow(long line, String username, User user, List<Long> roleIds, String error) {
+            this.line = line;
+            this.username = username;
+            this.user = user;
+            this.roleIds = roleIds;
+            this.error = error;
+        }
+
+        static ImportRow ready(long line, User user, List<Long> roleIds) {
+            return new ImportRow(line, user.getUsername(), user, roleIds, null);
+        }
+
+        static ImportRow failed(long line, String username, String error) {
+            return new ImportRow(line, username, null, List.of(), error);
+        }
+
+        boolean isPending() {
+            return user != null && error == null;
+        }
+
+        void fail(String error) {
+            this.error = error;
+            if (user != null) {
+                user.setId(null);
+            }
+        }
+
+        BulkImportResult toResult() {
+            if (error == null && user != null && user.getId() != null) {
+                return BulkImportResult.created(line, user.getId(), username);
+            }
+            return BulkImportResult.failed(line, username, error != null ? error : "User was not created");
+        }
+    }
+}
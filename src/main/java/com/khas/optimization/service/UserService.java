@@ -1,24 +1,44 @@
 package com.khas.optimization.service;
 
 import com.khas.optimization.constants.RoleConstants;
+import com.khas.optimization.dto.BulkUpdateResult;
+import com.khas.optimization.dto.CountStrategy;
+import com.khas.optimization.dto.PageCursor;
 import com.khas.optimization.dto.PageRequest;
+import com.khas.optimization.dto.PageStream;
+import com.khas.optimization.dto.PaginatedResponse;
 import com.khas.optimization.dto.UserRequest;
 import com.khas.optimization.dto.UserResponse;
 import com.khas.optimization.entity.Role;
 import com.khas.optimization.entity.User;
 import com.khas.optimization.exception.DuplicateEntityException;
 import com.khas.optimization.exception.EntityNotFoundException;
+import com.khas.optimization.exception.StaleEntityException;
 import com.khas.optimization.repository.RoleRepository;
+import com.khas.optimization.repository.UserCredentialRow;
+import com.khas.optimization.repository.UserQuery;
 import com.khas.optimization.repository.UserRepository;
 import com.khas.optimization.repository.UserRoleRepository;
-import org.springframework.data.domain.Page;
-import org.springframework.data.domain.PageImpl;
+import com.khas.optimization.repository.UserSortField;
+import com.khas.optimization.util.LongObjectMap;
 import org.springframework.data.domain.Sort;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.stereotype.Service;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 /**
  * User Service (Reactive)
@@ -26,63 +46,107 @@ import java.util.List;
 @Service
 public class UserService {
 
+    /**
+     * Users per batched role lookup (matches the maximum page size)
+     */
+    private static final int ROLE_HYDRATION_BATCH_SIZE = 100;
+
+    /**
+     * Users per batched role lookup when a page is streamed (first rows go out after the first batch)
+     */
+    private static final int STREAM_HYDRATION_BATCH_SIZE = 25;
+
+    /**
+     * Maximum IDs per set-based statement (keeps the IN list and bind count bounded)
+     */
+    public static final int MAX_BULK_IDS = 1000;
+
+    /**
+     * Excluded ID for uniqueness checks on create (matches no row)
+     */
+    private static final long NO_USER_ID = -1L;
+
+    /**
+     * Key of a MySQL duplicate-entry error; the last match wins since the entry value precedes it
+     */
+    private static final Pattern MYSQL_DUPLICATE_KEY = Pattern.compile("for key '(?:[^'.]*\\.)?([^'.]+)'");
+
+    /**
+     * First column of the index named in an H2 unique violation; the index precedes the values
+     */
+    private static final Pattern H2_UNIQUE_INDEX = Pattern.compile("\\bON\\s+[\\w.\"]+\\(\\s*\"?(\\w+)", Pattern.CASE_INSENSITIVE);
+
     private final UserRepository userRepository;
     private final RoleRepository roleRepository;
     private final UserRoleRepository userRoleRepository;
     private final PasswordService passwordService;
+    private final RoleCatalog roleCatalog;
+    private final UserCountCache userCountCache;
+    private final CredentialCache credentialCache;
+
+    /**
+     * When false, createUser/updateUser skip the uniqueness query and rely on
+     * the database unique constraints alone (one less round trip per write)
+     */
+    @Value("${user.uniqueness-precheck:true}")
+    private boolean uniquenessPrecheck = true;
 
     public UserService(UserRepository userRepository,
                        RoleRepository roleRepository,
                        UserRoleRepository userRoleRepository,
-                       PasswordService passwordService) {
+                       PasswordService passwordService,
+                       RoleCatalog roleCatalog,
+                       UserCountCache userCountCache,
+                       CredentialCache credentialCache) {
         this.userRepository = userRepository;
         this.roleRepository = roleRepository;
         this.userRoleRepository = userRoleRepository;
         this.passwordService = passwordService;
+        this.roleCatalog = roleCatalog;
+        this.userCountCache = userCountCache;
+        this.credentialCache = credentialCache;
     }
 
     /**
      * Create a new user
+     * Username/email uniqueness is checked with one query (skipped when
+     * user.uniqueness-precheck=false); a unique-constraint violation on INSERT
+     * is reported as DuplicateEntityException either way.
      */
     public Mono<UserResponse> createUser(UserRequest request) {
         // Validate password strength
         passwordService.validatePasswordStrength(request.getPassword());
 
-        // Check if username already exists
-        return userRepository.existsByUsername(request.getUsername())
-                .flatMap(usernameExists -> {
-                    if (usernameExists) {
-                        return Mono.error(new DuplicateEntityException("Username already exists"));
-                    }
-
-                    // Check if email already exists
-                    return userRepository.existsByEmail(request.getEmail());
-                })
-                .flatMap(emailExists -> {
-                    if (emailExists) {
-                        return Mono.error(new DuplicateEntityException("Email already exists"));
-                    }
+        Mono<Void> precheck = uniquenessPrecheck
+                ? checkUniqueness(request.getUsername(), request.getEmail(), NO_USER_ID)
+                : Mono.empty();
 
+        return precheck
+                // BCrypt runs on the password hashing pool, off the event loop
+                .then(Mono.defer(() -> passwordService.hash(request.getPassword())))
+                .flatMap(passwordHash -> {
                     // Create new user
                     User user = new User();
                     user.setUsername(request.getUsername());
                     user.setEmail(request.getEmail());
-                    user.setPasswordHash(passwordService.hashPassword(request.getPassword()));
+                    user.setPasswordHash(passwordHash);
                     user.setEnabled(true);
                     user.prePersist(); // Initialize timestamps
 
                     return userRepository.save(user)
+                            .onErrorMap(DataIntegrityViolationException.class, UserService::toDuplicateEntityException)
+                            .doOnNext(savedUser -> userCountCache.invalidate())
                             .flatMap(savedUser -> {
                                 // Assign roles to user
                                 List<Long> roleIds = request.getRoleIds();
 
                                 // If no roles specified, assign default RoleConstants.ROLE_USER
                                 if (roleIds == null || roleIds.isEmpty()) {
-                                    return roleRepository.findByName(RoleConstants.ROLE_USER)
-                                            .flatMap(defaultRole -> {
+                                    return resolveRoleId(RoleConstants.ROLE_USER)
+                                            .flatMap(defaultRoleId -> {
                                                 return userRoleRepository.insertUserRole(
                                                         savedUser.getId(),
-                                                        defaultRole.getId()
+                                                        defaultRoleId
                                                 ).thenReturn(savedUser);
                                             })
                                             .switchIfEmpty(Mono.just(savedUser)); // If RoleConstants.ROLE_USER not found, continue without role
@@ -103,65 +167,66 @@ public class UserService {
     }
 
     /**
-     * Update an existing user
+     * Update an existing user (unconditionally)
      */
     public Mono<UserResponse> updateUser(Long id, UserRequest request) {
-        return userRepository.findById(id)
-                .switchIfEmpty(Mono.error(new EntityNotFoundException("User not found")))
-                .flatMap(existingUser -> {
-                    // Check if username is being changed and if it already exists
-                    if (!existingUser.getUsername().equals(request.getUsername())) {
-                        return userRepository.existsByUsername(request.getUsername())
-                                .flatMap(usernameExists -> {
-                                    if (usernameExists) {
-                                        return Mono.error(new DuplicateEntityException("Username already exists"));
-                                    }
-                                    return Mono.just(false);
-                                });
-                    }
-
-                    // Check if email is being changed and if it already exists
-                    if (!existingUser.getEmail().equals(request.getEmail())) {
-                        return userRepository.existsByEmail(request.getEmail())
-                                .flatMap(emailExists -> {
-                                    if (emailExists) {
-                                        return Mono.error(new DuplicateEntityException("Email already exists"));
-                                    }
-                                    return Mono.just(false);
-                                });
-                    }
-
-                    return Mono.just(false);
-                })
-                .then(userRepository.findById(id))
-                .flatMap(user -> {
-                    user.setUsername(request.getUsername());
-                    user.setEmail(request.getEmail());
+        return updateUser(id, request, null);
+    }
 
-                    // Only update password if provided
-                    if (request.getPassword() != null && !request.getPassword().isEmpty()) {
-                        // Validate password strength before updating
-                        passwordService.validatePasswordStrength(request.getPassword());
-                        user.setPasswordHash(passwordService.hashPassword(request.getPassword()));
+    /**
+     * Update an existing user with one conditional UPDATE (no read-before-write)
+     *
+     * @param expectedVersion Version the client last read (e.g. from If-Match), or null to skip the check
+     * @throws StaleEntityException (via Mono) when the user was modified since expectedVersion
+     */
+    public Mono<UserResponse> updateUser(Long id, UserRequest request, Long expectedVersion) {
+        Mono<Void> precheck = uniquenessPrecheck
+                ? checkUniqueness(request.getUsername(), request.getEmail(), id)
+                : Mono.empty();
+
+        return precheck
+                .then(Mono.defer(() -> {
+                    // Only update password if provided (null keeps the stored hash)
+                    if (request.getPassword() == null || request.getPassword().isEmpty()) {
+                        return Mono.just(Optional.<String>empty());
                     }
-
-                    user.preUpdate(); // Update timestamp
-
-                    return userRepository.save(user)
-                            .flatMap(this::toUserResponseWithRoles);
-                });
+                    // Validate password strength before updating
+                    passwordService.validatePasswordStrength(request.getPassword());
+                    return passwordService.hash(request.getPassword()).map(Optional::of);
+                }))
+                .flatMap(passwordHash -> userRepository.updateProfile(
+                                id,
+                                request.getUsername(),
+                                request.getEmail(),
+                                passwordHash.orElse(null),
+                                LocalDateTime.now(),
+                                versionOrAny(expectedVersion))
+                        .onErrorMap(DataIntegrityViolationException.class, UserService::toDuplicateEntityException))
+                .doOnNext(updated -> invalidateCredentialsIfChanged(id, updated))
+                .flatMap(updated -> updated > 0
+                        ? getUserById(id)
+                        : explainMissedWrite(id, expectedVersion, false));
     }
 
     /**
      * Soft delete a user (sets deleted_at timestamp)
      */
     public Mono<Void> deleteUser(Long id) {
-        return userRepository.findById(id)
-                .switchIfEmpty(Mono.error(new EntityNotFoundException("User not found")))
-                .flatMap(user -> {
-                    user.softDelete(); // Soft delete instead of hard delete
-                    return userRepository.save(user).then();
-                });
+        return deleteUser(id, null);
+    }
+
+    /**
+     * Soft delete a user with one conditional UPDATE
+     *
+     * @param expectedVersion Version the client last read, or null to skip the check
+     */
+    public Mono<Void> deleteUser(Long id, Long expectedVersion) {
+        return userRepository.softDeleteById(id, LocalDateTime.now(), versionOrAny(expectedVersion))
+                .doOnNext(this::invalidateCountIfChanged)
+                .doOnNext(deleted -> invalidateCredentialsIfChanged(id, deleted))
+                .flatMap(deleted -> deleted > 0
+                        ? Mono.<Void>empty()
+                        : explainMissedWrite(id, expectedVersion, false));
     }
 
     /**
@@ -169,25 +234,67 @@ public class UserService {
      * Use with caution!
      */
     public Mono<Void> hardDeleteUser(Long id) {
-        return userRepository.findById(id)
-                .switchIfEmpty(Mono.error(new EntityNotFoundException("User not found")))
-                .flatMap(userRepository::delete);
+        return hardDeleteUser(id, null);
+    }
+
+    /**
+     * Hard delete a non-deleted user with one conditional DELETE
+     *
+     * @param expectedVersion Version the client last read, or null to skip the check
+     */
+    public Mono<Void> hardDeleteUser(Long id, Long expectedVersion) {
+        return userRepository.deleteActiveById(id, versionOrAny(expectedVersion))
+                .doOnNext(this::invalidateCountIfChanged)
+                .doOnNext(deleted -> invalidateCredentialsIfChanged(id, deleted))
+                .flatMap(deleted -> deleted > 0
+                        ? Mono.<Void>empty()
+                        : explainMissedWrite(id, expectedVersion, false));
     }
 
     /**
      * Restore a soft-deleted user
      */
     public Mono<UserResponse> restoreUser(Long id) {
-        return userRepository.findById(id)
-                .switchIfEmpty(Mono.error(new EntityNotFoundException("User not found")))
-                .flatMap(user -> {
-                    if (!user.isDeleted()) {
-                        return Mono.error(new IllegalArgumentException("User is not deleted"));
-                    }
-                    user.restore();
-                    return userRepository.save(user)
-                            .flatMap(this::toUserResponseWithRoles);
-                });
+        return restoreUser(id, null);
+    }
+
+    /**
+     * Restore a soft-deleted user with one conditional UPDATE
+     *
+     * @param expectedVersion Version the client last read, or null to skip the check
+     */
+    public Mono<UserResponse> restoreUser(Long id, Long expectedVersion) {
+        return userRepository.restoreById(id, LocalDateTime.now(), versionOrAny(expectedVersion))
+                .doOnNext(this::invalidateCountIfChanged)
+                .flatMap(restored -> restored > 0
+                        ? getUserById(id)
+                        : explainMissedWrite(id, expectedVersion, true));
+    }
+
+    /**
+     * Soft delete many users with one UPDATE ... WHERE id IN (...) statement
+     * Unknown or already deleted IDs are skipped.
+     *
+     * @return Distinct IDs requested and rows soft-deleted
+     */
+    public Mono<BulkUpdateResult> deleteUsers(Collection<Long> ids) {
+        return bulkUpdate(ids, distinctIds -> userRepository.softDeleteAllById(distinctIds, LocalDateTime.now()));
+    }
+
+    /**
+     * Restore many soft-deleted users with one statement
+     * Unknown or non-deleted IDs are skipped.
+     */
+    public Mono<BulkUpdateResult> restoreUsers(Collection<Long> ids) {
+        return bulkUpdate(ids, distinctIds -> userRepository.restoreAllById(distinctIds, LocalDateTime.now()));
+    }
+
+    /**
+     * Permanently remove many soft-deleted users with one statement
+     * Active users are never purged; soft delete them first.
+     */
+    public Mono<BulkUpdateResult> purgeUsers(Collection<Long> ids) {
+        return bulkUpdate(ids, userRepository::purgeAllById);
     }
 
     /**
@@ -200,18 +307,39 @@ public class UserService {
     }
 
     /**
-     * Get user by username
+     * Get the login credentials and role names of an enabled user
+     * One query (user row with aggregated role ids, names from the RoleCatalog), served from
+     * the CredentialCache on repeat logins.
+     *
+     * @return Credentials, or empty if the user is unknown, deleted or disabled
      */
-    public Mono<User> getUserByUsername(String username) {
-        return userRepository.findEnabledUserByUsername(username);
+    public Mono<UserCredentials> getCredentials(String username) {
+        return credentialCache.get(username, userRepository.findCredentialsByUsername(username)
+                        .flatMap(this::toCredentials))
+                .filter(UserCredentials::enabled);
     }
 
     /**
-     * Get all roles for a user
+     * Bring a user's password hash up to the current hashing policy
+     * Call after a successful login with the verified plain password; completes empty when the
+     * hash already matches the policy or the hashing pool is busy (the next login retries).
      */
-    public Flux<Role> getUserRoles(Long userId) {
+    public Mono<Void> upgradePasswordHash(UserCredentials credentials, String plainPassword) {
+        Long userId = credentials.userId();
+        String currentHash = credentials.passwordHash();
+        return passwordService.rehashIfNeeded(plainPassword, currentHash)
+                .flatMap(newHash -> userRepository.replacePasswordHash(userId, currentHash, newHash))
+                .doOnNext(replaced -> invalidateCredentialsIfChanged(userId, replaced))
+                .then();
+    }
+
+    /**
+     * Get all role names for a user
+     * Role names are resolved from the in-memory RoleCatalog (one query for user_roles only)
+     */
+    public Flux<String> getUserRoleNames(Long userId) {
         return userRoleRepository.findByUserId(userId)
-                .flatMap(userRole -> roleRepository.findById(userRole.getRoleId()));
+                .concatMap(userRole -> resolveRoleName(userRole.getRoleId()));
     }
 
     /**
@@ -219,91 +347,425 @@ public class UserService {
      */
     public Flux<UserResponse> getAllUsers() {
         return userRepository.findAll()
-                .flatMap(this::toUserResponseWithRoles);
+                .buffer(ROLE_HYDRATION_BATCH_SIZE)
+                .concatMap(this::toUserResponsesWithRoles);
+    }
+
+    /**
+     * Stream all users for export
+     * Rows come from one database cursor with backpressure; roles are hydrated
+     * chunk by chunk so memory stays flat regardless of table size.
+     *
+     * @param fetchSize Rows fetched from the database per round trip
+     * @param chunkSize Users per batched role lookup
+     */
+    public Flux<UserResponse> streamAllUsers(int fetchSize, int chunkSize) {
+        return userRepository.streamAll(fetchSize)
+                .buffer(chunkSize)
+                .concatMap(this::toUserResponsesWithRoles, 1);
     }
 
     /**
-     * Get all users with pagination
+     * Stream a page of users instead of collecting it
+     * Sorting, filters and paging are pushed into SQL through a UserQuery: LIMIT/OFFSET when
+     * no cursor is given, keyset (seek) pagination when the request carries a cursor from
+     * a previous page. The total follows the request's CountStrategy: COUNT(*) per request,
+     * a cached total (unfiltered listings only), or none. Uncounted and cursor pages fetch one
+     * extra row to tell whether a next page exists; cursor pages always report hasPrevious.
      *
-     * @param pageRequest Pagination parameters
-     * @return Page of UserResponse
-     */
-    public Mono<Page<UserResponse>> getAllUsers(PageRequest pageRequest) {
-        Sort sort = pageRequest.getSort();
-        int page = pageRequest.getPage();
-        int size = pageRequest.getSize();
-
-        // Get total count
-        Mono<Long> totalCount = userRepository.countAll();
-
-        // Get paginated data
-        // Note: R2DBC doesn't have built-in pagination, so we use skip/take
-        // For sorting, we need to convert Sort to Comparator for User entity
-        Flux<User> userEntities = userRepository.findAll();
-
-        // Apply sorting if specified
-        if (sort.isSorted()) {
-            Sort.Order order = sort.iterator().next();
-            String property = order.getProperty();
-            boolean ascending = order.isAscending();
-
-            userEntities = userEntities.sort((u1, u2) -> {
-                // Basic sorting by common fields
-                if ("id".equals(property)) {
-                    return ascending
-                            ? Long.compare(u1.getId(), u2.getId())
-                            : Long.compare(u2.getId(), u1.getId());
-                } else if ("username".equals(property)) {
-                    return ascending
-                            ? u1.getUsername().compareTo(u2.getUsername())
-                            : u2.getUsername().compareTo(u1.getUsername());
-                } else if ("email".equals(property)) {
-                    return ascending
-                            ? u1.getEmail().compareTo(u2.getEmail())
-                            : u2.getEmail().compareTo(u1.getEmail());
+     * Rows are emitted as soon as their roles are hydrated (in chunks of STREAM_HYDRATION_BATCH_SIZE),
+     * so only one chunk is held in memory. The count runs alongside the rows and the content
+     * completes once both are done; the pagination metadata then reflects the rows just streamed.
+     * Request errors (sort, cursor, role) fail the Mono before any row is streamed.
+     *
+     * @param pageRequest Pagination, sort and filter parameters
+     * @return Rows of the page and its pagination metadata
+     */
+    public Mono<PageStream<UserResponse>> streamAllUsers(PageRequest pageRequest) {
+        return toUserQuery(pageRequest)
+                .flatMap(query -> {
+                    int page = pageRequest.getPage();
+                    int size = pageRequest.getSize();
+                    boolean counted = pageRequest.getCountStrategy() != CountStrategy.NONE;
+                    boolean keyset = pageRequest.getCursor() != null && !pageRequest.getCursor().isEmpty();
+                    // Without a page number to compare with the total, an extra row tells whether a next page exists
+                    boolean lookaheadRow = keyset || !counted;
+
+                    Flux<User> userEntities;
+                    try {
+                        userEntities = findPage(pageRequest, query, lookaheadRow ? size + 1 : size);
+                    } catch (IllegalArgumentException e) {
+                        return Mono.error(e);
+                    }
+
+                    // Run once, whether the content or the pagination subscribes first
+                    Mono<Long> totalCount = totalCount(pageRequest.getCountStrategy(), query).cache();
+                    PageWindow window = new PageWindow(size);
+
+                    Flux<UserResponse> content = Flux.defer(() -> {
+                        window.reset();
+                        Flux<UserResponse> rows = userEntities
+                                .filter(window::accept)
+                                .buffer(STREAM_HYDRATION_BATCH_SIZE)
+                                .concatMap(this::toUserResponsesWithRoles, 1);
+                        // Count in parallel with the rows instead of after the last one
+                        return Flux.merge(totalCount.then(Mono.<UserResponse>empty()), rows);
+                    });
+
+                    Mono<PaginatedResponse.PaginationMeta> pagination = totalCount.map(total -> {
+                        boolean lookahead = window.lookahead();
+                        String nextCursor = null;
+                        if (lookaheadRow ? lookahead : window.full()) {
+                            nextCursor = cursorAfter(query, window.last()).encode();
+                        }
+                        if (keyset) {
+                            return PaginatedResponse.PaginationMeta.keyset(page, size, counted ? total : null, lookahead, nextCursor);
+                        }
+                        return counted
+                                ? PaginatedResponse.PaginationMeta.of(page, size, total, nextCursor)
+                                : PaginatedResponse.PaginationMeta.uncounted(page, size, lookahead, nextCursor);
+                    });
+
+                    return Mono.just(new PageStream<>(content, pagination));
+                });
+    }
+
+    /**
+     * Total for a listing under the request's CountStrategy (0 for NONE)
+     */
+    private Mono<Long> totalCount(CountStrategy countStrategy, UserQuery query) {
+        return switch (countStrategy) {
+            case EXACT -> query.hasFilters() ? userRepository.countMatching(query) : userRepository.countAll();
+            case CACHED -> query.hasFilters()
+                    ? userRepository.countMatching(query)
+                    : userCountCache.get(userRepository.countAll());
+            case NONE -> Mono.just(0L);
+        };
+    }
+
+    /**
+     * Rows of a listing page: LIMIT/OFFSET, or keyset when the request carries a cursor
+     *
+     * @throws IllegalArgumentException if the cursor is malformed or was issued for another sort
+     */
+    private Flux<User> findPage(PageRequest pageRequest, UserQuery query, int limit) {
+        if (pageRequest.getCursor() != null && !pageRequest.getCursor().isEmpty()) {
+            PageCursor cursor = PageCursor.decode(pageRequest.getCursor());
+            if (!query.sortKey().equals(cursor.sort()) || cursor.values().size() != query.orders().size()) {
+                throw new IllegalArgumentException("Cursor does not match the requested sort");
+            }
+            return userRepository.findPageAfter(query, parseCursorValues(query, cursor), cursor.id(), limit);
+        }
+        return userRepository.findPage(query, (long) pageRequest.getPage() * pageRequest.getSize(), limit);
+    }
+
+    /**
+     * Build the whitelisted UserQuery for a listing request
+     * Unknown sort fields and roles are rejected with IllegalArgumentException (400).
+     */
+    private Mono<UserQuery> toUserQuery(PageRequest pageRequest) {
+        UserQuery.Builder builder = UserQuery.builder();
+        try {
+            for (Sort.Order order : pageRequest.getSort()) {
+                UserSortField field = UserSortField.find(order.getProperty());
+                if (field == null) {
+                    return Mono.error(new IllegalArgumentException("Unsupported sort field: " + order.getProperty()
+                            + " (allowed: id, username, email, createdAt)"));
                 }
-                // Default: sort by ID ascending
-                return Long.compare(u1.getId(), u2.getId());
-            });
+                builder.orderBy(field, order.isAscending());
+            }
+            builder.enabled(pageRequest.getEnabled())
+                    .createdBetween(pageRequest.getCreatedFrom(), pageRequest.getCreatedTo());
+        } catch (IllegalArgumentException e) {
+            return Mono.error(e);
         }
 
-        Flux<UserResponse> users = userEntities
-                .skip(page * size)
-                .take(size)
-                .flatMap(this::toUserResponseWithRoles);
+        String role = pageRequest.getRole();
+        if (role == null || role.isBlank()) {
+            return Mono.just(builder.build());
+        }
+        return resolveRoleId(role.trim())
+                .switchIfEmpty(Mono.error(new IllegalArgumentException("Unknown role: " + role)))
+                .map(roleId -> builder.roleId(roleId).build());
+    }
 
-        return users.collectList()
-                .zipWith(totalCount)
-                .map(tuple -> {
-                    List<UserResponse> content = tuple.getT1();
-                    long total = tuple.getT2();
-
-                    // Create PageImpl manually
-                    return new PageImpl<>(
-                            content,
-                            org.springframework.data.domain.PageRequest.of(page, size, sort),
-                            total
-                    );
-                });
+    /**
+     * Parse cursor values back into the column types of the query's sort keys
+     */
+    private static List<Object> parseCursorValues(UserQuery query, PageCursor cursor) {
+        List<Object> values = new ArrayList<>(cursor.values().size());
+        try {
+            for (int i = 0; i < query.orders().size(); i++) {
+                values.add(query.orders().get(i).field().parse(cursor.values().get(i)));
+            }
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Invalid pagination cursor", e);
+        }
+        return values;
+    }
+
+    /**
+     * Cursor positioned on the given row for the query's sort keys
+     */
+    private static PageCursor cursorAfter(UserQuery query, User last) {
+        List<String> values = new ArrayList<>(query.orders().size());
+        for (UserQuery.Order order : query.orders()) {
+            values.add(String.valueOf(order.field().valueOf(last)));
+        }
+        return new PageCursor(query.sortKey(), last.getId(), values);
     }
 
     /**
      * Convert User entity to UserResponse DTO with roles
      */
     private Mono<UserResponse> toUserResponseWithRoles(User user) {
-        return userRoleRepository.findByUserId(user.getId())
-                .flatMap(userRole -> roleRepository.findById(userRole.getRoleId()))
-                .map(Role::getName)
+        return getUserRoleNames(user.getId())
                 .collectList()
-                .map(roleNames -> new UserResponse(
-                        user.getId(),
-                        user.getUsername(),
-                        user.getEmail(),
-                        user.getEnabled(),
-                        roleNames,
-                        user.getCreatedAt(),
-                        user.getUpdatedAt()
-                ));
+                .map(roleNames -> toUserResponse(user, roleNames));
+    }
+
+    /**
+     * Convert a batch of users to UserResponse DTOs, preserving order.
+     * Roles for the whole batch are resolved with a single
+     * user_roles JOIN roles ... WHERE user_id IN (...) query instead of 1 + k per user.
+     */
+    private Flux<UserResponse> toUserResponsesWithRoles(List<User> users) {
+        if (users.isEmpty()) {
+            return Flux.empty();
+        }
+
+        List<Long> userIds = new ArrayList<>(users.size());
+        for (User user : users) {
+            userIds.add(user.getId());
+        }
+
+        return userRoleRepository.findRoleNamesByUserIds(userIds)
+                .collect(() -> new LongObjectMap<List<String>>(users.size()),
+                        (rolesByUser, row) -> rolesByUser
+                                .computeIfAbsent(row.getUserId(), userId -> new ArrayList<>())
+                                .add(row.getRoleName()))
+                .flatMapIterable(rolesByUser -> {
+                    List<UserResponse> responses = new ArrayList<>(users.size());
+                    for (User user : users) {
+                        responses.add(toUserResponse(user, rolesByUser.getOrDefault(user.getId(), List.of())));
+                    }
+                    return responses;
+                });
+    }
+
+    /**
+     * Fail with DuplicateEntityException if another active user has the username or email
+     *
+     * @param excludeId ID of the user being updated, or NO_USER_ID on create
+     */
+    private Mono<Void> checkUniqueness(String username, String email, long excludeId) {
+        return userRepository.findUniquenessConflict(username, email, excludeId)
+                .flatMap(conflict -> {
+                    if (conflict.isUsernameTaken()) {
+                        return Mono.error(new DuplicateEntityException("Username already exists"));
+                    }
+                    if (conflict.isEmailTaken()) {
+                        return Mono.error(new DuplicateEntityException("Email already exists"));
+                    }
+                    return Mono.empty();
+                });
+    }
+
+    /**
+     * Translate a unique-constraint violation from INSERT/UPDATE into DuplicateEntityException
+     * The violated column is read from the key name (MySQL "for key 'users.email'") or the index
+     * column list (H2 "ON PUBLIC.USERS(EMAIL NULLS FIRST)"). The conflicting value is in the same
+     * message, so the rest of it is never searched: a username like "myemail" is not an email clash.
+     */
+    private static DuplicateEntityException toDuplicateEntityException(DataIntegrityViolationException ex) {
+        String column = violatedColumn(String.valueOf(ex.getMostSpecificCause().getMessage()));
+        if ("email".equals(column)) {
+            return new DuplicateEntityException("Email already exists", ex);
+        }
+        if ("username".equals(column)) {
+            return new DuplicateEntityException("Username already exists", ex);
+        }
+        return new DuplicateEntityException("Username or email already exists", ex);
+    }
+
+    /**
+     * Column of the violated unique index, lower-cased, or null if the message has neither format
+     */
+    private static String violatedColumn(String message) {
+        String column = null;
+        Matcher mysql = MYSQL_DUPLICATE_KEY.matcher(message);
+        while (mysql.find()) {
+            column = mysql.group(1);
+        }
+        if (column == null) {
+            Matcher h2 = H2_UNIQUE_INDEX.matcher(message);
+            if (h2.find()) {
+                column = h2.group(1);
+            }
+        }
+        return column != null ? column.toLowerCase(Locale.ROOT) : null;
+    }
+
+    /**
+     * Turn a conditional write that affected no rows into the matching error.
+     * Only runs on the failure path, so successful writes stay one statement.
+     *
+     * @param expectDeleted Whether the write targeted a soft-deleted user (restore)
+     */
+    private <T> Mono<T> explainMissedWrite(Long id, Long expectedVersion, boolean expectDeleted) {
+        return userRepository.findVersionById(id)
+                .switchIfEmpty(Mono.error(new EntityNotFoundException("User not found")))
+                .flatMap(current -> {
+                    if (current.isDeleted() != expectDeleted) {
+                        return Mono.error(expectDeleted
+                                ? new IllegalArgumentException("User is not deleted")
+                                : new EntityNotFoundException("User not found"));
+                    }
+                    return Mono.error(new StaleEntityException(
+                            "User was modified concurrently (expected version " + expectedVersion
+                                    + ", current version " + current.getVersion() + ")"));
+                });
+    }
+
+    /**
+     * Validate and de-duplicate IDs, then run one set-based statement over them
+     */
+    private Mono<BulkUpdateResult> bulkUpdate(Collection<Long> ids, Function<Set<Long>, Mono<Long>> statement) {
+        if (ids == null || ids.isEmpty()) {
+            return Mono.error(new IllegalArgumentException("ids must not be empty"));
+        }
+        Set<Long> distinctIds = new LinkedHashSet<>(ids);
+        distinctIds.remove(null);
+        if (distinctIds.isEmpty()) {
+            return Mono.error(new IllegalArgumentException("ids must not be empty"));
+        }
+        if (distinctIds.size() > MAX_BULK_IDS) {
+            return Mono.error(new IllegalArgumentException("At most " + MAX_BULK_IDS + " ids per request"));
+        }
+        return statement.apply(distinctIds)
+                .defaultIfEmpty(0L)
+                .doOnNext(this::invalidateCountIfChanged)
+                .doOnNext(affected -> {
+                    if (affected > 0) {
+                        credentialCache.invalidate(distinctIds);
+                    }
+                })
+                .map(affected -> new BulkUpdateResult(distinctIds.size(), affected));
+    }
+
+    /**
+     * Drop the cached user total after a write that changed rows
+     */
+    private void invalidateCountIfChanged(Number affectedRows) {
+        if (affectedRows.longValue() > 0) {
+            userCountCache.invalidate();
+        }
+    }
+
+    /**
+     * Drop cached login credentials of a user after a write that changed its row
+     */
+    private void invalidateCredentialsIfChanged(long userId, Number affectedRows) {
+        if (affectedRows.longValue() > 0) {
+            credentialCache.invalidate(userId);
+        }
+    }
+
+    private static long versionOrAny(Long expectedVersion) {
+        return expectedVersion != null ? expectedVersion : UserRepository.ANY_VERSION;
     }
-}
 
+    /**
+     * Resolve the aggregated role ids of a credential row to names
+     */
+    private Mono<UserCredentials> toCredentials(UserCredentialRow row) {
+        String roleIds = row.getRoleIds();
+        Flux<String> roleNames = roleIds == null || roleIds.isEmpty()
+                ? Flux.empty()
+                : Flux.fromArray(roleIds.split(","))
+                        .concatMap(roleId -> resolveRoleName(Long.parseLong(roleId.trim())));
+        return roleNames.collectList()
+                .map(names -> new UserCredentials(
+                        row.getId(),
+                        row.getUsername(),
+                        row.getPasswordHash(),
+                        Boolean.TRUE.equals(row.getEnabled()),
+                        names));
+    }
+
+    /**
+     * Resolve a role name from the catalog, falling back to the database on a miss
+     */
+    private Mono<String> resolveRoleName(long roleId) {
+        String name = roleCatalog.nameOf(roleId);
+        if (name != null) {
+            return Mono.just(name);
+        }
+        return roleRepository.findById(roleId).map(Role::getName);
+    }
+
+    /**
+     * Resolve a role ID from the catalog, falling back to the database on a miss
+     */
+    private Mono<Long> resolveRoleId(String roleName) {
+        long id = roleCatalog.idOf(roleName);
+        if (id != RoleCatalog.UNKNOWN_ROLE) {
+            return Mono.just(id);
+        }
+        return roleRepository.findByName(roleName).map(Role::getId);
+    }
+
+    private UserResponse toUserResponse(User user, List<String> roleNames) {
+        return new UserResponse(
+                user.getId(),
+                user.getUsername(),
+                user.getEmail(),
+                user.getEnabled(),
+                roleNames,
+                user.getCreatedAt(),
+                user.getUpdatedAt(),
+                user.getVersion()
+        );
+    }
+
+    /**
+     * Rows seen by the current subscription of a streamed page, reset on every subscription
+     * Keeps the page's own rows and remembers the last one for the next cursor; the look-ahead
+     * row of an uncounted page is counted but dropped.
+     */
+    private static final class PageWindow {
+
+        private final int size;
+        private int seen;
+        private User last;
+
+        PageWindow(int size) {
+            this.size = size;
+        }
+
+        void reset() {
+            seen = 0;
+            last = null;
+        }
+
+        boolean accept(User user) {
+            if (seen++ < size) {
+                last = user;
+                return true;
+            }
+            return false;
+        }
+
+        boolean full() {
+            return seen == size;
+        }
+
+        boolean lookahead() {
+            return seen > size;
+        }
+
+        User last() {
+            return last;
+        }
+    }
+}
@@ -0,0 +1,191 @@
+package com.khas.optimization.service;
+
+import io.jsonwebtoken.JwtException;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Cache of verified bearer tokens
+ * Repeat requests with the same token skip JWT parsing and signature verification.
+ *
+ * Entries are keyed by the SHA-256 digest of the token (the token itself is never stored)
+ * and expire at the token's exp claim or after token-cache.ttl, whichever comes first.
+ * Only successfully verified tokens are cached; invalid tokens are re-checked every time.
+ * The cache holds at most token-cache.max-size entries: when full, expired entries are
+ * dropped first, then arbitrary ones.
+ *
+ * Revocation is checked on every call, cached or not, through TokenRevocationService.
+ */
+@Service
+public class VerifiedTokenCache implements MeterBinder {
+
+    private final JwtService jwtService;
+    private final TokenRevocationService tokenRevocationService;
+    private final int maxSize;
+    private final long ttlMillis;
+
+    private final Map<TokenDigest, Entry> entries = new ConcurrentHashMap<>();
+    private final AtomicBoolean evicting = new AtomicBoolean();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    public VerifiedTokenCache(JwtService jwtService,
+                              TokenRevocationService tokenRevocationService,
+                              @Value("${token-cache.max-size:10000}") int maxSize,
+                              @Value("${token-cache.ttl:5m}") Duration ttl) {
+        this.jwtService = jwtService;
+        this.tokenRevocationService = tokenRevocationService;
+        this.maxSize = maxSize;
+        this.ttlMillis = ttl.toMillis();
+    }
+
+    /**
+     * Resolve the principal of a bearer token, verifying it only on a cache miss
+     *
+     * @return The principal, or null if the token is malformed, expired, revoked or has a bad signature
+     */
+    public JwtPrincipal authenticate(String token) {
+        JwtPrincipal principal = resolve(token);
+        if (principal != null && tokenRevocationService.isRevoked(principal.tokenId())) {
+            return null;
+        }
+        return principal;
+    }
+
+    /**
+     * Resolve the principals of a batch of tokens, in request order
+     * A token repeated in the batch is resolved once, even if it is invalid and so never cached.
+     *
+     * @return One principal per token, null where {@link #authenticate(String)} would return null
+     */
+    public List<JwtPrincipal> authenticateAll(List<String> tokens) {
+        JwtPrincipal[] principals = new JwtPrincipal[tokens.size()];
+        Map<String, JwtPrincipal> resolved = new HashMap<>();
+        for (int i = 0; i < principals.length; i++) {
+            String token = tokens.get(i);
+            JwtPrincipal principal = resolved.get(token);
+            if (principal == null && !resolved.containsKey(token)) {
+                principal = authenticate(token);
+                resolved.put(token, principal);
+            }
+            principals[i] = principal;
+        }
+        return Arrays.asList(principals);
+    }
+
+    private JwtPrincipal resolve(String token) {
+        if (token == null || token.isEmpty()) {
+            return null;
+        }
+        if (maxSize <= 0) {
+            return verify(token);
+        }
+
+        TokenDigest key = TokenDigest.of(token);
+        long now = System.currentTimeMillis();
+        Entry entry = entries.get(key);
+        if (entry != null) {
+            if (now < entry.expiresAt) {
+                hits.increment();
+                return entry.principal;
+            }
+            entries.remove(key, entry);
+        }
+
+        misses.increment();
+        JwtPrincipal principal = verify(token);
+        if (principal != null) {
+            long expiresAt = now + ttlMillis;
+            if (principal.expiresAt() != null) {
+                expiresAt = Math.min(expiresAt, principal.expiresAt().toEpochMilli());
+            }
+            if (entries.size() >= maxSize) {
+                evict(now);
+            }
+            if (entries.size() < maxSize) {
+                entries.put(key, new Entry(principal, expiresAt));
+            }
+        }
+        return principal;
+    }
+
+    /**
+     * Drop every cached token
+     */
+    public void clear() {
+        entries.clear();
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    private JwtPrincipal verify(String token) {
+        try {
+            return jwtService.parsePrincipal(token);
+        } catch (JwtException | IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Free room for new entries: expired ones first, then arbitrary ones down to 90% of capacity
+     * Only one thread evicts at a time; others skip caching their token meanwhile.
+     */
+    private void evict(long now) {
+        if (!evicting.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            entries.values().removeIf(entry -> entry.expiresAt <= now);
+            int target = maxSize - Math.max(1, maxSize / 10);
+            Iterator<Entry> iterator = entries.values().iterator();
+            while (entries.size() > target && iterator.hasNext()) {
+                iterator.next();
+                iterator.remove();
+            }
+        } finally {
+            evicting.set(false);
+        }
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("token.cache", this, VerifiedTokenCache::getHits)
+                .tag("result", "hit")
+                .description("Bearer tokens served from the verified-token cache")
+                .register(registry);
+        FunctionCounter.builder("token.cache", this, VerifiedTokenCache::getMisses)
+                .tag("result", "miss")
+                .description("Bearer tokens parsed and signature-verified")
+                .register(registry);
+        Gauge.builder("token.cache.size", this, VerifiedTokenCache::size)
+                .description("Verified tokens currently cached")
+                .register(registry);
+    }
+
+    private record Entry(JwtPrincipal principal, long expiresAt) {
+    }
+}
@@ -0,0 +1,39 @@
+package com.khas.optimization.util;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import org.springframework.http.MediaType;
+
+import java.util.List;
+
+/**
+ * Binary encodings of the JSON API (CBOR and Smile)
+ * Mappers are copies of the application ObjectMapper with a different factory, so modules,
+ * inclusion and date settings are shared and every DTO has the same schema in all three formats.
+ */
+public final class BinaryFormats {
+
+    public static final String APPLICATION_SMILE_VALUE = "application/x-jackson-smile";
+    public static final MediaType APPLICATION_SMILE = MediaType.parseMediaType(APPLICATION_SMILE_VALUE);
+
+    /**
+     * Negotiable formats, in order of preference
+     */
+    public static final List<MediaType> SUPPORTED = List.of(
+        MediaType.APPLICATION_JSON,
+        MediaType.APPLICATION_CBOR,
+        APPLICATION_SMILE
+    );
+
+    private BinaryFormats() {
+    }
+
+    public static ObjectMapper cbor(ObjectMapper objectMapper) {
+        return objectMapper.copyWith(new CBORFactory());
+    }
+
+    public static ObjectMapper smile(ObjectMapper objectMapper) {
+        return objectMapper.copyWith(new SmileFactory());
+    }
+}
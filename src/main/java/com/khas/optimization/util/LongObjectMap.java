@@ -0,0 +1,130 @@
+package com.khas.optimization.util;
+
+import java.util.function.LongFunction;
+
+/**
+ * Minimal open-addressing hash map keyed by primitive long
+ * Avoids boxing a Long per entry when grouping rows by numeric ID.
+ * Not thread-safe for writes. Once filled and safely published (e.g. through a final field
+ * or an AtomicReference) and never mutated afterwards, any number of threads may read it.
+ *
+ * @param <V> Value type
+ */
+public final class LongObjectMap<V> {
+
+    private static final float LOAD_FACTOR = 0.5f;
+
+    private long[] keys;
+    private Object[] values;
+    private boolean[] used;
+    private int size;
+    private int mask;
+
+    public LongObjectMap() {
+        this(16);
+    }
+
+    public LongObjectMap(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(4, (int) (expectedSize / LOAD_FACTOR)) - 1) << 1;
+        allocate(capacity);
+    }
+
+    /**
+     * Get value for key, or null if absent
+     */
+    @SuppressWarnings("unchecked")
+    public V get(long key) {
+        int slot = find(key);
+        return slot >= 0 ? (V) values[slot] : null;
+    }
+
+    /**
+     * Get value for key, or defaultValue if absent
+     */
+    public V getOrDefault(long key, V defaultValue) {
+        V value = get(key);
+        return value != null ? value : defaultValue;
+    }
+
+    /**
+     * Associate value with key, replacing any previous value
+     */
+    public void put(long key, V value) {
+        int slot = slotFor(key);
+        if (!used[slot]) {
+            used[slot] = true;
+            keys[slot] = key;
+            size++;
+        }
+        values[slot] = value;
+        ensureCapacity();
+    }
+
+    /**
+     * Get existing value for key or create, store and return a new one
+     */
+    @SuppressWarnings("unchecked")
+    public V computeIfAbsent(long key, LongFunction<V> factory) {
+        int slot = slotFor(key);
+        if (used[slot]) {
+            return (V) values[slot];
+        }
+        V value = factory.apply(key);
+        used[slot] = true;
+        keys[slot] = key;
+        values[slot] = value;
+        size++;
+        ensureCapacity();
+        return value;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    private int find(long key) {
+        int slot = slotFor(key);
+        return used[slot] ? slot : -1;
+    }
+
+    /**
+     * Slot holding key, or the empty slot where it would be inserted
+     */
+    private int slotFor(long key) {
+        int slot = hash(key) & mask;
+        while (used[slot] && keys[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private void ensureCapacity() {
+        if (size > keys.length * LOAD_FACTOR) {
+            long[] oldKeys = keys;
+            Object[] oldValues = values;
+            boolean[] oldUsed = used;
+            allocate(keys.length << 1);
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldUsed[i]) {
+                    int slot = slotFor(oldKeys[i]);
+                    used[slot] = true;
+                    keys[slot] = oldKeys[i];
+                    values[slot] = oldValues[i];
+                }
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        values = new Object[capacity];
+        used = new boolean[capacity];
+        mask = capacity - 1;
+    }
+
+    private static int hash(long key) {
+        // Fibonacci hashing spreads sequential IDs across the table
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+}
@@ -0,0 +1,198 @@
+package com.khas.optimization.util;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.khas.optimization.dto.PaginatedResponse;
+import org.springframework.core.codec.EncodingException;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferFactory;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Incremental encoder for paginated list responses (JSON, CBOR or Smile)
+ * Writes the envelope prefix, then each element into its own DataBuffer as it arrives,
+ * then the trailer, so a response never holds more than one element in memory and the
+ * first bytes leave before the last row is read. Buffers come from the response's factory
+ * (pooled Netty buffers on Reactor Netty) and are released if encoding fails.
+ *
+ * One Jackson generator spans the whole response, flushed into a fresh buffer per chunk,
+ * so separators and Smile back-references stay valid across chunks. The output matches
+ * what the codecs write for the buffered PaginatedResponse in the same format.
+ * Once the prefix is written the status is committed: a failure mid-stream truncates the body.
+ */
+@Component
+public class PageStreamEncoder {
+
+    private static final int CHUNK_SIZE = 256;
+
+    private final ObjectMapper jsonMapper;
+    private final ObjectMapper cborMapper;
+    private final ObjectMapper smileMapper;
+
+    public PageStreamEncoder(ObjectMapper objectMapper) {
+        this.jsonMapper = objectMapper;
+        this.cborMapper = BinaryFormats.cbor(objectMapper);
+        this.smileMapper = BinaryFormats.smile(objectMapper);
+    }
+
+    /**
+     * Encode as a JSON PaginatedResponse
+     *
+     * @see #paginated(String, Flux, Mono, MediaType, DataBufferFactory)
+     */
+    public Flux<DataBuffer> paginated(String message, Flux<?> data,
+                                      Mono<PaginatedResponse.PaginationMeta> pagination,
+                                      DataBufferFactory bufferFactory) {
+        return paginated(message, data, pagination, MediaType.APPLICATION_JSON, bufferFactory);
+    }
+
+    /**
+     * Encode as a PaginatedResponse: {"success":true,"message":...,"data":[...],"pagination":{...},"timestamp":...}
+     *
+     * @param message Success message, or null to omit it
+     * @param data Elements of the page
+     * @param pagination Metadata, subscribed once data completes
+     * @param mediaType Format from {@link #negotiate}
+     */
+    public Flux<DataBuffer> paginated(String message, Flux<?> data,
+                                      Mono<PaginatedResponse.PaginationMeta> pagination,
+                                      MediaType mediaType, DataBufferFactory bufferFactory) {
+        ObjectMapper mapper = mapperFor(mediaType);
+        return Flux.using(
+                () -> new ChunkWriter(mapper, bufferFactory),
+                writer -> Flux.concat(
+                        Mono.fromSupplier(() -> writer.write(generator -> {
+                            generator.writeStartObject();
+                            generator.writeBooleanField("success", true);
+                            if (message != null) {
+                                generator.writeStringField("message", message);
+                            }
+                            generator.writeArrayFieldStart("data");
+                        })),
+                        data.map(element -> writer.write(generator -> mapper.writeValue(generator, element))),
+                        pagination.map(meta -> writer.write(generator -> {
+                            generator.writeEndArray();
+                            generator.writeFieldName("pagination");
+                            mapper.writeValue(generator, meta);
+                            generator.writeFieldName("timestamp");
+                            mapper.writeValue(generator, LocalDateTime.now());
+                            generator.writeEndObject();
+                        }))),
+                ChunkWriter::close);
+    }
+
+    /**
+     * Pick JSON, CBOR or Smile from the Accept header (highest quality wins, JSON on ties and wildcards)
+     */
+    public MediaType negotiate(List<MediaType> accept) {
+        MediaType selected = MediaType.APPLICATION_JSON;
+        double selectedQuality = 0;
+        for (MediaType requested : accept) {
+            double quality = requested.getQualityValue();
+            if (quality <= selectedQuality) {
+                continue;
+            }
+            for (MediaType supported : BinaryFormats.SUPPORTED) {
+                if (requested.includes(supported)) {
+                    selected = supported;
+                    selectedQuality = quality;
+                    break;
+                }
+            }
+        }
+        return selected;
+    }
+
+    private ObjectMapper mapperFor(MediaType mediaType) {
+        if (MediaType.APPLICATION_CBOR.equalsTypeAndSubtype(mediaType)) {
+            return cborMapper;
+        }
+        if (BinaryFormats.APPLICATION_SMILE.equalsTypeAndSubtype(mediaType)) {
+            return smileMapper;
+        }
+        return jsonMapper;
+    }
+
+    @FunctionalInterface
+    private interface Chunk {
+        void write(JsonGenerator generator) throws IOException;
+    }
+
+    /**
+     * Response-scoped generator whose output is redirected into a fresh buffer per chunk
+     */
+    private static final class ChunkWriter extends OutputStream {
+
+        private final ObjectMapper mapper;
+        private final DataBufferFactory bufferFactory;
+        private JsonGenerator generator;
+        private DataBuffer target;
+
+        ChunkWriter(ObjectMapper mapper, DataBufferFactory bufferFactory) {
+            this.mapper = mapper;
+            this.bufferFactory = bufferFactory;
+        }
+
+        DataBuffer write(Chunk chunk) {
+            DataBuffer buffer = bufferFactory.allocateBuffer(CHUNK_SIZE);
+            target = buffer;
+            boolean release = true;
+            try {
+                if (generator == null) {
+                    // Created on the first chunk: Smile writes its header on creation
+                    generator = mapper.createGenerator(this);
+                    generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+                    generator.disable(JsonGenerator.Feature.AUTO_CLOSE_JSON_CONTENT);
+                }
+                chunk.write(generator);
+                generator.flush();
+                release = false;
+                return buffer;
+            } catch (IOException e) {
+                throw new EncodingException(mapper.getFactory().getFormatName() + " encoding error: " + e.getMessage(), e);
+            } finally {
+                target = null;
+                if (release) {
+                    DataBufferUtils.release(buffer);
+                }
+            }
+        }
+
+        @Override
+        public void write(int b) {
+            if (target != null) {
+                target.write((byte) b);
+            }
+        }
+
+        @Override
+        public void write(byte[] bytes, int offset, int length) {
+            if (target != null) {
+                target.write(bytes, offset, length);
+            }
+        }
+
+        /**
+         * Discards whatever a cancelled or failed response left buffered
+         */
+        @Override
+        public void close() {
+            if (generator != null) {
+                try {
+                    generator.close();
+                } catch (IOException ignored) {
+                    // Output is discarded; nothing to report
+                }
+            }
+        }
+    }
+}
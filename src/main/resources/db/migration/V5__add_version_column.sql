@@ -0,0 +1,12 @@
+-- =============================================================
+-- Migration: V5 - Add version column for optimistic locking
+-- Description: Add version column to users and roles tables; every UPDATE increments it
+--              and conditional writes use WHERE id = ? AND version = ?
+-- Created: 2024
+-- =============================================================
+
+-- Add version column to users table (existing rows start at version 0)
+ALTER TABLE users ADD COLUMN version BIGINT NOT NULL DEFAULT 0;
+
+-- Add version column to roles table
+ALTER TABLE roles ADD COLUMN version BIGINT NOT NULL DEFAULT 0;
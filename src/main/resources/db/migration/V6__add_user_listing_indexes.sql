@@ -0,0 +1,26 @@
+-- =============================================================
+-- Migration: V6 - Add indexes for user listing queries
+-- Description: Composite indexes behind every sort key and filter that
+--              GET /api/users accepts (see UserSortField / UserQuery), so
+--              listing, seek pagination and counts never need a full scan
+-- Created: 2024
+-- =============================================================
+
+-- Default listing and keyset pagination by id: WHERE deleted_at IS NULL ORDER BY id
+CREATE INDEX idx_users_deleted_at_id ON users (deleted_at, id);
+
+-- Sorting and seeking by username
+CREATE INDEX idx_users_deleted_at_username ON users (deleted_at, username);
+
+-- Sorting by email
+CREATE INDEX idx_users_deleted_at_email ON users (deleted_at, email);
+
+-- Sorting by creation time and createdFrom/createdTo range filters
+CREATE INDEX idx_users_deleted_at_created_at ON users (deleted_at, created_at);
+
+-- enabled filter
+CREATE INDEX idx_users_enabled_deleted_at ON users (enabled, deleted_at);
+
+-- role filter: id IN (SELECT user_id FROM user_roles WHERE role_id = ?)
+-- (the primary key (user_id, role_id) only serves lookups by user)
+CREATE INDEX idx_user_roles_role_id_user_id ON user_roles (role_id, user_id);
@@ -0,0 +1,26 @@
+-- =============================================================
+-- Migration: V7 - Create refresh tokens table
+-- Description: Refresh tokens for POST /api/auth/refresh. Only the SHA-256
+--              of each token is stored. Tokens rotate on every use; all
+--              tokens descending from one login share a family_id so a
+--              replayed (already rotated) token can revoke the whole chain.
+-- Created: 2024
+-- =============================================================
+
+CREATE TABLE IF NOT EXISTS refresh_tokens (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    token_hash CHAR(64) NOT NULL UNIQUE,
+    user_id BIGINT NOT NULL,
+    family_id CHAR(36) NOT NULL,
+    expires_at TIMESTAMP NOT NULL,
+    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    revoked_at TIMESTAMP NULL,
+    
+    FOREIGN KEY (user_id) REFERENCES users(id) ON DELETE CASCADE
+);
+
+-- Family revocation on reuse and logout
+CREATE INDEX idx_refresh_tokens_family_id ON refresh_tokens (family_id);
+
+-- Purging expired tokens
+CREATE INDEX idx_refresh_tokens_expires_at ON refresh_tokens (expires_at);
@@ -0,0 +1,20 @@
+-- =============================================================
+-- Migration: V8 - Create revoked tokens table
+-- Description: Access tokens revoked before their exp, keyed by the jti
+--              claim. Loaded into TokenRevocationService at startup and
+--              polled for revocations made on other instances; rows are
+--              deleted once the token would have expired anyway.
+-- Created: 2024
+-- =============================================================
+
+CREATE TABLE IF NOT EXISTS revoked_tokens (
+    jti VARCHAR(64) PRIMARY KEY,
+    expires_at TIMESTAMP NOT NULL,
+    revoked_at TIMESTAMP NOT NULL
+);
+
+-- Polling for new revocations
+CREATE INDEX idx_revoked_tokens_revoked_at ON revoked_tokens (revoked_at);
+
+-- Loading live revocations and purging expired ones
+CREATE INDEX idx_revoked_tokens_expires_at ON revoked_tokens (expires_at);
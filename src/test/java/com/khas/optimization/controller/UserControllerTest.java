@@ -0,0 +1,74 @@
+package com.khas.optimization.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.khas.optimization.exception.ErrorResponseTemplates;
+import com.khas.optimization.exception.GlobalExceptionHandler;
+import com.khas.optimization.service.UserExportService;
+import com.khas.optimization.service.UserImportService;
+import com.khas.optimization.service.UserService;
+import com.khas.optimization.util.PageStreamEncoder;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+/**
+ * Request binding tests for UserController (no security filters; see RoleRequirementTest)
+ */
+@ExtendWith(MockitoExtension.class)
+@DisplayName("UserController Tests")
+class UserControllerTest {
+
+    @Mock
+    private UserService userService;
+
+    @Mock
+    private UserExportService userExportService;
+
+    @Mock
+    private UserImportService userImportService;
+
+    private WebTestClient webTestClient;
+
+    @BeforeEach
+    void setUp() {
+        ObjectMapper objectMapper = new ObjectMapper().registerModule(new JavaTimeModule());
+        UserController controller = new UserController(
+                userService, userExportService, userImportService, new PageStreamEncoder(objectMapper));
+        webTestClient = WebTestClient.bindToController(controller)
+                .controllerAdvice(new GlobalExceptionHandler(new ErrorResponseTemplates(objectMapper)))
+                .build();
+    }
+
+    @Test
+    @DisplayName("Should reject a bulk delete without ids with 400")
+    void testDeleteUsersMissingIds() {
+        webTestClient.delete()
+                .uri("/api/users")
+                .exchange()
+                .expectStatus().isBadRequest()
+                .expectBody()
+                .jsonPath("$.status").isEqualTo(400)
+                .jsonPath("$.path").isEqualTo("/api/users");
+
+        verify(userService, never()).deleteUsers(any());
+    }
+
+    @Test
+    @DisplayName("Should reject a bulk delete with non-numeric ids with 400")
+    void testDeleteUsersMalformedIds() {
+        webTestClient.delete()
+                .uri("/api/users?ids=1,abc")
+                .exchange()
+                .expectStatus().isBadRequest();
+
+        verify(userService, never()).deleteUsers(any());
+    }
+}
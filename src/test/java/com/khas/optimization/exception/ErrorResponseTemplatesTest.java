@@ -0,0 +1,112 @@
+package com.khas.optimization.exception;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.khas.optimization.dto.ErrorResponse;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for ErrorResponseTemplates
+ */
+@DisplayName("ErrorResponseTemplates Tests")
+class ErrorResponseTemplatesTest {
+
+    private ObjectMapper objectMapper;
+    private ErrorResponseTemplates templates;
+
+    @BeforeEach
+    void setUp() {
+        objectMapper = new ObjectMapper()
+                .registerModule(new JavaTimeModule())
+                .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+        templates = new ErrorResponseTemplates(objectMapper);
+    }
+
+    private String jackson(HttpStatus status, String error, String message, String path, LocalDateTime timestamp)
+            throws Exception {
+        ErrorResponse response = new ErrorResponse(status.value(), error, message, path);
+        response.setTimestamp(timestamp);
+        return objectMapper.writeValueAsString(response);
+    }
+
+    private String spliced(HttpStatus status, String error, String message, String path, LocalDateTime timestamp) {
+        return new String(templates.encodeOnce(status, error, message, path, timestamp), StandardCharsets.UTF_8);
+    }
+
+    @Test
+    @DisplayName("Should write the same bytes as Jackson for ErrorResponse")
+    void testMatchesJackson() throws Exception {
+        // Given
+        LocalDateTime[] timestamps = {
+            LocalDateTime.of(2026, 10, 16, 9, 5, 7),
+            LocalDateTime.of(2026, 1, 2, 3, 4, 5, 120_000_000),
+            LocalDateTime.of(2026, 12, 31, 23, 59, 59, 123_456_789),
+            LocalDateTime.of(2026, 6, 1, 0, 0, 0, 1_000)
+        };
+
+        for (LocalDateTime timestamp : timestamps) {
+            // When
+            String spliced = spliced(HttpStatus.UNAUTHORIZED, "Unauthorized", "Invalid or expired token",
+                    "/api/users/1", timestamp);
+
+            // Then
+            assertEquals(jackson(HttpStatus.UNAUTHORIZED, "Unauthorized", "Invalid or expired token",
+                    "/api/users/1", timestamp), spliced);
+        }
+    }
+
+    @Test
+    @DisplayName("Should escape paths and messages that need it")
+    void testEscaping() throws Exception {
+        // Given
+        LocalDateTime timestamp = LocalDateTime.of(2026, 10, 16, 12, 0, 0, 500_000_000);
+        String message = "Version \"3\" is stale";
+        String path = "/api/users/é\"x\\y";
+
+        // When
+        String spliced = spliced(HttpStatus.PRECONDITION_FAILED, "Precondition failed", message, path, timestamp);
+
+        // Then
+        assertEquals(jackson(HttpStatus.PRECONDITION_FAILED, "Precondition failed", message, path, timestamp), spliced);
+        assertEquals(path, objectMapper.readTree(spliced).get("path").asText());
+    }
+
+    @Test
+    @DisplayName("Should omit a null message and parse back to an ErrorResponse")
+    void testNullMessage() throws Exception {
+        // When
+        byte[] body = templates.encode(HttpStatus.FORBIDDEN, "Forbidden", null, "/api/admin");
+
+        // Then
+        JsonNode json = objectMapper.readTree(body);
+        assertFalse(json.has("message"));
+        ErrorResponse response = objectMapper.readValue(body, ErrorResponse.class);
+        assertFalse(response.getSuccess());
+        assertEquals(403, response.getStatus());
+        assertEquals("Forbidden", response.getError());
+        assertEquals("/api/admin", response.getPath());
+        assertNotNull(response.getTimestamp());
+    }
+
+    @Test
+    @DisplayName("Should cache templates for encode but not encodeOnce")
+    void testCaching() {
+        // When
+        templates.encode(HttpStatus.UNAUTHORIZED, "Unauthorized", "Invalid or expired token", "/a");
+        templates.encode(HttpStatus.UNAUTHORIZED, "Unauthorized", "Invalid or expired token", "/b");
+        templates.encodeOnce(HttpStatus.BAD_REQUEST, "Bad request", "Invalid id: 42", "/c");
+
+        // Then
+        assertEquals(1, templates.size());
+    }
+}
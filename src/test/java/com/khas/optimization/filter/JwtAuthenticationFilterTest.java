@@ -0,0 +1,95 @@
+package com.khas.optimization.filter;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.khas.optimization.exception.ErrorResponseTemplates;
+import com.khas.optimization.service.JwtPrincipal;
+import com.khas.optimization.service.VerifiedTokenCache;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Mono;
+
+import java.time.Instant;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for JwtAuthenticationFilter
+ */
+@ExtendWith(MockitoExtension.class)
+@DisplayName("JwtAuthenticationFilter Tests")
+class JwtAuthenticationFilterTest {
+
+    @Mock
+    private VerifiedTokenCache verifiedTokenCache;
+
+    @Mock
+    private WebFilterChain chain;
+
+    private JwtAuthenticationFilter filter;
+
+    @BeforeEach
+    void setUp() {
+        ErrorResponseTemplates templates = new ErrorResponseTemplates(
+                new ObjectMapper().registerModule(new JavaTimeModule()));
+        filter = new JwtAuthenticationFilter(verifiedTokenCache, templates);
+    }
+
+    @Test
+    @DisplayName("Should reject an unauthenticated batch validation with 401")
+    void testBatchValidateRequiresToken() {
+        // Given
+        MockServerWebExchange exchange = MockServerWebExchange.from(
+                MockServerHttpRequest.post("/api/auth/validate:batch").body("{\"tokens\":[\"a\"]}"));
+
+        // When
+        filter.filter(exchange, chain).block();
+
+        // Then
+        assertEquals(HttpStatus.UNAUTHORIZED, exchange.getResponse().getStatusCode());
+        verify(chain, never()).filter(any());
+        verifyNoInteractions(verifiedTokenCache);
+    }
+
+    @Test
+    @DisplayName("Should let an authenticated batch validation through")
+    void testBatchValidateWithToken() {
+        // Given
+        when(verifiedTokenCache.authenticate("gateway-token")).thenReturn(
+                new JwtPrincipal("gateway", List.of("ROLE_USER"), Instant.now().plusSeconds(60)));
+        when(chain.filter(any())).thenReturn(Mono.empty());
+        MockServerWebExchange exchange = MockServerWebExchange.from(
+                MockServerHttpRequest.post("/api/auth/validate:batch")
+                        .header(HttpHeaders.AUTHORIZATION, "Bearer gateway-token"));
+
+        // When
+        filter.filter(exchange, chain).block();
+
+        // Then
+        verify(chain).filter(exchange);
+    }
+
+    @Test
+    @DisplayName("Should match public paths by whole segments only")
+    void testPublicPaths() {
+        assertTrue(filter.isPublicPath("/api/auth/validate"));
+        assertTrue(filter.isPublicPath("/api/auth/login"));
+        assertTrue(filter.isPublicPath("/actuator/health/liveness"));
+        assertTrue(filter.isPublicPath("/swagger-ui/index.html"));
+        assertFalse(filter.isPublicPath("/api/auth/validate:batch"));
+        assertFalse(filter.isPublicPath("/api/auth/loginx"));
+        assertFalse(filter.isPublicPath("/api/users"));
+    }
+}
@@ -0,0 +1,87 @@
+package com.khas.optimization.filter;
+
+import com.khas.optimization.annotation.RequiresAdmin;
+import com.khas.optimization.annotation.RequiresRole;
+import com.khas.optimization.constants.RoleConstants;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for RoleRequirement
+ */
+@DisplayName("RoleRequirement Tests")
+class RoleRequirementTest {
+
+    @RequiresRole({"ROLE_ADMIN", "ROLE_MODERATOR"})
+    void anyOf() {
+    }
+
+    @RequiresRole(value = {"ROLE_ADMIN", "ROLE_MODERATOR"}, requireAll = true)
+    void allOf() {
+    }
+
+    @RequiresAdmin
+    void adminOnly() {
+    }
+
+    @RequiresRole("ROLE_AUDITOR")
+    void unknownRole() {
+    }
+
+    private static RoleRequirement requirementOf(String method) throws NoSuchMethodException {
+        RequiresRole annotation = AnnotatedElementUtils.findMergedAnnotation(
+                RoleRequirementTest.class.getDeclaredMethod(method), RequiresRole.class);
+        return RoleRequirement.of(annotation);
+    }
+
+    private static long mask(String... roles) {
+        return RoleConstants.maskOf(List.of(roles));
+    }
+
+    @Test
+    @DisplayName("Should grant access when any listed role is held")
+    void testAnyOf() throws Exception {
+        // Given
+        RoleRequirement requirement = requirementOf("anyOf");
+
+        // Then
+        assertTrue(requirement.isSatisfiedBy(mask(RoleConstants.ROLE_MODERATOR)));
+        assertTrue(requirement.isSatisfiedBy(mask(RoleConstants.ROLE_USER, RoleConstants.ROLE_ADMIN)));
+        assertFalse(requirement.isSatisfiedBy(mask(RoleConstants.ROLE_USER)));
+        assertFalse(requirement.isSatisfiedBy(0L));
+    }
+
+    @Test
+    @DisplayName("Should require every listed role when requireAll is set")
+    void testAllOf() throws Exception {
+        // Given
+        RoleRequirement requirement = requirementOf("allOf");
+
+        // Then
+        assertTrue(requirement.isSatisfiedBy(mask(RoleConstants.ROLE_ADMIN, RoleConstants.ROLE_MODERATOR)));
+        assertFalse(requirement.isSatisfiedBy(mask(RoleConstants.ROLE_ADMIN)));
+    }
+
+    @Test
+    @DisplayName("Should resolve meta-annotations like @RequiresAdmin")
+    void testMetaAnnotation() throws Exception {
+        // Given
+        RoleRequirement requirement = requirementOf("adminOnly");
+
+        // Then
+        assertEquals(RoleConstants.ROLE_ADMIN_BIT, requirement.mask());
+        assertTrue(requirement.isSatisfiedBy(mask(RoleConstants.ROLE_ADMIN)));
+        assertFalse(requirement.isSatisfiedBy(mask(RoleConstants.ROLE_MODERATOR)));
+    }
+
+    @Test
+    @DisplayName("Should reject roles not defined in RoleConstants at startup")
+    void testUnknownRole() {
+        assertThrows(IllegalStateException.class, () -> requirementOf("unknownRole"));
+    }
+}
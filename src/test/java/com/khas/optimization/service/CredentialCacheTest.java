@@ -0,0 +1,127 @@
+package com.khas.optimization.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for CredentialCache
+ */
+@DisplayName("CredentialCache Tests")
+class CredentialCacheTest {
+
+    private CredentialCache credentialCache;
+    private AtomicInteger queries;
+
+    @BeforeEach
+    void setUp() {
+        credentialCache = new CredentialCache(100, Duration.ofMinutes(1));
+        queries = new AtomicInteger();
+    }
+
+    private Mono<UserCredentials> query(long userId, String username, String passwordHash) {
+        return Mono.fromCallable(() -> {
+            queries.incrementAndGet();
+            return new UserCredentials(userId, username, passwordHash, true, List.of("USER"));
+        });
+    }
+
+    @Test
+    @DisplayName("Should load credentials once and serve repeat logins from memory")
+    void testCachedCredentials() {
+        StepVerifier.create(credentialCache.get("testuser", query(1L, "testuser", "hash1")))
+                .assertNext(credentials -> assertEquals("hash1", credentials.passwordHash()))
+                .verifyComplete();
+        StepVerifier.create(credentialCache.get("testuser", query(1L, "testuser", "hash2")))
+                .assertNext(credentials -> assertEquals("hash1", credentials.passwordHash()))
+                .verifyComplete();
+
+        assertEquals(1, queries.get());
+        assertEquals(1, credentialCache.getHits());
+    }
+
+    @Test
+    @DisplayName("Should not cache unknown usernames")
+    void testUnknownUser() {
+        StepVerifier.create(credentialCache.get("nobody", Mono.empty())).verifyComplete();
+
+        assertEquals(0, credentialCache.size());
+    }
+
+    @Test
+    @DisplayName("Should reload credentials after the user is invalidated")
+    void testInvalidate() {
+        StepVerifier.create(credentialCache.get("testuser", query(1L, "testuser", "hash1"))).expectNextCount(1).verifyComplete();
+        StepVerifier.create(credentialCache.get("other", query(2L, "other", "hash"))).expectNextCount(1).verifyComplete();
+
+        credentialCache.invalidate(1L);
+
+        StepVerifier.create(credentialCache.get("testuser", query(1L, "testuser", "hash2")))
+                .assertNext(credentials -> assertEquals("hash2", credentials.passwordHash()))
+                .verifyComplete();
+        StepVerifier.create(credentialCache.get("other", query(2L, "other", "hash"))).expectNextCount(1).verifyComplete();
+        assertEquals(3, queries.get());
+    }
+
+    @Test
+    @DisplayName("Should drop every username a user is cached under")
+    void testInvalidateCaseVariants() {
+        StepVerifier.create(credentialCache.get("Alice", query(1L, "alice", "hash1"))).expectNextCount(1).verifyComplete();
+        StepVerifier.create(credentialCache.get("alice", query(1L, "alice", "hash1"))).expectNextCount(1).verifyComplete();
+        assertEquals(2, credentialCache.size());
+
+        credentialCache.invalidate(1L);
+
+        assertEquals(0, credentialCache.size());
+        StepVerifier.create(credentialCache.get("Alice", query(1L, "alice", "hash2")))
+                .assertNext(credentials -> assertEquals("hash2", credentials.passwordHash()))
+                .verifyComplete();
+        assertEquals(3, queries.get());
+    }
+
+    @Test
+    @DisplayName("Should invalidate many users by ID and keep the rest")
+    void testInvalidateMany() {
+        for (long id = 1; id <= 3; id++) {
+            StepVerifier.create(credentialCache.get("user" + id, query(id, "user" + id, "hash"))).expectNextCount(1).verifyComplete();
+        }
+
+        credentialCache.invalidate(List.of(1L, 3L, 99L));
+
+        assertEquals(1, credentialCache.size());
+        StepVerifier.create(credentialCache.get("user2", query(2L, "user2", "hash"))).expectNextCount(1).verifyComplete();
+        assertEquals(3, queries.get());
+    }
+
+    @Test
+    @DisplayName("Should not cache credentials that raced with a write")
+    void testDiscardCredentialsLoadedBeforeWrite() {
+        Mono<UserCredentials> racing = Mono.defer(() -> {
+            credentialCache.invalidate(1L);
+            return query(1L, "testuser", "stale");
+        });
+
+        StepVerifier.create(credentialCache.get("testuser", racing)).expectNextCount(1).verifyComplete();
+
+        assertEquals(0, credentialCache.size());
+    }
+
+    @Test
+    @DisplayName("Should stay within max-size")
+    void testBounded() {
+        CredentialCache small = new CredentialCache(10, Duration.ofMinutes(1));
+        for (int i = 0; i < 50; i++) {
+            StepVerifier.create(small.get("user" + i, query(i, "user" + i, "hash"))).expectNextCount(1).verifyComplete();
+        }
+
+        assertTrue(small.size() <= 10);
+    }
+}
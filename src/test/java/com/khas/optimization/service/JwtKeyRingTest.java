@@ -0,0 +1,245 @@
+package com.khas.optimization.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.khas.optimization.config.JwtProperties;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.Jwts;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.spec.ECGenParameterSpec;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for JwtKeyRing and asymmetric signing in JwtService
+ */
+@DisplayName("JwtKeyRing Tests")
+class JwtKeyRingTest {
+
+    @TempDir
+    Path keyDirectory;
+
+    private JwtProperties jwtProperties;
+    private final Map<String, KeyPair> keyPairs = new HashMap<>();
+
+    @BeforeEach
+    void setUp() {
+        jwtProperties = new JwtProperties();
+        jwtProperties.setSecret("test-secret-key-minimum-256-bits-for-hmac-sha-256-algorithm-test");
+        jwtProperties.setExpiration(86400000L);
+        jwtProperties.setIssuer("test-issuer");
+        jwtProperties.setAudience("test-audience");
+        jwtProperties.setKeyDirectory(keyDirectory.toString());
+    }
+
+    @Test
+    @DisplayName("Should sign with the EdDSA key and put its kid in the header")
+    void testEdDsaSigning() throws Exception {
+        // Given
+        KeyPair keyPair = writeKey("2026-10", "Ed25519", true);
+        jwtProperties.setAlgorithm(JwtKeyRing.EDDSA);
+        JwtService jwtService = new JwtService(jwtProperties);
+
+        // When
+        String token = jwtService.generateToken("testuser", "USER", "ADMIN");
+
+        // Then
+        var jws = Jwts.parser().verifyWith(keyPair.getPublic()).build().parseSignedClaims(token);
+        assertEquals("EdDSA", jws.getHeader().getAlgorithm());
+        assertEquals("2026-10", jws.getHeader().getKeyId());
+        assertEquals(List.of("USER", "ADMIN"), jws.getPayload().get("roles"));
+        assertEquals("testuser", jwtService.parsePrincipal(token).username());
+    }
+
+    @Test
+    @DisplayName("Should sign ES256 tokens in the raw R || S format on both mint paths")
+    void testEs256Signing() throws Exception {
+        // Given
+        KeyPair keyPair = writeKey("ec-1", "EC", true);
+        jwtProperties.setAlgorithm(JwtKeyRing.ES256);
+        JwtService jwtService = new JwtService(jwtProperties);
+
+        for (int i = 0; i < 50; i++) {
+            // When
+            String minted = jwtService.generateToken("testuser", "USER");
+            String built = jwtService.generateToken("testuser", Map.of("department", "IT"));
+
+            // Then
+            Claims claims = Jwts.parser().verifyWith(keyPair.getPublic()).build().parseSignedClaims(minted).getPayload();
+            assertEquals("testuser", claims.getSubject());
+            assertEquals(64, Base64.getUrlDecoder().decode(minted.substring(minted.lastIndexOf('.') + 1)).length);
+            assertEquals("IT", jwtService.extractClaim(built, c -> c.get("department")));
+        }
+    }
+
+    @Test
+    @DisplayName("Should keep verifying HMAC tokens after switching to a key ring unless disabled")
+    void testHmacTokensDuringRollout() throws Exception {
+        // Given
+        writeKey("k1", "Ed25519", true);
+        String hmacToken = new JwtService(jwtProperties).generateToken("testuser", "USER");
+        jwtProperties.setAlgorithm(JwtKeyRing.EDDSA);
+
+        // When
+        JwtService rollout = new JwtService(jwtProperties);
+        jwtProperties.setAcceptHmac(false);
+        JwtService strict = new JwtService(jwtProperties);
+
+        // Then
+        assertEquals("testuser", rollout.parsePrincipal(hmacToken).username());
+        assertThrows(JwtException.class, () -> strict.parsePrincipal(hmacToken));
+        assertEquals("testuser", strict.parsePrincipal(strict.generateToken("testuser")).username());
+    }
+
+    @Test
+    @DisplayName("Should rotate to a new key on reload and drop removed keys")
+    void testRotation() throws Exception {
+        // Given
+        writeKey("k1", "Ed25519", true);
+        jwtProperties.setAlgorithm(JwtKeyRing.EDDSA);
+        JwtKeyRing keyRing = new JwtKeyRing(jwtProperties);
+        JwtService jwtService = new JwtService(jwtProperties, keyRing);
+        String oldToken = jwtService.generateToken("testuser");
+
+        // When: publish k2 verify-only, then add its private key
+        writeKey("k2", "Ed25519", false);
+        assertTrue(keyRing.reload());
+        assertFalse(keyRing.reload());
+        String stillOld = jwtService.generateToken("testuser");
+        writeKey("k2", "Ed25519", true);
+        assertTrue(keyRing.reload());
+        String newToken = jwtService.generateToken("testuser");
+
+        // Then
+        assertEquals("k1", Jwts.parser().build().parse(stillOld.substring(0, stillOld.lastIndexOf('.') + 1))
+                .getHeader().get("kid"));
+        assertEquals("k2", Jwts.parser().build().parse(newToken.substring(0, newToken.lastIndexOf('.') + 1))
+                .getHeader().get("kid"));
+        assertEquals("testuser", jwtService.parsePrincipal(oldToken).username());
+
+        // When: retire k1
+        Files.delete(keyDirectory.resolve("k1.pem"));
+        assertTrue(keyRing.reload());
+
+        // Then
+        assertThrows(JwtException.class, () -> jwtService.parsePrincipal(oldToken));
+        assertEquals("testuser", jwtService.parsePrincipal(newToken).username());
+    }
+
+    @Test
+    @DisplayName("Should keep the previous keys when a reload finds a broken key file")
+    void testReloadFailureKeepsKeys() throws Exception {
+        // Given
+        writeKey("k1", "Ed25519", true);
+        jwtProperties.setAlgorithm(JwtKeyRing.EDDSA);
+        JwtKeyRing keyRing = new JwtKeyRing(jwtProperties);
+
+        // When
+        Files.writeString(keyDirectory.resolve("k2.pem"), "not a key");
+        boolean changed = keyRing.reload();
+
+        // Then
+        assertFalse(changed);
+        assertEquals("k1", keyRing.current().signingKey().keyId());
+    }
+
+    @Test
+    @DisplayName("Should publish every public key as a JWK and never the HMAC secret")
+    void testJwks() throws Exception {
+        // Given
+        KeyPair edKey = writeKey("ed", "Ed25519", true);
+        writeKey("ec", "EC", false);
+        jwtProperties.setAlgorithm(JwtKeyRing.EDDSA);
+        JwtKeyRing keyRing = new JwtKeyRing(jwtProperties);
+
+        // When
+        JsonNode jwks = new ObjectMapper().readTree(keyRing.current().jwks());
+
+        // Then
+        assertEquals(2, jwks.get("keys").size());
+        JsonNode ec = jwks.get("keys").get(0);
+        assertEquals("EC", ec.get("kty").asText());
+        assertEquals("P-256", ec.get("crv").asText());
+        assertEquals("ES256", ec.get("alg").asText());
+        assertEquals(32, Base64.getUrlDecoder().decode(ec.get("y").asText()).length);
+        JsonNode ed = jwks.get("keys").get(1);
+        assertEquals("OKP", ed.get("kty").asText());
+        assertEquals("ed", ed.get("kid").asText());
+        byte[] encoded = edKey.getPublic().getEncoded();
+        assertEquals(Base64.getUrlEncoder().withoutPadding().encodeToString(
+                java.util.Arrays.copyOfRange(encoded, encoded.length - 32, encoded.length)), ed.get("x").asText());
+        assertFalse(new String(keyRing.current().jwks(), StandardCharsets.UTF_8).contains("\"d\""));
+    }
+
+    @Test
+    @DisplayName("Should reject tokens whose kid is not in the ring")
+    void testUnknownKeyId() throws Exception {
+        // Given
+        KeyPair foreign = KeyPairGenerator.getInstance("Ed25519").generateKeyPair();
+        writeKey("k1", "Ed25519", true);
+        jwtProperties.setAlgorithm(JwtKeyRing.EDDSA);
+        JwtService jwtService = new JwtService(jwtProperties);
+        String token = Jwts.builder().header().keyId("k9").and()
+                .subject("testuser").signWith(foreign.getPrivate()).compact();
+
+        // When & Then
+        assertThrows(JwtException.class, () -> jwtService.parsePrincipal(token));
+    }
+
+    @Test
+    @DisplayName("Should fail startup without a private key for the configured algorithm")
+    void testMissingSigningKey() throws Exception {
+        // Given
+        writeKey("k1", "Ed25519", false);
+        jwtProperties.setAlgorithm(JwtKeyRing.EDDSA);
+
+        // When & Then
+        assertThrows(IllegalStateException.class, () -> new JwtKeyRing(jwtProperties));
+    }
+
+    /**
+     * Generate a key pair and write it as <kid>.pem (PUBLIC KEY, optionally followed by PRIVATE KEY)
+     */
+    private KeyPair writeKey(String keyId, String algorithm, boolean withPrivateKey) throws Exception {
+        // Rewriting a kid keeps its key pair (e.g. adding the private key to a published public key)
+        KeyPair keyPair = keyPairs.computeIfAbsent(keyId, id -> generateKeyPair(algorithm));
+        StringBuilder pem = new StringBuilder(pem("PUBLIC KEY", keyPair.getPublic().getEncoded()));
+        if (withPrivateKey) {
+            pem.append(pem("PRIVATE KEY", keyPair.getPrivate().getEncoded()));
+        }
+        Files.writeString(keyDirectory.resolve(keyId + ".pem"), pem);
+        return keyPair;
+    }
+
+    private static KeyPair generateKeyPair(String algorithm) {
+        try {
+            KeyPairGenerator generator = KeyPairGenerator.getInstance(algorithm);
+            if (algorithm.equals("EC")) {
+                generator.initialize(new ECGenParameterSpec("secp256r1"));
+            }
+            return generator.generateKeyPair();
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String pem(String type, byte[] der) {
+        return "-----BEGIN " + type + "-----\n"
+                + Base64.getMimeEncoder(64, "\n".getBytes(StandardCharsets.US_ASCII)).encodeToString(der)
+                + "\n-----END " + type + "-----\n";
+    }
+}
@@ -1,13 +1,22 @@
 package com.khas.optimization.service;
 
 import com.khas.optimization.config.JwtProperties;
+import com.khas.optimization.constants.RoleConstants;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.MalformedJwtException;
+import io.jsonwebtoken.security.Keys;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 
+import javax.crypto.SecretKey;
+import java.nio.charset.StandardCharsets;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -141,6 +150,129 @@ class JwtServiceTest {
         assertEquals(0, extractedRoles.length);
     }
     
+    @Test
+    @DisplayName("Should parse username, roles and expiration in one pass")
+    void testParsePrincipal() {
+        // Given
+        String token = jwtService.generateToken("testuser", "USER", "ADMIN");
+        
+        // When
+        JwtPrincipal principal = jwtService.parsePrincipal(token);
+        
+        // Then
+        assertEquals("testuser", principal.username());
+        assertEquals(List.of("USER", "ADMIN"), principal.roles());
+        assertEquals(jwtService.extractExpiration(token).toInstant(), principal.expiresAt());
+    }
+    
+    @Test
+    @DisplayName("Should give every token a unique base64url jti")
+    void testTokenId() {
+        // Given
+        String first = jwtService.generateToken("testuser", "USER");
+        String second = jwtService.generateToken("testuser", "USER");
+        String withClaims = jwtService.generateToken("testuser", Map.of("department", "IT"));
+        
+        // When
+        String firstId = jwtService.parsePrincipal(first).tokenId();
+        String secondId = jwtService.parsePrincipal(second).tokenId();
+        String claimsId = jwtService.parsePrincipal(withClaims).tokenId();
+        
+        // Then
+        assertNotEquals(firstId, secondId);
+        for (String tokenId : List.of(firstId, secondId, claimsId)) {
+            assertEquals(22, tokenId.length());
+            assertTrue(tokenId.matches("[A-Za-z0-9_-]{21}[AQgw]"), tokenId);
+        }
+    }
+    
+    @Test
+    @DisplayName("Should mint tokens that a standard JWT parser verifies")
+    void testMintedTokenVerifiesWithJjwt() {
+        // Given: a username that needs JSON escaping and multi-byte UTF-8
+        String username = "quo\"te\\ \u00e9\uD83D\uDE00\n";
+        SecretKey key = Keys.hmacShaKeyFor(jwtProperties.getSecret().getBytes(StandardCharsets.UTF_8));
+        
+        // When
+        String token = jwtService.generateToken(username, "ROLE_USER", "ROLE_ADMIN");
+        Claims claims = Jwts.parser().verifyWith(key).build().parseSignedClaims(token).getPayload();
+        
+        // Then
+        assertEquals(username, claims.getSubject());
+        assertEquals(List.of("ROLE_USER", "ROLE_ADMIN"), claims.get("roles"));
+        assertEquals("test-issuer", claims.getIssuer());
+        assertEquals(Set.of("test-audience"), claims.getAudience());
+        assertEquals(86400L, (claims.getExpiration().getTime() - claims.getIssuedAt().getTime()) / 1000);
+    }
+    
+    @Test
+    @DisplayName("Should encode roles as a compact bitmask claim when enabled")
+    void testCompactRoles() {
+        // Given
+        jwtProperties.setCompactRoles(true);
+        JwtService compactService = new JwtService(jwtProperties);
+        
+        // When
+        String compactToken = compactService.generateToken("testuser", "ROLE_USER", "ROLE_ADMIN");
+        String arrayToken = jwtService.generateToken("testuser", "ROLE_USER", "ROLE_ADMIN");
+        Claims claims = Jwts.parser().verifyWith(Keys.hmacShaKeyFor(jwtProperties.getSecret().getBytes(StandardCharsets.UTF_8)))
+                .build().parseSignedClaims(compactToken).getPayload();
+        JwtPrincipal principal = compactService.parsePrincipal(compactToken);
+        
+        // Then
+        assertNull(claims.get("roles"));
+        assertEquals(3, claims.get(CompactRoleClaim.MASK_CLAIM, Integer.class));
+        assertEquals(List.of("ROLE_USER", "ROLE_ADMIN"), principal.roles());
+        assertEquals(RoleConstants.ROLE_USER_BIT | RoleConstants.ROLE_ADMIN_BIT, principal.roleMask());
+        assertTrue(compactToken.length() < arrayToken.length());
+    }
+    
+    @Test
+    @DisplayName("Should fall back to the roles array for roles outside the compact mapping")
+    void testCompactRolesFallback() {
+        // Given
+        jwtProperties.setCompactRoles(true);
+        JwtService compactService = new JwtService(jwtProperties);
+        
+        // When
+        String token = compactService.generateToken("testuser", "ROLE_USER", "ROLE_AUDITOR");
+        
+        // Then
+        assertArrayEquals(new String[]{"ROLE_USER", "ROLE_AUDITOR"}, compactService.extractRoles(token));
+    }
+    
+    @Test
+    @DisplayName("Should keep accepting array-style tokens after enabling compact roles")
+    void testCompactRolesBackwardCompatible() {
+        // Given: a token issued before the switch
+        String arrayToken = jwtService.generateToken("testuser", "ROLE_MODERATOR");
+        jwtProperties.setCompactRoles(true);
+        JwtService compactService = new JwtService(jwtProperties);
+        
+        // When
+        JwtPrincipal principal = compactService.parsePrincipal(arrayToken);
+        
+        // Then
+        assertEquals(List.of("ROLE_MODERATOR"), principal.roles());
+        assertEquals(RoleConstants.ROLE_MODERATOR_BIT, principal.roleMask());
+    }
+    
+    @Test
+    @DisplayName("Should reject tokens with an unknown role mapping version")
+    void testCompactRolesUnknownVersion() {
+        // Given
+        String token = Jwts.builder()
+                .subject("testuser")
+                .claim(CompactRoleClaim.MASK_CLAIM, 1)
+                .claim(CompactRoleClaim.VERSION_CLAIM, 99)
+                .expiration(new Date(System.currentTimeMillis() + 60000))
+                .signWith(Keys.hmacShaKeyFor(jwtProperties.getSecret().getBytes(StandardCharsets.UTF_8)))
+                .compact();
+        
+        // When & Then
+        assertThrows(MalformedJwtException.class, () -> jwtService.parsePrincipal(token));
+    }
+    
     @Test
     @DisplayName("Should validate valid token")
     void testValidateTokenValid() {
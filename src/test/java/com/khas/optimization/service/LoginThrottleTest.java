@@ -0,0 +1,97 @@
+package com.khas.optimization.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for LoginThrottle
+ */
+@DisplayName("LoginThrottle Tests")
+class LoginThrottleTest {
+    
+    private final AtomicLong clock = new AtomicLong(1_000_000L);
+    private LoginThrottle loginThrottle;
+    
+    @BeforeEach
+    void setUp() {
+        // 3 attempts per username (one more every 10s), 5 per IP (one more every second)
+        loginThrottle = new LoginThrottle(true, 1024, 3, 6, 5, 60, clock::get);
+    }
+    
+    @Test
+    @DisplayName("Should allow a burst up to capacity and then report the wait")
+    void testUsernameBurst() {
+        // When
+        for (int i = 0; i < 3; i++) {
+            assertEquals(0, loginThrottle.tryAcquire("alice", "10.0.0." + i));
+        }
+        long wait = loginThrottle.tryAcquire("alice", "10.0.0.9");
+        
+        // Then
+        assertEquals(10_000, wait);
+        assertEquals(1, loginThrottle.getThrottledByUsername());
+    }
+    
+    @Test
+    @DisplayName("Should refill one token per interval without going into debt")
+    void testRefill() {
+        // Given: bucket drained and hammered while throttled
+        for (int i = 0; i < 10; i++) {
+            loginThrottle.tryAcquire("alice", null);
+        }
+        
+        // When
+        clock.addAndGet(10_000);
+        
+        // Then
+        assertEquals(0, loginThrottle.tryAcquire("alice", null));
+        assertTrue(loginThrottle.tryAcquire("alice", null) > 0);
+    }
+    
+    @Test
+    @DisplayName("Should treat usernames case-insensitively and keep other users unaffected")
+    void testIndependentKeys() {
+        // Given
+        for (int i = 0; i < 3; i++) {
+            loginThrottle.tryAcquire("Alice", null);
+        }
+        
+        // When / Then
+        assertTrue(loginThrottle.tryAcquire("ALICE", null) > 0);
+        assertEquals(0, loginThrottle.tryAcquire("bob", null));
+    }
+    
+    @Test
+    @DisplayName("Should throttle a client IP across usernames")
+    void testAddressLimit() {
+        // Given
+        for (int i = 0; i < 5; i++) {
+            assertEquals(0, loginThrottle.tryAcquire("user" + i, "203.0.113.7"));
+        }
+        
+        // When
+        long wait = loginThrottle.tryAcquire("user9", "203.0.113.7");
+        
+        // Then
+        assertEquals(1_000, wait);
+        assertEquals(1, loginThrottle.getThrottledByAddress());
+        assertEquals(0, loginThrottle.tryAcquire("user9", "198.51.100.1"));
+    }
+    
+    @Test
+    @DisplayName("Should allow everything when disabled")
+    void testDisabled() {
+        // Given
+        LoginThrottle disabled = new LoginThrottle(false, 1024, 1, 1, 1, 1, clock::get);
+        
+        // When / Then
+        for (int i = 0; i < 5; i++) {
+            assertEquals(0, disabled.tryAcquire("alice", "203.0.113.7"));
+        }
+    }
+}
@@ -1,8 +1,14 @@
 package com.khas.optimization.service;
 
+import com.khas.optimization.exception.ServiceUnavailableException;
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -19,6 +25,11 @@ class PasswordServiceTest {
         passwordService = new PasswordService();
     }
     
+    @AfterEach
+    void tearDown() {
+        passwordService.shutdown();
+    }
+    
     @Test
     @DisplayName("Should hash password successfully")
     void testHashPassword() {
@@ -130,5 +141,152 @@ class PasswordServiceTest {
         // Then
         assertTrue(result);
     }
+    
+    @Test
+    @DisplayName("Should hash and verify off the calling thread")
+    void testHashAndVerifyOnPool() {
+        // Given
+        String plainPassword = "testPassword123";
+        
+        // When
+        String hashedPassword = passwordService.hash(plainPassword).block();
+        
+        // Then
+        StepVerifier.create(passwordService.verify(plainPassword, hashedPassword))
+                .expectNext(true)
+                .verifyComplete();
+        StepVerifier.create(passwordService.verify("wrongPassword", hashedPassword))
+                .expectNext(false)
+                .verifyComplete();
+    }
+    
+    @Test
+    @DisplayName("Should shed load with ServiceUnavailableException when the queue is full")
+    void testQueueLimit() {
+        // Given: one hashing thread and room for one waiting call
+        PasswordService bounded = new PasswordService(1, false, 1);
+        try {
+            // When: the first call runs, the second waits, the third has nowhere to go
+            Mono<String> running = bounded.hash("first-password").cache();
+            Mono<String> queued = bounded.hash("second-password").cache();
+            running.subscribe();
+            queued.subscribe();
+            
+            // Then
+            StepVerifier.create(bounded.hash("third-password"))
+                    .expectError(ServiceUnavailableException.class)
+                    .verify();
+            assertEquals(1, bounded.getRejected());
+            assertNotNull(running.block());
+            assertNotNull(queued.block());
+        } finally {
+            bounded.shutdown();
+        }
+    }
+    
+    @Test
+    @DisplayName("Should hash on virtual threads when configured")
+    void testVirtualThreads() {
+        // Given
+        PasswordService virtual = new PasswordService(2, true, 8);
+        try {
+            // When
+            String hashedPassword = virtual.hash("testPassword123").block();
+            
+            // Then
+            assertTrue(virtual.verifyPassword("testPassword123", hashedPassword));
+        } finally {
+            virtual.shutdown();
+        }
+    }
+    
+    @Test
+    @DisplayName("Should read the cost prefix of a BCrypt hash")
+    void testCostOf() {
+        // Given
+        String hashedPassword = new PasswordService(1, false, 1, PasswordHashPolicy.fixed(5)).hashPassword("testPassword123");
+        
+        // When / Then
+        assertTrue(hashedPassword.startsWith("$2a$05$"));
+        assertEquals(5, PasswordHashPolicy.costOf(hashedPassword));
+        assertEquals(12, PasswordHashPolicy.costOf("$2b$12$abcdefghijklmnopqrstuv"));
+        assertEquals(-1, PasswordHashPolicy.costOf("plain-text"));
+        assertEquals(-1, PasswordHashPolicy.costOf(null));
+    }
+    
+    @Test
+    @DisplayName("Should pick the highest cost within the target latency")
+    void testCalibrationCost() {
+        // Given: 10ms per hash at cost 8, so cost 11 takes 80ms and cost 12 takes 160ms
+        long tenMillis = 10_000_000L;
+        
+        // When / Then
+        assertEquals(11, PasswordHashPolicy.costFor(100_000_000L, tenMillis, 8, 14));
+        assertEquals(8, PasswordHashPolicy.costFor(5_000_000L, tenMillis, 8, 14));
+        assertEquals(9, PasswordHashPolicy.costFor(1_000_000_000L, tenMillis, 8, 9));
+    }
+    
+    @Test
+    @DisplayName("Should calibrate within the configured bounds")
+    void testCalibrate() {
+        // When
+        PasswordHashPolicy policy = PasswordHashPolicy.calibrate(Duration.ofMillis(50), 4, 6);
+        
+        // Then
+        assertTrue(policy.calibrated());
+        assertTrue(policy.cost() >= 4 && policy.cost() <= 6);
+    }
+    
+    @Test
+    @DisplayName("Should flag hashes weaker or costlier than the policy")
+    void testNeedsRehash() {
+        // Given
+        PasswordHashPolicy policy = PasswordHashPolicy.fixed(10);
+        
+        // When / Then
+        assertFalse(policy.needsRehash("$2a$10$abcdefghijklmnopqrstuv"));
+        assertTrue(policy.needsRehash("$2a$08$abcdefghijklmnopqrstuv"));
+        assertTrue(policy.needsRehash("$2a$12$abcdefghijklmnopqrstuv"));
+        assertTrue(policy.needsRehash("$2b$10$abcdefghijklmnopqrstuv"));
+        assertFalse(policy.needsRehash("not-a-bcrypt-hash"));
+    }
+    
+    @Test
+    @DisplayName("Should only upgrade hashes under a calibrated cost")
+    void testNeedsRehashCalibrated() {
+        // Given: another instance calibrated a higher cost on faster hardware
+        PasswordHashPolicy policy = new PasswordHashPolicy(10, true);
+        
+        // When / Then
+        assertFalse(policy.needsRehash("$2a$10$abcdefghijklmnopqrstuv"));
+        assertTrue(policy.needsRehash("$2a$08$abcdefghijklmnopqrstuv"));
+        assertFalse(policy.needsRehash("$2a$12$abcdefghijklmnopqrstuv"));
+        assertTrue(policy.needsRehash("$2b$12$abcdefghijklmnopqrstuv"));
+    }
+    
+    @Test
+    @DisplayName("Should rehash a stored hash that does not match the policy")
+    void testRehashIfNeeded() {
+        // Given
+        PasswordService weak = new PasswordService(1, false, 4, PasswordHashPolicy.fixed(4));
+        PasswordService policyCost = new PasswordService(1, false, 4, PasswordHashPolicy.fixed(5));
+        try {
+            String weakHash = weak.hashPassword("testPassword123");
+            String currentHash = policyCost.hashPassword("testPassword123");
+            
+            // When / Then
+            StepVerifier.create(policyCost.rehashIfNeeded("testPassword123", weakHash))
+                    .assertNext(newHash -> {
+                        assertEquals(5, PasswordHashPolicy.costOf(newHash));
+                        assertTrue(policyCost.verifyPassword("testPassword123", newHash));
+                    })
+                    .verifyComplete();
+            StepVerifier.create(policyCost.rehashIfNeeded("testPassword123", currentHash))
+                    .verifyComplete();
+            assertEquals(1, policyCost.getRehashed());
+        } finally {
+            weak.shutdown();
+            policyCost.shutdown();
+        }
+    }
 }
-
@@ -0,0 +1,161 @@
+package com.khas.optimization.service;
+
+import com.khas.optimization.dto.UserResponse;
+import com.khas.optimization.entity.RefreshToken;
+import com.khas.optimization.exception.UnauthorizedException;
+import com.khas.optimization.repository.RefreshTokenRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for RefreshTokenService
+ */
+@ExtendWith(MockitoExtension.class)
+@DisplayName("RefreshTokenService Tests")
+class RefreshTokenServiceTest {
+    
+    @Mock
+    private RefreshTokenRepository refreshTokenRepository;
+    
+    @Mock
+    private UserService userService;
+    
+    private RefreshTokenService refreshTokenService;
+    private final AtomicLong ids = new AtomicLong();
+    
+    @BeforeEach
+    void setUp() {
+        refreshTokenService = new RefreshTokenService(refreshTokenRepository, userService,
+                Duration.ofDays(14), 100, Duration.ZERO);
+        lenient().when(refreshTokenRepository.save(any(RefreshToken.class))).thenAnswer(invocation -> {
+            RefreshToken token = invocation.getArgument(0);
+            token.setId(ids.incrementAndGet());
+            return Mono.just(token);
+        });
+    }
+    
+    private static UserResponse user(boolean enabled) {
+        return new UserResponse(7L, "testuser", "test@example.com", enabled, List.of("ROLE_USER"),
+                LocalDateTime.now(), LocalDateTime.now());
+    }
+    
+    @Test
+    @DisplayName("Should rotate a freshly issued token from the in-memory index")
+    void testRefreshFromIndex() {
+        // Given
+        String refreshToken = refreshTokenService.issue(7L).block();
+        when(refreshTokenRepository.revokeById(eq(1L), any())).thenReturn(Mono.just(1));
+        when(userService.getUserById(7L)).thenReturn(Mono.just(user(true)));
+        
+        // When / Then
+        StepVerifier.create(refreshTokenService.refresh(refreshToken))
+                .assertNext(session -> {
+                    assertEquals("testuser", session.username());
+                    assertEquals(List.of("ROLE_USER"), session.roles());
+                    assertNotEquals(refreshToken, session.refreshToken());
+                })
+                .verifyComplete();
+        verify(refreshTokenRepository, never()).findByTokenHash(anyString());
+        assertEquals(1, refreshTokenService.getIndexHits());
+    }
+    
+    @Test
+    @DisplayName("Should store only the SHA-256 of the token")
+    void testStoresHash() {
+        // When
+        String refreshToken = refreshTokenService.issue(7L).block();
+        
+        // Then
+        verify(refreshTokenRepository).save(argThat(row ->
+                row.getTokenHash().equals(TokenDigest.of(refreshToken).toHex())
+                        && row.getTokenHash().length() == 64
+                        && row.getUserId() == 7L));
+    }
+    
+    @Test
+    @DisplayName("Should revoke the token family when a rotated token is replayed")
+    void testReuseRevokesFamily() {
+        // Given: the row was already revoked by an earlier rotation
+        RefreshToken row = new RefreshToken("hash", 7L, "family-1", LocalDateTime.now().plusDays(1));
+        row.setId(42L);
+        row.setRevokedAt(LocalDateTime.now());
+        when(refreshTokenRepository.findByTokenHash(TokenDigest.of("stolen").toHex())).thenReturn(Mono.just(row));
+        when(refreshTokenRepository.revokeFamily(eq("family-1"), any())).thenReturn(Mono.just(1));
+        
+        // When / Then
+        StepVerifier.create(refreshTokenService.refresh("stolen"))
+                .expectError(UnauthorizedException.class)
+                .verify();
+        verify(refreshTokenRepository).revokeFamily(eq("family-1"), any());
+        verify(refreshTokenRepository, never()).save(any());
+        assertEquals(1, refreshTokenService.getReused());
+    }
+    
+    @Test
+    @DisplayName("Should revoke the family when another caller rotated the token first")
+    void testConcurrentRotation() {
+        // Given
+        String refreshToken = refreshTokenService.issue(7L).block();
+        when(refreshTokenRepository.revokeById(eq(1L), any())).thenReturn(Mono.just(0));
+        when(refreshTokenRepository.revokeFamily(anyString(), any())).thenReturn(Mono.just(2));
+        
+        // When / Then
+        StepVerifier.create(refreshTokenService.refresh(refreshToken))
+                .expectError(UnauthorizedException.class)
+                .verify();
+        verify(userService, never()).getUserById(any());
+        assertEquals(0, refreshTokenService.indexSize());
+    }
+    
+    @Test
+    @DisplayName("Should refuse to refresh for a disabled user")
+    void testDisabledUser() {
+        // Given
+        String refreshToken = refreshTokenService.issue(7L).block();
+        when(refreshTokenRepository.revokeById(eq(1L), any())).thenReturn(Mono.just(1));
+        when(refreshTokenRepository.revokeFamily(anyString(), any())).thenReturn(Mono.just(1));
+        when(userService.getUserById(7L)).thenReturn(Mono.just(user(false)));
+        
+        // When / Then
+        StepVerifier.create(refreshTokenService.refresh(refreshToken))
+                .expectError(UnauthorizedException.class)
+                .verify();
+        verify(refreshTokenRepository).revokeFamily(anyString(), any());
+    }
+    
+    @Test
+    @DisplayName("Should reject unknown and expired tokens")
+    void testUnknownAndExpired() {
+        // Given
+        RefreshToken expired = new RefreshToken("hash", 7L, "family-1", LocalDateTime.now().minusMinutes(1));
+        expired.setId(5L);
+        when(refreshTokenRepository.findByTokenHash(TokenDigest.of("unknown").toHex())).thenReturn(Mono.empty());
+        when(refreshTokenRepository.findByTokenHash(TokenDigest.of("expired").toHex())).thenReturn(Mono.just(expired));
+        
+        // When / Then
+        StepVerifier.create(refreshTokenService.refresh("unknown"))
+                .expectError(UnauthorizedException.class)
+                .verify();
+        StepVerifier.create(refreshTokenService.refresh("expired"))
+                .expectError(UnauthorizedException.class)
+                .verify();
+        verify(refreshTokenRepository, never()).revokeById(any(), any());
+    }
+}
@@ -0,0 +1,106 @@
+package com.khas.optimization.service;
+
+import com.khas.optimization.constants.RoleConstants;
+import com.khas.optimization.entity.Role;
+import com.khas.optimization.repository.RoleRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import reactor.core.publisher.Flux;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for RoleCatalog
+ */
+@ExtendWith(MockitoExtension.class)
+@DisplayName("RoleCatalog Tests")
+class RoleCatalogTest {
+    
+    @Mock
+    private RoleRepository roleRepository;
+    
+    private RoleCatalog roleCatalog;
+    
+    @BeforeEach
+    void setUp() {
+        roleCatalog = new RoleCatalog(roleRepository, Duration.ZERO);
+    }
+    
+    private static Role role(long id, String name) {
+        Role role = new Role(name, null);
+        role.setId(id);
+        return role;
+    }
+    
+    @Test
+    @DisplayName("Should resolve roles from memory after refresh")
+    void testLookupAfterRefresh() {
+        // Given
+        when(roleRepository.findAllActive()).thenReturn(Flux.just(
+                role(1L, RoleConstants.ROLE_USER),
+                role(2L, RoleConstants.ROLE_ADMIN)));
+        
+        // When
+        StepVerifier.create(roleCatalog.refresh()).verifyComplete();
+        
+        // Then
+        assertEquals(RoleConstants.ROLE_ADMIN, roleCatalog.nameOf(2L));
+        assertEquals(1L, roleCatalog.idOf(RoleConstants.ROLE_USER));
+        assertEquals(RoleConstants.ROLE_USER, roleCatalog.nameOf(1L));
+        assertEquals(3, roleCatalog.getHits());
+        verify(roleRepository, times(1)).findAllActive();
+    }
+    
+    @Test
+    @DisplayName("Should count misses for unknown roles")
+    void testLookupMiss() {
+        // Given - catalog not loaded yet
+        
+        // When / Then
+        assertNull(roleCatalog.nameOf(99L));
+        assertEquals(RoleCatalog.UNKNOWN_ROLE, roleCatalog.idOf("ROLE_UNKNOWN"));
+        assertEquals(2, roleCatalog.getMisses());
+        assertEquals(0, roleCatalog.getHits());
+    }
+    
+    @Test
+    @DisplayName("Should keep previous snapshot when refresh fails")
+    void testRefreshFailureKeepsSnapshot() {
+        // Given
+        when(roleRepository.findAllActive())
+                .thenReturn(Flux.just(role(3L, RoleConstants.ROLE_MODERATOR)))
+                .thenReturn(Flux.error(new RuntimeException("Connection refused")));
+        StepVerifier.create(roleCatalog.refresh()).verifyComplete();
+        
+        // When
+        StepVerifier.create(roleCatalog.refresh()).verifyComplete();
+        
+        // Then
+        assertEquals(RoleConstants.ROLE_MODERATOR, roleCatalog.nameOf(3L));
+        assertEquals(1, roleCatalog.size());
+    }
+    
+    @Test
+    @DisplayName("Should refresh when a role is saved")
+    void testRefreshOnRoleSave() {
+        // Given
+        Role moderator = role(3L, RoleConstants.ROLE_MODERATOR);
+        when(roleRepository.findAllActive()).thenReturn(Flux.just(moderator));
+        
+        // When
+        StepVerifier.create(roleCatalog.onAfterSave(moderator, null, null))
+                .expectNext(moderator)
+                .verifyComplete();
+        
+        // Then
+        assertEquals(3L, roleCatalog.idOf(RoleConstants.ROLE_MODERATOR));
+    }
+}
@@ -0,0 +1,122 @@
+package com.khas.optimization.service;
+
+import com.khas.optimization.entity.RevokedToken;
+import com.khas.optimization.repository.RevokedTokenRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DuplicateKeyException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for TokenRevocationService
+ */
+@ExtendWith(MockitoExtension.class)
+@DisplayName("TokenRevocationService Tests")
+class TokenRevocationServiceTest {
+    
+    @Mock
+    private RevokedTokenRepository revokedTokenRepository;
+    
+    private TokenRevocationService tokenRevocationService;
+    
+    @BeforeEach
+    void setUp() {
+        tokenRevocationService = new TokenRevocationService(revokedTokenRepository,
+                1000, 0.01, Duration.ofSeconds(1), 60, Duration.ZERO);
+        lenient().when(revokedTokenRepository.insert(anyString(), any(), any())).thenReturn(Mono.just(1));
+    }
+    
+    @Test
+    @DisplayName("Should answer not revoked from the Bloom filter for unknown tokens")
+    void testUnknownToken() {
+        // When
+        for (int i = 0; i < 100; i++) {
+            assertFalse(tokenRevocationService.isRevoked("token-" + i));
+        }
+        
+        // Then: an empty filter rejects every probe
+        assertEquals(100, tokenRevocationService.getFiltered());
+        assertFalse(tokenRevocationService.isRevoked(null));
+    }
+    
+    @Test
+    @DisplayName("Should revoke a token and persist the revocation once")
+    void testRevoke() {
+        // Given
+        Instant expiresAt = Instant.now().plusSeconds(600);
+        
+        // When
+        StepVerifier.create(tokenRevocationService.revoke("jti-1", expiresAt)).verifyComplete();
+        StepVerifier.create(tokenRevocationService.revoke("jti-1", expiresAt)).verifyComplete();
+        
+        // Then
+        assertTrue(tokenRevocationService.isRevoked("jti-1"));
+        assertFalse(tokenRevocationService.isRevoked("jti-2"));
+        assertEquals(1, tokenRevocationService.size());
+        verify(revokedTokenRepository, times(1)).insert(eq("jti-1"), any(), any());
+    }
+    
+    @Test
+    @DisplayName("Should ignore revocations of expired tokens and duplicate rows")
+    void testExpiredAndDuplicate() {
+        // Given
+        when(revokedTokenRepository.insert(eq("jti-dup"), any(), any()))
+                .thenReturn(Mono.error(new DuplicateKeyException("duplicate")));
+        
+        // When / Then
+        StepVerifier.create(tokenRevocationService.revoke("jti-old", Instant.now().minusSeconds(1))).verifyComplete();
+        StepVerifier.create(tokenRevocationService.revoke("jti-dup", Instant.now().plusSeconds(60))).verifyComplete();
+        assertFalse(tokenRevocationService.isRevoked("jti-old"));
+        assertTrue(tokenRevocationService.isRevoked("jti-dup"));
+    }
+    
+    @Test
+    @DisplayName("Should drop entries on the timing wheel at their exp and rebuild the filter")
+    void testExpiry() {
+        // Given
+        Instant expiresAt = Instant.now().plusSeconds(5);
+        tokenRevocationService.revoke("jti-1", expiresAt).block();
+        tokenRevocationService.revoke("jti-2", Instant.now().plusSeconds(3600)).block();
+        
+        // When: the wheel sweeps past the first token's exp
+        tokenRevocationService.advance(expiresAt.toEpochMilli() - 1000);
+        assertTrue(tokenRevocationService.isRevoked("jti-1"));
+        tokenRevocationService.advance(expiresAt.toEpochMilli() + 1000);
+        
+        // Then: the second token is on a later round of the wheel and stays
+        assertFalse(tokenRevocationService.isRevoked("jti-1"));
+        assertTrue(tokenRevocationService.isRevoked("jti-2"));
+        assertEquals(1, tokenRevocationService.size());
+    }
+    
+    @Test
+    @DisplayName("Should pick up revocations made on other instances")
+    void testSync() {
+        // Given
+        RevokedToken row = new RevokedToken("remote-jti", LocalDateTime.now().plusMinutes(10), LocalDateTime.now());
+        when(revokedTokenRepository.findActiveRevokedSince(any(), any())).thenReturn(Flux.just(row));
+        when(revokedTokenRepository.deleteExpiredBefore(any())).thenReturn(Mono.just(0));
+        
+        // When
+        StepVerifier.create(tokenRevocationService.sync()).verifyComplete();
+        
+        // Then
+        assertTrue(tokenRevocationService.isRevoked("remote-jti"));
+    }
+}
@@ -0,0 +1,85 @@
+package com.khas.optimization.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for UserCountCache
+ */
+@DisplayName("UserCountCache Tests")
+class UserCountCacheTest {
+
+    private UserCountCache userCountCache;
+    private AtomicInteger countQueries;
+
+    @BeforeEach
+    void setUp() {
+        userCountCache = new UserCountCache(Duration.ofMinutes(1));
+        countQueries = new AtomicInteger();
+    }
+
+    private Mono<Long> countQuery(long total) {
+        return Mono.fromCallable(() -> {
+            countQueries.incrementAndGet();
+            return total;
+        });
+    }
+
+    @Test
+    @DisplayName("Should run the count once and serve later requests from memory")
+    void testCachedCount() {
+        StepVerifier.create(userCountCache.get(countQuery(5L))).expectNext(5L).verifyComplete();
+        StepVerifier.create(userCountCache.get(countQuery(6L))).expectNext(5L).verifyComplete();
+
+        assertEquals(1, countQueries.get());
+        assertEquals(1, userCountCache.getHits());
+        assertEquals(1, userCountCache.getMisses());
+    }
+
+    @Test
+    @DisplayName("Should recount after invalidation")
+    void testInvalidate() {
+        StepVerifier.create(userCountCache.get(countQuery(5L))).expectNext(5L).verifyComplete();
+
+        userCountCache.invalidate();
+
+        StepVerifier.create(userCountCache.get(countQuery(6L))).expectNext(6L).verifyComplete();
+        assertEquals(2, countQueries.get());
+    }
+
+    @Test
+    @DisplayName("Should not cache a count that raced with a write")
+    void testDiscardCountLoadedBeforeWrite() {
+        // Given: a write lands while the count query is running
+        Mono<Long> racingQuery = countQuery(5L).doOnNext(total -> userCountCache.invalidate());
+
+        // When
+        StepVerifier.create(userCountCache.get(racingQuery)).expectNext(5L).verifyComplete();
+
+        // Then
+        StepVerifier.create(userCountCache.get(countQuery(6L))).expectNext(6L).verifyComplete();
+        assertEquals(0, userCountCache.getHits());
+    }
+
+    @Test
+    @DisplayName("Should expire the cached count after the TTL")
+    void testExpiry() {
+        // Given
+        UserCountCache expiring = new UserCountCache(Duration.ZERO);
+
+        // When
+        StepVerifier.create(expiring.get(countQuery(5L))).expectNext(5L).verifyComplete();
+        StepVerifier.create(expiring.get(countQuery(6L))).expectNext(6L).verifyComplete();
+
+        // Then
+        assertEquals(2, countQueries.get());
+    }
+}
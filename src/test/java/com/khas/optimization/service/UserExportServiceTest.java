@@ -0,0 +1,118 @@
+package com.khas.optimization.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.khas.optimization.dto.ExportFormat;
+import com.khas.optimization.dto.UserResponse;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import reactor.core.publisher.Flux;
+import reactor.test.StepVerifier;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for UserExportService
+ */
+@ExtendWith(MockitoExtension.class)
+@DisplayName("UserExportService Tests")
+class UserExportServiceTest {
+    
+    @Mock
+    private UserService userService;
+    
+    private UserExportService userExportService;
+    
+    private final LocalDateTime timestamp = LocalDateTime.of(2024, 1, 1, 0, 0);
+    
+    @BeforeEach
+    void setUp() {
+        ObjectMapper objectMapper = new ObjectMapper()
+                .registerModule(new JavaTimeModule())
+                .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+        userExportService = new UserExportService(userService, objectMapper, 500, 2);
+    }
+    
+    private static String text(DataBuffer buffer) {
+        return buffer.toString(StandardCharsets.UTF_8);
+    }
+    
+    @Test
+    @DisplayName("Should stream NDJSON in chunks")
+    void testExportNdjson() {
+        // Given
+        when(userService.streamAllUsers(500, 2)).thenReturn(Flux.just(
+                new UserResponse(1L, "alice", "alice@example.com", true, List.of("ROLE_USER"), timestamp, timestamp),
+                new UserResponse(2L, "bob", "bob@example.com", true, List.of(), timestamp, timestamp),
+                new UserResponse(3L, "carol", "carol@example.com", false, List.of(), timestamp, timestamp)));
+        
+        // When
+        Flux<DataBuffer> result = userExportService.export(ExportFormat.NDJSON, DefaultDataBufferFactory.sharedInstance);
+        
+        // Then - chunk size 2 gives two buffers
+        StepVerifier.create(result)
+                .assertNext(buffer -> {
+                    String[] lines = text(buffer).split("\n");
+                    assertEquals(2, lines.length);
+                    assertTrue(lines[0].startsWith("{\"id\":1,\"username\":\"alice\""));
+                    assertTrue(lines[0].contains("\"createdAt\":\"2024-01-01T00:00:00\""));
+                })
+                .assertNext(buffer -> assertTrue(text(buffer).startsWith("{\"id\":3,")))
+                .verifyComplete();
+    }
+    
+    @Test
+    @DisplayName("Should stream CSV with header and quoted fields")
+    void testExportCsv() {
+        // Given
+        when(userService.streamAllUsers(500, 2)).thenReturn(Flux.just(
+                new UserResponse(1L, "a,\"b\"", "a@example.com", true,
+                        List.of("ROLE_ADMIN", "ROLE_USER"), timestamp, timestamp)));
+        
+        // When
+        Flux<DataBuffer> result = userExportService.export(ExportFormat.CSV, DefaultDataBufferFactory.sharedInstance);
+        
+        // Then
+        StepVerifier.create(result)
+                .assertNext(buffer -> assertEquals(
+                        "id,username,email,enabled,roles,createdAt,updatedAt\n", text(buffer)))
+                .assertNext(buffer -> assertEquals(
+                        "1,\"a,\"\"b\"\"\",a@example.com,true,ROLE_ADMIN;ROLE_USER,2024-01-01T00:00,2024-01-01T00:00\n",
+                        text(buffer)))
+                .verifyComplete();
+    }
+    
+    @Test
+    @DisplayName("Should neutralize CSV fields that a spreadsheet would run as formulas")
+    void testExportCsvFormulaInjection() {
+        // Given
+        when(userService.streamAllUsers(500, 2)).thenReturn(Flux.just(
+                new UserResponse(1L, "=HYPERLINK(\"http://x\",\"y\")", "@evil@example.com", true,
+                        List.of("ROLE_USER"), timestamp, timestamp),
+                new UserResponse(2L, "-2+3", "+1@example.com", true, List.of(), timestamp, timestamp)));
+        
+        // When
+        Flux<DataBuffer> result = userExportService.export(ExportFormat.CSV, DefaultDataBufferFactory.sharedInstance);
+        
+        // Then
+        StepVerifier.create(result)
+                .expectNextCount(1)
+                .assertNext(buffer -> assertEquals(
+                        "1,\"'=HYPERLINK(\"\"http://x\"\",\"\"y\"\")\",'@evil@example.com,true,ROLE_USER,2024-01-01T00:00,2024-01-01T00:00\n"
+                                + "2,'-2+3,'+1@example.com,true,,2024-01-01T00:00,2024-01-01T00:00\n",
+                        text(buffer)))
+                .verifyComplete();
+    }
+}
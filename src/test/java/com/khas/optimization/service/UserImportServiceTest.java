@@ -0,0 +1,190 @@
+package com.khas.optimization.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.khas.optimization.constants.RoleConstants;
+import com.khas.optimization.dto.BulkImportResult;
+import com.khas.optimization.entity.User;
+import com.khas.optimization.repository.UserRepository;
+import com.khas.optimization.repository.UserRoleRepository;
+import jakarta.validation.Validation;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for UserImportService
+ */
+@ExtendWith(MockitoExtension.class)
+@DisplayName("UserImportService Tests")
+class UserImportServiceTest {
+    
+    @Mock
+    private UserRepository userRepository;
+    
+    @Mock
+    private UserRoleRepository userRoleRepository;
+    
+    @Mock
+    private PasswordService passwordService;
+    
+    @Mock
+    private RoleCatalog roleCatalog;
+    
+    @Mock
+    private TransactionalOperator transactionalOperator;
+    
+    private UserImportService userImportService;
+    
+    @BeforeEach
+    void setUp() {
+        userImportService = new UserImportService(
+                userRepository,
+                userRoleRepository,
+                passwordService,
+                roleCatalog,
+                new UserCountCache(Duration.ofSeconds(30)),
+                new ObjectMapper(),
+                Validation.buildDefaultValidatorFactory().getValidator(),
+                transactionalOperator,
+                100,
+                2);
+    }
+    
+    private static String line(String username, String email) {
+        return "{\"username\":\"" + username + "\",\"email\":\"" + email + "\",\"password\":\"Passw0rd!\"}";
+    }
+    
+    @Test
+    @DisplayName("Should insert valid rows in one batch and report failures per line")
+    @SuppressWarnings("unchecked")
+    void testImportUsers() {
+        // Given
+        when(roleCatalog.idOf(RoleConstants.ROLE_USER)).thenReturn(1L);
+        when(passwordService.hash(anyString())).thenReturn(Mono.just("hash"));
+        when(transactionalOperator.transactional(any(Mono.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        
+        User existing = new User("taken", null, null);
+        when(userRepository.findIdsByUsernameIn(List.of("alice", "taken", "bob"))).thenReturn(Flux.just(existing));
+        when(userRepository.findIdsByEmailIn(anyCollection())).thenReturn(Flux.empty());
+        when(userRepository.insertAll(anyList())).thenReturn(Mono.just(2L));
+        User alice = new User("alice", null, null);
+        alice.setId(10L);
+        User bob = new User("bob", null, null);
+        bob.setId(11L);
+        when(userRepository.findIdsByUsernameIn(List.of("alice", "bob"))).thenReturn(Flux.just(alice, bob));
+        when(userRoleRepository.insertAll(anyList())).thenReturn(Mono.just(2L));
+        
+        Flux<String> lines = Flux.just(
+                line("alice", "alice@example.com"),
+                "{not json",
+                line("taken", "new@example.com"),
+                "",
+                line("bob", "bob@example.com"),
+                line("alice", "alice2@example.com"));
+        
+        // When
+        Flux<BulkImportResult> result = userImportService.importUsers(lines);
+        
+        // Then
+        StepVerifier.create(result)
+                .assertNext(r -> {
+                    assertEquals(1L, r.getLine());
+                    assertTrue(r.getSuccess());
+                    assertEquals(10L, r.getId());
+                })
+                .assertNext(r -> assertEquals("Malformed JSON", r.getError()))
+                .assertNext(r -> assertEquals("Username already exists", r.getError()))
+                .assertNext(r -> {
+                    assertEquals(5L, r.getLine());
+                    assertEquals(11L, r.getId());
+                })
+                .assertNext(r -> assertEquals("Duplicate username or email within import", r.getError()))
+                .verifyComplete();
+        
+        // One lookup per unique column, one users INSERT and one user_roles INSERT for the whole chunk
+        verify(userRepository, times(1)).findIdsByEmailIn(anyCollection());
+        verify(userRepository, times(1)).insertAll(argThat(users -> users.size() == 2));
+        verify(userRoleRepository, times(1)).insertAll(argThat(userRoles -> userRoles.size() == 2));
+        verify(userRepository, never()).save(any(User.class));
+    }
+    
+    @Test
+    @DisplayName("Should collapse repeated role ids and reject case-only username and email clashes per row")
+    @SuppressWarnings("unchecked")
+    void testImportUsersDuplicateRolesAndCase() {
+        // Given
+        when(roleCatalog.nameOf(2L)).thenReturn(RoleConstants.ROLE_ADMIN);
+        when(roleCatalog.idOf(RoleConstants.ROLE_USER)).thenReturn(1L);
+        when(passwordService.hash(anyString())).thenReturn(Mono.just("hash"));
+        when(transactionalOperator.transactional(any(Mono.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        
+        // Case-insensitive collation: the lookups return the stored spelling
+        when(userRepository.findIdsByUsernameIn(List.of("carol", "Taken", "dave")))
+                .thenReturn(Flux.just(new User("taken", null, null)));
+        when(userRepository.findIdsByEmailIn(anyCollection()))
+                .thenReturn(Flux.just(new User(null, "dave@example.com", null)));
+        when(userRepository.insertAll(anyList())).thenReturn(Mono.just(1L));
+        User carol = new User("carol", null, null);
+        carol.setId(20L);
+        when(userRepository.findIdsByUsernameIn(List.of("carol"))).thenReturn(Flux.just(carol));
+        when(userRoleRepository.insertAll(anyList())).thenReturn(Mono.just(1L));
+        
+        Flux<String> lines = Flux.just(
+                "{\"username\":\"carol\",\"email\":\"carol@example.com\",\"password\":\"Passw0rd!\",\"roleIds\":[2,2]}",
+                line("Taken", "taken@example.com"),
+                line("dave", "Dave@Example.com"),
+                line("CAROL", "carol2@example.com"));
+        
+        // When
+        Flux<BulkImportResult> result = userImportService.importUsers(lines);
+        
+        // Then
+        StepVerifier.create(result)
+                .assertNext(r -> assertEquals(20L, r.getId()))
+                .assertNext(r -> assertEquals("Username already exists", r.getError()))
+                .assertNext(r -> assertEquals("Email already exists", r.getError()))
+                .assertNext(r -> assertEquals("Duplicate username or email within import", r.getError()))
+                .verifyComplete();
+        
+        verify(userRoleRepository, times(1)).insertAll(argThat(userRoles -> userRoles.size() == 1));
+    }
+    
+    @Test
+    @DisplayName("Should report validation errors without touching the database")
+    void testImportUsersValidationFailure() {
+        // Given
+        Flux<String> lines = Flux.just(
+                "{\"username\":\"ab\",\"email\":\"not-an-email\",\"password\":\"Passw0rd!\"}");
+        
+        // When
+        Flux<BulkImportResult> result = userImportService.importUsers(lines);
+        
+        // Then
+        StepVerifier.create(result)
+                .assertNext(r -> {
+                    assertFalse(r.getSuccess());
+                    assertTrue(r.getError().contains("email: "));
+                    assertTrue(r.getError().contains("username: "));
+                })
+                .verifyComplete();
+        
+        verifyNoInteractions(userRepository, userRoleRepository);
+    }
+}
@@ -1,12 +1,25 @@
 package com.khas.optimization.service;
 
+import com.khas.optimization.constants.RoleConstants;
+import com.khas.optimization.dto.BulkUpdateResult;
+import com.khas.optimization.dto.PageCursor;
+import com.khas.optimization.dto.PageRequest;
+import com.khas.optimization.dto.PageStream;
+import com.khas.optimization.dto.PaginatedResponse;
 import com.khas.optimization.dto.UserRequest;
 import com.khas.optimization.dto.UserResponse;
 import com.khas.optimization.entity.User;
+import com.khas.optimization.exception.DuplicateEntityException;
 import com.khas.optimization.exception.EntityNotFoundException;
+import com.khas.optimization.exception.StaleEntityException;
 import com.khas.optimization.repository.RoleRepository;
+import com.khas.optimization.repository.UniquenessConflict;
+import com.khas.optimization.repository.UserCredentialRow;
+import com.khas.optimization.repository.UserQuery;
 import com.khas.optimization.repository.UserRepository;
+import com.khas.optimization.repository.UserRoleName;
 import com.khas.optimization.repository.UserRoleRepository;
+import com.khas.optimization.repository.UserSortField;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
@@ -14,15 +27,24 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.test.util.ReflectionTestUtils;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 import reactor.test.StepVerifier;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 /**
@@ -44,6 +66,15 @@ class UserServiceTest {
     @Mock
     private PasswordService passwordService;
     
+    @Mock
+    private RoleCatalog roleCatalog;
+    
+    @Mock
+    private UserCountCache userCountCache;
+    
+    @Mock
+    private CredentialCache credentialCache;
+    
     @InjectMocks
     private UserService userService;
     
@@ -67,18 +98,31 @@ class UserServiceTest {
         userRequest.setPassword("password123");
     }
     
+    /**
+     * Subscribe a streamed page the way the encoder does: content first, then pagination
+     */
+    private Mono<StreamedPage> streamPage(PageRequest pageRequest) {
+        return userService.streamAllUsers(pageRequest)
+                .flatMap(page -> page.content().collectList()
+                        .flatMap(content -> page.pagination().map(meta -> new StreamedPage(content, meta))));
+    }
+    
+    private record StreamedPage(List<UserResponse> content, PaginatedResponse.PaginationMeta pagination) {
+    }
+    
     @Test
     @DisplayName("Should create user successfully")
     void testCreateUserSuccess() {
         // Given
-        when(userRepository.existsByUsername(anyString())).thenReturn(Mono.just(false));
-        when(userRepository.existsByEmail(anyString())).thenReturn(Mono.just(false));
-        when(passwordService.hashPassword(anyString())).thenReturn("hashedPassword");
+        when(userRepository.findUniquenessConflict("testuser", "test@example.com", -1L))
+                .thenReturn(Mono.just(new UniquenessConflict(0L, 0L)));
+        when(passwordService.hash(anyString())).thenReturn(Mono.just("hashedPassword"));
         when(userRepository.save(any(User.class))).thenReturn(Mono.just(testUser));
         // Mock userRoleRepository for toUserResponseWithRoles
         when(userRoleRepository.findByUserId(1L)).thenReturn(Flux.empty());
-        // Mock roleRepository for default role assignment (if needed)
-        when(roleRepository.findByName(anyString())).thenReturn(Mono.empty());
+        // Default role is resolved from the in-memory catalog
+        when(roleCatalog.idOf(RoleConstants.ROLE_USER)).thenReturn(1L);
+        when(userRoleRepository.insertUserRole(1L, 1L)).thenReturn(Mono.empty());
         
         // When
         Mono<UserResponse> result = userService.createUser(userRequest);
@@ -93,17 +137,21 @@ class UserServiceTest {
                 })
                 .verifyComplete();
         
-        verify(userRepository).existsByUsername("testuser");
-        verify(userRepository).existsByEmail("test@example.com");
+        // Uniqueness is checked with a single query
+        verify(userRepository, times(1)).findUniquenessConflict("testuser", "test@example.com", -1L);
+        verify(userRepository, never()).existsByUsername(anyString());
+        verify(userRepository, never()).existsByEmail(anyString());
         verify(userRepository).save(any(User.class));
-        verify(passwordService).hashPassword("password123");
+        verify(passwordService).hash("password123");
+        verify(roleRepository, never()).findByName(anyString());
     }
     
     @Test
     @DisplayName("Should fail when username already exists")
     void testCreateUserUsernameExists() {
         // Given
-        when(userRepository.existsByUsername(anyString())).thenReturn(Mono.just(true));
+        when(userRepository.findUniquenessConflict(anyString(), anyString(), anyLong()))
+                .thenReturn(Mono.just(new UniquenessConflict(1L, 0L)));
         
         // When
         Mono<UserResponse> result = userService.createUser(userRequest);
@@ -115,7 +163,7 @@ class UserServiceTest {
                     throwable.getMessage().equals("Username already exists"))
                 .verify();
         
-        verify(userRepository).existsByUsername("testuser");
+        verify(userRepository).findUniquenessConflict("testuser", "test@example.com", -1L);
         verify(userRepository, never()).save(any(User.class));
     }
     
@@ -123,8 +171,8 @@ class UserServiceTest {
     @DisplayName("Should fail when email already exists")
     void testCreateUserEmailExists() {
         // Given
-        when(userRepository.existsByUsername(anyString())).thenReturn(Mono.just(false));
-        when(userRepository.existsByEmail(anyString())).thenReturn(Mono.just(true));
+        when(userRepository.findUniquenessConflict(anyString(), anyString(), anyLong()))
+                .thenReturn(Mono.just(new UniquenessConflict(0L, 1L)));
         
         // When
         Mono<UserResponse> result = userService.createUser(userRequest);
@@ -136,11 +184,54 @@ class UserServiceTest {
                     throwable.getMessage().equals("Email already exists"))
                 .verify();
         
-        verify(userRepository).existsByUsername("testuser");
-        verify(userRepository).existsByEmail("test@example.com");
+        verify(userRepository).findUniquenessConflict("testuser", "test@example.com", -1L);
         verify(userRepository, never()).save(any(User.class));
     }
     
+    @Test
+    @DisplayName("Should translate unique constraint violation when precheck is disabled")
+    void testCreateUserConstraintViolationWithoutPrecheck() {
+        // Given
+        ReflectionTestUtils.setField(userService, "uniquenessPrecheck", false);
+        when(passwordService.hash(anyString())).thenReturn(Mono.just("hashedPassword"));
+        when(userRepository.save(any(User.class))).thenReturn(Mono.error(new DataIntegrityViolationException(
+                "Duplicate entry 'test@example.com' for key 'users.email'")));
+        
+        // When
+        Mono<UserResponse> result = userService.createUser(userRequest);
+        
+        // Then
+        StepVerifier.create(result)
+                .expectErrorMatches(throwable -> 
+                    throwable instanceof DuplicateEntityException &&
+                    throwable.getMessage().equals("Email already exists"))
+                .verify();
+        
+        verify(userRepository, never()).findUniquenessConflict(anyString(), anyString(), anyLong());
+    }
+    
+    @Test
+    @DisplayName("Should classify a constraint violation by key name, not by the duplicated value")
+    void testCreateUserConstraintViolationValueLooksLikeColumn() {
+        // Given
+        ReflectionTestUtils.setField(userService, "uniquenessPrecheck", false);
+        when(passwordService.hash(anyString())).thenReturn(Mono.just("hashedPassword"));
+        when(userRepository.save(any(User.class)))
+                .thenReturn(Mono.error(new DataIntegrityViolationException(
+                        "Duplicate entry 'myemail' for key 'users.username'")))
+                .thenReturn(Mono.error(new DataIntegrityViolationException(
+                        "Unique index or primary key violation: \"PUBLIC.CONSTRAINT_INDEX_4 ON PUBLIC.USERS(USERNAME NULLS FIRST) "
+                                + "VALUES ( /* 1 */ 'myemail' )\"; SQL statement:\nINSERT INTO users (username, email) VALUES ($1, $2)")));
+        
+        // When & Then
+        StepVerifier.create(userService.createUser(userRequest))
+                .expectErrorMatches(throwable -> throwable.getMessage().equals("Username already exists"))
+                .verify();
+        StepVerifier.create(userService.createUser(userRequest))
+                .expectErrorMatches(throwable -> throwable.getMessage().equals("Username already exists"))
+                .verify();
+    }
+    
     @Test
     @DisplayName("Should update user successfully")
     void testUpdateUserSuccess() {
@@ -150,10 +241,12 @@ class UserServiceTest {
         updateRequest.setEmail("updated@example.com");
         updateRequest.setPassword("newpassword");
         
-        when(userRepository.findById(1L)).thenReturn(Mono.just(testUser));
-        when(userRepository.existsByUsername("updateduser")).thenReturn(Mono.just(false));
-        when(userRepository.existsByEmail("updated@example.com")).thenReturn(Mono.just(false));
-        when(passwordService.hashPassword("newpassword")).thenReturn("newHashedPassword");
+        when(userRepository.findUniquenessConflict("updateduser", "updated@example.com", 1L))
+                .thenReturn(Mono.just(new UniquenessConflict(0L, 0L)));
+        when(passwordService.hash("newpassword")).thenReturn(Mono.just("newHashedPassword"));
+        when(userRepository.updateProfile(eq(1L), eq("updateduser"), eq("updated@example.com"),
+                eq("newHashedPassword"), any(LocalDateTime.class), eq(UserRepository.ANY_VERSION)))
+                .thenReturn(Mono.just(1));
         
         User updatedUser = new User();
         updatedUser.setId(1L);
@@ -163,8 +256,9 @@ class UserServiceTest {
         updatedUser.setEnabled(true);
         updatedUser.setCreatedAt(testUser.getCreatedAt());
         updatedUser.setUpdatedAt(LocalDateTime.now());
+        updatedUser.setVersion(1L);
         
-        when(userRepository.save(any(User.class))).thenReturn(Mono.just(updatedUser));
+        when(userRepository.findById(1L)).thenReturn(Mono.just(updatedUser));
         // Mock userRoleRepository for toUserResponseWithRoles
         when(userRoleRepository.findByUserId(1L)).thenReturn(Flux.empty());
         
@@ -177,18 +271,25 @@ class UserServiceTest {
                     assertNotNull(response);
                     assertEquals("updateduser", response.getUsername());
                     assertEquals("updated@example.com", response.getEmail());
+                    assertEquals(1L, response.getVersion());
                 })
                 .verifyComplete();
         
-        verify(userRepository, times(2)).findById(1L);
-        verify(userRepository).save(any(User.class));
+        // One conditional UPDATE, no read-before-write; findById only reads the result back
+        verify(userRepository, times(1)).findById(1L);
+        verify(userRepository, never()).save(any(User.class));
     }
     
     @Test
     @DisplayName("Should fail update when user not found")
     void testUpdateUserNotFound() {
         // Given
-        when(userRepository.findById(1L)).thenReturn(Mono.empty());
+        when(userRepository.findUniquenessConflict(anyString(), anyString(), anyLong()))
+                .thenReturn(Mono.just(new UniquenessConflict(0L, 0L)));
+        when(passwordService.hash(anyString())).thenReturn(Mono.just("hashedPassword"));
+        when(userRepository.updateProfile(anyLong(), anyString(), anyString(), anyString(),
+                any(LocalDateTime.class), anyLong())).thenReturn(Mono.just(0));
+        when(userRepository.findVersionById(1L)).thenReturn(Mono.empty());
         
         // When
         Mono<UserResponse> result = userService.updateUser(1L, userRequest);
@@ -200,11 +301,35 @@ class UserServiceTest {
                     throwable.getMessage().equals("User not found"))
                 .verify();
         
-        // findById is called twice in updateUser (once for validation, once for update)
-        verify(userRepository, atLeastOnce()).findById(1L);
+        verify(userRepository, never()).findById(1L);
         verify(userRepository, never()).save(any(User.class));
     }
     
+    @Test
+    @DisplayName("Should reject update with stale expected version")
+    void testUpdateUserStaleVersion() {
+        // Given
+        testUser.setVersion(4L);
+        when(userRepository.findUniquenessConflict(anyString(), anyString(), anyLong()))
+                .thenReturn(Mono.just(new UniquenessConflict(0L, 0L)));
+        when(passwordService.hash(anyString())).thenReturn(Mono.just("hashedPassword"));
+        when(userRepository.updateProfile(eq(1L), anyString(), anyString(), anyString(),
+                any(LocalDateTime.class), eq(3L))).thenReturn(Mono.just(0));
+        when(userRepository.findVersionById(1L)).thenReturn(Mono.just(testUser));
+        
+        // When
+        Mono<UserResponse> result = userService.updateUser(1L, userRequest, 3L);
+        
+        // Then
+        StepVerifier.create(result)
+                .expectErrorMatches(throwable -> 
+                    throwable instanceof StaleEntityException &&
+                    throwable.getMessage().contains("current version 4"))
+                .verify();
+        
+        verify(userRepository, never()).findById(1L);
+    }
+    
     @Test
     @DisplayName("Should update user without password when password not provided")
     void testUpdateUserWithoutPassword() {
@@ -214,9 +339,12 @@ class UserServiceTest {
         updateRequest.setEmail("updated@example.com");
         updateRequest.setPassword(null); // No password update
         
-        when(userRepository.findById(1L)).thenReturn(Mono.just(testUser));
-        when(userRepository.existsByUsername("updateduser")).thenReturn(Mono.just(false));
-        when(userRepository.existsByEmail("updated@example.com")).thenReturn(Mono.just(false));
+        when(userRepository.findUniquenessConflict("updateduser", "updated@example.com", 1L))
+                .thenReturn(Mono.just(new UniquenessConflict(0L, 0L)));
+        // null password hash keeps the stored one (COALESCE in SQL)
+        when(userRepository.updateProfile(eq(1L), eq("updateduser"), eq("updated@example.com"),
+                isNull(), any(LocalDateTime.class), eq(UserRepository.ANY_VERSION)))
+                .thenReturn(Mono.just(1));
         
         User updatedUser = new User();
         updatedUser.setId(1L);
@@ -225,7 +353,7 @@ class UserServiceTest {
         updatedUser.setPasswordHash(testUser.getPasswordHash()); // Keep old password
         updatedUser.setEnabled(true);
         
-        when(userRepository.save(any(User.class))).thenReturn(Mono.just(updatedUser));
+        when(userRepository.findById(1L)).thenReturn(Mono.just(updatedUser));
         // Mock userRoleRepository for toUserResponseWithRoles
         when(userRoleRepository.findByUserId(1L)).thenReturn(Flux.empty());
         
@@ -240,15 +368,15 @@ class UserServiceTest {
                 })
                 .verifyComplete();
         
-        verify(passwordService, never()).hashPassword(anyString());
+        verify(passwordService, never()).hash(anyString());
     }
     
     @Test
     @DisplayName("Should soft delete user successfully")
     void testDeleteUserSuccess() {
         // Given
-        when(userRepository.findById(1L)).thenReturn(Mono.just(testUser));
-        when(userRepository.save(any(User.class))).thenReturn(Mono.just(testUser));
+        when(userRepository.softDeleteById(eq(1L), any(LocalDateTime.class), eq(UserRepository.ANY_VERSION)))
+                .thenReturn(Mono.just(1));
         
         // When
         Mono<Void> result = userService.deleteUser(1L);
@@ -257,16 +385,18 @@ class UserServiceTest {
         StepVerifier.create(result)
                 .verifyComplete();
         
-        verify(userRepository).findById(1L);
-        verify(userRepository).save(any(User.class));
-        assertTrue(testUser.isDeleted()); // Check soft delete was called
+        verify(userRepository, never()).findById(1L);
+        verify(userRepository, never()).save(any(User.class));
+        verify(userCountCache).invalidate();
     }
     
     @Test
     @DisplayName("Should fail delete when user not found")
     void testDeleteUserNotFound() {
         // Given
-        when(userRepository.findById(1L)).thenReturn(Mono.empty());
+        when(userRepository.softDeleteById(eq(1L), any(LocalDateTime.class), anyLong()))
+                .thenReturn(Mono.just(0));
+        when(userRepository.findVersionById(1L)).thenReturn(Mono.empty());
         
         // When
         Mono<Void> result = userService.deleteUser(1L);
@@ -278,16 +408,32 @@ class UserServiceTest {
                     throwable.getMessage().equals("User not found"))
                 .verify();
         
-        verify(userRepository).findById(1L);
         verify(userRepository, never()).save(any(User.class));
     }
     
+    @Test
+    @DisplayName("Should fail delete when user is already deleted")
+    void testDeleteUserAlreadyDeleted() {
+        // Given
+        testUser.softDelete();
+        when(userRepository.softDeleteById(eq(1L), any(LocalDateTime.class), anyLong()))
+                .thenReturn(Mono.just(0));
+        when(userRepository.findVersionById(1L)).thenReturn(Mono.just(testUser));
+        
+        // When
+        Mono<Void> result = userService.deleteUser(1L, 0L);
+        
+        // Then
+        StepVerifier.create(result)
+                .expectError(EntityNotFoundException.class)
+                .verify();
+    }
+    
     @Test
     @DisplayName("Should hard delete user successfully")
     void testHardDeleteUserSuccess() {
         // Given
-        when(userRepository.findById(1L)).thenReturn(Mono.just(testUser));
-        when(userRepository.delete(any(User.class))).thenReturn(Mono.empty());
+        when(userRepository.deleteActiveById(1L, UserRepository.ANY_VERSION)).thenReturn(Mono.just(1));
         
         // When
         Mono<Void> result = userService.hardDeleteUser(1L);
@@ -296,17 +442,17 @@ class UserServiceTest {
         StepVerifier.create(result)
                 .verifyComplete();
         
-        verify(userRepository).findById(1L);
-        verify(userRepository).delete(testUser);
+        verify(userRepository).deleteActiveById(1L, UserRepository.ANY_VERSION);
+        verify(userRepository, never()).findById(1L);
     }
     
     @Test
     @DisplayName("Should restore soft-deleted user successfully")
     void testRestoreUserSuccess() {
         // Given
-        testUser.softDelete(); // Mark as deleted
+        when(userRepository.restoreById(eq(1L), any(LocalDateTime.class), eq(UserRepository.ANY_VERSION)))
+                .thenReturn(Mono.just(1));
         when(userRepository.findById(1L)).thenReturn(Mono.just(testUser));
-        when(userRepository.save(any(User.class))).thenReturn(Mono.just(testUser));
         // Mock userRoleRepository for toUserResponseWithRoles
         when(userRoleRepository.findByUserId(1L)).thenReturn(Flux.empty());
         
@@ -321,16 +467,15 @@ class UserServiceTest {
                 })
                 .verifyComplete();
         
-        verify(userRepository).findById(1L);
-        verify(userRepository).save(any(User.class));
-        assertFalse(testUser.isDeleted()); // Check restore was called
+        verify(userRepository, never()).save(any(User.class));
     }
     
     @Test
     @DisplayName("Should fail restore when user not found")
     void testRestoreUserNotFound() {
         // Given
-        when(userRepository.findById(1L)).thenReturn(Mono.empty());
+        when(userRepository.restoreById(eq(1L), any(LocalDateTime.class), anyLong())).thenReturn(Mono.just(0));
+        when(userRepository.findVersionById(1L)).thenReturn(Mono.empty());
         
         // When
         Mono<UserResponse> result = userService.restoreUser(1L);
@@ -347,7 +492,8 @@ class UserServiceTest {
     @DisplayName("Should fail restore when user is not deleted")
     void testRestoreUserNotDeleted() {
         // Given
-        when(userRepository.findById(1L)).thenReturn(Mono.just(testUser));
+        when(userRepository.restoreById(eq(1L), any(LocalDateTime.class), anyLong())).thenReturn(Mono.just(0));
+        when(userRepository.findVersionById(1L)).thenReturn(Mono.just(testUser));
         
         // When
         Mono<UserResponse> result = userService.restoreUser(1L);
@@ -360,6 +506,47 @@ class UserServiceTest {
                 .verify();
     }
     
+    @Test
+    @DisplayName("Should soft delete distinct ids with one statement and report affected count")
+    void testDeleteUsersBulk() {
+        // Given
+        when(userRepository.softDeleteAllById(anyCollection(), any(LocalDateTime.class))).thenReturn(Mono.just(2L));
+        
+        // When
+        Mono<BulkUpdateResult> result = userService.deleteUsers(List.of(1L, 2L, 2L, 3L));
+        
+        // Then
+        StepVerifier.create(result)
+                .assertNext(response -> {
+                    assertEquals(3, response.getRequested());
+                    assertEquals(2L, response.getAffected());
+                })
+                .verifyComplete();
+        
+        verify(userRepository, times(1)).softDeleteAllById(eq(Set.of(1L, 2L, 3L)), any(LocalDateTime.class));
+        verify(userRepository, never()).findById(anyLong());
+        verify(userRepository, never()).save(any(User.class));
+    }
+    
+    @Test
+    @DisplayName("Should reject bulk operations without ids or above the limit")
+    void testBulkOperationsRejectInvalidIds() {
+        List<Long> tooMany = new ArrayList<>();
+        for (long id = 1; id <= UserService.MAX_BULK_IDS + 1; id++) {
+            tooMany.add(id);
+        }
+        
+        StepVerifier.create(userService.restoreUsers(List.of()))
+                .expectError(IllegalArgumentException.class)
+                .verify();
+        StepVerifier.create(userService.purgeUsers(tooMany))
+                .expectError(IllegalArgumentException.class)
+                .verify();
+        
+        verify(userRepository, never()).restoreAllById(anyCollection(), any(LocalDateTime.class));
+        verify(userRepository, never()).purgeAllById(anyCollection());
+    }
+    
     @Test
     @DisplayName("Should get user by ID successfully")
     void testGetUserByIdSuccess() {
@@ -402,23 +589,75 @@ class UserServiceTest {
     }
     
     @Test
-    @DisplayName("Should get user by username successfully")
-    void testGetUserByUsernameSuccess() {
+    @DisplayName("Should load credentials and role names with one query")
+    @SuppressWarnings("unchecked")
+    void testGetCredentials() {
         // Given
-        when(userRepository.findEnabledUserByUsername("testuser")).thenReturn(Mono.just(testUser));
+        when(userRepository.findCredentialsByUsername("testuser"))
+                .thenReturn(Mono.just(new UserCredentialRow(1L, "testuser", "hashedPassword", true, "1,3")));
+        when(credentialCache.get(eq("testuser"), any(Mono.class)))
+                .thenAnswer(invocation -> invocation.getArgument(1));
+        when(roleCatalog.nameOf(1L)).thenReturn(RoleConstants.ROLE_USER);
+        when(roleCatalog.nameOf(3L)).thenReturn(RoleConstants.ROLE_ADMIN);
         
         // When
-        Mono<User> result = userService.getUserByUsername("testuser");
+        Mono<UserCredentials> result = userService.getCredentials("testuser");
         
         // Then
         StepVerifier.create(result)
-                .assertNext(user -> {
-                    assertNotNull(user);
-                    assertEquals("testuser", user.getUsername());
+                .assertNext(credentials -> {
+                    assertEquals(1L, credentials.userId());
+                    assertEquals("hashedPassword", credentials.passwordHash());
+                    assertEquals(List.of(RoleConstants.ROLE_USER, RoleConstants.ROLE_ADMIN), credentials.roles());
                 })
                 .verifyComplete();
+        verifyNoInteractions(userRoleRepository, roleRepository);
+    }
+    
+    @Test
+    @DisplayName("Should not return credentials of a disabled user")
+    @SuppressWarnings("unchecked")
+    void testGetCredentialsDisabledUser() {
+        // Given
+        when(userRepository.findCredentialsByUsername("testuser"))
+                .thenReturn(Mono.just(new UserCredentialRow(1L, "testuser", "hashedPassword", false, null)));
+        when(credentialCache.get(eq("testuser"), any(Mono.class)))
+                .thenAnswer(invocation -> invocation.getArgument(1));
         
-        verify(userRepository).findEnabledUserByUsername("testuser");
+        // When & Then
+        StepVerifier.create(userService.getCredentials("testuser")).verifyComplete();
+    }
+    
+    @Test
+    @DisplayName("Should replace an outdated password hash only if it is unchanged")
+    void testUpgradePasswordHash() {
+        // Given
+        UserCredentials credentials = new UserCredentials(1L, "testuser", "hashedPassword", true, List.of(RoleConstants.ROLE_USER));
+        when(passwordService.rehashIfNeeded("password123", "hashedPassword")).thenReturn(Mono.just("rehashedPassword"));
+        when(userRepository.replacePasswordHash(1L, "hashedPassword", "rehashedPassword")).thenReturn(Mono.just(1));
+        
+        // When
+        Mono<Void> result = userService.upgradePasswordHash(credentials, "password123");
+        
+        // Then
+        StepVerifier.create(result).verifyComplete();
+        verify(userRepository).replacePasswordHash(1L, "hashedPassword", "rehashedPassword");
+        verify(credentialCache).invalidate(1L);
+    }
+    
+    @Test
+    @DisplayName("Should leave a password hash that matches the policy alone")
+    void testUpgradePasswordHashNotNeeded() {
+        // Given
+        UserCredentials credentials = new UserCredentials(1L, "testuser", "hashedPassword", true, List.of(RoleConstants.ROLE_USER));
+        when(passwordService.rehashIfNeeded("password123", "hashedPassword")).thenReturn(Mono.empty());
+        
+        // When
+        Mono<Void> result = userService.upgradePasswordHash(credentials, "password123");
+        
+        // Then
+        StepVerifier.create(result).verifyComplete();
+        verify(userRepository, never()).replacePasswordHash(anyLong(), anyString(), anyString());
     }
     
     @Test
@@ -431,9 +670,11 @@ class UserServiceTest {
         user2.setEmail("user2@example.com");
         
         when(userRepository.findAll()).thenReturn(Flux.just(testUser, user2));
-        // Mock userRoleRepository for toUserResponseWithRoles
-        when(userRoleRepository.findByUserId(1L)).thenReturn(Flux.empty());
-        when(userRoleRepository.findByUserId(2L)).thenReturn(Flux.empty());
+        // Roles for the whole batch come from one joined query
+        when(userRoleRepository.findRoleNamesByUserIds(List.of(1L, 2L))).thenReturn(Flux.just(
+                new UserRoleName(2L, "ROLE_USER"),
+                new UserRoleName(1L, "ROLE_ADMIN"),
+                new UserRoleName(1L, "ROLE_USER")));
         
         // When
         Flux<UserResponse> result = userService.getAllUsers();
@@ -442,15 +683,56 @@ class UserServiceTest {
         StepVerifier.create(result)
                 .assertNext(response -> {
                     assertEquals("testuser", response.getUsername());
+                    assertEquals(List.of("ROLE_ADMIN", "ROLE_USER"), response.getRoles());
                 })
                 .assertNext(response -> {
                     assertEquals("user2", response.getUsername());
+                    assertEquals(List.of("ROLE_USER"), response.getRoles());
                 })
                 .verifyComplete();
         
         verify(userRepository).findAll();
     }
     
+    @Test
+    @DisplayName("Should hydrate roles for a full page with one query per chunk")
+    void testGetAllUsersPaginatedRoleQueryCount() {
+        // Given
+        List<User> users = new ArrayList<>();
+        List<UserRoleName> rows = new ArrayList<>();
+        for (long id = 1; id <= 100; id++) {
+            User user = new User("user" + id, "user" + id + "@example.com", "hash");
+            user.setId(id);
+            users.add(user);
+            rows.add(new UserRoleName(id, "ROLE_USER"));
+            rows.add(new UserRoleName(id, "ROLE_MODERATOR"));
+        }
+        PageRequest pageRequest = new PageRequest(0, 100, "id,asc", null);
+        when(userRepository.findPage(UserQuery.builder().orderBy(UserSortField.ID, true).build(), 0L, 100))
+                .thenReturn(Flux.fromIterable(users));
+        when(userRepository.countAll()).thenReturn(Mono.just(100L));
+        when(userRoleRepository.findRoleNamesByUserIds(anyCollection())).thenReturn(Flux.fromIterable(rows));
+        
+        // When
+        Mono<StreamedPage> result = streamPage(pageRequest);
+        
+        // Then
+        StepVerifier.create(result)
+                .assertNext(page -> {
+                    assertEquals(100, page.content().size());
+                    page.content().forEach(response ->
+                            assertEquals(List.of("ROLE_USER", "ROLE_MODERATOR"), response.getRoles()));
+                })
+                .verifyComplete();
+        
+        // 1 page query + 1 count + 1 role query per 25-row chunk, instead of 1 + 100 + 100k
+        verify(userRepository, times(1)).findPage(any(UserQuery.class), anyLong(), anyInt());
+        verify(userRepository, times(1)).countAll();
+        verify(userRoleRepository, times(4)).findRoleNamesByUserIds(anyCollection());
+        verify(userRoleRepository, never()).findByUserId(anyLong());
+        verifyNoInteractions(roleRepository);
+    }
+    
     @Test
     @DisplayName("Should return empty flux when no users exist")
     void testGetAllUsersEmpty() {
@@ -466,5 +748,295 @@ class UserServiceTest {
         
         verify(userRepository).findAll();
     }
+    
+    @Test
+    @DisplayName("Should page users with LIMIT/OFFSET and return next cursor")
+    void testGetAllUsersPaginatedOffset() {
+        // Given
+        PageRequest pageRequest = new PageRequest(1, 1, "username,asc", null);
+        when(userRepository.findPage(UserQuery.builder().orderBy(UserSortField.USERNAME, true).build(), 1L, 1))
+                .thenReturn(Flux.just(testUser));
+        when(userRepository.countAll()).thenReturn(Mono.just(3L));
+        when(userRoleRepository.findRoleNamesByUserIds(List.of(1L))).thenReturn(Flux.empty());
+        
+        // When
+        Mono<StreamedPage> result = streamPage(pageRequest);
+        
+        // Then
+        StepVerifier.create(result)
+                .assertNext(page -> {
+                    assertEquals(1, page.content().size());
+                    assertEquals(3L, page.pagination().getTotalElements());
+                    PageCursor cursor = PageCursor.decode(page.pagination().getNextCursor());
+                    assertEquals("username,asc", cursor.sort());
+                    assertEquals(List.of("testuser"), cursor.values());
+                    assertEquals(1L, cursor.id());
+                })
+                .verifyComplete();
+        
+        verify(userRepository, never()).findAll();
+    }
+    
+    @Test
+    @DisplayName("Should skip COUNT and look one row ahead with count=none")
+    void testGetAllUsersWithoutCount() {
+        // Given
+        User nextUser = new User();
+        nextUser.setId(2L);
+        nextUser.setUsername("zuser");
+        PageRequest pageRequest = new PageRequest(0, 1, "username,asc", null, "none");
+        when(userRepository.findPage(UserQuery.builder().orderBy(UserSortField.USERNAME, true).build(), 0L, 2))
+                .thenReturn(Flux.just(testUser, nextUser));
+        when(userRoleRepository.findRoleNamesByUserIds(List.of(1L))).thenReturn(Flux.empty());
+        
+        // When
+        Mono<StreamedPage> result = streamPage(pageRequest);
+        
+        // Then
+        StepVerifier.create(result)
+                .assertNext(page -> {
+                    assertEquals(1, page.content().size());
+                    assertEquals("testuser", page.content().get(0).getUsername());
+                    assertNull(page.pagination().getTotalElements());
+                    assertTrue(page.pagination().getHasNext());
+                    assertEquals(1L, PageCursor.decode(page.pagination().getNextCursor()).id());
+                })
+                .verifyComplete();
+        
+        verify(userRepository, never()).countAll();
+    }
+    
+    @Test
+    @DisplayName("Should stream a page without the look-ahead row and report it in the pagination")
+    void testStreamAllUsersWithoutCount() {
+        // Given
+        User nextUser = new User();
+        nextUser.setId(2L);
+        nextUser.setUsername("zuser");
+        PageRequest pageRequest = new PageRequest(0, 1, "username,asc", null, "none");
+        when(userRepository.findPage(UserQuery.builder().orderBy(UserSortField.USERNAME, true).build(), 0L, 2))
+                .thenReturn(Flux.just(testUser, nextUser));
+        when(userRoleRepository.findRoleNamesByUserIds(List.of(1L))).thenReturn(Flux.empty());
+        
+        // When
+        PageStream<UserResponse> page = userService.streamAllUsers(pageRequest).block();
+        
+        // Then
+        assertNotNull(page);
+        StepVerifier.create(page.content())
+                .assertNext(response -> assertEquals("testuser", response.getUsername()))
+                .verifyComplete();
+        StepVerifier.create(page.pagination())
+                .assertNext(meta -> {
+                    assertTrue(meta.getHasNext());
+                    assertNull(meta.getTotalElements());
+                    assertEquals(1L, PageCursor.decode(meta.getNextCursor()).id());
+                })
+                .verifyComplete();
+        verify(userRepository, never()).countAll();
+    }
+    
+    @Test
+    @DisplayName("Should reject a bad sort before streaming a page")
+    void testStreamAllUsersInvalidSort() {
+        // Given
+        PageRequest pageRequest = new PageRequest(0, 10, "password,asc", null);
+        
+        // When & Then
+        StepVerifier.create(userService.streamAllUsers(pageRequest))
+                .expectError(IllegalArgumentException.class)
+                .verify();
+        verifyNoInteractions(userRepository);
+    }
+    
+    @Test
+    @DisplayName("Should reset page state and reuse the count when the content is re-subscribed")
+    void testStreamAllUsersResubscribe() {
+        // Given
+        PageRequest pageRequest = new PageRequest(0, 1, "id,asc", null);
+        when(userRepository.findPage(UserQuery.builder().orderBy(UserSortField.ID, true).build(), 0L, 1))
+                .thenReturn(Flux.just(testUser));
+        when(userRepository.countAll()).thenReturn(Mono.just(3L));
+        when(userRoleRepository.findRoleNamesByUserIds(List.of(1L))).thenReturn(Flux.empty());
+        
+        // When
+        PageStream<UserResponse> page = userService.streamAllUsers(pageRequest).block();
+        
+        // Then
+        assertNotNull(page);
+        StepVerifier.create(page.content()).expectNextCount(1).verifyComplete();
+        StepVerifier.create(page.content()).expectNextCount(1).verifyComplete();
+        StepVerifier.create(page.pagination())
+                .assertNext(meta -> {
+                    assertEquals(3L, meta.getTotalElements());
+                    assertEquals(1L, PageCursor.decode(meta.getNextCursor()).id());
+                })
+                .verifyComplete();
+        verify(userRepository, times(1)).countAll();
+    }
+    
+    @Test
+    @DisplayName("Should report last page without cursor when no extra row exists")
+    void testGetAllUsersWithoutCountLastPage() {
+        // Given
+        PageRequest pageRequest = new PageRequest(0, 1, "id,asc", null, "none");
+        when(userRepository.findPage(UserQuery.builder().orderBy(UserSortField.ID, true).build(), 0L, 2))
+                .thenReturn(Flux.just(testUser));
+        when(userRoleRepository.findRoleNamesByUserIds(List.of(1L))).thenReturn(Flux.empty());
+        
+        // When
+        Mono<StreamedPage> result = streamPage(pageRequest);
+        
+        // Then
+        StepVerifier.create(result)
+                .assertNext(page -> {
+                    assertFalse(page.pagination().getHasNext());
+                    assertNull(page.pagination().getNextCursor());
+                })
+                .verifyComplete();
+        
+        verify(userRepository, never()).countAll();
+    }
+    
+    @Test
+    @DisplayName("Should serve total from the count cache with count=cached")
+    void testGetAllUsersCachedCount() {
+        // Given
+        PageRequest pageRequest = new PageRequest(0, 10, "id,asc", null, "cached");
+        when(userRepository.findPage(UserQuery.builder().orderBy(UserSortField.ID, true).build(), 0L, 10))
+                .thenReturn(Flux.just(testUser));
+        when(userRoleRepository.findRoleNamesByUserIds(List.of(1L))).thenReturn(Flux.empty());
+        when(userCountCache.get(any())).thenReturn(Mono.just(42L));
+        
+        // When
+        Mono<StreamedPage> result = streamPage(pageRequest);
+        
+        // Then
+        StepVerifier.create(result)
+                .assertNext(page -> {
+                    assertNotNull(page.pagination().getTotalElements());
+                    assertEquals(42L, page.pagination().getTotalElements());
+                })
+                .verifyComplete();
+    }
+    
+    @Test
+    @DisplayName("Should seek past cursor instead of using OFFSET")
+    void testGetAllUsersPaginatedCursor() {
+        // Given
+        String cursor = new PageCursor("username,asc", 1L, List.of("testuser")).encode();
+        PageRequest pageRequest = new PageRequest(5, 10, "username,asc", cursor);
+        when(userRepository.findPageAfter(UserQuery.builder().orderBy(UserSortField.USERNAME, true).build(), List.of("testuser"), 1L, 11))
+                .thenReturn(Flux.empty());
+        when(userRepository.countAll()).thenReturn(Mono.just(1L));
+        
+        // When
+        Mono<StreamedPage> result = streamPage(pageRequest);
+        
+        // Then
+        StepVerifier.create(result)
+                .assertNext(page -> {
+                    assertTrue(page.content().isEmpty());
+                    assertNull(page.pagination().getNextCursor());
+                })
+                .verifyComplete();
+        
+        verify(userRepository, never()).findPage(any(UserQuery.class), anyLong(), anyInt());
+    }
+    
+    @Test
+    @DisplayName("Should report the last page reached through a cursor as the last one")
+    void testGetAllUsersPaginatedCursorLastPage() {
+        // Given: 12 users, the cursor points past the first 10
+        String cursor = new PageCursor("username,asc", 10L, List.of("user10")).encode();
+        PageRequest pageRequest = new PageRequest(0, 10, "username,asc", cursor);
+        User user2 = new User();
+        user2.setId(11L);
+        user2.setUsername("user11");
+        user2.setEmail("user11@example.com");
+        user2.setEnabled(true);
+        testUser.setId(12L);
+        when(userRepository.findPageAfter(UserQuery.builder().orderBy(UserSortField.USERNAME, true).build(), List.of("user10"), 10L, 11))
+                .thenReturn(Flux.just(user2, testUser));
+        when(userRepository.countAll()).thenReturn(Mono.just(12L));
+        when(userRoleRepository.findRoleNamesByUserIds(anyCollection())).thenReturn(Flux.empty());
+        
+        // When
+        Mono<StreamedPage> result = streamPage(pageRequest);
+        
+        // Then
+        StepVerifier.create(result)
+                .assertNext(page -> {
+                    assertEquals(2, page.content().size());
+                    assertEquals(12L, page.pagination().getTotalElements());
+                    assertFalse(page.pagination().getHasNext());
+                    assertTrue(page.pagination().getHasPrevious());
+                    assertNull(page.pagination().getNextCursor());
+                })
+                .verifyComplete();
+    }
+    
+    @Test
+    @DisplayName("Should reject cursor that does not match requested sort")
+    void testGetAllUsersPaginatedCursorSortMismatch() {
+        // Given
+        String cursor = new PageCursor("email,asc", 1L, List.of("test@example.com")).encode();
+        PageRequest pageRequest = new PageRequest(0, 10, "username,asc", cursor);
+        
+        // When
+        Mono<StreamedPage> result = streamPage(pageRequest);
+        
+        // Then
+        StepVerifier.create(result)
+                .expectError(IllegalArgumentException.class)
+                .verify();
+    }
+    
+    @Test
+    @DisplayName("Should push multi-field sort and filters into one query and count with the same filters")
+    void testGetAllUsersSortAndFilters() {
+        // Given
+        PageRequest pageRequest = new PageRequest(0, 10, "createdAt,desc;username,asc", null, "exact",
+                true, LocalDateTime.parse("2024-01-01T00:00:00"), null, RoleConstants.ROLE_ADMIN);
+        when(roleCatalog.idOf(RoleConstants.ROLE_ADMIN)).thenReturn(2L);
+        UserQuery expectedQuery = UserQuery.builder()
+                .orderBy(UserSortField.CREATED_AT, false)
+                .orderBy(UserSortField.USERNAME, true)
+                .enabled(true)
+                .createdBetween(LocalDateTime.parse("2024-01-01T00:00:00"), null)
+                .roleId(2L)
+                .build();
+        when(userRepository.findPage(expectedQuery, 0L, 10)).thenReturn(Flux.just(testUser));
+        when(userRepository.countMatching(expectedQuery)).thenReturn(Mono.just(1L));
+        when(userRoleRepository.findRoleNamesByUserIds(List.of(1L))).thenReturn(Flux.empty());
+        
+        // When
+        Mono<StreamedPage> result = streamPage(pageRequest);
+        
+        // Then
+        StepVerifier.create(result)
+                .assertNext(page -> assertEquals(1L, page.pagination().getTotalElements()))
+                .verifyComplete();
+        
+        verify(userRepository, never()).countAll();
+    }
+    
+    @Test
+    @DisplayName("Should reject sort fields outside the whitelist")
+    void testGetAllUsersRejectsUnknownSortField() {
+        // Given
+        PageRequest pageRequest = new PageRequest(0, 10, "passwordHash,asc", null);
+        
+        // When
+        Mono<StreamedPage> result = streamPage(pageRequest);
+        
+        // Then
+        StepVerifier.create(result)
+                .expectErrorMatches(throwable ->
+                    throwable instanceof IllegalArgumentException &&
+                    throwable.getMessage().startsWith("Unsupported sort field"))
+                .verify();
+        
+        verify(userRepository, never()).findPage(any(UserQuery.class), anyLong(), anyInt());
+    }
 }
-
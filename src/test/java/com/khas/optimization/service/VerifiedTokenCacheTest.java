@@ -0,0 +1,147 @@
+package com.khas.optimization.service;
+
+import io.jsonwebtoken.MalformedJwtException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for VerifiedTokenCache
+ */
+@ExtendWith(MockitoExtension.class)
+@DisplayName("VerifiedTokenCache Tests")
+class VerifiedTokenCacheTest {
+
+    @Mock
+    private JwtService jwtService;
+
+    @Mock
+    private TokenRevocationService tokenRevocationService;
+
+    private VerifiedTokenCache verifiedTokenCache;
+
+    @BeforeEach
+    void setUp() {
+        verifiedTokenCache = new VerifiedTokenCache(jwtService, tokenRevocationService, 100, Duration.ofMinutes(5));
+    }
+
+    private static JwtPrincipal principal(String username, Instant expiresAt) {
+        return new JwtPrincipal(username, List.of("ROLE_USER"), expiresAt);
+    }
+
+    @Test
+    @DisplayName("Should verify a token once and serve repeats from memory")
+    void testCachedToken() {
+        // Given
+        JwtPrincipal principal = principal("testuser", Instant.now().plusSeconds(600));
+        when(jwtService.parsePrincipal("token")).thenReturn(principal);
+
+        // When
+        JwtPrincipal first = verifiedTokenCache.authenticate("token");
+        JwtPrincipal second = verifiedTokenCache.authenticate("token");
+
+        // Then
+        assertSame(principal, first);
+        assertSame(principal, second);
+        verify(jwtService, times(1)).parsePrincipal("token");
+        assertEquals(1, verifiedTokenCache.getHits());
+    }
+
+    @Test
+    @DisplayName("Should not cache invalid tokens")
+    void testInvalidToken() {
+        // Given
+        when(jwtService.parsePrincipal("bad")).thenThrow(new MalformedJwtException("bad"));
+
+        // When & Then
+        assertNull(verifiedTokenCache.authenticate("bad"));
+        assertNull(verifiedTokenCache.authenticate("bad"));
+        assertNull(verifiedTokenCache.authenticate(null));
+        verify(jwtService, times(2)).parsePrincipal("bad");
+        assertEquals(0, verifiedTokenCache.size());
+    }
+
+    @Test
+    @DisplayName("Should never serve a token past its exp claim")
+    void testEntryExpiresWithToken() {
+        // Given: a token whose exp passes right after verification
+        when(jwtService.parsePrincipal("token")).thenReturn(principal("testuser", Instant.now().minusMillis(1)));
+
+        // When
+        verifiedTokenCache.authenticate("token");
+        verifiedTokenCache.authenticate("token");
+
+        // Then
+        verify(jwtService, times(2)).parsePrincipal("token");
+        assertEquals(0, verifiedTokenCache.getHits());
+    }
+
+    @Test
+    @DisplayName("Should stay within the configured size")
+    void testBounded() {
+        // Given
+        VerifiedTokenCache small = new VerifiedTokenCache(jwtService, tokenRevocationService, 10, Duration.ofMinutes(5));
+        when(jwtService.parsePrincipal(anyString()))
+                .thenAnswer(invocation -> principal(invocation.getArgument(0), Instant.now().plusSeconds(600)));
+
+        // When
+        for (int i = 0; i < 50; i++) {
+            assertEquals("user" + i, small.authenticate("user" + i).username());
+        }
+
+        // Then
+        assertTrue(small.size() <= 10);
+    }
+
+    @Test
+    @DisplayName("Should reject a cached token once it is revoked")
+    void testRevokedTokenOnCacheHit() {
+        // Given
+        JwtPrincipal principal = new JwtPrincipal("testuser", List.of("ROLE_USER"),
+                Instant.now().plusSeconds(600), "token-id");
+        when(jwtService.parsePrincipal("token")).thenReturn(principal);
+        assertSame(principal, verifiedTokenCache.authenticate("token"));
+
+        // When
+        when(tokenRevocationService.isRevoked("token-id")).thenReturn(true);
+
+        // Then
+        assertNull(verifiedTokenCache.authenticate("token"));
+        verify(jwtService, times(1)).parsePrincipal("token");
+    }
+
+    @Test
+    @DisplayName("Should resolve a batch in order and verify each distinct token once")
+    void testAuthenticateAll() {
+        // Given
+        JwtPrincipal principal = principal("testuser", Instant.now().plusSeconds(600));
+        when(jwtService.parsePrincipal("token")).thenReturn(principal);
+        when(jwtService.parsePrincipal("bad")).thenThrow(new MalformedJwtException("bad"));
+
+        // When
+        List<JwtPrincipal> principals = verifiedTokenCache.authenticateAll(
+                Arrays.asList("token", "bad", "token", "bad", null));
+
+        // Then
+        assertEquals(5, principals.size());
+        assertSame(principal, principals.get(0));
+        assertNull(principals.get(1));
+        assertSame(principal, principals.get(2));
+        assertNull(principals.get(3));
+        assertNull(principals.get(4));
+        verify(jwtService, times(1)).parsePrincipal("token");
+        verify(jwtService, times(1)).parsePrincipal("bad");
+        verify(tokenRevocationService, times(1)).isRevoked(principal.tokenId());
+    }
+}
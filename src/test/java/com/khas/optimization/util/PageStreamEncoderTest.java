@@ -0,0 +1,135 @@
+package com.khas.optimization.util;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.khas.optimization.dto.PaginatedResponse;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.http.MediaType;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for PageStreamEncoder
+ */
+@DisplayName("PageStreamEncoder Tests")
+class PageStreamEncoderTest {
+
+    private ObjectMapper objectMapper;
+    private PageStreamEncoder encoder;
+
+    @BeforeEach
+    void setUp() {
+        objectMapper = new ObjectMapper().registerModule(new JavaTimeModule());
+        encoder = new PageStreamEncoder(objectMapper);
+    }
+
+    private String encode(String message, List<?> data, PaginatedResponse.PaginationMeta meta) {
+        List<DataBuffer> buffers = encoder.paginated(message, Flux.fromIterable(data), Mono.just(meta),
+                DefaultDataBufferFactory.sharedInstance).collectList().block();
+        assertNotNull(buffers);
+        StringBuilder json = new StringBuilder();
+        for (DataBuffer buffer : buffers) {
+            json.append(buffer.toString(StandardCharsets.UTF_8));
+            DataBufferUtils.release(buffer);
+        }
+        return json.toString();
+    }
+
+    @Test
+    @DisplayName("Should write the same document as the buffered PaginatedResponse")
+    void testMatchesPaginatedResponse() throws Exception {
+        // Given
+        List<Map<String, Object>> data = List.of(Map.of("id", 1, "username", "a"), Map.of("id", 2, "username", "b\"c"));
+        PaginatedResponse.PaginationMeta meta = PaginatedResponse.PaginationMeta.of(0, 2, 5L, "cursor");
+        PaginatedResponse<Map<String, Object>> buffered = PaginatedResponse.of(data, 0, 2, 5L, "cursor", "Users");
+
+        // When
+        JsonNode streamed = objectMapper.readTree(encode("Users", data, meta));
+
+        // Then
+        ObjectNode expected = objectMapper.valueToTree(buffered);
+        expected.remove("timestamp");
+        assertTrue(streamed.has("timestamp"));
+        ((ObjectNode) streamed).remove("timestamp");
+        assertEquals(expected, streamed);
+    }
+
+    @Test
+    @DisplayName("Should write CBOR and Smile with the same schema as the buffered PaginatedResponse")
+    void testBinaryFormats() throws Exception {
+        // Given
+        List<Map<String, Object>> data = List.of(Map.of("id", 1, "username", "a"), Map.of("id", 2, "username", "a"));
+        PaginatedResponse.PaginationMeta meta = PaginatedResponse.PaginationMeta.of(0, 2, 5L, null);
+        PaginatedResponse<Map<String, Object>> buffered = PaginatedResponse.of(data, 0, 2, 5L, null, "Users");
+        ObjectNode expected = objectMapper.valueToTree(buffered);
+        expected.remove("timestamp");
+
+        for (MediaType mediaType : List.of(MediaType.APPLICATION_CBOR, BinaryFormats.APPLICATION_SMILE)) {
+            ObjectMapper binaryMapper = MediaType.APPLICATION_CBOR.equals(mediaType)
+                    ? BinaryFormats.cbor(objectMapper)
+                    : BinaryFormats.smile(objectMapper);
+
+            // When
+            JsonNode streamed = binaryMapper.readTree(encodeBytes(mediaType, data, meta));
+
+            // Then
+            assertTrue(streamed.has("timestamp"), mediaType.toString());
+            ((ObjectNode) streamed).remove("timestamp");
+            assertEquals(expected, streamed, mediaType.toString());
+        }
+    }
+
+    @Test
+    @DisplayName("Should negotiate JSON by default and binary formats by quality")
+    void testNegotiate() {
+        assertEquals(MediaType.APPLICATION_JSON, encoder.negotiate(List.of()));
+        assertEquals(MediaType.APPLICATION_JSON, encoder.negotiate(MediaType.parseMediaTypes("*/*")));
+        assertEquals(MediaType.APPLICATION_CBOR, encoder.negotiate(MediaType.parseMediaTypes("application/cbor")));
+        assertEquals(BinaryFormats.APPLICATION_SMILE,
+                encoder.negotiate(MediaType.parseMediaTypes("application/json;q=0.5, application/x-jackson-smile")));
+        assertEquals(MediaType.APPLICATION_JSON,
+                encoder.negotiate(MediaType.parseMediaTypes("application/json, application/cbor")));
+    }
+
+    private byte[] encodeBytes(MediaType mediaType, List<?> data, PaginatedResponse.PaginationMeta meta) {
+        List<DataBuffer> buffers = encoder.paginated("Users", Flux.fromIterable(data), Mono.just(meta), mediaType,
+                DefaultDataBufferFactory.sharedInstance).collectList().block();
+        assertNotNull(buffers);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        for (DataBuffer buffer : buffers) {
+            byte[] chunk = new byte[buffer.readableByteCount()];
+            buffer.read(chunk);
+            bytes.writeBytes(chunk);
+            DataBufferUtils.release(buffer);
+        }
+        return bytes.toByteArray();
+    }
+
+    @Test
+    @DisplayName("Should write an empty data array and omit a null message")
+    void testEmptyPage() throws Exception {
+        // When
+        JsonNode streamed = objectMapper.readTree(encode(null, List.of(),
+                PaginatedResponse.PaginationMeta.uncounted(0, 10, false, null)));
+
+        // Then
+        assertTrue(streamed.get("success").asBoolean());
+        assertFalse(streamed.has("message"));
+        assertEquals(0, streamed.get("data").size());
+        assertFalse(streamed.get("pagination").get("hasNext").asBoolean());
+    }
+}